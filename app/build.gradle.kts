@@ -31,6 +31,13 @@ android {
         buildConfigField("String", "QWEATHER_KEY", "\"$qweatherKey\"")
         buildConfigField("String", "AMAP_KEY", "\"$amapKey\"")
         buildConfigField("String", "BACKEND_BASE_URL", "\"$backendBaseUrl\"")
+
+        // Room 导出的 schema 随代码提交；generate*SeedDatabase 按它建预置库的表
+        javaCompileOptions {
+            annotationProcessorOptions {
+                arguments += mapOf("room.schemaLocation" to "$projectDir/schemas")
+            }
+        }
     }
 
     buildFeatures {
@@ -47,12 +54,59 @@ android {
             )
         }
     }
+    androidResources {
+        // geo/cities.bin 由 CityIndex 直接 mmap，不能压缩
+        noCompress += "bin"
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
 }
 
+// 封面 drawable 名在构建期解析成 R.drawable 引用（SeedCovers.java），预置库和运行时导入器共用
+val generateSeedCovers = tasks.register<com.example.dresscode.build.SeedCoversTask>("generateSeedCovers") {
+    seedJson.set(layout.projectDirectory.file("src/main/assets/outfits.json"))
+    resDirs.from(layout.projectDirectory.dir("src/main/res"))
+    packageName.set("com.example.dresscode.data.local")
+    rPackageName.set(android.namespace)
+    javaDir.set(layout.buildDirectory.dir("generated/seedCovers/java"))
+}
+
+// 城市名/拼音/adcode 索引：src/main/geo/cities.csv 编译成 assets/geo/cities.bin（见 CityIndex）
+val generateCityIndex = tasks.register<com.example.dresscode.build.CityIndexTask>("generateCityIndex") {
+    sourceCsv.set(layout.projectDirectory.file("src/main/geo/cities.csv"))
+    assetsDir.set(layout.buildDirectory.dir("generated/cityIndex/assets"))
+}
+
+androidComponents {
+    onVariants { variant ->
+        val name = variant.name.replaceFirstChar { it.uppercase() }
+        // 把 assets/outfits.json 预编译成 Room 预置库（DatabaseProvider.createFromAsset）；
+        // 表结构读 Room 导出的 schema，所以排在本变体的 javac（注解处理器写 schema）之后
+        val generateSeedDatabase = tasks.register<com.example.dresscode.build.SeedDatabaseTask>("generate${name}SeedDatabase") {
+            seedJson.set(layout.projectDirectory.file("src/main/assets/outfits.json"))
+            resDirs.from(layout.projectDirectory.dir("src/main/res"))
+            schemaDir.set(layout.projectDirectory.dir("schemas/com.example.dresscode.data.local.AppDatabase"))
+            databaseImpl.set(layout.buildDirectory.file("generated/ap_generated_sources/${variant.name}/out/com/example/dresscode/data/local/AppDatabase_Impl.java"))
+            databaseFileName.set("dresscode_seed.db")
+            assetsDir.set(layout.buildDirectory.dir("generated/seedDb/${variant.name}/assets"))
+            dependsOn("compile${name}JavaWithJavac")
+        }
+        variant.sources.assets?.addGeneratedSourceDirectory(generateSeedDatabase) { it.assetsDir }
+        variant.sources.assets?.addGeneratedSourceDirectory(generateCityIndex) { it.assetsDir }
+        variant.sources.java?.addGeneratedSourceDirectory(generateSeedCovers) { it.javaDir }
+    }
+}
+
+// 计时基准（*Benchmark）受机器负载影响，默认不随单元测试跑：./gradlew testDebugUnitTest -Pbenchmark
+tasks.withType<Test>().configureEach {
+    if (!project.hasProperty("benchmark")) {
+        exclude("**/*Benchmark.class")
+    }
+    systemProperty("dresscode.benchmarkReportDir", layout.buildDirectory.dir("reports/benchmarks").get().asFile.absolutePath)
+}
+
 dependencies {
 
     implementation(libs.appcompat)
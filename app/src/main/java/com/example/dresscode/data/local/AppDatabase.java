@@ -7,11 +7,15 @@ import androidx.room.RoomDatabase;
         entities = {
                 ClosetItemEntity.class,
                 OutfitEntity.class,
+                OutfitFtsEntity.class,
                 FavoriteEntity.class,
-                SwapJobEntity.class
+                SwapJobEntity.class,
+                TagJobEntity.class,
+                WeatherCacheEntity.class,
+                RegeoCacheEntity.class
         },
-        version = 9,
-        exportSchema = false
+        version = 16,
+        exportSchema = true
 )
 public abstract class AppDatabase extends RoomDatabase {
     public abstract ClosetDao closetDao();
@@ -19,4 +23,10 @@ public abstract class AppDatabase extends RoomDatabase {
     public abstract OutfitDao outfitDao();
 
     public abstract SwapDao swapDao();
+
+    public abstract TagJobDao tagJobDao();
+
+    public abstract WeatherCacheDao weatherCacheDao();
+
+    public abstract RegeoCacheDao regeoCacheDao();
 }
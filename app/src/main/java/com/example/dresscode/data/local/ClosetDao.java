@@ -70,6 +70,34 @@ public interface ClosetDao {
             long remoteTagUpdatedAt
     );
 
+    @Query(
+            "UPDATE closet_items SET " +
+                    "gridUri = :gridUri, gridWidth = :gridWidth, gridHeight = :gridHeight, " +
+                    "previewUri = :previewUri, previewWidth = :previewWidth, previewHeight = :previewHeight " +
+                    "WHERE id = :id"
+    )
+    int updateRenditions(
+            long id,
+            String gridUri,
+            int gridWidth,
+            int gridHeight,
+            String previewUri,
+            int previewWidth,
+            int previewHeight
+    );
+
+    /**
+     * 升级前导入、还没有缩略图的衣物。
+     */
+    @Query("SELECT * FROM closet_items WHERE owner = :owner AND gridUri = '' ORDER BY createdAt DESC")
+    List<ClosetItemEntity> listMissingRenditions(String owner);
+
+    /**
+     * 所有账号衣物引用的图片（原图和缩略图），本地图片 GC 用来计算引用数。
+     */
+    @Query("SELECT imageUri FROM closet_items UNION ALL SELECT gridUri FROM closet_items UNION ALL SELECT previewUri FROM closet_items")
+    List<String> listImageUris();
+
     @Query("UPDATE closet_items SET owner = :owner WHERE owner = ''")
     int claimLegacy(String owner);
 }
@@ -61,6 +61,26 @@ public class ClosetItemEntity {
 
     public long createdAt;
 
+    /**
+     * 导入时生成的列表用缩略图（file:// URI，短边约为半个屏幕宽）及其像素尺寸；空字符串表示还没生成。
+     */
+    @NonNull
+    public String gridUri;
+
+    public int gridWidth;
+
+    public int gridHeight;
+
+    /**
+     * 导入时生成的预览图（长边约为屏幕长边），已按 EXIF 方向转正。
+     */
+    @NonNull
+    public String previewUri;
+
+    public int previewWidth;
+
+    public int previewHeight;
+
     public ClosetItemEntity() {
         this.owner = "";
         this.name = "";
@@ -77,6 +97,8 @@ public class ClosetItemEntity {
         this.remoteTagModel = "";
         this.remoteTagUpdatedAt = 0;
         this.createdAt = 0;
+        this.gridUri = "";
+        this.previewUri = "";
     }
 
     @Ignore
@@ -107,5 +129,7 @@ public class ClosetItemEntity {
         this.remoteTagModel = "";
         this.remoteTagUpdatedAt = 0;
         this.createdAt = createdAt;
+        this.gridUri = "";
+        this.previewUri = "";
     }
 }
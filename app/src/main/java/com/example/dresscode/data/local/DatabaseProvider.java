@@ -2,12 +2,18 @@ package com.example.dresscode.data.local;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
 import androidx.room.Room;
+import androidx.room.RoomDatabase;
 import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 
 public final class DatabaseProvider {
+    /** 构建期由 SeedDatabaseTask 按 Room 导出的 schema 从 outfits.json 生成的预置库（见 app/build.gradle.kts）。 */
+    private static final String SEED_ASSET = "databases/dresscode_seed.db";
+
     private static volatile AppDatabase instance;
+    private static volatile String prepackagedSeedFingerprint;
 
     private DatabaseProvider() {
     }
@@ -20,13 +26,49 @@ public final class DatabaseProvider {
                             context.getApplicationContext(),
                             AppDatabase.class,
                             "dresscode.db"
-                    ).addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9).build();
+                    ).createFromAsset(SEED_ASSET, PREPACKAGED_CALLBACK)
+                            .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9, MIGRATION_9_10, MIGRATION_10_11, MIGRATION_11_12, MIGRATION_12_13, MIGRATION_13_14, MIGRATION_14_15, MIGRATION_15_16).build();
                 }
             }
         }
         return instance;
     }
 
+    /**
+     * 本进程里数据库是否刚从预置库拷贝出来：是则返回预置库对应的种子指纹（只返回一次），否则返回 null。
+     * 种子导入器据此直接记为已应用，首次启动不再解析 outfits.json。
+     */
+    public static synchronized String consumePrepackagedSeedFingerprint() {
+        String fingerprint = prepackagedSeedFingerprint;
+        prepackagedSeedFingerprint = null;
+        return fingerprint;
+    }
+
+    /**
+     * 预置库只在首次安装时拷贝一次，这里补齐构建机上做不了的部分：
+     * ICU 分词的 FTS 表、筛选编码列、封面占位值换成本次构建的 R.drawable、相对时间换成安装时刻。
+     */
+    private static final RoomDatabase.PrepackagedDatabaseCallback PREPACKAGED_CALLBACK = new RoomDatabase.PrepackagedDatabaseCallback() {
+        @Override
+        public void onOpenPrepackagedDatabase(@NonNull SupportSQLiteDatabase db) {
+            for (int i = 0; i < SeedCovers.DRAWABLES.length; i++) {
+                db.execSQL("UPDATE `outfits` SET `coverResId` = ? WHERE `coverResId` = ?", new Object[]{SeedCovers.DRAWABLES[i], -(i + 1)});
+            }
+            long now = System.currentTimeMillis();
+            db.execSQL("UPDATE `outfits` SET `createdAt` = `createdAt` + ?, `tagUpdatedAt` = CASE WHEN `tagUpdatedAt` <= 0 THEN ? ELSE `tagUpdatedAt` END", new Object[]{now, now});
+            if (db.getVersion() >= 11) {
+                // 更早版本的预置库由 10→11 迁移回填
+                backfillOutfitFacets(db);
+            }
+            if (db.getVersion() >= 10) {
+                createOutfitFts(db);
+            }
+            synchronized (DatabaseProvider.class) {
+                prepackagedSeedFingerprint = SeedCovers.FINGERPRINT;
+            }
+        }
+    };
+
     private static final Migration MIGRATION_1_2 = new Migration(1, 2) {
         @Override
         public void migrate(SupportSQLiteDatabase database) {
@@ -135,4 +177,109 @@ public final class DatabaseProvider {
             database.execSQL("ALTER TABLE `closet_items` ADD COLUMN `remoteTagUpdatedAt` INTEGER NOT NULL DEFAULT 0");
         }
     };
+
+    private static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            createOutfitFts(database);
+        }
+    };
+
+    private static void createOutfitFts(SupportSQLiteDatabase database) {
+        // 与 OutfitFtsEntity 保持一致：外部内容 FTS4 表 + Room 的 content-sync 触发器
+        database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `outfits_fts` USING FTS4(`title` TEXT NOT NULL, `tags` TEXT NOT NULL, tokenize=icu, content=`outfits`)");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_outfits_fts_BEFORE_UPDATE BEFORE UPDATE ON `outfits` BEGIN DELETE FROM `outfits_fts` WHERE `docid`=OLD.`rowid`; END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_outfits_fts_BEFORE_DELETE BEFORE DELETE ON `outfits` BEGIN DELETE FROM `outfits_fts` WHERE `docid`=OLD.`rowid`; END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_outfits_fts_AFTER_UPDATE AFTER UPDATE ON `outfits` BEGIN INSERT INTO `outfits_fts`(`docid`, `title`, `tags`) VALUES (NEW.`rowid`, NEW.`title`, NEW.`tags`); END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_outfits_fts_AFTER_INSERT AFTER INSERT ON `outfits` BEGIN INSERT INTO `outfits_fts`(`docid`, `title`, `tags`) VALUES (NEW.`rowid`, NEW.`title`, NEW.`tags`); END");
+        // 已有穿搭一次性灌入索引
+        database.execSQL("INSERT INTO `outfits_fts`(`outfits_fts`) VALUES('rebuild')");
+    }
+
+    private static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // 筛选字段改为整数编码列（见 OutfitFacets），查询只做整数等值/位运算并走复合索引
+            database.execSQL("ALTER TABLE `outfits` ADD COLUMN `genderCode` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE `outfits` ADD COLUMN `styleCode` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE `outfits` ADD COLUMN `seasonMask` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE `outfits` ADD COLUMN `sceneCode` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE `outfits` ADD COLUMN `weatherCode` INTEGER NOT NULL DEFAULT 0");
+            backfillOutfitFacets(database);
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_outfits_genderCode_createdAt` ON `outfits` (`genderCode`, `createdAt`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_outfits_styleCode_sceneCode_weatherCode_seasonMask` ON `outfits` (`styleCode`, `sceneCode`, `weatherCode`, `seasonMask`)");
+        }
+    };
+
+    private static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL(
+                    "CREATE TABLE IF NOT EXISTS `tag_jobs` (" +
+                            "`outfitId` INTEGER NOT NULL, " +
+                            "`state` TEXT NOT NULL, " +
+                            "`attempts` INTEGER NOT NULL, " +
+                            "`nextRunAt` INTEGER NOT NULL, " +
+                            "`lastError` TEXT NOT NULL, " +
+                            "`createdAt` INTEGER NOT NULL, " +
+                            "`updatedAt` INTEGER NOT NULL, " +
+                            "PRIMARY KEY(`outfitId`)" +
+                            ")"
+            );
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_tag_jobs_state_nextRunAt` ON `tag_jobs` (`state`, `nextRunAt`)");
+        }
+    };
+
+    private static final Migration MIGRATION_12_13 = new Migration(12, 13) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // 旧衣物的缩略图由 ClosetRepository 在后台补齐
+            database.execSQL("ALTER TABLE `closet_items` ADD COLUMN `gridUri` TEXT NOT NULL DEFAULT ''");
+            database.execSQL("ALTER TABLE `closet_items` ADD COLUMN `gridWidth` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE `closet_items` ADD COLUMN `gridHeight` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE `closet_items` ADD COLUMN `previewUri` TEXT NOT NULL DEFAULT ''");
+            database.execSQL("ALTER TABLE `closet_items` ADD COLUMN `previewWidth` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE `closet_items` ADD COLUMN `previewHeight` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    private static final Migration MIGRATION_13_14 = new Migration(13, 14) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `swap_jobs` ADD COLUMN `remoteTaskId` TEXT NOT NULL DEFAULT ''");
+            database.execSQL("ALTER TABLE `swap_jobs` ADD COLUMN `error` TEXT NOT NULL DEFAULT ''");
+            database.execSQL("ALTER TABLE `swap_jobs` ADD COLUMN `updatedAt` INTEGER NOT NULL DEFAULT 0");
+            // 以前的记录都是同步生成完才写入的，状态文字统一成 DONE
+            database.execSQL("UPDATE `swap_jobs` SET `status` = 'DONE', `updatedAt` = `createdAt`");
+        }
+    };
+
+    private static final Migration MIGRATION_14_15 = new Migration(14, 15) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `weather_cache` (" +
+                    "`cityKey` TEXT NOT NULL, `city` TEXT NOT NULL, `temp` TEXT NOT NULL, `desc` TEXT NOT NULL, " +
+                    "`aqi` TEXT NOT NULL, `fetchedAt` INTEGER NOT NULL, PRIMARY KEY(`cityKey`))");
+        }
+    };
+
+    private static final Migration MIGRATION_15_16 = new Migration(15, 16) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `regeo_cache` (" +
+                    "`cellKey` TEXT NOT NULL, `adcode` TEXT NOT NULL, `city` TEXT NOT NULL, " +
+                    "`resolvedAt` INTEGER NOT NULL, PRIMARY KEY(`cellKey`))");
+        }
+    };
+
+    private static void backfillOutfitFacets(SupportSQLiteDatabase database) {
+        database.execSQL(
+                "UPDATE `outfits` SET " +
+                        "`genderCode` = " + OutfitFacets.sqlGenderCase("gender") + ", " +
+                        "`styleCode` = " + OutfitFacets.sqlCodeCase("style", OutfitFacets.STYLES) + ", " +
+                        "`seasonMask` = " + OutfitFacets.sqlSeasonMask("season") + ", " +
+                        "`sceneCode` = " + OutfitFacets.sqlCodeCase("scene", OutfitFacets.SCENES) + ", " +
+                        "`weatherCode` = " + OutfitFacets.sqlCodeCase("weather", OutfitFacets.WEATHERS)
+        );
+    }
 }
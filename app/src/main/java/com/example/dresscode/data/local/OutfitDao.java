@@ -5,6 +5,8 @@ import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.RawQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
 
 import java.util.List;
 
@@ -26,36 +28,39 @@ public interface OutfitDao {
     @Query("UPDATE favorites SET owner = :owner WHERE owner = ''")
     int claimLegacyFavorites(String owner);
 
+    /**
+     * 穿搭列表分页：一个性别档位内按 (createdAt DESC, id DESC) 做 keyset 分页，SQL 由 {@link OutfitPageQuery} 生成，
+     * 只包含生效的筛选条件。
+     */
+    @RawQuery
+    List<OutfitCardRow> pageOutfits(SupportSQLiteQuery query);
+
+    /**
+     * 内存目录快照用：全部穿搭卡片，顺序与分页查询档内顺序一致。
+     */
     @Query(
             "SELECT o.id, o.title, o.tags, o.gender, o.style, o.season, o.scene, o.weather, o.colorHex, o.coverResId, o.createdAt, " +
                     "CASE WHEN f.outfitId IS NULL THEN 0 ELSE 1 END AS isFavorite " +
                     "FROM outfits o " +
                     "LEFT JOIN favorites f ON f.outfitId = o.id AND f.owner = :owner " +
-                    "WHERE (:query IS NULL OR :query = '' OR o.title LIKE '%' || :query || '%' OR o.tags LIKE '%' || :query || '%') " +
-                    // 性别：不限显示全部；男=男+中性；女=女+中性
-                    "AND (:gender IS NULL OR :gender = '' OR o.gender = :gender OR o.gender = 'UNISEX') " +
-                    "AND (:style IS NULL OR :style = '' OR o.style = :style) " +
-                    // 季节：支持 “春/夏/秋/冬” 这种单季节筛选匹配 “春夏/春秋/秋冬” 等组合
-                    "AND (:season IS NULL OR :season = '' OR o.season = :season OR (LENGTH(:season) = 1 AND o.season LIKE '%' || :season || '%')) " +
-                    "AND (:scene IS NULL OR :scene = '' OR o.scene = :scene) " +
-                    "AND (:weather IS NULL OR :weather = '' OR o.weather = :weather) " +
-                    "ORDER BY " +
-                    "CASE " +
-                    "WHEN (:gender IS NULL OR :gender = '') THEN 0 " +
-                    "WHEN o.gender = :gender THEN 0 " +
-                    "WHEN o.gender = 'UNISEX' THEN 1 " +
-                    "ELSE 2 END, " +
-                    "o.createdAt DESC"
+                    "ORDER BY o.createdAt DESC, o.id DESC"
     )
-    LiveData<List<OutfitCardRow>> observeOutfits(
-            String owner,
-            String query,
-            String gender,
-            String style,
-            String season,
-            String scene,
-            String weather
-    );
+    List<OutfitCardRow> listOutfitCards(String owner);
+
+    @Query("SELECT outfitId FROM favorites WHERE owner = :owner")
+    List<Long> listFavoriteOutfitIds(String owner);
+
+    @Query("SELECT rowid FROM outfits_fts WHERE outfits_fts MATCH :match")
+    List<Long> searchOutfitIds(String match);
+
+    @Query("SELECT EXISTS(SELECT 1 FROM outfits_fts WHERE outfits_fts MATCH :match)")
+    boolean hasFtsMatch(String match);
+
+    /**
+     * 全文检索没有命中时的 LIKE 子串兜底，SQL 由 {@link OutfitSearchQuery#likeIds} 生成。
+     */
+    @RawQuery
+    List<Long> searchOutfitIdsLike(SupportSQLiteQuery query);
 
     @Query(
             "SELECT o.id, o.title, o.tags, o.gender, o.style, o.season, o.scene, o.weather, o.colorHex, o.coverResId, o.createdAt, " +
@@ -83,14 +88,41 @@ public interface OutfitDao {
     )
     List<OutfitTagCandidate> listAiTagCandidates(int limit);
 
+    /**
+     * 单条打标签候选；已经打过标签（或没有封面）时返回 null。
+     */
+    @Query(
+            "SELECT id, coverResId, tagSource, gender, style, season, scene, weather " +
+                    "FROM outfits " +
+                    "WHERE id = :id AND (aiTagsJson IS NULL OR aiTagsJson = '') AND coverResId != 0 LIMIT 1"
+    )
+    OutfitTagCandidate getAiTagCandidate(long id);
+
     @Query("UPDATE outfits SET tagSource = :tagSource, tagModel = :tagModel, aiTagsJson = :aiTagsJson, tagUpdatedAt = :tagUpdatedAt WHERE id = :id")
     int updateAiTags(long id, String tagSource, String tagModel, String aiTagsJson, long tagUpdatedAt);
 
     @Query("SELECT coverResId FROM outfits WHERE coverResId != 0")
     List<Integer> listCoverResIds();
 
-    @Query("UPDATE outfits SET gender = :gender, style = :style, season = :season, scene = :scene, weather = :weather WHERE coverResId = :coverResId")
-    int updateFiltersByCoverResId(int coverResId, String gender, String style, String season, String scene, String weather);
+    @Query(
+            "UPDATE outfits SET " +
+                    "gender = :gender, style = :style, season = :season, scene = :scene, weather = :weather, " +
+                    "genderCode = :genderCode, styleCode = :styleCode, seasonMask = :seasonMask, sceneCode = :sceneCode, weatherCode = :weatherCode " +
+                    "WHERE coverResId = :coverResId"
+    )
+    int updateFiltersByCoverResId(
+            int coverResId,
+            String gender,
+            String style,
+            String season,
+            String scene,
+            String weather,
+            int genderCode,
+            int styleCode,
+            int seasonMask,
+            int sceneCode,
+            int weatherCode
+    );
 
     @Query(
             "UPDATE outfits SET " +
@@ -101,6 +133,11 @@ public interface OutfitDao {
                     "season = :season, " +
                     "scene = :scene, " +
                     "weather = :weather, " +
+                    "genderCode = :genderCode, " +
+                    "styleCode = :styleCode, " +
+                    "seasonMask = :seasonMask, " +
+                    "sceneCode = :sceneCode, " +
+                    "weatherCode = :weatherCode, " +
                     "tagSource = :tagSource, " +
                     "tagModel = :tagModel, " +
                     "aiTagsJson = :aiTagsJson, " +
@@ -116,6 +153,11 @@ public interface OutfitDao {
             String season,
             String scene,
             String weather,
+            int genderCode,
+            int styleCode,
+            int seasonMask,
+            int sceneCode,
+            int weatherCode,
             String tagSource,
             String tagModel,
             String aiTagsJson,
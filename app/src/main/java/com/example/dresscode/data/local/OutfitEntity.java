@@ -2,9 +2,16 @@ package com.example.dresscode.data.local;
 
 import androidx.annotation.NonNull;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
-@Entity(tableName = "outfits")
+@Entity(
+        tableName = "outfits",
+        indices = {
+                @Index(value = {"genderCode", "createdAt"}),
+                @Index(value = {"styleCode", "sceneCode", "weatherCode", "seasonMask"})
+        }
+)
 public class OutfitEntity {
     @PrimaryKey(autoGenerate = true)
     public long id;
@@ -40,6 +47,19 @@ public class OutfitEntity {
 
     public long createdAt;
 
+    /**
+     * 以下为筛选用的整数编码（见 OutfitFacets），由上面的文本列推导，写入时必须同步更新。
+     */
+    public int genderCode;
+
+    public int styleCode;
+
+    public int seasonMask;
+
+    public int sceneCode;
+
+    public int weatherCode;
+
     public OutfitEntity(
             @NonNull String title,
             @NonNull String tags,
@@ -70,5 +90,10 @@ public class OutfitEntity {
         this.aiTagsJson = aiTagsJson;
         this.tagUpdatedAt = tagUpdatedAt;
         this.createdAt = createdAt;
+        this.genderCode = OutfitFacets.genderCode(gender);
+        this.styleCode = OutfitFacets.styleCode(style);
+        this.seasonMask = OutfitFacets.seasonMask(season);
+        this.sceneCode = OutfitFacets.sceneCode(scene);
+        this.weatherCode = OutfitFacets.weatherCode(weather);
     }
 }
@@ -0,0 +1,124 @@
+package com.example.dresscode.data.local;
+
+/**
+ * 穿搭筛选字段的整数编码：季节为 4 位掩码（春/夏/秋/冬），性别/风格/场景/天气为小整数。
+ * outfits 表里的 *Code/seasonMask 列都由这里从文本列推导，迁移 SQL 也由这里生成，保证只有一份映射。
+ */
+public final class OutfitFacets {
+
+    public static final String[] SEASONS = {"春", "夏", "秋", "冬"};
+    /** 下标即编码，0 表示未知/不限。 */
+    public static final String[] STYLES = {"", "通勤", "休闲", "运动", "约会", "街头", "机能"};
+    public static final String[] SCENES = {"", "通勤", "校园", "约会", "运动", "出街"};
+    public static final String[] WEATHERS = {"", "晴", "多云", "雨", "冷", "热"};
+
+    public static final int GENDER_ANY = 0;
+    public static final int GENDER_MALE = 1;
+    public static final int GENDER_FEMALE = 2;
+    /** 中性 = 男|女，筛选时按位与即可同时命中男/女。 */
+    public static final int GENDER_UNISEX = GENDER_MALE | GENDER_FEMALE;
+
+    private OutfitFacets() {
+    }
+
+    public static int seasonMask(String season) {
+        if (season == null) {
+            return 0;
+        }
+        int mask = 0;
+        for (int i = 0; i < SEASONS.length; i++) {
+            if (season.contains(SEASONS[i])) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    public static int genderCode(String gender) {
+        if ("MALE".equals(gender)) {
+            return GENDER_MALE;
+        }
+        if ("FEMALE".equals(gender)) {
+            return GENDER_FEMALE;
+        }
+        if ("UNISEX".equals(gender)) {
+            return GENDER_UNISEX;
+        }
+        return GENDER_ANY;
+    }
+
+    public static String genderName(int code) {
+        switch (code) {
+            case GENDER_MALE:
+                return "MALE";
+            case GENDER_FEMALE:
+                return "FEMALE";
+            case GENDER_UNISEX:
+                return "UNISEX";
+            default:
+                return "";
+        }
+    }
+
+    public static int styleCode(String style) {
+        return indexOf(STYLES, style);
+    }
+
+    public static int sceneCode(String scene) {
+        return indexOf(SCENES, scene);
+    }
+
+    public static int weatherCode(String weather) {
+        return indexOf(WEATHERS, weather);
+    }
+
+    /**
+     * 单季节筛选（如“春”）按位匹配“春夏/春秋”等组合；组合季节筛选（如“春夏”）要求完全相同。
+     */
+    public static boolean isSingleSeason(int mask) {
+        return mask != 0 && (mask & (mask - 1)) == 0;
+    }
+
+    /**
+     * 生成把文本列映射为编码的 SQL 表达式，供迁移回填使用。
+     */
+    static String sqlCodeCase(String column, String[] values) {
+        StringBuilder sb = new StringBuilder("(CASE `").append(column).append('`');
+        for (int i = 1; i < values.length; i++) {
+            sb.append(" WHEN '").append(values[i]).append("' THEN ").append(i);
+        }
+        return sb.append(" ELSE 0 END)").toString();
+    }
+
+    static String sqlGenderCase(String column) {
+        return "(CASE `" + column + "`" +
+                " WHEN 'MALE' THEN " + GENDER_MALE +
+                " WHEN 'FEMALE' THEN " + GENDER_FEMALE +
+                " WHEN 'UNISEX' THEN " + GENDER_UNISEX +
+                " ELSE " + GENDER_ANY + " END)";
+    }
+
+    static String sqlSeasonMask(String column) {
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < SEASONS.length; i++) {
+            if (i > 0) {
+                sb.append(" | ");
+            }
+            sb.append("(CASE WHEN instr(`").append(column).append("`, '").append(SEASONS[i]).append("') > 0 THEN ")
+                    .append(1 << i).append(" ELSE 0 END)");
+        }
+        return sb.append(')').toString();
+    }
+
+    private static int indexOf(String[] values, String value) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        for (int i = 1; i < values.length; i++) {
+            if (values[i].equals(value)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.dresscode.data.local;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+import androidx.room.PrimaryKey;
+
+/**
+ * outfits 的全文索引（外部内容表），只镜像 title/tags 两列。
+ * 由 Room 生成的 content-sync 触发器与 outfits 保持同步；ICU 分词可切分中文词语。
+ */
+@Fts4(contentEntity = OutfitEntity.class, tokenizer = FtsOptions.TOKENIZER_ICU)
+@Entity(tableName = "outfits_fts")
+public class OutfitFtsEntity {
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    public long rowId;
+
+    @NonNull
+    public String title;
+
+    @NonNull
+    public String tags;
+
+    public OutfitFtsEntity() {
+        this.title = "";
+        this.tags = "";
+    }
+}
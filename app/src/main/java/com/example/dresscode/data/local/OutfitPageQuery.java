@@ -0,0 +1,127 @@
+package com.example.dresscode.data.local;
+
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 穿搭列表分页查询的 SQL，只拼接当前生效的筛选条件，让 SQLite 能走索引：
+ * <ul>
+ *     <li>性别排序档位（同性别在前、中性在后）拆成每档一条 {@code genderCode = ?} 的查询，
+ *     档内 {@code ORDER BY createdAt DESC, id DESC} 直接按 (genderCode, createdAt) 索引倒序扫描，不再排序；</li>
+ *     <li>风格/场景/天气/季节是等值条件，按 (styleCode, sceneCode, weatherCode, seasonMask) 组合索引的前缀查找；
+ *     单季节的按位匹配展开成 {@code seasonMask IN (...)}；</li>
+ *     <li>keyset 游标写成 {@code createdAt <= ? AND (createdAt < ? OR id < ?)}，createdAt 上是范围条件。</li>
+ * </ul>
+ * 编码见 {@link OutfitFacets}，0 表示不限。
+ */
+public final class OutfitPageQuery {
+
+    /** 档位里不按性别过滤（性别不限时只有这一档）。 */
+    public static final int ANY_GENDER = -1;
+
+    private static final String COLUMNS =
+            "SELECT o.id, o.title, o.tags, o.gender, o.style, o.season, o.scene, o.weather, o.colorHex, o.coverResId, o.createdAt, " +
+                    "CASE WHEN f.outfitId IS NULL THEN 0 ELSE 1 END AS isFavorite " +
+                    "FROM outfits o " +
+                    "LEFT JOIN favorites f ON f.outfitId = o.id AND f.owner = ? ";
+
+    private OutfitPageQuery() {
+    }
+
+    /**
+     * 性别筛选对应的排序档位，下标即档位：不限只有一档；男/女为 本性别、中性 两档；中性只有一档。
+     * 与 {@code OutfitFeed.genderRank} 保持一致。
+     */
+    public static int[] genderTiers(int genderCode) {
+        if (genderCode == OutfitFacets.GENDER_ANY) {
+            return new int[]{ANY_GENDER};
+        }
+        if (genderCode == OutfitFacets.GENDER_UNISEX) {
+            return new int[]{OutfitFacets.GENDER_UNISEX};
+        }
+        return new int[]{genderCode, OutfitFacets.GENDER_UNISEX};
+    }
+
+    /**
+     * 一个性别档位内的一页。
+     *
+     * @param tierGender {@link #genderTiers} 里的一项
+     * @param match      outfits_fts 的 MATCH 表达式，空串表示不搜索
+     * @param likeTerms  非空时改用逐词 LIKE 子串匹配代替 MATCH（全文检索没有命中时的兜底）
+     * @param afterId    小于 0 表示从档位开头取
+     */
+    public static SupportSQLiteQuery page(
+            String owner,
+            String match,
+            List<String> likeTerms,
+            int tierGender,
+            int styleCode,
+            int seasonMask,
+            boolean seasonAny,
+            int sceneCode,
+            int weatherCode,
+            long afterCreatedAt,
+            long afterId,
+            int limit
+    ) {
+        List<Object> args = new ArrayList<>();
+        args.add(owner);
+        List<String> where = new ArrayList<>();
+        if (tierGender != ANY_GENDER) {
+            where.add("o.genderCode = ?");
+            args.add(tierGender);
+        }
+        if (styleCode != 0) {
+            where.add("o.styleCode = ?");
+            args.add(styleCode);
+        }
+        if (sceneCode != 0) {
+            where.add("o.sceneCode = ?");
+            args.add(sceneCode);
+        }
+        if (weatherCode != 0) {
+            where.add("o.weatherCode = ?");
+            args.add(weatherCode);
+        }
+        if (seasonMask != 0) {
+            if (seasonAny) {
+                StringBuilder in = new StringBuilder("o.seasonMask IN (");
+                int all = (1 << OutfitFacets.SEASONS.length) - 1;
+                boolean first = true;
+                for (int mask = 1; mask <= all; mask++) {
+                    if ((mask & seasonMask) != 0) {
+                        in.append(first ? "" : ", ").append(mask);
+                        first = false;
+                    }
+                }
+                where.add(in.append(')').toString());
+            } else {
+                where.add("o.seasonMask = ?");
+                args.add(seasonMask);
+            }
+        }
+        if (likeTerms != null && !likeTerms.isEmpty()) {
+            where.add(OutfitSearchQuery.likeCondition("o.", likeTerms, args));
+        } else if (match != null && !match.isEmpty()) {
+            where.add("o.id IN (SELECT rowid FROM outfits_fts WHERE outfits_fts MATCH ?)");
+            args.add(match);
+        }
+        if (afterId >= 0) {
+            where.add("o.createdAt <= ? AND (o.createdAt < ? OR o.id < ?)");
+            args.add(afterCreatedAt);
+            args.add(afterCreatedAt);
+            args.add(afterId);
+        }
+
+        StringBuilder sql = new StringBuilder(COLUMNS);
+        for (int i = 0; i < where.size(); i++) {
+            sql.append(i == 0 ? "WHERE " : "AND ").append(where.get(i)).append(' ');
+        }
+        sql.append("ORDER BY o.createdAt DESC, o.id DESC LIMIT ?");
+        args.add(limit);
+        return new SimpleSQLiteQuery(sql.toString(), args.toArray());
+    }
+}
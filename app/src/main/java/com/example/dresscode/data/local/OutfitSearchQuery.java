@@ -0,0 +1,88 @@
+package com.example.dresscode.data.local;
+
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 把搜索框输入转换为 outfits_fts 的 MATCH 表达式。
+ * 每个词都按前缀匹配（`词*`），多个词之间为 AND；FTS 语法字符会被当作分隔符去掉。
+ * <p>
+ * ICU 分词后前缀匹配只能命中词首，搜不到中文词中间的片段（如“衣”匹配不到“毛衣”）；
+ * 全文检索没有任何命中时，调用方用 {@link #likeIds} / {@link #likeCondition} 退回逐词的 LIKE 子串匹配。
+ */
+public final class OutfitSearchQuery {
+
+    private OutfitSearchQuery() {
+    }
+
+    /**
+     * 搜索框输入拆成的关键词：统一小写，FTS 语法字符和标点按空白处理；没有关键词时返回空列表。
+     */
+    public static List<String> terms(String raw) {
+        if (raw == null) {
+            return Collections.emptyList();
+        }
+        String cleaned = raw.trim().toLowerCase(Locale.ROOT)
+                .replaceAll("[\"*^:()\\-+|·•，,。;；/\\\\]", " ")
+                .replaceAll("\\s+", " ")
+                .trim();
+        if (cleaned.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> terms = new ArrayList<>();
+        for (String term : cleaned.split(" ")) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    public static String toMatchExpression(String raw) {
+        return toMatchExpression(terms(raw));
+    }
+
+    public static String toMatchExpression(List<String> terms) {
+        StringBuilder sb = new StringBuilder();
+        for (String term : terms) {
+            // 统一小写后 AND/OR/NOT 不会再被识别为运算符
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(term).append('*');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 全文检索的兜底：每个词都作为子串出现在标题或标签里的穿搭 id。
+     */
+    public static SupportSQLiteQuery likeIds(List<String> terms) {
+        List<Object> args = new ArrayList<>();
+        String where = likeCondition("", terms, args);
+        return new SimpleSQLiteQuery("SELECT id FROM outfits WHERE " + where, args.toArray());
+    }
+
+    /**
+     * 逐词 {@code (title LIKE ? OR tags LIKE ?)} 的 AND 条件，参数追加到 args；prefix 为列名前的表别名（如 "o."）。
+     */
+    static String likeCondition(String prefix, List<String> terms, List<Object> args) {
+        StringBuilder sb = new StringBuilder();
+        for (String term : terms) {
+            String pattern = "%" + term.replace("%", "\\%").replace("_", "\\_") + "%";
+            if (sb.length() > 0) {
+                sb.append(" AND ");
+            }
+            sb.append('(').append(prefix).append("title LIKE ? ESCAPE '\\' OR ")
+                    .append(prefix).append("tags LIKE ? ESCAPE '\\')");
+            args.add(pattern);
+            args.add(pattern);
+        }
+        return sb.toString();
+    }
+}
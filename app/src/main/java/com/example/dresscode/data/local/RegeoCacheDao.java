@@ -0,0 +1,19 @@
+package com.example.dresscode.data.local;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+@Dao
+public interface RegeoCacheDao {
+
+    @Query("SELECT * FROM regeo_cache WHERE cellKey = :cellKey LIMIT 1")
+    RegeoCacheEntity get(String cellKey);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(RegeoCacheEntity entry);
+
+    @Query("DELETE FROM regeo_cache WHERE resolvedAt < :before")
+    int deleteOlderThan(long before);
+}
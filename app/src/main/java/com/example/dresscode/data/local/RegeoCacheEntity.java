@@ -0,0 +1,34 @@
+package com.example.dresscode.data.local;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * 逆地理编码结果，按量化后的经纬度网格缓存（约 1 公里一格），同一格内再次定位不再请求网络。
+ */
+@Entity(tableName = "regeo_cache")
+public class RegeoCacheEntity {
+
+    /**
+     * 网格编号，形如 "3027:12016"（纬度、经度各乘 100 后取整）。
+     */
+    @PrimaryKey
+    @NonNull
+    public String cellKey;
+
+    @NonNull
+    public String adcode;
+
+    @NonNull
+    public String city;
+
+    public long resolvedAt;
+
+    public RegeoCacheEntity(@NonNull String cellKey, @NonNull String adcode, @NonNull String city, long resolvedAt) {
+        this.cellKey = cellKey;
+        this.adcode = adcode;
+        this.city = city;
+        this.resolvedAt = resolvedAt;
+    }
+}
@@ -12,6 +12,9 @@ public interface SwapDao {
     @Insert
     long insert(SwapJobEntity job);
 
+    @Insert
+    List<Long> insertAll(List<SwapJobEntity> jobs);
+
     @Query(
             "SELECT j.id, j.owner, j.sourceType, j.sourceRefId, j.sourceTitle, j.sourceImageUri, " +
                     "j.personImageUri, j.resultImageUri, j.status, j.createdAt " +
@@ -21,9 +24,42 @@ public interface SwapDao {
     )
     LiveData<List<SwapHistoryRow>> observeHistory(String owner);
 
+    @Query("SELECT * FROM swap_jobs WHERE id = :id LIMIT 1")
+    SwapJobEntity getById(long id);
+
+    @Query("SELECT * FROM swap_jobs WHERE id = :id LIMIT 1")
+    LiveData<SwapJobEntity> observeJob(long id);
+
+    /**
+     * 未完成的任务（进程重启后继续提交/轮询）。
+     */
+    @Query("SELECT * FROM swap_jobs WHERE status IN ('PENDING', 'RUNNING') ORDER BY createdAt")
+    List<SwapJobEntity> listUnfinished();
+
+    @Query("SELECT id FROM swap_jobs WHERE owner = :owner AND status IN ('PENDING', 'RUNNING') ORDER BY createdAt DESC LIMIT 1")
+    Long findLatestUnfinishedId(String owner);
+
+    @Query("UPDATE swap_jobs SET status = 'RUNNING', remoteTaskId = :remoteTaskId, error = '', updatedAt = :now WHERE id = :id")
+    int markSubmitted(long id, String remoteTaskId, long now);
+
+    @Query("UPDATE swap_jobs SET status = 'DONE', resultImageUri = :resultImageUri, error = '', updatedAt = :now WHERE id = :id")
+    int markDone(long id, String resultImageUri, long now);
+
+    @Query("UPDATE swap_jobs SET status = 'FAILED', error = :error, updatedAt = :now WHERE id = :id")
+    int markFailed(long id, String error, long now);
+
+    @Query("UPDATE swap_jobs SET updatedAt = :now WHERE id = :id")
+    int touch(long id, long now);
+
     @Query("DELETE FROM swap_jobs WHERE id = :id AND owner = :owner")
     int deleteById(long id, String owner);
 
+    /**
+     * 所有账号换装记录引用的图片（结果、人像、衣物），本地图片 GC 用来计算引用数。
+     */
+    @Query("SELECT resultImageUri FROM swap_jobs UNION ALL SELECT personImageUri FROM swap_jobs UNION ALL SELECT sourceImageUri FROM swap_jobs")
+    List<String> listImageUris();
+
     @Query("UPDATE swap_jobs SET owner = :owner WHERE owner = ''")
     int claimLegacy(String owner);
 }
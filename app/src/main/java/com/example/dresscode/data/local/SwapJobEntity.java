@@ -6,6 +6,11 @@ import androidx.room.PrimaryKey;
 
 @Entity(tableName = "swap_jobs")
 public class SwapJobEntity {
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_DONE = "DONE";
+    public static final String STATUS_FAILED = "FAILED";
+
     @PrimaryKey(autoGenerate = true)
     public long id;
 
@@ -31,11 +36,25 @@ public class SwapJobEntity {
     @NonNull
     public String resultImageUri;
 
+    /**
+     * PENDING（待提交）/ RUNNING（已提交，等待后端结果）/ DONE / FAILED。
+     */
     @NonNull
     public String status;
 
     public long createdAt;
 
+    /**
+     * 后端异步任务 id（/api/tryon/jobs 返回的 job_id）；空字符串表示还没提交成功。
+     */
+    @NonNull
+    public String remoteTaskId;
+
+    @NonNull
+    public String error;
+
+    public long updatedAt;
+
     public SwapJobEntity(
             @NonNull String owner,
             long outfitId,
@@ -58,5 +77,8 @@ public class SwapJobEntity {
         this.resultImageUri = resultImageUri;
         this.status = status;
         this.createdAt = createdAt;
+        this.remoteTaskId = "";
+        this.error = "";
+        this.updatedAt = createdAt;
     }
 }
@@ -0,0 +1,52 @@
+package com.example.dresscode.data.local;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface TagJobDao {
+
+    /**
+     * 已存在的任务保持不变，实现同一穿搭的去重合并（FAILED 的由 {@link #reviveFailed} 放回队列）。
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    List<Long> insertAll(List<TagJobEntity> jobs);
+
+    /**
+     * 重新入队时把之前判为失败的任务放回队列，从头计数。
+     */
+    @Query("UPDATE tag_jobs SET state = 'PENDING', attempts = 0, nextRunAt = :now, updatedAt = :now " +
+            "WHERE outfitId IN (:outfitIds) AND state = 'FAILED'")
+    int reviveFailed(List<Long> outfitIds, long now);
+
+    @Query("SELECT * FROM tag_jobs WHERE state = 'PENDING' AND nextRunAt <= :now ORDER BY nextRunAt, outfitId LIMIT :limit")
+    List<TagJobEntity> listDue(long now, int limit);
+
+    @Query("SELECT MIN(nextRunAt) FROM tag_jobs WHERE state = 'PENDING'")
+    Long nextPendingRunAt();
+
+    /**
+     * 抢占任务：只有仍是 PENDING 的才会改成 RUNNING，返回 0 表示已被处理。
+     */
+    @Query("UPDATE tag_jobs SET state = 'RUNNING', updatedAt = :now WHERE outfitId = :outfitId AND state = 'PENDING'")
+    int claim(long outfitId, long now);
+
+    @Query("UPDATE tag_jobs SET state = 'DONE', lastError = '', updatedAt = :now WHERE outfitId = :outfitId")
+    int markDone(long outfitId, long now);
+
+    @Query("UPDATE tag_jobs SET state = 'PENDING', attempts = :attempts, nextRunAt = :nextRunAt, lastError = :error, updatedAt = :now WHERE outfitId = :outfitId")
+    int markRetry(long outfitId, int attempts, long nextRunAt, String error, long now);
+
+    @Query("UPDATE tag_jobs SET state = 'FAILED', attempts = :attempts, lastError = :error, updatedAt = :now WHERE outfitId = :outfitId")
+    int markFailed(long outfitId, int attempts, String error, long now);
+
+    /**
+     * 进程被杀时正在执行的任务留在 RUNNING，启动后放回队列。
+     */
+    @Query("UPDATE tag_jobs SET state = 'PENDING' WHERE state = 'RUNNING'")
+    int resetRunning();
+}
@@ -0,0 +1,52 @@
+package com.example.dresscode.data.local;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * 穿搭封面 AI 打标签任务。以 outfitId 为主键，同一穿搭重复入队会被合并；进程被杀后可从表里恢复。
+ */
+@Entity(
+        tableName = "tag_jobs",
+        indices = {
+                @Index(value = {"state", "nextRunAt"})
+        }
+)
+public class TagJobEntity {
+    public static final String STATE_PENDING = "PENDING";
+    public static final String STATE_RUNNING = "RUNNING";
+    public static final String STATE_DONE = "DONE";
+    public static final String STATE_FAILED = "FAILED";
+
+    @PrimaryKey
+    public long outfitId;
+
+    @NonNull
+    public String state;
+
+    public int attempts;
+
+    /**
+     * 最早可执行时间（毫秒），失败重试时按指数退避往后推。
+     */
+    public long nextRunAt;
+
+    @NonNull
+    public String lastError;
+
+    public long createdAt;
+
+    public long updatedAt;
+
+    public TagJobEntity(long outfitId, @NonNull String state, int attempts, long nextRunAt, @NonNull String lastError, long createdAt, long updatedAt) {
+        this.outfitId = outfitId;
+        this.state = state;
+        this.attempts = attempts;
+        this.nextRunAt = nextRunAt;
+        this.lastError = lastError;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+}
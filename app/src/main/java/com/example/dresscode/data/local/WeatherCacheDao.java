@@ -0,0 +1,19 @@
+package com.example.dresscode.data.local;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+@Dao
+public interface WeatherCacheDao {
+
+    @Query("SELECT * FROM weather_cache WHERE cityKey = :cityKey LIMIT 1")
+    WeatherCacheEntity get(String cityKey);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(WeatherCacheEntity entry);
+
+    @Query("DELETE FROM weather_cache WHERE fetchedAt < :before")
+    int deleteOlderThan(long before);
+}
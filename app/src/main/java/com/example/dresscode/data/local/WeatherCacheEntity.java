@@ -0,0 +1,42 @@
+package com.example.dresscode.data.local;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * 按城市缓存的最近一次天气。cityKey 是请求天气时用的城市参数（adcode，或查不到 adcode 时的城市名）。
+ */
+@Entity(tableName = "weather_cache")
+public class WeatherCacheEntity {
+
+    @PrimaryKey
+    @NonNull
+    public String cityKey;
+
+    @NonNull
+    public String city;
+
+    @NonNull
+    public String temp;
+
+    @NonNull
+    public String desc;
+
+    @NonNull
+    public String aqi;
+
+    /**
+     * 从网络取到这份数据的时间（毫秒），用来判断是否过期。
+     */
+    public long fetchedAt;
+
+    public WeatherCacheEntity(@NonNull String cityKey, @NonNull String city, @NonNull String temp, @NonNull String desc, @NonNull String aqi, long fetchedAt) {
+        this.cityKey = cityKey;
+        this.city = city;
+        this.temp = temp;
+        this.desc = desc;
+        this.aqi = aqi;
+        this.fetchedAt = fetchedAt;
+    }
+}
@@ -136,6 +136,20 @@ public class AuthRepository {
         prefs.edit().putString(userAvatarUriKey(u), uri == null ? "" : uri).apply();
     }
 
+    /**
+     * 所有账号的头像 URI（未设置的不返回），本地图片 GC 用来计算引用数。
+     */
+    public List<String> getAllAvatarUris() {
+        List<String> uris = new ArrayList<>();
+        for (String u : getAllUsernames()) {
+            String uri = safe(prefs.getString(userAvatarUriKey(u), ""));
+            if (!uri.isEmpty()) {
+                uris.add(uri);
+            }
+        }
+        return uris;
+    }
+
     private void migrateLegacyIfNeeded() {
         if (!prefs.contains(LEGACY_KEY_USERNAME) || !prefs.contains(LEGACY_KEY_PASSWORD_HASH)) {
             return;
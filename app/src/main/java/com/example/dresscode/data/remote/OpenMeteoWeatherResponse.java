@@ -13,6 +13,8 @@ public class OpenMeteoWeatherResponse {
         public Integer weatherCode;
         @SerializedName("is_day")
         public Integer isDay;
+        @SerializedName("relative_humidity_2m")
+        public Integer humidity;
     }
 }
 
@@ -1,25 +1,103 @@
 package com.example.dresscode.data.remote;
 
+import android.content.Context;
+
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
 import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.GzipSource;
 
+/**
+ * 所有 Retrofit 共用一个底层 OkHttpClient（同一个连接池、调度器和磁盘缓存），各服务只在其上
+ * {@code newBuilder()} 出自己的超时配置，不会各自新建连接池：
+ * <ul>
+ *     <li>高德/和风/Open-Meteo：短超时；天气、逆地理编码的成功响应按 {@link #cacheMaxAgeSeconds} 改写缓存头，
+ *     有效期内重复请求直接读磁盘缓存；</li>
+ *     <li>后端：换装走提交/长轮询，单个请求最多挂起 {@link #BACKEND_POLL_HEADROOM_SECONDS} 秒左右，不使用磁盘缓存。</li>
+ * </ul>
+ * 磁盘缓存需要先调用 {@link #install(Context)}（{@code Repositories} 创建时调用）；没调用时只是不缓存。
+ */
 public final class RetrofitProvider {
+    private static final String HTTP_CACHE_DIR = "http_cache";
+    private static final long HTTP_CACHE_BYTES = 10L * 1024 * 1024;
+    /** 天气实况更新频率约半小时，10 分钟内重复打开页面不必再请求。 */
+    private static final int WEATHER_LIVE_MAX_AGE = 10 * 60;
+    private static final int WEATHER_FORECAST_MAX_AGE = 30 * 60;
+    /** 同一坐标的行政区划基本不变。 */
+    private static final int GEO_MAX_AGE = 24 * 60 * 60;
+    /** 嗅探业务状态码时解压出的字节数；状态字段都在响应开头。 */
+    private static final long SNIFF_BYTES = 1024;
+    /** 为了解压出 {@link #SNIFF_BYTES}，最多窥视这么多压缩后的字节。 */
+    private static final long SNIFF_COMPRESSED_BYTES = 64L * 1024;
+    /** 长轮询每次挂起 20 秒（TryOnJobRunner.POLL_WAIT_SECONDS），读超时留足余量。 */
+    private static final int BACKEND_POLL_HEADROOM_SECONDS = 60;
+
+    private static volatile File cacheDir;
+    private static volatile OkHttpClient sharedClient;
     private static volatile Retrofit qweatherDevRetrofit;
     private static volatile Retrofit qweatherGeoRetrofit;
     private static volatile Retrofit amapRetrofit;
     private static volatile Retrofit backendRetrofit;
+    private static volatile Retrofit openMeteoRetrofit;
+    private static volatile Retrofit openMeteoAirRetrofit;
 
     private RetrofitProvider() {
     }
 
+    /**
+     * 指定 HTTP 磁盘缓存所在的 cacheDir；须在第一次取 Retrofit 之前调用，之后再调用不生效。
+     */
+    public static void install(Context context) {
+        if (cacheDir == null) {
+            cacheDir = new File(context.getApplicationContext().getCacheDir(), HTTP_CACHE_DIR);
+        }
+    }
+
+    /**
+     * 所有服务共用的底层 client；各服务的超时在 {@link #thirdPartyClient()} / {@link #backendClient()} 里调整。
+     */
+    static OkHttpClient sharedClient() {
+        if (sharedClient == null) {
+            synchronized (RetrofitProvider.class) {
+                if (sharedClient == null) {
+                    Dispatcher dispatcher = new Dispatcher();
+                    dispatcher.setMaxRequests(16);
+                    dispatcher.setMaxRequestsPerHost(4);
+                    OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                            .connectionPool(new ConnectionPool(5, 5, TimeUnit.MINUTES))
+                            .dispatcher(dispatcher)
+                            .addNetworkInterceptor(new CacheOverrideInterceptor());
+                    if (cacheDir != null) {
+                        builder.cache(new Cache(cacheDir, HTTP_CACHE_BYTES));
+                    }
+                    sharedClient = builder.build();
+                }
+            }
+        }
+        return sharedClient;
+    }
+
     public static Retrofit qweatherDev() {
         if (qweatherDevRetrofit == null) {
             synchronized (RetrofitProvider.class) {
                 if (qweatherDevRetrofit == null) {
                     qweatherDevRetrofit = new Retrofit.Builder()
                             .baseUrl("https://devapi.qweather.com/")
+                            .client(thirdPartyClient())
                             .addConverterFactory(GsonConverterFactory.create())
                             .build();
                 }
@@ -34,6 +112,7 @@ public final class RetrofitProvider {
                 if (qweatherGeoRetrofit == null) {
                     qweatherGeoRetrofit = new Retrofit.Builder()
                             .baseUrl("https://geoapi.qweather.com/")
+                            .client(thirdPartyClient())
                             .addConverterFactory(GsonConverterFactory.create())
                             .build();
                 }
@@ -48,6 +127,7 @@ public final class RetrofitProvider {
                 if (amapRetrofit == null) {
                     amapRetrofit = new Retrofit.Builder()
                             .baseUrl("https://restapi.amap.com/")
+                            .client(thirdPartyClient())
                             .addConverterFactory(GsonConverterFactory.create())
                             .build();
                 }
@@ -56,6 +136,36 @@ public final class RetrofitProvider {
         return amapRetrofit;
     }
 
+    public static Retrofit openMeteo() {
+        if (openMeteoRetrofit == null) {
+            synchronized (RetrofitProvider.class) {
+                if (openMeteoRetrofit == null) {
+                    openMeteoRetrofit = new Retrofit.Builder()
+                            .baseUrl("https://api.open-meteo.com/")
+                            .client(thirdPartyClient())
+                            .addConverterFactory(GsonConverterFactory.create())
+                            .build();
+                }
+            }
+        }
+        return openMeteoRetrofit;
+    }
+
+    public static Retrofit openMeteoAirQuality() {
+        if (openMeteoAirRetrofit == null) {
+            synchronized (RetrofitProvider.class) {
+                if (openMeteoAirRetrofit == null) {
+                    openMeteoAirRetrofit = new Retrofit.Builder()
+                            .baseUrl("https://air-quality-api.open-meteo.com/")
+                            .client(thirdPartyClient())
+                            .addConverterFactory(GsonConverterFactory.create())
+                            .build();
+                }
+            }
+        }
+        return openMeteoAirRetrofit;
+    }
+
     public static Retrofit backend() {
         if (backendRetrofit == null) {
             synchronized (RetrofitProvider.class) {
@@ -64,15 +174,9 @@ public final class RetrofitProvider {
                     if (baseUrl == null || baseUrl.trim().isEmpty()) {
                         baseUrl = "http://10.0.2.2:8000/";
                     }
-                    OkHttpClient client = new OkHttpClient.Builder()
-                            .connectTimeout(30, TimeUnit.SECONDS)
-                            .readTimeout(180, TimeUnit.SECONDS)
-                            .writeTimeout(180, TimeUnit.SECONDS)
-                            .callTimeout(180, TimeUnit.SECONDS)
-                            .build();
                     backendRetrofit = new Retrofit.Builder()
                             .baseUrl(baseUrl)
-                            .client(client)
+                            .client(backendClient())
                             .addConverterFactory(GsonConverterFactory.create())
                             .build();
                 }
@@ -80,4 +184,106 @@ public final class RetrofitProvider {
         }
         return backendRetrofit;
     }
+
+    /**
+     * 天气/地理编码这类小请求：失败要尽快回退到其它数据源，超时取短一些。
+     */
+    private static OkHttpClient thirdPartyClient() {
+        return sharedClient().newBuilder()
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(15, TimeUnit.SECONDS)
+                .writeTimeout(15, TimeUnit.SECONDS)
+                .callTimeout(20, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 换装：上传人像/衣物、提交任务、合并长轮询、下载结果图，都是有限时长的短请求；读超时只需盖住长轮询的挂起时间，
+     * 上传大图和下载结果图由 callTimeout 兜底。结果图已经存到本地，不再进 HTTP 缓存。
+     */
+    private static OkHttpClient backendClient() {
+        return sharedClient().newBuilder()
+                .cache(null)
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(BACKEND_POLL_HEADROOM_SECONDS, TimeUnit.SECONDS)
+                .writeTimeout(60, TimeUnit.SECONDS)
+                .callTimeout(120, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 响应可以缓存多少秒；0 表示不改写（沿用服务端的缓存头）。
+     */
+    static int cacheMaxAgeSeconds(HttpUrl url) {
+        String host = url.host();
+        String path = url.encodedPath();
+        if ("restapi.amap.com".equals(host)) {
+            if (path.endsWith("/weather/weatherInfo")) {
+                return "all".equals(url.queryParameter("extensions")) ? WEATHER_FORECAST_MAX_AGE : WEATHER_LIVE_MAX_AGE;
+            }
+            if (path.endsWith("/geocode/regeo")) {
+                return GEO_MAX_AGE;
+            }
+            return 0;
+        }
+        if ("devapi.qweather.com".equals(host)) {
+            return path.contains("/weather/") && !path.endsWith("/now") ? WEATHER_FORECAST_MAX_AGE : WEATHER_LIVE_MAX_AGE;
+        }
+        if ("geoapi.qweather.com".equals(host)) {
+            return GEO_MAX_AGE;
+        }
+        if ("api.open-meteo.com".equals(host) || "air-quality-api.open-meteo.com".equals(host)) {
+            return WEATHER_LIVE_MAX_AGE;
+        }
+        return 0;
+    }
+
+    /**
+     * 高德/和风的响应要么不带缓存头、要么禁止缓存，这里按接口改写成 max-age。
+     * 它们出错时（key 无效、超限）仍返回 HTTP 200，所以先看一眼业务状态码，只缓存成功的响应。
+     * 网络拦截器看到的是线上的原始字节，gzip（和风总是压缩，高德按请求压缩）要先解压再看。
+     */
+    private static final class CacheOverrideInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Response response = chain.proceed(chain.request());
+            int maxAge = cacheMaxAgeSeconds(chain.request().url());
+            if (maxAge <= 0 || !response.isSuccessful() || !"GET".equals(chain.request().method())) {
+                return response;
+            }
+            // Open-Meteo 出错时返回 4xx，HTTP 200 就是成功
+            if (!chain.request().url().host().endsWith("open-meteo.com")) {
+                String head = sniff(response).replace(" ", "");
+                boolean ok = head.contains("\"status\":\"1\"") || head.contains("\"code\":\"200\"");
+                if (!ok) {
+                    return response;
+                }
+            }
+            return response.newBuilder()
+                    .removeHeader("Pragma")
+                    .header("Cache-Control", "public, max-age=" + maxAge)
+                    .build();
+        }
+
+        /**
+         * 响应体开头的 {@link #SNIFF_BYTES} 个字节（已解压），不消费原响应体。
+         */
+        private static String sniff(Response response) throws IOException {
+            ResponseBody peeked = response.peekBody(SNIFF_COMPRESSED_BYTES);
+            if (!"gzip".equalsIgnoreCase(response.header("Content-Encoding"))) {
+                Buffer head = new Buffer();
+                peeked.source().read(head, SNIFF_BYTES);
+                return head.readUtf8();
+            }
+            Buffer head = new Buffer();
+            try (GzipSource gzip = new GzipSource(peeked.source())) {
+                while (head.size() < SNIFF_BYTES && gzip.read(head, SNIFF_BYTES - head.size()) != -1) {
+                    // 继续解压
+                }
+            } catch (EOFException truncated) {
+                // 只窥视了一部分压缩数据：已解出的开头足够判断
+            }
+            return head.readUtf8();
+        }
+    }
 }
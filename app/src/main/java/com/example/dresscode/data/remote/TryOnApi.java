@@ -1,18 +1,45 @@
 package com.example.dresscode.data.remote;
 
 import okhttp3.MultipartBody;
+import okhttp3.ResponseBody;
 import retrofit2.Call;
+import retrofit2.http.GET;
 import retrofit2.http.Multipart;
 import retrofit2.http.POST;
 import retrofit2.http.Part;
+import retrofit2.http.Query;
+import retrofit2.http.Streaming;
+import retrofit2.http.Url;
 
 public interface TryOnApi {
 
+    /**
+     * 上传人像，返回 image_id；之后提交任务时用 personImageId 引用，批量换装只上传一次。
+     */
     @Multipart
-    @POST("api/tryon")
-    Call<TryOnResponse> tryOn(
+    @POST("api/tryon/images")
+    Call<TryOnImageResponse> uploadImage(@Part MultipartBody.Part image);
+
+    /**
+     * 提交异步换装任务，立即返回 job_id；personImage 传文件或 personImageId 表单字段。
+     */
+    @Multipart
+    @POST("api/tryon/jobs")
+    Call<TryOnJobResponse> submitJob(
             @Part MultipartBody.Part personImage,
             @Part MultipartBody.Part clothImage
     );
-}
 
+    /**
+     * 批量查询任务状态（ids 逗号分隔）；waitSeconds > 0 时后端最多挂起这么久，任一任务状态变化后立即返回（长轮询）。
+     */
+    @GET("api/tryon/jobs")
+    Call<TryOnJobListResponse> getJobs(@Query("ids") String jobIds, @Query("wait") int waitSeconds);
+
+    /**
+     * 下载已完成任务的结果图，按流读取（见 TryOnResultReader）。
+     */
+    @Streaming
+    @GET
+    Call<ResponseBody> download(@Url String url);
+}
@@ -0,0 +1,17 @@
+package com.example.dresscode.data.remote;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * /api/tryon/images 的返回：image_id 由图片内容哈希得到，同一张图重复上传得到同一个 id。
+ */
+public class TryOnImageResponse {
+    @SerializedName("ok")
+    public boolean ok;
+
+    @SerializedName("image_id")
+    public String imageId;
+
+    @SerializedName("error")
+    public String error;
+}
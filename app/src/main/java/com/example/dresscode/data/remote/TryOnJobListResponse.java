@@ -0,0 +1,19 @@
+package com.example.dresscode.data.remote;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.util.List;
+
+/**
+ * GET /api/tryon/jobs?ids=... 的返回，jobs 与请求的 ids 顺序一致。
+ */
+public class TryOnJobListResponse {
+    @SerializedName("ok")
+    public boolean ok;
+
+    @SerializedName("jobs")
+    public List<TryOnJobResponse> jobs;
+
+    @SerializedName("error")
+    public String error;
+}
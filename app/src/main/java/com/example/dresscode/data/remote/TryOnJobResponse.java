@@ -0,0 +1,32 @@
+package com.example.dresscode.data.remote;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * /api/tryon/jobs 的提交与查询结果；status 为 PENDING / RUNNING / DONE / FAILED。
+ */
+public class TryOnJobResponse {
+    @SerializedName("ok")
+    public boolean ok;
+
+    @SerializedName("job_id")
+    public String jobId;
+
+    @SerializedName("status")
+    public String status;
+
+    /**
+     * 完成后结果图的相对路径（如 /files/tryon_xxx.jpg）。
+     */
+    @SerializedName("result_url")
+    public String resultUrl;
+
+    @SerializedName("error")
+    public String error;
+
+    /**
+     * 失败时的错误码，如 PERSON_IMAGE_MISSING（引用的人像已被清理，需要重新上传）。
+     */
+    @SerializedName("code")
+    public String code;
+}
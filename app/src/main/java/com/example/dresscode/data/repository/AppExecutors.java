@@ -0,0 +1,211 @@
+package com.example.dresscode.data.repository;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内共享的后台线程：
+ * <ul>
+ *     <li>io：单线程串行执行数据库读写，保证同一仓库的写入按提交顺序落库；</li>
+ *     <li>network：固定 {@link #NETWORK_THREADS} 个线程 + 有界队列。队列满时，实现了 {@link RejectionAware}
+ *     的任务被丢弃并由它自己收尾（放回持久化队列等）；普通任务不能丢，先放进溢出队列，有空位时再补进线程池；</li>
+ *     <li>longPoll：单线程跑换装的合并长轮询（每次挂起十几秒），不占 network 线程；</li>
+ *     <li>image：{@link #IMAGE_THREADS} 个线程解码列表图片，不占用数据库和网络线程；</li>
+ *     <li>compute：单线程做首页推荐这类纯内存计算，不排在数据库写入后面，也不占主线程。</li>
+ * </ul>
+ * 线程都有名字，队列深度/峰值/完成数/拒绝数/溢出数可以通过 {@link MeteredExecutor#stats()} 查看。
+ */
+public final class AppExecutors {
+
+    private static final String TAG = "AppExecutors";
+
+    /** 换装提交和打标签的并发都占满时，还留一个线程给衣橱同步、下载结果图等零散请求。 */
+    static final int NETWORK_THREADS = TryOnJobRunner.MAX_SUBMITTING + OutfitTagScheduler.DEFAULT_MAX_CONCURRENT + 1;
+    static final int NETWORK_QUEUE_CAPACITY = 64;
+    static final int IMAGE_THREADS = 2;
+
+    private static volatile AppExecutors instance;
+
+    private final MeteredExecutor io;
+    private final MeteredExecutor network;
+    private final MeteredExecutor longPoll;
+    private final MeteredExecutor image;
+    private final MeteredExecutor compute;
+
+    private AppExecutors() {
+        io = new MeteredExecutor("dresscode-io", 1, new LinkedBlockingQueue<>());
+        network = new MeteredExecutor("dresscode-net", NETWORK_THREADS, new ArrayBlockingQueue<>(NETWORK_QUEUE_CAPACITY));
+        longPoll = new MeteredExecutor("dresscode-poll", 1, new LinkedBlockingQueue<>());
+        image = new MeteredExecutor("dresscode-image", IMAGE_THREADS, new LinkedBlockingQueue<>());
+        compute = new MeteredExecutor("dresscode-compute", 1, new LinkedBlockingQueue<>());
+    }
+
+    public static AppExecutors get() {
+        if (instance == null) {
+            synchronized (AppExecutors.class) {
+                if (instance == null) {
+                    instance = new AppExecutors();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public MeteredExecutor io() {
+        return io;
+    }
+
+    public MeteredExecutor network() {
+        return network;
+    }
+
+    public MeteredExecutor longPoll() {
+        return longPoll;
+    }
+
+    public MeteredExecutor image() {
+        return image;
+    }
+
+    public MeteredExecutor compute() {
+        return compute;
+    }
+
+    /**
+     * 可以被有界队列丢弃的任务：队列满时不再排队，由 {@link #onRejected()} 收尾（释放名额、放回持久化队列等）。
+     * 没实现这个接口的任务不会被丢弃。
+     */
+    public interface RejectionAware {
+        void onRejected();
+    }
+
+    public static final class Stats {
+        public final String name;
+        public final int activeThreads;
+        public final int queueDepth;
+        public final int peakQueueDepth;
+        public final long completed;
+        public final long rejected;
+        /** 队列满时转进溢出队列的普通任务数（累计）。 */
+        public final long overflowed;
+        public final int overflowDepth;
+
+        Stats(String name, int activeThreads, int queueDepth, int peakQueueDepth, long completed, long rejected,
+              long overflowed, int overflowDepth) {
+            this.name = name;
+            this.activeThreads = activeThreads;
+            this.queueDepth = queueDepth;
+            this.peakQueueDepth = peakQueueDepth;
+            this.completed = completed;
+            this.rejected = rejected;
+            this.overflowed = overflowed;
+            this.overflowDepth = overflowDepth;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return name + "{active=" + activeThreads + ", queue=" + queueDepth + ", peak=" + peakQueueDepth
+                    + ", completed=" + completed + ", rejected=" + rejected + ", overflowed=" + overflowed
+                    + ", overflowQueue=" + overflowDepth + "}";
+        }
+    }
+
+    /**
+     * 带队列指标的固定大小线程池；核心线程空闲 30 秒后回收，不常用的池不会一直占着线程。
+     */
+    public static final class MeteredExecutor extends ThreadPoolExecutor {
+        private final String name;
+        private final AtomicInteger peakQueueDepth = new AtomicInteger();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong overflowed = new AtomicLong();
+        /** 有界队列满时暂存的普通任务，任务执行完或有空位时按顺序补回线程池。 */
+        private final ConcurrentLinkedQueue<Runnable> overflow = new ConcurrentLinkedQueue<>();
+
+        MeteredExecutor(String name, int threads, BlockingQueue<Runnable> queue) {
+            super(threads, threads, 30L, TimeUnit.SECONDS, queue, new NamedThreadFactory(name));
+            this.name = name;
+            allowCoreThreadTimeOut(true);
+            setRejectedExecutionHandler(new OverflowPolicy());
+        }
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            super.execute(command);
+            int depth = getQueue().size();
+            int peak;
+            do {
+                peak = peakQueueDepth.get();
+            } while (depth > peak && !peakQueueDepth.compareAndSet(peak, depth));
+        }
+
+        @Override
+        protected void afterExecute(Runnable r, Throwable t) {
+            super.afterExecute(r, t);
+            drainOverflow();
+        }
+
+        public Stats stats() {
+            return new Stats(name, getActiveCount(), getQueue().size(), peakQueueDepth.get(), getCompletedTaskCount(), rejected.get(),
+                    overflowed.get(), overflow.size());
+        }
+
+        /**
+         * 有界队列有空位时把溢出的任务补回去；再次放不下的会回到溢出队列末尾。
+         */
+        private void drainOverflow() {
+            Runnable next;
+            while (!isShutdown() && getQueue().remainingCapacity() > 0 && (next = overflow.poll()) != null) {
+                super.execute(next);
+            }
+        }
+
+        private final class OverflowPolicy implements RejectedExecutionHandler {
+            @Override
+            public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                if (executor.isShutdown()) {
+                    return;
+                }
+                if (r instanceof RejectionAware) {
+                    long count = rejected.incrementAndGet();
+                    Log.w(TAG, name + " queue full, task dropped (rejected=" + count + ")");
+                    ((RejectionAware) r).onRejected();
+                    return;
+                }
+                overflow.offer(r);
+                long count = overflowed.incrementAndGet();
+                Log.w(TAG, name + " queue full, task deferred to overflow (overflowed=" + count + ")");
+                // 入溢出队列之前线程可能已经全部空闲，这里补一次，避免任务没人取
+                drainOverflow();
+            }
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger index = new AtomicInteger(1);
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable r) {
+            Thread t = new Thread(r, prefix + "-" + index.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.example.dresscode.data.repository;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 全国城市名 → adcode 的本地索引，数据是构建期由 CityIndexTask 生成的 assets/geo/cities.bin（不压缩，直接 mmap）。
+ * 第一次使用时把每个城市的中文名、全拼、拼音首字母插进一棵字典树，之后：
+ * <ul>
+ *     <li>{@link #resolve} 按名字/拼音精确解析 adcode，天气请求不必再把城市名交给服务端猜；</li>
+ *     <li>{@link #search} 给城市下拉框做前缀联想，前缀没有结果时再按编辑距离做模糊匹配（输错一两个字母）。</li>
+ * </ul>
+ * 加载在调用线程上进行（约几毫秒），请在后台线程第一次调用；加载后只读，可多线程查询。
+ */
+final class CityIndex {
+    private static final String TAG = "CityIndex";
+    static final String ASSET_NAME = "geo/cities.bin";
+    // 与 buildSrc 里 CityIndexTask 的格式一致
+    private static final int MAGIC = 0x43494458;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    private static final int RECORD_BYTES = 16;
+    /** 解析时依次去掉的行政区划后缀（兴安盟这类名字本身带“盟”，先按原样查）。 */
+    private static final String[] NAME_SUFFIXES = {"特别行政区", "自治州", "地区", "市", "盟", "州"};
+
+    static final class City {
+        @NonNull
+        final String adcode;
+        @NonNull
+        final String name;
+
+        City(@NonNull String adcode, @NonNull String name) {
+            this.adcode = adcode;
+            this.name = name;
+        }
+    }
+
+    private static final class Node {
+        final Map<Character, Node> children = new HashMap<>(4);
+        // 以这个节点结尾的键对应的城市（记录下标）
+        int[] records;
+
+        void addRecord(int record) {
+            if (records == null) {
+                records = new int[]{record};
+                return;
+            }
+            for (int r : records) {
+                if (r == record) {
+                    return;
+                }
+            }
+            records = Arrays.copyOf(records, records.length + 1);
+            records[records.length - 1] = record;
+        }
+    }
+
+    private static final class Loaded {
+        final ByteBuffer buffer;
+        final int count;
+        final Node root;
+
+        Loaded(ByteBuffer buffer, int count, Node root) {
+            this.buffer = buffer;
+            this.count = count;
+            this.root = root;
+        }
+    }
+
+    private final Context appContext;
+    private volatile Loaded loaded;
+
+    CityIndex(Context context) {
+        this.appContext = context.getApplicationContext();
+    }
+
+    /**
+     * 中文名（可带“市”等后缀）、全拼或拼音首字母精确对应的城市；有多个时地级市优先。找不到返回 null。
+     */
+    City resolve(String query) {
+        Loaded index = loaded();
+        String q = normalize(query);
+        if (q.isEmpty()) {
+            return null;
+        }
+        Node node = find(index.root, q);
+        if (node == null || node.records == null) {
+            for (String suffix : NAME_SUFFIXES) {
+                if (q.length() > suffix.length() && q.endsWith(suffix)) {
+                    node = find(index.root, q.substring(0, q.length() - suffix.length()));
+                    if (node != null && node.records != null) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (node == null || node.records == null) {
+            return null;
+        }
+        return city(index, ranked(index, node.records)[0]);
+    }
+
+    City byAdcode(String adcode) {
+        int code;
+        try {
+            code = Integer.parseInt(adcode.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        Loaded index = loaded();
+        int lo = 0;
+        int hi = index.count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int value = index.buffer.getInt(recordOffset(mid));
+            if (value < code) {
+                lo = mid + 1;
+            } else if (value > code) {
+                hi = mid - 1;
+            } else {
+                return city(index, mid);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 下拉框联想：列出以输入为前缀的城市（键越短越靠前）；一个都没有时改用编辑距离最近的城市。
+     */
+    List<City> search(String query, int limit) {
+        Loaded index = loaded();
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        Set<Integer> hits = new LinkedHashSet<>();
+        Node prefix = find(index.root, q);
+        if (prefix != null) {
+            collectBreadthFirst(index, prefix, hits, limit);
+        }
+        int maxEdits = maxEdits(q);
+        if (hits.isEmpty() && maxEdits > 0) {
+            List<int[]> fuzzy = new ArrayList<>();
+            int[] firstRow = new int[q.length() + 1];
+            for (int i = 0; i < firstRow.length; i++) {
+                firstRow[i] = i;
+            }
+            for (Map.Entry<Character, Node> e : index.root.children.entrySet()) {
+                collectFuzzy(e.getValue(), e.getKey(), q, firstRow, maxEdits, e.getKey() == q.charAt(0) ? 0 : 1, fuzzy);
+            }
+            Collections.sort(fuzzy, (a, b) -> {
+                if (a[1] != b[1]) {
+                    return Integer.compare(a[1], b[1]);
+                }
+                if (a[2] != b[2]) {
+                    return Integer.compare(a[2], b[2]);
+                }
+                return Integer.compare(rank(index, a[0]), rank(index, b[0]));
+            });
+            for (int[] hit : fuzzy) {
+                if (hits.size() >= limit) {
+                    break;
+                }
+                hits.add(hit[0]);
+            }
+        }
+        List<City> result = new ArrayList<>(hits.size());
+        for (int record : hits) {
+            result.add(city(index, record));
+        }
+        return result;
+    }
+
+    private static void collectBreadthFirst(Loaded index, Node start, Set<Integer> out, int limit) {
+        List<Node> level = Collections.singletonList(start);
+        while (!level.isEmpty() && out.size() < limit) {
+            List<Node> next = new ArrayList<>();
+            for (Node node : level) {
+                if (node.records != null) {
+                    for (int record : ranked(index, node.records)) {
+                        if (out.size() >= limit) {
+                            return;
+                        }
+                        out.add(record);
+                    }
+                }
+                next.addAll(node.children.values());
+            }
+            level = next;
+        }
+    }
+
+    /**
+     * 字典树上的 Levenshtein：每下降一层算一行编辑距离，整行都超过 maxEdits 时剪枝。
+     * 结果是 {记录下标, 距离, 首字是否不同}：距离相同时首字对得上的排前面。
+     */
+    private static void collectFuzzy(Node node, char c, String q, int[] previousRow, int maxEdits, int firstMismatch, List<int[]> out) {
+        int columns = q.length() + 1;
+        int[] row = new int[columns];
+        row[0] = previousRow[0] + 1;
+        int rowMin = row[0];
+        for (int i = 1; i < columns; i++) {
+            int insert = row[i - 1] + 1;
+            int delete = previousRow[i] + 1;
+            int replace = previousRow[i - 1] + (q.charAt(i - 1) == c ? 0 : 1);
+            row[i] = Math.min(insert, Math.min(delete, replace));
+            rowMin = Math.min(rowMin, row[i]);
+        }
+        if (node.records != null && row[columns - 1] <= maxEdits) {
+            for (int record : node.records) {
+                out.add(new int[]{record, row[columns - 1], firstMismatch});
+            }
+        }
+        if (rowMin <= maxEdits) {
+            for (Map.Entry<Character, Node> e : node.children.entrySet()) {
+                collectFuzzy(e.getValue(), e.getKey(), q, row, maxEdits, firstMismatch, out);
+            }
+        }
+    }
+
+    /** 太短的输入不做模糊匹配，否则几乎什么都能匹配上。 */
+    private static int maxEdits(String q) {
+        boolean ascii = true;
+        for (int i = 0; i < q.length(); i++) {
+            if (q.charAt(i) > 0x7f) {
+                ascii = false;
+                break;
+            }
+        }
+        if (!ascii) {
+            return q.length() >= 2 ? 1 : 0;
+        }
+        if (q.length() < 4) {
+            return 0;
+        }
+        return q.length() < 8 ? 1 : 2;
+    }
+
+    /** 同一个键对应多个城市时（如拼音首字母相同）地级市排在县级市前面。 */
+    private static int[] ranked(Loaded index, int[] records) {
+        if (records.length == 1) {
+            return records;
+        }
+        Integer[] boxed = new Integer[records.length];
+        for (int i = 0; i < records.length; i++) {
+            boxed[i] = records[i];
+        }
+        Arrays.sort(boxed, (a, b) -> Integer.compare(rank(index, a), rank(index, b)));
+        int[] sorted = new int[records.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = boxed[i];
+        }
+        return sorted;
+    }
+
+    private static int rank(Loaded index, int record) {
+        int adcode = index.buffer.getInt(recordOffset(record));
+        return adcode % 100 == 0 ? 0 : 1;
+    }
+
+    private static Node find(Node root, String key) {
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.children.get(key.charAt(i));
+        }
+        return node;
+    }
+
+    private static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(query.length());
+        for (int i = 0; i < query.length(); i++) {
+            char ch = query.charAt(i);
+            if (Character.isWhitespace(ch) || ch == '\'' || ch == '’') {
+                continue;
+            }
+            sb.append(ch == 'ü' || ch == 'Ü' ? 'v' : Character.toLowerCase(ch));
+        }
+        return sb.toString();
+    }
+
+    private static City city(Loaded index, int record) {
+        int offset = recordOffset(record);
+        return new City(String.valueOf(index.buffer.getInt(offset)), readString(index.buffer, index.buffer.getInt(offset + 4)));
+    }
+
+    private static int recordOffset(int record) {
+        return HEADER_BYTES + record * RECORD_BYTES;
+    }
+
+    private static String readString(ByteBuffer buffer, int offset) {
+        int length = buffer.get(offset) & 0xff;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + 1 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Loaded loaded() {
+        Loaded index = loaded;
+        if (index == null) {
+            synchronized (this) {
+                index = loaded;
+                if (index == null) {
+                    index = load();
+                    loaded = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private Loaded load() {
+        long start = System.nanoTime();
+        ByteBuffer buffer;
+        try {
+            buffer = map();
+        } catch (IOException e) {
+            Log.w(TAG, "open " + ASSET_NAME + " failed", e);
+            return new Loaded(ByteBuffer.allocate(0), 0, new Node());
+        }
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            Log.w(TAG, ASSET_NAME + " has unexpected format");
+            return new Loaded(ByteBuffer.allocate(0), 0, new Node());
+        }
+        int count = buffer.getInt(8);
+        Node root = new Node();
+        for (int i = 0; i < count; i++) {
+            int offset = recordOffset(i);
+            for (int field = 1; field <= 3; field++) {
+                insert(root, readString(buffer, buffer.getInt(offset + field * 4)), i);
+            }
+        }
+        Log.d(TAG, "loaded " + count + " cities in " + (System.nanoTime() - start) / 1000 + "us");
+        return new Loaded(buffer, count, root);
+    }
+
+    private static void insert(Node root, String key, int record) {
+        String k = key.toLowerCase(Locale.ROOT);
+        if (k.isEmpty()) {
+            return;
+        }
+        Node node = root;
+        for (int i = 0; i < k.length(); i++) {
+            char ch = k.charAt(i);
+            Node child = node.children.get(ch);
+            if (child == null) {
+                child = new Node();
+                node.children.put(ch, child);
+            }
+            node = child;
+        }
+        node.addRecord(record);
+    }
+
+    /**
+     * 资源未压缩时直接映射 APK 里的那一段；被压缩（openFd 失败）时退回读进内存。
+     */
+    private ByteBuffer map() throws IOException {
+        try (AssetFileDescriptor fd = appContext.getAssets().openFd(ASSET_NAME);
+             FileInputStream in = fd.createInputStream()) {
+            return in.getChannel().map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getLength());
+        } catch (FileNotFoundException compressed) {
+            try (InputStream in = appContext.getAssets().open(ASSET_NAME)) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buf = new byte[8192];
+                int n;
+                while ((n = in.read(buf)) != -1) {
+                    out.write(buf, 0, n);
+                }
+                return ByteBuffer.wrap(out.toByteArray());
+            }
+        }
+    }
+}
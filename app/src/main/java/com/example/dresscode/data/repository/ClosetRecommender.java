@@ -0,0 +1,425 @@
+package com.example.dresscode.data.repository;
+
+import androidx.annotation.NonNull;
+
+import com.example.dresscode.data.local.ClosetItemEntity;
+import com.example.dresscode.data.local.OutfitFacets;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 首页“衣橱推荐”的本地引擎。衣橱按 品类 × 季节 建索引，衣橱 LiveData 每次发新列表时按 id 对比，
+ * 只重建字段变化过的单品；挑选时只在当季的桶里按分数取最高，当季没有再看季节未知、最后看其它季节。
+ * <p>
+ * 分数由温度档、下雨、季节、场景（工作日通勤/周末出街）和收藏决定，见 {@link #score}；
+ * 整套搭配由 {@link OutfitCombiner} 在同一份索引上组合。
+ * 所有计算在 compute 线程上进行；连续多次提交只算最后一次。
+ */
+public final class ClosetRecommender {
+
+    public static final String DRESS = "连衣裙";
+    public static final String TOP = "上衣";
+    public static final String BOTTOM = "下装";
+    public static final String OUTER = "外套";
+    public static final String SHOES = "鞋子";
+
+    /** 首页展示的整套搭配数。 */
+    static final int OUTFIT_COUNT = 3;
+    private static final int SEASON_BUCKETS = OutfitFacets.SEASONS.length;
+    private static final String[] WARM_WORDS = {"羽绒", "毛衣", "针织", "棉", "呢", "加绒", "保暖", "靴"};
+    private static final String[] COOL_WORDS = {"短袖", "短裤", "T恤", "背心", "吊带", "凉鞋", "拖鞋", "亚麻", "薄"};
+    private static final String[] RAIN_WORDS = {"雨", "防水", "冲锋", "风衣"};
+
+    /** 温度档。 */
+    static final int BAND_COLD = 0;
+    static final int BAND_COOL = 1;
+    static final int BAND_WARM = 2;
+    static final int BAND_HOT = 3;
+
+    /**
+     * 推荐时的天气/日期条件。
+     */
+    public static final class Conditions {
+        final int seasonMask;
+        final int band;
+        final boolean rainy;
+        final int sceneCode;
+
+        /**
+         * @param seasonHint 首页按气温给出的季节（春夏/春秋/秋冬）
+         * @param tempC      当前气温；没有时传 {@link Integer#MIN_VALUE}
+         */
+        public Conditions(String seasonHint, int tempC, String desc, Calendar now) {
+            this.seasonMask = OutfitFacets.seasonMask(seasonHint);
+            this.band = bandOf(tempC);
+            this.rainy = desc != null && (desc.contains("雨") || desc.contains("雪"));
+            int day = now.get(Calendar.DAY_OF_WEEK);
+            boolean weekend = day == Calendar.SATURDAY || day == Calendar.SUNDAY;
+            this.sceneCode = OutfitFacets.sceneCode(weekend ? "出街" : "通勤");
+        }
+
+        private static int bandOf(int tempC) {
+            if (tempC == Integer.MIN_VALUE) {
+                return BAND_COOL;
+            }
+            if (tempC <= 10) {
+                return BAND_COLD;
+            }
+            if (tempC <= 18) {
+                return BAND_COOL;
+            }
+            return tempC <= 25 ? BAND_WARM : BAND_HOT;
+        }
+
+        boolean same(Conditions other) {
+            return other != null && seasonMask == other.seasonMask && band == other.band
+                    && rainy == other.rainy && sceneCode == other.sceneCode;
+        }
+    }
+
+    /**
+     * 各品类的最佳单品；没有该品类时为 null。{@link #any} 是衣橱里最新的一件，衣橱为空时为 null。
+     * {@link #outfits} 是分数最高的几套整套搭配，凑不成一套时为空。
+     */
+    public static final class Picks {
+        public final ClosetItemEntity dress;
+        public final ClosetItemEntity top;
+        public final ClosetItemEntity bottom;
+        public final ClosetItemEntity outer;
+        public final ClosetItemEntity shoes;
+        public final ClosetItemEntity any;
+        @NonNull
+        public final List<OutfitCombiner.Outfit> outfits;
+        public final int closetSize;
+
+        Picks(ClosetItemEntity dress, ClosetItemEntity top, ClosetItemEntity bottom, ClosetItemEntity outer,
+              ClosetItemEntity shoes, ClosetItemEntity any, @NonNull List<OutfitCombiner.Outfit> outfits, int closetSize) {
+            this.dress = dress;
+            this.top = top;
+            this.bottom = bottom;
+            this.outer = outer;
+            this.shoes = shoes;
+            this.any = any;
+            this.outfits = outfits;
+            this.closetSize = closetSize;
+        }
+    }
+
+    public interface Callback {
+        /** 在 compute 线程回调。 */
+        void onResult(@NonNull Picks picks);
+    }
+
+    /**
+     * 单品里参与打分的字段，建索引时算一次。
+     */
+    static final class Features {
+        final ClosetItemEntity item;
+        final int seasonMask;
+        final int styleCode;
+        final int sceneCode;
+        final boolean warm;
+        final boolean cool;
+        final boolean rainProof;
+
+        Features(ClosetItemEntity item) {
+            this.item = item;
+            this.seasonMask = OutfitFacets.seasonMask(item.season);
+            this.styleCode = OutfitFacets.styleCode(item.style);
+            this.sceneCode = OutfitFacets.sceneCode(item.scene);
+            this.warm = containsAny(item.name, WARM_WORDS) || seasonMask == 1 << 3;
+            this.cool = containsAny(item.name, COOL_WORDS) || seasonMask == 1 << 1;
+            this.rainProof = containsAny(item.name, RAIN_WORDS) || styleCode == OutfitFacets.styleCode("机能");
+        }
+
+        /** 影响索引位置或分数的字段都没变。 */
+        boolean sameAs(ClosetItemEntity other) {
+            return item.category.equals(other.category) && item.season.equals(other.season)
+                    && item.style.equals(other.style) && item.scene.equals(other.scene)
+                    && item.name.equals(other.name) && item.isFavorite == other.isFavorite
+                    && item.createdAt == other.createdAt;
+        }
+
+        private static boolean containsAny(String text, String[] words) {
+            if (text == null) {
+                return false;
+            }
+            for (String w : words) {
+                if (text.contains(w)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 一个品类的索引：每个季节一个桶（多季节的单品进多个桶），季节未知的单独一个桶；{@link #all} 是全部单品。
+     */
+    private static final class CategoryIndex {
+        final Map<Long, Features> all = new LinkedHashMap<>();
+        final List<Map<Long, Features>> bySeason = new ArrayList<>(SEASON_BUCKETS);
+        final Map<Long, Features> unknownSeason = new LinkedHashMap<>();
+
+        CategoryIndex() {
+            for (int i = 0; i < SEASON_BUCKETS; i++) {
+                bySeason.add(new LinkedHashMap<>());
+            }
+        }
+
+        void add(Features f) {
+            all.put(f.item.id, f);
+            if (f.seasonMask == 0) {
+                unknownSeason.put(f.item.id, f);
+                return;
+            }
+            for (int i = 0; i < SEASON_BUCKETS; i++) {
+                if ((f.seasonMask & (1 << i)) != 0) {
+                    bySeason.get(i).put(f.item.id, f);
+                }
+            }
+        }
+
+        void remove(Features f) {
+            all.remove(f.item.id);
+            unknownSeason.remove(f.item.id);
+            for (Map<Long, Features> bucket : bySeason) {
+                bucket.remove(f.item.id);
+            }
+        }
+
+        /** 当季桶里分数最高的；当季没有时依次看季节未知、其它季节。 */
+        Features best(Conditions c) {
+            Features best = null;
+            for (int i = 0; i < SEASON_BUCKETS; i++) {
+                if ((c.seasonMask & (1 << i)) != 0) {
+                    best = better(best, bySeason.get(i).values(), c);
+                }
+            }
+            if (best == null) {
+                best = better(null, unknownSeason.values(), c);
+            }
+            if (best == null) {
+                for (Map<Long, Features> bucket : bySeason) {
+                    best = better(best, bucket.values(), c);
+                }
+            }
+            return best;
+        }
+
+        private static Features better(Features best, Iterable<Features> candidates, Conditions c) {
+            int bestScore = best == null ? Integer.MIN_VALUE : score(best, c);
+            for (Features f : candidates) {
+                int s = score(f, c);
+                if (s > bestScore || (s == bestScore && best != null && newer(f, best))) {
+                    best = f;
+                    bestScore = s;
+                }
+            }
+            return best;
+        }
+    }
+
+    private final Executor computeExecutor;
+    private final OutfitCombiner combiner = new OutfitCombiner();
+    // 以下字段只在 compute 线程上读写
+    private final Map<Long, Features> byId = new HashMap<>();
+    private final Map<String, CategoryIndex> byCategory = new HashMap<>();
+    private Features newest;
+    private List<ClosetItemEntity> indexedList;
+    private Conditions lastConditions;
+    private Picks lastPicks;
+
+    private final Object lock = new Object();
+    private List<ClosetItemEntity> pendingCloset = Collections.emptyList();
+    private Conditions pendingConditions;
+    private Callback pendingCallback;
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    ClosetRecommender(AppExecutors executors) {
+        this.computeExecutor = executors.compute();
+    }
+
+    /**
+     * 衣橱 LiveData 发来新列表时调用（任意线程），下一次 {@link #recommend} 前增量更新索引。
+     */
+    public void submitCloset(List<ClosetItemEntity> items) {
+        synchronized (lock) {
+            pendingCloset = items == null ? Collections.emptyList() : items;
+        }
+    }
+
+    /**
+     * 按条件在 compute 线程上挑选；还没算完时又提交的请求会覆盖前一个，只回调最后一个。
+     */
+    public void recommend(@NonNull Conditions conditions, @NonNull Callback callback) {
+        synchronized (lock) {
+            pendingConditions = conditions;
+            pendingCallback = callback;
+        }
+        if (scheduled.compareAndSet(false, true)) {
+            computeExecutor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            List<ClosetItemEntity> closet;
+            Conditions conditions;
+            Callback callback;
+            synchronized (lock) {
+                closet = pendingCloset;
+                conditions = pendingConditions;
+                callback = pendingCallback;
+                pendingConditions = null;
+                pendingCallback = null;
+                if (callback == null) {
+                    scheduled.set(false);
+                    return;
+                }
+            }
+            boolean changed = reindex(closet);
+            if (changed || lastPicks == null || !conditions.same(lastConditions)) {
+                lastPicks = pick(conditions, closet.size());
+                lastConditions = conditions;
+            }
+            callback.onResult(lastPicks);
+        }
+    }
+
+    /**
+     * 与上次索引的列表按 id 对比：新增的加进索引，删除的移出，字段变了的重新放桶；只换了对象的原地替换。
+     */
+    private boolean reindex(List<ClosetItemEntity> closet) {
+        if (closet == indexedList) {
+            return false;
+        }
+        indexedList = closet;
+        boolean changed = false;
+        boolean replaced = false;
+        Set<Long> seen = new HashSet<>(closet.size() * 2);
+        for (ClosetItemEntity item : closet) {
+            if (item == null) {
+                continue;
+            }
+            seen.add(item.id);
+            Features old = byId.get(item.id);
+            if (old != null && old.item == item) {
+                continue;
+            }
+            if (old != null && old.sameAs(item)) {
+                // 只有图片等不参与打分的字段变了：换成新对象，让结果里带上新的缩略图
+                replaceInPlace(old, new Features(item));
+                replaced = true;
+                continue;
+            }
+            if (old != null) {
+                indexOf(old.item.category).remove(old);
+            }
+            Features f = new Features(item);
+            byId.put(item.id, f);
+            indexOf(item.category).add(f);
+            changed = true;
+        }
+        if (seen.size() != byId.size()) {
+            List<Long> removed = new ArrayList<>();
+            for (Long id : byId.keySet()) {
+                if (!seen.contains(id)) {
+                    removed.add(id);
+                }
+            }
+            for (Long id : removed) {
+                Features old = byId.remove(id);
+                indexOf(old.item.category).remove(old);
+            }
+            changed = true;
+        }
+        if (!changed && !replaced) {
+            return false;
+        }
+        newest = null;
+        for (Features f : byId.values()) {
+            if (newest == null || newer(f, newest)) {
+                newest = f;
+            }
+        }
+        // 只替换了对象也要重新挑一次，结果里才是新对象
+        return true;
+    }
+
+    private void replaceInPlace(Features old, Features fresh) {
+        byId.put(fresh.item.id, fresh);
+        CategoryIndex index = indexOf(fresh.item.category);
+        index.remove(old);
+        index.add(fresh);
+    }
+
+    private CategoryIndex indexOf(String category) {
+        CategoryIndex index = byCategory.get(category);
+        if (index == null) {
+            index = new CategoryIndex();
+            byCategory.put(category, index);
+        }
+        return index;
+    }
+
+    private Picks pick(Conditions c, int closetSize) {
+        Map<String, Collection<Features>> byCategoryAll = new HashMap<>();
+        for (Map.Entry<String, CategoryIndex> e : byCategory.entrySet()) {
+            byCategoryAll.put(e.getKey(), e.getValue().all.values());
+        }
+        return new Picks(bestOf(DRESS, c), bestOf(TOP, c), bestOf(BOTTOM, c), bestOf(OUTER, c), bestOf(SHOES, c),
+                newest == null ? null : newest.item, combiner.topK(byCategoryAll, c, OUTFIT_COUNT), closetSize);
+    }
+
+    private ClosetItemEntity bestOf(String category, Conditions c) {
+        CategoryIndex index = byCategory.get(category);
+        if (index == null) {
+            return null;
+        }
+        Features best = index.best(c);
+        return best == null ? null : best.item;
+    }
+
+    /**
+     * 单品在当前条件下的分数：
+     * 季节对上 +4、对不上 -4（未知 0）；冷天保暖 +2、轻薄 -3，热天反过来；下雨防水 +2；
+     * 场景与今天（工作日通勤/周末出街）一致 +1；收藏 +2。
+     */
+    static int score(Features f, Conditions c) {
+        int s = 0;
+        if (f.seasonMask != 0) {
+            s += (f.seasonMask & c.seasonMask) != 0 ? 4 : -4;
+        }
+        if (c.band == BAND_COLD) {
+            s += (f.warm ? 2 : 0) - (f.cool ? 3 : 0);
+        } else if (c.band == BAND_HOT) {
+            s += (f.cool ? 2 : 0) - (f.warm ? 3 : 0);
+        }
+        if (c.rainy && f.rainProof) {
+            s += 2;
+        }
+        if (f.sceneCode != 0 && f.sceneCode == c.sceneCode) {
+            s += 1;
+        }
+        if (f.item.isFavorite) {
+            s += 2;
+        }
+        return s;
+    }
+
+    static boolean newer(Features a, Features b) {
+        return a.item.createdAt != b.item.createdAt ? a.item.createdAt > b.item.createdAt : a.item.id > b.item.id;
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.dresscode.data.repository;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.util.DisplayMetrics;
+
+import com.example.dresscode.data.local.ClosetItemEntity;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+
+/**
+ * 衣物图片的多尺寸副本，导入时生成一次，之后各处按需要的大小取最小够用的一份：
+ * <ul>
+ *     <li>grid：短边 = 半个屏幕宽，列表/网格卡片（centerCrop）使用；</li>
+ *     <li>preview：长边 = 屏幕长边（上限 {@link #MAX_PREVIEW_EDGE}），预览弹窗使用。</li>
+ * </ul>
+ * 生成时按 EXIF 方向旋转；原图保持不变，上传/换装仍然使用原图。
+ */
+public final class ClosetRenditions {
+
+    static final String DIR_NAME = "closet_renditions";
+    private static final int MAX_PREVIEW_EDGE = 2048;
+    private static final int MIN_GRID_EDGE = 256;
+    private static final int JPEG_QUALITY = 85;
+
+    /** 生成结果；路径为空表示生成失败，调用方回退到原图。 */
+    static final class Result {
+        String gridUri = "";
+        int gridWidth;
+        int gridHeight;
+        String previewUri = "";
+        int previewWidth;
+        int previewHeight;
+    }
+
+    private ClosetRenditions() {
+    }
+
+    /**
+     * 列表卡片使用的图片：grid 副本 → preview 副本 → 原图。
+     */
+    public static String forGrid(ClosetItemEntity item) {
+        if (item == null) {
+            return null;
+        }
+        if (!isEmpty(item.gridUri)) {
+            return item.gridUri;
+        }
+        return !isEmpty(item.previewUri) ? item.previewUri : item.imageUri;
+    }
+
+    /**
+     * 大图预览使用的图片：preview 副本 → 原图。
+     */
+    public static String forPreview(ClosetItemEntity item) {
+        if (item == null) {
+            return null;
+        }
+        return !isEmpty(item.previewUri) ? item.previewUri : item.imageUri;
+    }
+
+    /**
+     * 在后台线程调用：解码一次原图（按 preview 尺寸采样），再从 preview 缩出 grid。
+     */
+    static Result generate(Context context, String imageUri, long createdAt) {
+        Result result = new Result();
+        if (isEmpty(imageUri)) {
+            return result;
+        }
+        DisplayMetrics dm = context.getResources().getDisplayMetrics();
+        int gridEdge = Math.max(MIN_GRID_EDGE, Math.min(dm.widthPixels, dm.heightPixels) / 2);
+        int previewEdge = Math.min(MAX_PREVIEW_EDGE, Math.max(dm.widthPixels, dm.heightPixels));
+
+        File dir = new File(context.getFilesDir(), DIR_NAME);
+        if (!dir.exists() && !dir.mkdirs()) {
+            return result;
+        }
+        // 文件名由导入时间和原图 URI 决定，导入时（还没有 id）和回填时得到同一组文件
+        String baseName = "closet_" + createdAt + "_" + Integer.toHexString(imageUri.hashCode());
+        Uri uri = Uri.parse(imageUri);
+        ContentResolver resolver = context.getContentResolver();
+        Bitmap preview = null;
+        Bitmap grid = null;
+        try {
+            preview = decodeOriented(resolver, uri, previewEdge);
+            if (preview == null) {
+                return result;
+            }
+            File previewFile = new File(dir, baseName + "_preview.jpg");
+            if (write(preview, previewFile)) {
+                result.previewUri = Uri.fromFile(previewFile).toString();
+                result.previewWidth = preview.getWidth();
+                result.previewHeight = preview.getHeight();
+            }
+
+            float gridScale = (float) gridEdge / Math.min(preview.getWidth(), preview.getHeight());
+            grid = gridScale < 1f
+                    ? Bitmap.createScaledBitmap(preview, Math.round(preview.getWidth() * gridScale), Math.round(preview.getHeight() * gridScale), true)
+                    : preview;
+            File gridFile = new File(dir, baseName + "_grid.jpg");
+            if (write(grid, gridFile)) {
+                result.gridUri = Uri.fromFile(gridFile).toString();
+                result.gridWidth = grid.getWidth();
+                result.gridHeight = grid.getHeight();
+            }
+        } catch (Exception | OutOfMemoryError ignored) {
+        } finally {
+            if (grid != null && grid != preview) {
+                grid.recycle();
+            }
+            if (preview != null) {
+                preview.recycle();
+            }
+        }
+        return result;
+    }
+
+    static void delete(ClosetItemEntity item) {
+        if (item == null) {
+            return;
+        }
+        deleteFile(item.gridUri);
+        deleteFile(item.previewUri);
+    }
+
+    /**
+     * 按长边不超过 maxEdge 采样解码，并把 EXIF 方向转正。
+     */
+    static Bitmap decodeOriented(ContentResolver resolver, Uri uri, int maxEdge) throws Exception {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) {
+                return null;
+            }
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        int longEdge = Math.max(bounds.outWidth, bounds.outHeight);
+        if (longEdge <= 0) {
+            return null;
+        }
+        BitmapFactory.Options opts = new BitmapFactory.Options();
+        opts.inSampleSize = 1;
+        while (longEdge / (opts.inSampleSize * 2) >= maxEdge) {
+            opts.inSampleSize *= 2;
+        }
+        Bitmap decoded;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            decoded = in == null ? null : BitmapFactory.decodeStream(in, null, opts);
+        }
+        if (decoded == null) {
+            return null;
+        }
+
+        Matrix matrix = new Matrix();
+        float scale = Math.min(1f, (float) maxEdge / Math.max(decoded.getWidth(), decoded.getHeight()));
+        if (scale < 1f) {
+            matrix.postScale(scale, scale);
+        }
+        applyOrientation(matrix, readOrientation(resolver, uri));
+        if (matrix.isIdentity()) {
+            return decoded;
+        }
+        Bitmap transformed = Bitmap.createBitmap(decoded, 0, 0, decoded.getWidth(), decoded.getHeight(), matrix, true);
+        if (transformed != decoded) {
+            decoded.recycle();
+        }
+        return transformed;
+    }
+
+    private static int readOrientation(ContentResolver resolver, Uri uri) {
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) {
+                return ExifInterface.ORIENTATION_NORMAL;
+            }
+            return new ExifInterface(in).getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (Exception e) {
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    private static void applyOrientation(Matrix matrix, int orientation) {
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1f, 1f);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180f);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1f, -1f);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90f);
+                matrix.postScale(-1f, 1f);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90f);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(-90f);
+                matrix.postScale(-1f, 1f);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(-90f);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static boolean write(Bitmap bitmap, File dest) {
+        File tmp = new File(dest.getParentFile(), dest.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            if (!bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out)) {
+                throw new IllegalStateException("compress failed");
+            }
+        } catch (Exception e) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return false;
+        }
+        if (dest.exists()) {
+            //noinspection ResultOfMethodCallIgnored
+            dest.delete();
+        }
+        return tmp.renameTo(dest);
+    }
+
+    private static void deleteFile(String uri) {
+        if (isEmpty(uri)) {
+            return;
+        }
+        try {
+            Uri parsed = Uri.parse(uri);
+            if ("file".equals(parsed.getScheme()) && parsed.getPath() != null) {
+                //noinspection ResultOfMethodCallIgnored
+                new File(parsed.getPath()).delete();
+            }
+        } catch (Exception ignored) {
+        }
+    }
+
+    private static boolean isEmpty(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+}
@@ -10,20 +10,30 @@ import com.example.dresscode.data.local.DatabaseProvider;
 
 import java.util.List;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class ClosetRepository {
     private final ClosetDao closetDao;
-    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
-    private final ExecutorService networkExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService ioExecutor;
+    private final ExecutorService networkExecutor;
+    private final ExecutorService imageExecutor;
+    private final Context appContext;
     private final String owner;
     private final RemoteClosetRepository remoteRepository;
-
-    public ClosetRepository(Context context, String owner) {
-        this.closetDao = DatabaseProvider.get(context).closetDao();
+    private final LocalMediaStore mediaStore;
+
+    ClosetRepository(Context context, String owner, AppExecutors executors, LocalMediaStore mediaStore) {
+        this.appContext = context.getApplicationContext();
+        this.closetDao = DatabaseProvider.get(appContext).closetDao();
+        this.ioExecutor = executors.io();
+        this.networkExecutor = executors.network();
+        this.imageExecutor = executors.image();
         this.owner = owner == null ? "" : owner;
         this.remoteRepository = new RemoteClosetRepository(context);
-        ioExecutor.execute(() -> closetDao.claimLegacy(this.owner));
+        this.mediaStore = mediaStore;
+        ioExecutor.execute(() -> {
+            closetDao.claimLegacy(this.owner);
+            backfillRenditions();
+        });
     }
 
     public LiveData<List<ClosetItemEntity>> observeAll() {
@@ -38,20 +48,32 @@ public class ClosetRepository {
         return closetDao.observeById(id, owner);
     }
 
+    /**
+     * 先在 image 线程生成 grid/preview 缩略图再落库，列表第一次显示就用缩略图。
+     */
     public void add(ClosetItemEntity item) {
-        ioExecutor.execute(() -> {
-            long localId = closetDao.insert(item);
-            syncToRemoteIfNeeded(localId);
+        imageExecutor.execute(() -> {
+            applyRenditions(item, ClosetRenditions.generate(appContext, item.imageUri, item.createdAt));
+            ioExecutor.execute(() -> {
+                long localId = closetDao.insert(item);
+                syncToRemoteIfNeeded(localId);
+            });
         });
     }
 
+    /**
+     * 原图可能与其它衣物（重复导入）或换装记录共用，不在这里直接删，由 GC 按引用数回收；
+     * 缩略图每件衣物各一份，直接删掉。
+     */
     public void delete(long id) {
         ioExecutor.execute(() -> {
             ClosetItemEntity item = closetDao.getById(id, owner);
             if (item != null) {
-                deleteLocalFileIfPossible(item.imageUri);
+                ClosetRenditions.delete(item);
+            }
+            if (closetDao.deleteById(id, owner) > 0) {
+                mediaStore.requestGc();
             }
-            closetDao.deleteById(id, owner);
         });
     }
 
@@ -72,23 +94,35 @@ public class ClosetRepository {
         ioExecutor.execute(() -> closetDao.setFavorite(id, owner, favorite));
     }
 
-    private void deleteLocalFileIfPossible(String uri) {
-        if (uri == null || uri.trim().isEmpty()) {
+    /**
+     * 升级前导入的衣物没有缩略图，启动后逐个补齐（每次生成都在 image 线程，写库回到 io 线程）。
+     */
+    private void backfillRenditions() {
+        List<ClosetItemEntity> items = closetDao.listMissingRenditions(owner);
+        if (items == null) {
             return;
         }
-        try {
-            android.net.Uri parsed = android.net.Uri.parse(uri);
-            if ("file".equals(parsed.getScheme()) && parsed.getPath() != null) {
-                java.io.File f = new java.io.File(parsed.getPath());
-                if (f.exists()) {
-                    //noinspection ResultOfMethodCallIgnored
-                    f.delete();
+        for (ClosetItemEntity item : items) {
+            imageExecutor.execute(() -> {
+                ClosetRenditions.Result r = ClosetRenditions.generate(appContext, item.imageUri, item.createdAt);
+                if (r.gridUri.isEmpty()) {
+                    return;
                 }
-            }
-        } catch (Exception ignored) {
+                ioExecutor.execute(() -> closetDao.updateRenditions(
+                        item.id, r.gridUri, r.gridWidth, r.gridHeight, r.previewUri, r.previewWidth, r.previewHeight));
+            });
         }
     }
 
+    private static void applyRenditions(ClosetItemEntity item, ClosetRenditions.Result r) {
+        item.gridUri = r.gridUri;
+        item.gridWidth = r.gridWidth;
+        item.gridHeight = r.gridHeight;
+        item.previewUri = r.previewUri;
+        item.previewWidth = r.previewWidth;
+        item.previewHeight = r.previewHeight;
+    }
+
     private void syncToRemoteIfNeeded(long localId) {
         if (localId <= 0) {
             return;
@@ -0,0 +1,406 @@
+package com.example.dresscode.data.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.dresscode.BuildConfig;
+import com.example.dresscode.data.remote.QWeatherGeoApi;
+import com.example.dresscode.data.remote.QWeatherGeoResponse;
+import com.example.dresscode.data.remote.RetrofitProvider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * 多数据源对冲请求天气和空气质量：
+ * <ul>
+ *     <li>按各数据源的延迟/失败统计排序，先请求最靠前的；</li>
+ *     <li>超过它的延迟预算（约两倍平均延迟）还没返回，就再请求下一个，谁先给出有效结果用谁，其余取消；
+ *     失败时立即换下一个；</li>
+ *     <li>空气质量同样对冲，与天气并行；天气先到时最多再等 {@link #AIR_WAIT_MS} 毫秒。</li>
+ * </ul>
+ * 和风/Open-Meteo 需要坐标，只有城市名/adcode 时先用和风地理编码查一次（结果按城市参数记在内存里）。
+ * 所有状态只在主线程读写。
+ */
+final class HedgedWeatherFetcher {
+
+    private static final String TAG = "HedgedWeatherFetcher";
+
+    static final long MIN_HEDGE_DELAY_MS = 800;
+    static final long MAX_HEDGE_DELAY_MS = 4000;
+    static final long AIR_WAIT_MS = 1500;
+    /** 没有统计数据时假定的延迟。 */
+    private static final double PRIOR_LATENCY_MS = 1000;
+    private static final double EWMA_ALPHA = 0.3;
+    /** 连续失败这么多次后暂时排到最后。 */
+    private static final int COOLDOWN_FAILURES = 3;
+    private static final long COOLDOWN_MS = 5 * 60 * 1000;
+
+    interface Callback {
+        /** air 为 null 表示没有拿到空气质量。 */
+        void onSuccess(WeatherProviders.Weather weather, WeatherProviders.Air air);
+
+        void onError(String message);
+    }
+
+    /**
+     * 单个数据源的统计：延迟和失败率都用指数滑动平均，越近的请求权重越大。
+     */
+    static final class ProviderStats {
+        double latencyMs = PRIOR_LATENCY_MS;
+        double errorRate;
+        int successes;
+        int failures;
+        int consecutiveFailures;
+        long lastFailureAt;
+
+        void onSuccess(long latencyMs) {
+            successes++;
+            consecutiveFailures = 0;
+            this.latencyMs = successes == 1 ? latencyMs : this.latencyMs + EWMA_ALPHA * (latencyMs - this.latencyMs);
+            errorRate = errorRate * (1 - EWMA_ALPHA);
+        }
+
+        void onFailure() {
+            failures++;
+            consecutiveFailures++;
+            lastFailureAt = SystemClock.elapsedRealtime();
+            errorRate = errorRate * (1 - EWMA_ALPHA) + EWMA_ALPHA;
+        }
+
+        /** 越小越优先：平均延迟按失败率加权，连续失败的数据源冷却一段时间。 */
+        double score() {
+            double s = latencyMs * (1 + 3 * errorRate);
+            if (consecutiveFailures >= COOLDOWN_FAILURES && SystemClock.elapsedRealtime() - lastFailureAt < COOLDOWN_MS) {
+                s += 1e6;
+            }
+            return s;
+        }
+
+        long hedgeDelayMs() {
+            return Math.max(MIN_HEDGE_DELAY_MS, Math.min(MAX_HEDGE_DELAY_MS, Math.round(latencyMs * 2)));
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "{latencyMs=" + Math.round(latencyMs) + ", errorRate=" + Math.round(errorRate * 100) + "%"
+                    + ", ok=" + successes + ", failed=" + failures + "}";
+        }
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<WeatherProviders.Source<WeatherProviders.Weather>> weatherSources;
+    private final List<WeatherProviders.Source<WeatherProviders.Air>> airSources;
+    private final QWeatherGeoApi geoApi = RetrofitProvider.qweatherGeo().create(QWeatherGeoApi.class);
+    private final Map<String, ProviderStats> stats = new HashMap<>();
+    // 城市参数 → {lat, lon}
+    private final Map<String, double[]> coordinates = new HashMap<>();
+
+    HedgedWeatherFetcher() {
+        weatherSources = new ArrayList<>();
+        weatherSources.add(new WeatherProviders.AMapWeather());
+        weatherSources.add(new WeatherProviders.QWeatherWeather());
+        weatherSources.add(new WeatherProviders.OpenMeteoWeather());
+        airSources = new ArrayList<>();
+        airSources.add(new WeatherProviders.QWeatherAir());
+        airSources.add(new WeatherProviders.OpenMeteoAir());
+    }
+
+    /**
+     * 可以在任意线程调用；callback 在主线程回调且只回调一次。
+     */
+    void fetch(WeatherProviders.Query query, Callback callback) {
+        handler.post(() -> new Request(query, callback).start());
+    }
+
+    private ProviderStats statsOf(String name) {
+        ProviderStats s = stats.get(name);
+        if (s == null) {
+            s = new ProviderStats();
+            stats.put(name, s);
+        }
+        return s;
+    }
+
+    private <T> List<WeatherProviders.Source<T>> ordered(List<WeatherProviders.Source<T>> sources) {
+        List<WeatherProviders.Source<T>> list = new ArrayList<>(sources);
+        // 稳定排序：统计相同时保持注册顺序（高德优先）
+        Collections.sort(list, (a, b) -> Double.compare(statsOf(a.name()).score(), statsOf(b.name()).score()));
+        return list;
+    }
+
+    /**
+     * 一次天气 + 空气质量查询。
+     */
+    private final class Request {
+        private final WeatherProviders.Query query;
+        private final Callback callback;
+        private final Race<WeatherProviders.Weather> weatherRace;
+        private final Race<WeatherProviders.Air> airRace;
+        private boolean resolvingLocation;
+        private WeatherProviders.Weather weather;
+        private WeatherProviders.Air air;
+        private boolean airDone;
+        private boolean delivered;
+        private final Runnable airTimeout = this::deliver;
+
+        Request(WeatherProviders.Query query, Callback callback) {
+            this.query = query;
+            this.callback = callback;
+            this.weatherRace = new Race<>(ordered(weatherSources), query, new WeatherProviders.Listener<WeatherProviders.Weather>() {
+                @Override
+                public void onResult(WeatherProviders.Weather result) {
+                    onWeather(result);
+                }
+
+                @Override
+                public void onError(String message) {
+                    onWeatherError(message);
+                }
+            });
+            this.airRace = new Race<>(ordered(airSources), query, new WeatherProviders.Listener<WeatherProviders.Air>() {
+                @Override
+                public void onResult(WeatherProviders.Air result) {
+                    air = result;
+                    onAirDone();
+                }
+
+                @Override
+                public void onError(String message) {
+                    onAirDone();
+                }
+            });
+        }
+
+        void start() {
+            if (query.hasLocation()) {
+                coordinates.put(query.cityParam, new double[]{query.lat, query.lon});
+            } else {
+                double[] known = coordinates.get(query.cityParam);
+                if (known != null) {
+                    query.lat = known[0];
+                    query.lon = known[1];
+                } else if (WeatherProviders.hasQWeatherKey() && !query.cityParam.isEmpty()) {
+                    resolveLocation();
+                }
+            }
+            weatherRace.start(resolvingLocation);
+            if (query.hasLocation()) {
+                airRace.start(false);
+            } else if (!resolvingLocation) {
+                airDone = true;
+            }
+        }
+
+        private void resolveLocation() {
+            resolvingLocation = true;
+            geoApi.lookup(query.cityParam, BuildConfig.QWEATHER_KEY, "zh", 1).enqueue(new retrofit2.Callback<QWeatherGeoResponse>() {
+                @Override
+                public void onResponse(@NonNull Call<QWeatherGeoResponse> call, @NonNull Response<QWeatherGeoResponse> response) {
+                    QWeatherGeoResponse body = response.body();
+                    if (response.isSuccessful() && body != null && "200".equals(body.code)
+                            && body.location != null && !body.location.isEmpty()) {
+                        QWeatherGeoResponse.Location loc = body.location.get(0);
+                        try {
+                            query.lat = Double.parseDouble(loc.lat);
+                            query.lon = Double.parseDouble(loc.lon);
+                            coordinates.put(query.cityParam, new double[]{query.lat, query.lon});
+                        } catch (RuntimeException ignored) {
+                        }
+                    }
+                    onLocationResolved();
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<QWeatherGeoResponse> call, @NonNull Throwable t) {
+                    onLocationResolved();
+                }
+            });
+        }
+
+        private void onLocationResolved() {
+            resolvingLocation = false;
+            weatherRace.onLocationResolved();
+            if (query.hasLocation() && !delivered) {
+                airRace.start(false);
+            } else {
+                onAirDone();
+            }
+        }
+
+        private void onWeather(WeatherProviders.Weather result) {
+            weather = result;
+            if (airDone) {
+                deliver();
+            } else {
+                handler.postDelayed(airTimeout, AIR_WAIT_MS);
+            }
+        }
+
+        private void onWeatherError(String message) {
+            if (delivered) {
+                return;
+            }
+            delivered = true;
+            airRace.cancel();
+            callback.onError(message);
+        }
+
+        private void onAirDone() {
+            airDone = true;
+            if (weather != null) {
+                deliver();
+            }
+        }
+
+        private void deliver() {
+            if (delivered) {
+                return;
+            }
+            delivered = true;
+            handler.removeCallbacks(airTimeout);
+            airRace.cancel();
+            Log.d(TAG, "weather=" + weatherRace.winner + ", air=" + (air == null ? "-" : airRace.winner) + ", stats=" + stats);
+            callback.onSuccess(weather, air);
+        }
+    }
+
+    /**
+     * 在一组数据源之间对冲：同一时间通常只有一个请求，超过延迟预算才加开下一个。
+     */
+    private final class Race<T> {
+        private final LinkedList<WeatherProviders.Source<T>> pending;
+        private final WeatherProviders.Query query;
+        private final WeatherProviders.Listener<T> listener;
+        private final List<Call<?>> calls = new ArrayList<>();
+        private final List<Runnable> timers = new ArrayList<>();
+        private int inFlight;
+        private boolean started;
+        private boolean finished;
+        // 坐标还在解析时想加开却没有可用数据源，解析完再补
+        private boolean waitingForLocation;
+        private boolean launchWhenLocated;
+        private String firstError;
+        String winner = "-";
+
+        Race(List<WeatherProviders.Source<T>> ordered, WeatherProviders.Query query, WeatherProviders.Listener<T> listener) {
+            this.pending = new LinkedList<>(ordered);
+            this.query = query;
+            this.listener = listener;
+        }
+
+        void start(boolean locationPending) {
+            if (started) {
+                return;
+            }
+            started = true;
+            waitingForLocation = locationPending;
+            launchNext();
+        }
+
+        void onLocationResolved() {
+            boolean wanted = launchWhenLocated || (started && inFlight == 0);
+            waitingForLocation = false;
+            launchWhenLocated = false;
+            if (started && !finished && wanted) {
+                launchNext();
+            }
+        }
+
+        void cancel() {
+            finished = true;
+            clearTimers();
+            for (Call<?> call : calls) {
+                call.cancel();
+            }
+        }
+
+        private void launchNext() {
+            if (finished) {
+                return;
+            }
+            WeatherProviders.Source<T> source = pollServable();
+            if (source == null) {
+                if (waitingForLocation) {
+                    launchWhenLocated = true;
+                } else if (inFlight == 0) {
+                    finished = true;
+                    clearTimers();
+                    listener.onError(firstError == null ? "没有可用的数据源" : firstError);
+                }
+                return;
+            }
+            launch(source);
+        }
+
+        private WeatherProviders.Source<T> pollServable() {
+            Iterator<WeatherProviders.Source<T>> it = pending.iterator();
+            while (it.hasNext()) {
+                WeatherProviders.Source<T> s = it.next();
+                if (s.canServe(query)) {
+                    it.remove();
+                    return s;
+                }
+            }
+            return null;
+        }
+
+        private void launch(WeatherProviders.Source<T> source) {
+            ProviderStats providerStats = statsOf(source.name());
+            long startedAt = SystemClock.elapsedRealtime();
+            inFlight++;
+            calls.add(source.start(query, new WeatherProviders.Listener<T>() {
+                @Override
+                public void onResult(T result) {
+                    inFlight--;
+                    providerStats.onSuccess(SystemClock.elapsedRealtime() - startedAt);
+                    if (finished) {
+                        return;
+                    }
+                    winner = source.name();
+                    cancel();
+                    listener.onResult(result);
+                }
+
+                @Override
+                public void onError(String message) {
+                    inFlight--;
+                    if (finished) {
+                        // 多半是被取消的请求，不计入失败
+                        return;
+                    }
+                    providerStats.onFailure();
+                    if (firstError == null) {
+                        firstError = message;
+                    }
+                    if (inFlight == 0) {
+                        launchNext();
+                    }
+                }
+            }));
+            Runnable hedge = this::launchNext;
+            timers.add(hedge);
+            handler.postDelayed(hedge, providerStats.hedgeDelayMs());
+        }
+
+        private void clearTimers() {
+            for (Runnable r : timers) {
+                handler.removeCallbacks(r);
+            }
+            timers.clear();
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package com.example.dresscode.data.repository;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.dresscode.data.local.ClosetDao;
+import com.example.dresscode.data.local.DatabaseProvider;
+import com.example.dresscode.data.local.SwapDao;
+import com.example.dresscode.data.prefs.AuthRepository;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 本地图片的统一存放处：导入的衣物图、头像、换装结果都按内容哈希存成 filesDir/media/&lt;sha256&gt;.&lt;ext&gt;，
+ * 同样的图片只存一份。
+ * <ul>
+ *     <li>引用计数不单独落库，GC 时从 closet_items（原图/缩略图）、swap_jobs（结果/人像/衣物）
+ *     和各账号的头像设置现算，删行、换头像后不用逐处记得删文件；界面上选中但还没落库的图片用 {@link #hold} 占住；</li>
+ *     <li>GC 在 io 线程执行，除 media 外也清理旧版本留下的 closet_images / profile_avatars /
+ *     swap_results 等目录里没人引用的文件；</li>
+ *     <li>刚写入的文件（可能还没落库）在 {@link #GRACE_MS} 内不回收；总大小超过预算时宽限期缩短到
+ *     {@link #MIN_GRACE_MS}，从最旧的开始回收。</li>
+ * </ul>
+ */
+public final class LocalMediaStore {
+
+    private static final String TAG = "LocalMediaStore";
+
+    static final String DIR_NAME = "media";
+    public static final long DEFAULT_BUDGET_BYTES = 256L * 1024 * 1024;
+    static final long GRACE_MS = 30L * 60 * 1000;
+    static final long MIN_GRACE_MS = 5L * 60 * 1000;
+
+    /** filesDir 下由 GC 管理的目录（media 之外的是旧版本按时间戳命名的目录）。 */
+    private static final String[] MANAGED_FILES_DIRS = {
+            DIR_NAME, "closet_images", "profile_avatars", TryOnResultReader.DIR_NAME, ClosetRenditions.DIR_NAME
+    };
+    /** cacheDir 下的临时目录，里面的文件从不落库，过了宽限期就清理。 */
+    private static final String[] MANAGED_CACHE_DIRS = {"swap_outfit_clothes", "upload_tmp"};
+
+    public static final class Stats {
+        public final int files;
+        public final long bytes;
+        public final long budgetBytes;
+        /** 至少被引用一次的文件数。 */
+        public final int referencedFiles;
+        /** 引用总数（同一文件被多行引用时重复计）。 */
+        public final int references;
+        public final long dedupedImports;
+        public final long reclaimedFiles;
+        public final long reclaimedBytes;
+
+        Stats(int files, long bytes, long budgetBytes, int referencedFiles, int references,
+              long dedupedImports, long reclaimedFiles, long reclaimedBytes) {
+            this.files = files;
+            this.bytes = bytes;
+            this.budgetBytes = budgetBytes;
+            this.referencedFiles = referencedFiles;
+            this.references = references;
+            this.dedupedImports = dedupedImports;
+            this.reclaimedFiles = reclaimedFiles;
+            this.reclaimedBytes = reclaimedBytes;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "LocalMediaStore{files=" + files + ", bytes=" + bytes + "/" + budgetBytes
+                    + ", referencedFiles=" + referencedFiles + ", references=" + references
+                    + ", dedupedImports=" + dedupedImports + ", reclaimedFiles=" + reclaimedFiles
+                    + ", reclaimedBytes=" + reclaimedBytes + "}";
+        }
+    }
+
+    private final Context appContext;
+    private final File dir;
+    private final ClosetDao closetDao;
+    private final SwapDao swapDao;
+    private final ExecutorService ioExecutor;
+    private final ExecutorService imageExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    /** hold 的用途 → 图片 URI，GC 时各算一次引用。 */
+    private final Map<String, String> held = new ConcurrentHashMap<>();
+    private final AtomicBoolean gcScheduled = new AtomicBoolean();
+    private volatile long budgetBytes = DEFAULT_BUDGET_BYTES;
+    // 以下计数受 this 保护；bytes 在两次 GC 之间按导入累加，只用来判断是否该提前 GC
+    private long bytes;
+    private Stats lastStats;
+    private long dedupedImports;
+    private long reclaimedFiles;
+    private long reclaimedBytes;
+
+    LocalMediaStore(Context context, AppExecutors executors) {
+        this.appContext = context.getApplicationContext();
+        this.dir = new File(appContext.getFilesDir(), DIR_NAME);
+        this.closetDao = DatabaseProvider.get(appContext).closetDao();
+        this.swapDao = DatabaseProvider.get(appContext).swapDao();
+        this.ioExecutor = executors.io();
+        this.imageExecutor = executors.image();
+    }
+
+    public interface ImportCallback {
+        /**
+         * 在主线程回调；失败时 file 为 null。
+         */
+        void onImported(File file);
+    }
+
+    /**
+     * 本地图片占用的上限（字节）；小于等于 0 时恢复默认值。超过预算会缩短未引用文件的宽限期并立即 GC。
+     */
+    public void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes > 0 ? budgetBytes : DEFAULT_BUDGET_BYTES;
+        requestGc();
+    }
+
+    /**
+     * 把外部图片（相册、相机的 content:// 等）复制进来；已有相同内容时直接返回已有文件。失败返回 null。
+     */
+    public File importUri(Uri source) {
+        File tmp = newTempFile();
+        if (tmp == null) {
+            return null;
+        }
+        String sha256;
+        try (InputStream in = appContext.getContentResolver().openInputStream(source)) {
+            if (in == null) {
+                UploadImages.deleteQuietly(tmp);
+                return null;
+            }
+            sha256 = copyAndHash(in, tmp);
+        } catch (Exception e) {
+            UploadImages.deleteQuietly(tmp);
+            return null;
+        }
+        return commit(tmp, sha256, "jpg");
+    }
+
+    /**
+     * 在 image 线程上执行 {@link #importUri}（整张图复制并算 SHA-256），结果回到主线程。
+     */
+    public void importUriAsync(Uri source, ImportCallback callback) {
+        imageExecutor.execute(() -> {
+            File file = importUri(source);
+            mainHandler.post(() -> callback.onImported(file));
+        });
+    }
+
+    /**
+     * 让 GC 把 uri 当作被引用一次（界面上选中、还没写进任何表的图片），同一 key 再次调用会替换之前的；uri 为空时释放。
+     */
+    public void hold(String key, String uri) {
+        if (uri == null || uri.isEmpty()) {
+            held.remove(key);
+        } else {
+            held.put(key, uri);
+        }
+    }
+
+    /**
+     * 收下应用自己写出的文件（相机拍照、下载的结果图）：按内容改名到 media 下，重复时删掉传入的文件。
+     * 失败时原文件保持不变并原样返回。
+     */
+    public File adopt(File file) {
+        if (file == null || !file.isFile() || isInStore(file)) {
+            return file;
+        }
+        String sha256 = TryOnResultCache.sha256(file);
+        if (sha256.isEmpty() || (!dir.exists() && !dir.mkdirs())) {
+            return file;
+        }
+        File stored = commit(file, sha256, extensionOf(file));
+        return stored == null ? file : stored;
+    }
+
+    /**
+     * 在 image 线程上执行 {@link #adopt}（算 SHA-256 并改名），结果回到主线程；回调的 file 不为 null。
+     */
+    public void adoptAsync(File file, ImportCallback callback) {
+        imageExecutor.execute(() -> {
+            File stored = adopt(file);
+            mainHandler.post(() -> callback.onImported(stored));
+        });
+    }
+
+    /**
+     * 复制一份已有文件（如结果缓存里的图）进来，源文件保持不变；内容已在库里时不再写盘。失败返回 null。
+     */
+    File importCopy(File source) {
+        String sha256 = TryOnResultCache.sha256(source);
+        if (sha256.isEmpty()) {
+            return null;
+        }
+        File existing = new File(dir, sha256 + "." + extensionOf(source));
+        if (existing.isFile()) {
+            return touchDeduped(existing);
+        }
+        File tmp = newTempFile();
+        if (tmp == null) {
+            return null;
+        }
+        try (InputStream in = new FileInputStream(source)) {
+            copyAndHash(in, tmp);
+        } catch (IOException e) {
+            UploadImages.deleteQuietly(tmp);
+            return null;
+        }
+        return commit(tmp, sha256, extensionOf(source));
+    }
+
+    /**
+     * 安排一次后台 GC；已经排上队时合并为一次。删除引用（删衣物/历史、换头像）后调用。
+     */
+    public void requestGc() {
+        if (!gcScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        ioExecutor.execute(() -> {
+            gcScheduled.set(false);
+            try {
+                gcSync();
+            } catch (RuntimeException e) {
+                Log.w(TAG, "gc failed", e);
+            }
+        });
+    }
+
+    /**
+     * 最近一次 GC 时的统计；还没跑过 GC 时文件数/引用数为 0。
+     */
+    public synchronized Stats stats() {
+        if (lastStats != null) {
+            return lastStats;
+        }
+        return new Stats(0, bytes, budgetBytes, 0, 0, dedupedImports, reclaimedFiles, reclaimedBytes);
+    }
+
+    /**
+     * 在 io 线程执行：现算引用计数，回收没有引用且过了宽限期的文件。
+     */
+    private void gcSync() {
+        Map<String, Integer> refCounts = countReferences();
+        List<File> candidates = new ArrayList<>();
+        long total = 0;
+        int files = 0;
+        for (File d : managedDirs()) {
+            File[] list = d.listFiles();
+            if (list == null) {
+                continue;
+            }
+            for (File f : list) {
+                if (!f.isFile()) {
+                    continue;
+                }
+                files++;
+                total += f.length();
+                if (!refCounts.containsKey(f.getAbsolutePath())) {
+                    candidates.add(f);
+                }
+            }
+        }
+        // 最旧的先回收
+        File[] sorted = candidates.toArray(new File[0]);
+        Arrays.sort(sorted, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        long budget = budgetBytes;
+        long now = System.currentTimeMillis();
+        long freedFiles = 0;
+        long freedBytes = 0;
+        for (File f : sorted) {
+            long age = now - f.lastModified();
+            boolean overBudget = total > budget;
+            if (age < (overBudget ? MIN_GRACE_MS : GRACE_MS)) {
+                continue;
+            }
+            long length = f.length();
+            if (f.delete()) {
+                total -= length;
+                files--;
+                freedFiles++;
+                freedBytes += length;
+            }
+        }
+        if (total > budget) {
+            Log.w(TAG, "referenced media exceeds budget: " + total + "/" + budget);
+        }
+        int references = 0;
+        int referencedFiles = 0;
+        for (Map.Entry<String, Integer> e : refCounts.entrySet()) {
+            if (new File(e.getKey()).isFile()) {
+                referencedFiles++;
+                references += e.getValue();
+            }
+        }
+        Stats stats;
+        synchronized (this) {
+            bytes = total;
+            reclaimedFiles += freedFiles;
+            reclaimedBytes += freedBytes;
+            lastStats = stats = new Stats(files, total, budget, referencedFiles, references,
+                    dedupedImports, reclaimedFiles, reclaimedBytes);
+        }
+        Log.d(TAG, stats.toString());
+    }
+
+    /**
+     * 本地文件的绝对路径 → 被引用的次数；content:// 和 android.resource:// 不归这里管，直接忽略。
+     */
+    private Map<String, Integer> countReferences() {
+        Map<String, Integer> counts = new HashMap<>();
+        addReferences(counts, closetDao.listImageUris());
+        addReferences(counts, swapDao.listImageUris());
+        addReferences(counts, new AuthRepository(appContext).getAllAvatarUris());
+        addReferences(counts, new ArrayList<>(held.values()));
+        return counts;
+    }
+
+    private static void addReferences(Map<String, Integer> counts, List<String> uris) {
+        if (uris == null) {
+            return;
+        }
+        for (String uri : uris) {
+            String path = localPath(uri);
+            if (path != null) {
+                Integer n = counts.get(path);
+                counts.put(path, n == null ? 1 : n + 1);
+            }
+        }
+    }
+
+    private static String localPath(String uri) {
+        if (uri == null || uri.trim().isEmpty()) {
+            return null;
+        }
+        Uri parsed = Uri.parse(uri.trim());
+        if (!"file".equals(parsed.getScheme()) || parsed.getPath() == null) {
+            return null;
+        }
+        return new File(parsed.getPath()).getAbsolutePath();
+    }
+
+    private List<File> managedDirs() {
+        List<File> dirs = new ArrayList<>();
+        for (String name : MANAGED_FILES_DIRS) {
+            dirs.add(new File(appContext.getFilesDir(), name));
+        }
+        for (String name : MANAGED_CACHE_DIRS) {
+            dirs.add(new File(appContext.getCacheDir(), name));
+        }
+        return dirs;
+    }
+
+    /**
+     * 把已写好的临时文件按哈希改名；目标已存在时删掉临时文件（去重）并刷新目标的修改时间。
+     */
+    private File commit(File tmp, String sha256, String ext) {
+        File dest = new File(dir, sha256 + "." + ext);
+        if (dest.isFile()) {
+            UploadImages.deleteQuietly(tmp);
+            return touchDeduped(dest);
+        }
+        if (!tmp.renameTo(dest)) {
+            if (dest.isFile()) {
+                // 另一个线程刚写好同样的内容
+                UploadImages.deleteQuietly(tmp);
+                return touchDeduped(dest);
+            }
+            UploadImages.deleteQuietly(tmp);
+            return null;
+        }
+        boolean gc;
+        synchronized (this) {
+            bytes += dest.length();
+            gc = bytes > budgetBytes;
+        }
+        if (gc) {
+            requestGc();
+        }
+        return dest;
+    }
+
+    private File touchDeduped(File existing) {
+        // 重新计宽限期：孤儿文件被再次导入后、落库前不能被 GC 收走
+        //noinspection ResultOfMethodCallIgnored
+        existing.setLastModified(System.currentTimeMillis());
+        synchronized (this) {
+            dedupedImports++;
+        }
+        return existing;
+    }
+
+    private File newTempFile() {
+        if (!dir.exists() && !dir.mkdirs()) {
+            return null;
+        }
+        return new File(dir, "import_" + System.nanoTime() + ".tmp");
+    }
+
+    private boolean isInStore(File file) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        return parent != null && parent.equals(dir.getAbsoluteFile()) && !file.getName().endsWith(".tmp");
+    }
+
+    private static String extensionOf(File file) {
+        return file.getName().toLowerCase(Locale.ROOT).endsWith(".png") ? "png" : "jpg";
+    }
+
+    private static String copyAndHash(InputStream in, File dest) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        try (OutputStream out = new FileOutputStream(dest)) {
+            byte[] buffer = new byte[16 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+            }
+        }
+        StringBuilder sb = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
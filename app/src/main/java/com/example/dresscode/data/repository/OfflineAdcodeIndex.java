@@ -0,0 +1,155 @@
+package com.example.dresscode.data.repository;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 离线的坐标 → 地级市 adcode 索引，数据是 assets/geo/city_cores.csv 里各城市城区的圆（圆心 + 半径）。
+ * 圆按 1° 经纬度网格分桶，查询只看坐标所在格子里的几个圆。落在所有圆之外时返回 null，交给逆地理编码。
+ * 第一次查询时加载（io 线程），之后常驻内存（约百条）。
+ */
+final class OfflineAdcodeIndex {
+    private static final String TAG = "OfflineAdcodeIndex";
+    static final String ASSET_NAME = "geo/city_cores.csv";
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE_LAT = 111.0;
+
+    static final class Match {
+        final String adcode;
+        final String city;
+
+        Match(String adcode, String city) {
+            this.adcode = adcode;
+            this.city = city;
+        }
+    }
+
+    private static final class Core {
+        final String adcode;
+        final String city;
+        final double lat;
+        final double lon;
+        final double radiusKm;
+
+        Core(String adcode, String city, double lat, double lon, double radiusKm) {
+            this.adcode = adcode;
+            this.city = city;
+            this.lat = lat;
+            this.lon = lon;
+            this.radiusKm = radiusKm;
+        }
+    }
+
+    private final Context appContext;
+    // 网格编号 → 与该格相交的圆
+    private volatile Map<Long, List<Core>> grid;
+
+    OfflineAdcodeIndex(Context context) {
+        this.appContext = context.getApplicationContext();
+    }
+
+    /**
+     * 坐标落在某个城区圆内时返回该城市；同时落在多个圆内（理论上不会）取相对距离最小的。
+     */
+    Match lookup(double lat, double lon) {
+        List<Core> candidates = grid().get(cellOf(Math.floor(lat), Math.floor(lon)));
+        if (candidates == null) {
+            return null;
+        }
+        Core best = null;
+        double bestRatio = Double.MAX_VALUE;
+        for (Core core : candidates) {
+            double ratio = distanceKm(lat, lon, core.lat, core.lon) / core.radiusKm;
+            if (ratio <= 1.0 && ratio < bestRatio) {
+                best = core;
+                bestRatio = ratio;
+            }
+        }
+        return best == null ? null : new Match(best.adcode, best.city);
+    }
+
+    private Map<Long, List<Core>> grid() {
+        Map<Long, List<Core>> g = grid;
+        if (g == null) {
+            synchronized (this) {
+                g = grid;
+                if (g == null) {
+                    g = load();
+                    grid = g;
+                }
+            }
+        }
+        return g;
+    }
+
+    private Map<Long, List<Core>> load() {
+        Map<Long, List<Core>> g = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(appContext.getAssets().open(ASSET_NAME), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split(",");
+                if (parts.length < 5) {
+                    continue;
+                }
+                try {
+                    Core core = new Core(parts[0].trim(), parts[1].trim(),
+                            Double.parseDouble(parts[2]), Double.parseDouble(parts[3]), Double.parseDouble(parts[4]));
+                    insert(g, core);
+                } catch (NumberFormatException e) {
+                    Log.w(TAG, "skip bad line: " + line);
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "load " + ASSET_NAME + " failed", e);
+            return Collections.emptyMap();
+        }
+        return g;
+    }
+
+    /** 把圆放进它外接矩形覆盖到的每一个 1° 格子。 */
+    private static void insert(Map<Long, List<Core>> g, Core core) {
+        double dLat = core.radiusKm / KM_PER_DEGREE_LAT;
+        double dLon = dLat / Math.max(0.1, Math.cos(Math.toRadians(core.lat)));
+        int minLat = (int) Math.floor(core.lat - dLat);
+        int maxLat = (int) Math.floor(core.lat + dLat);
+        int minLon = (int) Math.floor(core.lon - dLon);
+        int maxLon = (int) Math.floor(core.lon + dLon);
+        for (int la = minLat; la <= maxLat; la++) {
+            for (int lo = minLon; lo <= maxLon; lo++) {
+                List<Core> bucket = g.get(cellOf(la, lo));
+                if (bucket == null) {
+                    bucket = new ArrayList<>(2);
+                    g.put(cellOf(la, lo), bucket);
+                }
+                bucket.add(core);
+            }
+        }
+    }
+
+    private static long cellOf(double latFloor, double lonFloor) {
+        return ((long) latFloor + 90) * 1000 + ((long) lonFloor + 180);
+    }
+
+    static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,328 @@
+package com.example.dresscode.data.repository;
+
+import com.example.dresscode.data.local.OutfitCardRow;
+import com.example.dresscode.data.local.OutfitDao;
+import com.example.dresscode.data.local.OutfitFacets;
+import com.example.dresscode.data.local.OutfitSearchQuery;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 穿搭目录的内存快照：按 (createdAt DESC, id DESC) 排好的全部卡片，外加每个筛选取值一个 BitSet。
+ * 切换筛选只做位与，不走数据库；outfits/favorites 变化时由 {@link OutfitFeed} 调 {@link #refresh} 增量更新。
+ * 所有方法都在 OutfitFeed 的 IO 线程上调用，Snapshot 创建后不再修改，可以跨线程读。
+ */
+final class OutfitCatalog {
+
+    static final class Snapshot {
+        final List<OutfitCardRow> rows;
+        final Map<Long, Integer> indexById;
+        final BitSet all;
+        /** 下标为 OutfitFacets 的编码；季节按完整掩码（0..15）分桶。 */
+        final BitSet[] gender = newBitSets(OutfitFacets.GENDER_UNISEX + 1);
+        final BitSet[] style = newBitSets(OutfitFacets.STYLES.length);
+        final BitSet[] seasonMask = newBitSets(1 << OutfitFacets.SEASONS.length);
+        final BitSet[] scene = newBitSets(OutfitFacets.SCENES.length);
+        final BitSet[] weather = newBitSets(OutfitFacets.WEATHERS.length);
+        final BitSet favorite = new BitSet();
+        /** 每行的编码，供计数时单次遍历使用。 */
+        final int[] genderCodes;
+        final int[] styleCodes;
+        final int[] seasonMasks;
+        final int[] sceneCodes;
+        final int[] weatherCodes;
+
+        Snapshot(List<OutfitCardRow> rows) {
+            this.rows = rows;
+            this.indexById = new HashMap<>(rows.size() * 2);
+            this.all = new BitSet(rows.size());
+            int n = rows.size();
+            genderCodes = new int[n];
+            styleCodes = new int[n];
+            seasonMasks = new int[n];
+            sceneCodes = new int[n];
+            weatherCodes = new int[n];
+            for (int i = 0; i < n; i++) {
+                OutfitCardRow row = rows.get(i);
+                indexById.put(row.id, i);
+                all.set(i);
+                genderCodes[i] = OutfitFacets.genderCode(row.gender);
+                styleCodes[i] = OutfitFacets.styleCode(row.style);
+                seasonMasks[i] = OutfitFacets.seasonMask(row.season);
+                sceneCodes[i] = OutfitFacets.sceneCode(row.scene);
+                weatherCodes[i] = OutfitFacets.weatherCode(row.weather);
+                gender[genderCodes[i]].set(i);
+                style[styleCodes[i]].set(i);
+                seasonMask[seasonMasks[i]].set(i);
+                scene[sceneCodes[i]].set(i);
+                weather[weatherCodes[i]].set(i);
+                if (row.isFavorite) {
+                    favorite.set(i);
+                }
+            }
+        }
+
+        int size() {
+            return rows.size();
+        }
+    }
+
+    /**
+     * 一组筛选条件（编码见 OutfitFacets，0 表示不限）。searchIds 为 null 表示没有关键词搜索。
+     */
+    static final class Query {
+        final int genderCode;
+        final int styleCode;
+        final int seasonMask;
+        final boolean seasonAny;
+        final int sceneCode;
+        final int weatherCode;
+        final List<Long> searchIds;
+
+        Query(int genderCode, int styleCode, int seasonMask, boolean seasonAny, int sceneCode, int weatherCode, List<Long> searchIds) {
+            this.genderCode = genderCode;
+            this.styleCode = styleCode;
+            this.seasonMask = seasonMask;
+            this.seasonAny = seasonAny;
+            this.sceneCode = sceneCode;
+            this.weatherCode = weatherCode;
+            this.searchIds = searchIds;
+        }
+    }
+
+    private final OutfitDao dao;
+    private final String owner;
+
+    OutfitCatalog(OutfitDao dao, String owner) {
+        this.dao = dao;
+        this.owner = owner;
+    }
+
+    Snapshot load() {
+        List<OutfitCardRow> rows = dao.listOutfitCards(owner);
+        return new Snapshot(rows == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(rows)));
+    }
+
+    /**
+     * 只有 favorites 变化时只重查收藏 id 并改写受影响的卡片；outfits 变化时重查全部卡片，
+     * 但内容没变的卡片沿用旧对象，列表 diff 可以按引用快速跳过。
+     */
+    Snapshot refresh(Snapshot prev, Set<String> tables) {
+        if (prev == null) {
+            return load();
+        }
+        if (tables != null && !tables.contains("outfits")) {
+            return refreshFavorites(prev);
+        }
+        List<OutfitCardRow> fresh = dao.listOutfitCards(owner);
+        if (fresh == null) {
+            fresh = Collections.emptyList();
+        }
+        List<OutfitCardRow> merged = new ArrayList<>(fresh.size());
+        for (OutfitCardRow row : fresh) {
+            Integer oldIndex = prev.indexById.get(row.id);
+            OutfitCardRow old = oldIndex == null ? null : prev.rows.get(oldIndex);
+            merged.add(old != null && sameContent(old, row) ? old : row);
+        }
+        return new Snapshot(Collections.unmodifiableList(merged));
+    }
+
+    /**
+     * 关键词命中的穿搭 id：先查全文索引，一条都没有时退回 LIKE 子串匹配（前缀匹配搜不到中文词中间的片段）。
+     */
+    List<Long> search(String match, List<String> terms) {
+        List<Long> ids = dao.searchOutfitIds(match);
+        if ((ids == null || ids.isEmpty()) && !terms.isEmpty()) {
+            ids = dao.searchOutfitIdsLike(OutfitSearchQuery.likeIds(terms));
+        }
+        return ids == null ? Collections.emptyList() : ids;
+    }
+
+    static BitSet match(Snapshot snapshot, Query q) {
+        BitSet bits = (BitSet) snapshot.all.clone();
+        if (q.genderCode != OutfitFacets.GENDER_ANY) {
+            // 男=男+中性；女=女+中性
+            BitSet g = (BitSet) snapshot.gender[q.genderCode].clone();
+            if (q.genderCode != OutfitFacets.GENDER_UNISEX) {
+                g.or(snapshot.gender[OutfitFacets.GENDER_UNISEX]);
+            }
+            bits.and(g);
+        }
+        andCode(bits, snapshot.style, q.styleCode);
+        andCode(bits, snapshot.scene, q.sceneCode);
+        andCode(bits, snapshot.weather, q.weatherCode);
+        if (q.seasonMask != 0) {
+            if (q.seasonAny) {
+                // 单季节：所有包含该位的掩码桶求并
+                BitSet s = new BitSet(snapshot.size());
+                for (int m = 1; m < snapshot.seasonMask.length; m++) {
+                    if ((m & q.seasonMask) != 0) {
+                        s.or(snapshot.seasonMask[m]);
+                    }
+                }
+                bits.and(s);
+            } else {
+                bits.and(snapshot.seasonMask[q.seasonMask]);
+            }
+        }
+        if (q.searchIds != null) {
+            bits.and(toBits(snapshot, q.searchIds));
+        }
+        return bits;
+    }
+
+    /**
+     * 单次遍历算出各筛选维度每个取值的结果数：某一维的计数只忽略这一维自身的条件（其余条件照常生效），
+     * 即“把这一维换成该取值后能得到多少条”。恰好只有一维不满足的行只计入那一维。
+     */
+    static OutfitFacetCounts countFacets(Snapshot snapshot, Query q) {
+        int[] gender = new int[snapshot.gender.length];
+        int[] style = new int[snapshot.style.length];
+        int[] season = new int[snapshot.seasonMask.length];
+        int[] scene = new int[snapshot.scene.length];
+        int[] weather = new int[snapshot.weather.length];
+        int total = 0;
+        BitSet candidates = q.searchIds == null ? snapshot.all : toBits(snapshot, q.searchIds);
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            int g = snapshot.genderCodes[i];
+            int st = snapshot.styleCodes[i];
+            int se = snapshot.seasonMasks[i];
+            int sc = snapshot.sceneCodes[i];
+            int w = snapshot.weatherCodes[i];
+            boolean gOk = q.genderCode == OutfitFacets.GENDER_ANY || g == q.genderCode || g == OutfitFacets.GENDER_UNISEX;
+            boolean stOk = q.styleCode == 0 || st == q.styleCode;
+            boolean seOk = q.seasonMask == 0 || se == q.seasonMask || (q.seasonAny && (se & q.seasonMask) != 0);
+            boolean scOk = q.sceneCode == 0 || sc == q.sceneCode;
+            boolean wOk = q.weatherCode == 0 || w == q.weatherCode;
+            int failed = (gOk ? 0 : 1) + (stOk ? 0 : 1) + (seOk ? 0 : 1) + (scOk ? 0 : 1) + (wOk ? 0 : 1);
+            if (failed > 1) {
+                continue;
+            }
+            if (failed == 0) {
+                total++;
+            }
+            if (stOk && seOk && scOk && wOk) {
+                gender[g]++;
+            }
+            if (gOk && seOk && scOk && wOk) {
+                style[st]++;
+            }
+            if (gOk && stOk && scOk && wOk) {
+                season[se]++;
+            }
+            if (gOk && stOk && seOk && wOk) {
+                scene[sc]++;
+            }
+            if (gOk && stOk && seOk && scOk) {
+                weather[w]++;
+            }
+        }
+        return new OutfitFacetCounts(total, gender, style, season, scene, weather);
+    }
+
+    /**
+     * 按与 OutfitPageQuery.genderTiers 相同的档位输出：同性别（或不限）在前，中性在后，档内保持 createdAt 倒序。
+     */
+    static List<OutfitCardRow> order(Snapshot snapshot, BitSet bits, int genderCode) {
+        List<OutfitCardRow> out = new ArrayList<>(bits.cardinality());
+        if (genderCode == OutfitFacets.GENDER_ANY || genderCode == OutfitFacets.GENDER_UNISEX) {
+            appendRows(out, snapshot, bits);
+            return out;
+        }
+        BitSet exact = (BitSet) bits.clone();
+        exact.and(snapshot.gender[genderCode]);
+        appendRows(out, snapshot, exact);
+        BitSet rest = (BitSet) bits.clone();
+        rest.andNot(snapshot.gender[genderCode]);
+        appendRows(out, snapshot, rest);
+        return out;
+    }
+
+    private Snapshot refreshFavorites(Snapshot prev) {
+        List<Long> ids = dao.listFavoriteOutfitIds(owner);
+        BitSet fav = toBits(prev, ids == null ? Collections.emptyList() : ids);
+        BitSet changed = (BitSet) fav.clone();
+        changed.xor(prev.favorite);
+        if (changed.isEmpty()) {
+            return prev;
+        }
+        List<OutfitCardRow> rows = new ArrayList<>(prev.rows);
+        for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+            // 不能原地改：旧列表仍被界面持有，diff 需要新旧两份内容
+            OutfitCardRow copy = copyOf(prev.rows.get(i));
+            copy.isFavorite = fav.get(i);
+            rows.set(i, copy);
+        }
+        return new Snapshot(Collections.unmodifiableList(rows));
+    }
+
+    private static void andCode(BitSet bits, BitSet[] byCode, int code) {
+        if (code > 0 && code < byCode.length) {
+            bits.and(byCode[code]);
+        }
+    }
+
+    private static BitSet toBits(Snapshot snapshot, Collection<Long> ids) {
+        BitSet bits = new BitSet(snapshot.size());
+        for (Long id : ids) {
+            Integer index = id == null ? null : snapshot.indexById.get(id);
+            if (index != null) {
+                bits.set(index);
+            }
+        }
+        return bits;
+    }
+
+    private static void appendRows(List<OutfitCardRow> out, Snapshot snapshot, BitSet bits) {
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            out.add(snapshot.rows.get(i));
+        }
+    }
+
+    private static BitSet[] newBitSets(int count) {
+        BitSet[] sets = new BitSet[count];
+        for (int i = 0; i < count; i++) {
+            sets[i] = new BitSet();
+        }
+        return sets;
+    }
+
+    private static OutfitCardRow copyOf(OutfitCardRow src) {
+        OutfitCardRow row = new OutfitCardRow();
+        row.id = src.id;
+        row.title = src.title;
+        row.tags = src.tags;
+        row.gender = src.gender;
+        row.style = src.style;
+        row.season = src.season;
+        row.scene = src.scene;
+        row.weather = src.weather;
+        row.colorHex = src.colorHex;
+        row.coverResId = src.coverResId;
+        row.createdAt = src.createdAt;
+        row.isFavorite = src.isFavorite;
+        return row;
+    }
+
+    private static boolean sameContent(OutfitCardRow a, OutfitCardRow b) {
+        return a.id == b.id
+                && a.coverResId == b.coverResId
+                && a.createdAt == b.createdAt
+                && a.isFavorite == b.isFavorite
+                && a.title.equals(b.title)
+                && a.tags.equals(b.tags)
+                && a.gender.equals(b.gender)
+                && a.style.equals(b.style)
+                && a.season.equals(b.season)
+                && a.scene.equals(b.scene)
+                && a.weather.equals(b.weather)
+                && a.colorHex.equals(b.colorHex);
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.dresscode.data.repository;
+
+import androidx.annotation.NonNull;
+
+import com.example.dresscode.data.local.ClosetItemEntity;
+import com.example.dresscode.data.local.OutfitFacets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 从衣橱里组合整套搭配：上衣 × 下装 × 外套 × 鞋子，或 连衣裙 × 外套 × 鞋子，返回分数最高的 K 套。
+ * <ul>
+ *     <li>单品分数沿用 {@link ClosetRecommender#score}；两两之间风格/场景一致加分、运动与通勤/约会混搭扣分；</li>
+ *     <li>季节不符、冷天的轻薄单品、热天的保暖单品先剔除（整个品类都被剔除时退回不筛）；
+ *     热天可以不穿外套，冷天或下雨不穿外套扣分；</li>
+ *     <li>每个位置按单品分降序截取：保留前 max({@link #DEFAULT_SLOT_WIDTH}, K) 件，以及单品分与第 max(...) 名相差
+ *     不超过 {@link #MAX_PAIR_SPREAD} 的单品。被截掉的单品即使搭配分取到上限，换成保留下来的任意一件都不会更差，
+ *     而保留的至少有 K 件，所以截取不改变前 K 名（同分时的取舍除外）；</li>
+ *     <li>按分数从高到低分支定界：已选部分的分数 + 剩余位置的最高单品分 + 剩余搭配分上限不超过当前第 K 名时剪掉整棵子树；</li>
+ *     <li>前 K 名放在大小为 K 的小顶堆里。</li>
+ * </ul>
+ * 纯内存计算，不依赖 Android，可以在 JVM 单元测试里跑基准。
+ */
+public final class OutfitCombiner {
+
+    static final int DEFAULT_SLOT_WIDTH = 48;
+    /** 两件单品之间搭配分的上限（风格一致 +1、场景一致 +1）。 */
+    private static final int MAX_PAIR_BONUS = 2;
+    private static final int CLASH_PENALTY = 2;
+    private static final int NO_OUTER_COLD_PENALTY = 3;
+    private static final int NO_OUTER_HOT_BONUS = 1;
+    /**
+     * 同一位置换一件单品时搭配分最多差多少：一个位置最多与另外 3 个位置组成搭配对，
+     * 每对的搭配分在 [-CLASH_PENALTY, MAX_PAIR_BONUS] 之间。
+     */
+    private static final int MAX_PAIR_SPREAD = 3 * (MAX_PAIR_BONUS + CLASH_PENALTY);
+    private static final int SPORT = OutfitFacets.styleCode("运动");
+    private static final int COMMUTE = OutfitFacets.styleCode("通勤");
+    private static final int DATE = OutfitFacets.styleCode("约会");
+
+    /**
+     * 一套搭配；{@link #items} 按 上衣/连衣裙、下装、外套、鞋子 的顺序，没穿的位置不出现。
+     */
+    public static final class Outfit {
+        @NonNull
+        public final List<ClosetItemEntity> items;
+        public final int score;
+
+        Outfit(@NonNull List<ClosetItemEntity> items, int score) {
+            this.items = items;
+            this.score = score;
+        }
+    }
+
+    /** 一个位置上的候选；features 为 null 表示这个位置空着（不穿外套等）。 */
+    private static final class Candidate {
+        final ClosetRecommender.Features features;
+        final int score;
+
+        Candidate(ClosetRecommender.Features features, int score) {
+            this.features = features;
+            this.score = score;
+        }
+    }
+
+    private final int slotWidth;
+
+    OutfitCombiner() {
+        this(DEFAULT_SLOT_WIDTH);
+    }
+
+    OutfitCombiner(int slotWidth) {
+        this.slotWidth = slotWidth;
+    }
+
+    /**
+     * 直接从衣橱行计算（基准测试和没有索引时用）。
+     */
+    List<Outfit> topK(Collection<ClosetItemEntity> closet, ClosetRecommender.Conditions c, int k) {
+        Map<String, List<ClosetRecommender.Features>> byCategory = new HashMap<>();
+        for (ClosetItemEntity item : closet) {
+            if (item == null) {
+                continue;
+            }
+            List<ClosetRecommender.Features> list = byCategory.get(item.category);
+            if (list == null) {
+                list = new ArrayList<>();
+                byCategory.put(item.category, list);
+            }
+            list.add(new ClosetRecommender.Features(item));
+        }
+        return topK(byCategory, c, k);
+    }
+
+    /**
+     * @param byCategory 品类 → 该品类的单品
+     */
+    List<Outfit> topK(Map<String, ? extends Collection<ClosetRecommender.Features>> byCategory, ClosetRecommender.Conditions c, int k) {
+        if (k <= 0) {
+            return Collections.emptyList();
+        }
+        int width = Math.max(slotWidth, k);
+        Collection<ClosetRecommender.Features> shoesAll = orEmpty(byCategory.get(ClosetRecommender.SHOES));
+        List<Candidate> outers = outerSlot(orEmpty(byCategory.get(ClosetRecommender.OUTER)), c, width);
+        List<Candidate> shoes = shoesAll.isEmpty() ? Collections.singletonList(new Candidate(null, 0)) : slot(shoesAll, c, width);
+        PriorityQueue<Outfit> heap = new PriorityQueue<>(k + 1, (a, b) -> Integer.compare(a.score, b.score));
+
+        List<Candidate> tops = slot(orEmpty(byCategory.get(ClosetRecommender.TOP)), c, width);
+        List<Candidate> bottoms = slot(orEmpty(byCategory.get(ClosetRecommender.BOTTOM)), c, width);
+        if (!tops.isEmpty() && !bottoms.isEmpty()) {
+            search(Arrays.asList(tops, bottoms, outers, shoes), k, heap);
+        }
+        List<Candidate> dresses = slot(orEmpty(byCategory.get(ClosetRecommender.DRESS)), c, width);
+        if (!dresses.isEmpty()) {
+            search(Arrays.asList(dresses, outers, shoes), k, heap);
+        }
+
+        List<Outfit> result = new ArrayList<>(heap);
+        Collections.sort(result, (a, b) -> Integer.compare(b.score, a.score));
+        return result;
+    }
+
+    private void search(List<List<Candidate>> slots, int k, PriorityQueue<Outfit> heap) {
+        int n = slots.size();
+        // bestRest[d]：第 d 个位置及之后各位置最高单品分之和
+        int[] bestRest = new int[n + 1];
+        for (int d = n - 1; d >= 0; d--) {
+            bestRest[d] = bestRest[d + 1] + slots.get(d).get(0).score;
+        }
+        dfs(slots, 0, new Candidate[n], 0, bestRest, k, heap);
+    }
+
+    private void dfs(List<List<Candidate>> slots, int depth, Candidate[] chosen, int partial, int[] bestRest,
+                     int k, PriorityQueue<Outfit> heap) {
+        int n = slots.size();
+        if (depth == n) {
+            offer(chosen, partial, k, heap);
+            return;
+        }
+        // 之后的位置还会新增的两两组合（含与已选位置之间的），每对最多加 MAX_PAIR_BONUS
+        int rest = bestRest[depth + 1] + pairsFrom(depth + 1, n) * MAX_PAIR_BONUS;
+        for (Candidate candidate : slots.get(depth)) {
+            boolean full = heap.size() >= k;
+            // 候选按单品分降序：连搭配分取上限都进不了前 K，后面的候选只会更差
+            if (full && partial + candidate.score + depth * MAX_PAIR_BONUS + rest <= heap.peek().score) {
+                break;
+            }
+            int pair = pairBonus(candidate, chosen, depth);
+            if (full && partial + candidate.score + pair + rest <= heap.peek().score) {
+                continue;
+            }
+            chosen[depth] = candidate;
+            dfs(slots, depth + 1, chosen, partial + candidate.score + pair, bestRest, k, heap);
+        }
+        chosen[depth] = null;
+    }
+
+    private static void offer(Candidate[] chosen, int score, int k, PriorityQueue<Outfit> heap) {
+        if (heap.size() >= k && score <= heap.peek().score) {
+            return;
+        }
+        List<ClosetItemEntity> items = new ArrayList<>(chosen.length);
+        for (Candidate c : chosen) {
+            if (c.features != null) {
+                items.add(c.features.item);
+            }
+        }
+        heap.offer(new Outfit(items, score));
+        if (heap.size() > k) {
+            heap.poll();
+        }
+    }
+
+    /** 第 from 个位置起，每个位置与它之前所有位置组成的对数之和。 */
+    private static int pairsFrom(int from, int n) {
+        int pairs = 0;
+        for (int d = from; d < n; d++) {
+            pairs += d;
+        }
+        return pairs;
+    }
+
+    private static int pairBonus(Candidate candidate, Candidate[] chosen, int depth) {
+        if (candidate.features == null) {
+            return 0;
+        }
+        int bonus = 0;
+        for (int i = 0; i < depth; i++) {
+            if (chosen[i].features != null) {
+                bonus += pairScore(candidate.features, chosen[i].features);
+            }
+        }
+        return bonus;
+    }
+
+    static int pairScore(ClosetRecommender.Features a, ClosetRecommender.Features b) {
+        int s = 0;
+        if (a.styleCode != 0 && a.styleCode == b.styleCode) {
+            s++;
+        }
+        if (a.sceneCode != 0 && a.sceneCode == b.sceneCode) {
+            s++;
+        }
+        if (clash(a, b) || clash(b, a)) {
+            s -= CLASH_PENALTY;
+        }
+        return s;
+    }
+
+    private static boolean clash(ClosetRecommender.Features a, ClosetRecommender.Features b) {
+        return a.styleCode == SPORT && (b.styleCode == COMMUTE || b.styleCode == DATE);
+    }
+
+    /**
+     * 一个位置的候选：先按季节/温度剔除（全被剔除时退回不筛），再按单品分截取（见类注释），降序排列。
+     */
+    private static List<Candidate> slot(Collection<ClosetRecommender.Features> items, ClosetRecommender.Conditions c, int width) {
+        List<Candidate> kept = topByScore(items, c, true, width);
+        return kept.isEmpty() ? topByScore(items, c, false, width) : kept;
+    }
+
+    private static List<Candidate> outerSlot(Collection<ClosetRecommender.Features> outers, ClosetRecommender.Conditions c, int width) {
+        boolean needOuter = c.band == ClosetRecommender.BAND_COLD || c.rainy;
+        boolean hot = c.band == ClosetRecommender.BAND_HOT;
+        List<Candidate> list = new ArrayList<>();
+        if (!hot || c.rainy) {
+            list.addAll(slot(outers, c, width));
+        }
+        int noneScore = needOuter && !list.isEmpty() ? -NO_OUTER_COLD_PENALTY : (hot ? NO_OUTER_HOT_BONUS : 0);
+        list.add(new Candidate(null, noneScore));
+        Collections.sort(list, (a, b) -> Integer.compare(b.score, a.score));
+        return list;
+    }
+
+    private static List<Candidate> topByScore(Collection<ClosetRecommender.Features> items, ClosetRecommender.Conditions c,
+                                              boolean filter, int width) {
+        List<Candidate> list = new ArrayList<>();
+        for (ClosetRecommender.Features f : items) {
+            if (filter && !fits(f, c)) {
+                continue;
+            }
+            list.add(new Candidate(f, ClosetRecommender.score(f, c)));
+        }
+        Collections.sort(list, (a, b) -> a.score != b.score
+                ? Integer.compare(b.score, a.score)
+                : (ClosetRecommender.newer(a.features, b.features) ? -1 : 1));
+        if (list.size() <= width) {
+            return list;
+        }
+        int cutoff = list.get(width - 1).score - MAX_PAIR_SPREAD;
+        int end = width;
+        while (end < list.size() && list.get(end).score >= cutoff) {
+            end++;
+        }
+        return new ArrayList<>(list.subList(0, end));
+    }
+
+    /** 硬约束：季节已知且对不上、冷天轻薄、热天保暖的单品不参与组合。 */
+    private static boolean fits(ClosetRecommender.Features f, ClosetRecommender.Conditions c) {
+        if (f.seasonMask != 0 && c.seasonMask != 0 && (f.seasonMask & c.seasonMask) == 0) {
+            return false;
+        }
+        if (c.band == ClosetRecommender.BAND_COLD && f.cool) {
+            return false;
+        }
+        return !(c.band == ClosetRecommender.BAND_HOT && f.warm);
+    }
+
+    private static Collection<ClosetRecommender.Features> orEmpty(Collection<ClosetRecommender.Features> items) {
+        return items == null ? Collections.emptyList() : items;
+    }
+}
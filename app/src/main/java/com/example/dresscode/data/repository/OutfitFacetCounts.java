@@ -0,0 +1,94 @@
+package com.example.dresscode.data.repository;
+
+import com.example.dresscode.data.local.OutfitFacets;
+
+/**
+ * 当前筛选条件下各筛选选项的结果数（由 {@link OutfitCatalog#countFacets} 单次遍历得到）。
+ * 每一维的计数忽略这一维自身的条件，表示“选中该选项后会有多少条”；选项用界面上的文字（如“通勤”“春夏”）查询。
+ */
+public final class OutfitFacetCounts {
+
+    /** 当前筛选条件下的结果总数。 */
+    public final int total;
+
+    // 按 OutfitFacets 编码分桶，季节按完整掩码分桶
+    private final int[] gender;
+    private final int[] style;
+    private final int[] season;
+    private final int[] scene;
+    private final int[] weather;
+
+    OutfitFacetCounts(int total, int[] gender, int[] style, int[] season, int[] scene, int[] weather) {
+        this.total = total;
+        this.gender = gender;
+        this.style = style;
+        this.season = season;
+        this.scene = scene;
+        this.weather = weather;
+    }
+
+    /**
+     * 男=男+中性；女=女+中性；空值表示不限。
+     */
+    public int forGender(String value) {
+        int code = OutfitFacets.genderCode(value);
+        if (code == OutfitFacets.GENDER_ANY) {
+            return sum(gender);
+        }
+        if (code == OutfitFacets.GENDER_UNISEX) {
+            return gender[code];
+        }
+        return gender[code] + gender[OutfitFacets.GENDER_UNISEX];
+    }
+
+    public int forStyle(String value) {
+        return forCode(style, value, OutfitFacets.styleCode(value));
+    }
+
+    /**
+     * 单季节按位匹配“春夏/春秋”等组合，组合季节要求完全相同，与筛选语义一致。
+     */
+    public int forSeason(String value) {
+        int mask = OutfitFacets.seasonMask(value);
+        if (mask == 0) {
+            return isEmpty(value) ? sum(season) : 0;
+        }
+        if (!OutfitFacets.isSingleSeason(mask)) {
+            return season[mask];
+        }
+        int count = 0;
+        for (int m = 1; m < season.length; m++) {
+            if ((m & mask) != 0) {
+                count += season[m];
+            }
+        }
+        return count;
+    }
+
+    public int forScene(String value) {
+        return forCode(scene, value, OutfitFacets.sceneCode(value));
+    }
+
+    public int forWeather(String value) {
+        return forCode(weather, value, OutfitFacets.weatherCode(value));
+    }
+
+    private static int forCode(int[] counts, String value, int code) {
+        if (isEmpty(value)) {
+            return sum(counts);
+        }
+        return code > 0 && code < counts.length ? counts[code] : 0;
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int c : counts) {
+            total += c;
+        }
+        return total;
+    }
+}
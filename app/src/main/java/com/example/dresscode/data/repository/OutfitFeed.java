@@ -0,0 +1,463 @@
+package com.example.dresscode.data.repository;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.room.InvalidationTracker;
+
+import com.example.dresscode.data.local.AppDatabase;
+import com.example.dresscode.data.local.OutfitCardRow;
+import com.example.dresscode.data.local.OutfitDao;
+import com.example.dresscode.data.local.OutfitFacets;
+import com.example.dresscode.data.local.OutfitPageQuery;
+import com.example.dresscode.data.local.OutfitSearchQuery;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * 穿搭列表的分页数据源。内存目录（{@link OutfitCatalog}）就绪后，切换筛选只做位与、分页只是扩大可见条数；
+ * 目录加载完成前或加载失败时回退到 SQL：按 (性别档位, createdAt, id) 做 keyset 分页，已加载的页缓存在内存里。
+ * 滚动到底部时调用 {@link #loadNextPage()}；outfits/favorites 变化时增量刷新目录（SQL 模式下只重查已加载的页数）。
+ */
+public class OutfitFeed {
+
+    public static final int PAGE_SIZE = 20;
+
+    public static class State {
+        @NonNull
+        public final List<OutfitCardRow> items;
+        public final boolean loading;
+        public final boolean endReached;
+
+        State(@NonNull List<OutfitCardRow> items, boolean loading, boolean endReached) {
+            this.items = items;
+            this.loading = loading;
+            this.endReached = endReached;
+        }
+    }
+
+    private static final class Filter {
+        final List<String> terms;
+        final String match;
+        final int genderCode;
+        final int styleCode;
+        final int seasonMask;
+        final boolean seasonAny;
+        final int sceneCode;
+        final int weatherCode;
+
+        Filter(String query, String gender, String style, String season, String scene, String weather) {
+            this.terms = OutfitSearchQuery.terms(query);
+            this.match = OutfitSearchQuery.toMatchExpression(terms);
+            this.genderCode = OutfitFacets.genderCode(gender);
+            this.styleCode = OutfitFacets.styleCode(style);
+            this.seasonMask = OutfitFacets.seasonMask(season);
+            this.seasonAny = OutfitFacets.isSingleSeason(seasonMask);
+            this.sceneCode = OutfitFacets.sceneCode(scene);
+            this.weatherCode = OutfitFacets.weatherCode(weather);
+        }
+
+        OutfitCatalog.Query toQuery(List<Long> searchIds) {
+            return new OutfitCatalog.Query(genderCode, styleCode, seasonMask, seasonAny, sceneCode, weatherCode, searchIds);
+        }
+    }
+
+    private final AppDatabase database;
+    private final OutfitDao dao;
+    private final Executor executor;
+    private final String owner;
+    private final OutfitCatalog catalog;
+    private final MutableLiveData<State> state = new MutableLiveData<>(new State(Collections.emptyList(), true, false));
+    private final MutableLiveData<OutfitFacetCounts> facetCounts = new MutableLiveData<>(null);
+
+    private final List<List<OutfitCardRow>> pages = new ArrayList<>();
+    private Filter filter;
+    private int generation = 0;
+    private boolean loading = false;
+    private boolean endReached = false;
+    private boolean observerAdded = false;
+    private boolean reloadPending = false;
+
+    // 内存目录：snapshot 为 null 时走 SQL 分页；memoryResult 非空表示当前筛选结果已在内存里
+    private OutfitCatalog.Snapshot snapshot;
+    private List<OutfitCardRow> memoryResult;
+    private int visible = 0;
+    // 最近一次关键词的全文检索结果，只切换筛选时不用重查 FTS
+    private String searchMatch;
+    private List<Long> searchIds;
+
+    private final InvalidationTracker.Observer invalidationObserver = new InvalidationTracker.Observer("outfits", "favorites") {
+        @Override
+        public void onInvalidated(@NonNull Set<String> tables) {
+            Set<String> changed = new HashSet<>(tables);
+            executor.execute(() -> refreshCatalog(changed));
+        }
+    };
+
+    OutfitFeed(AppDatabase database, Executor executor, String owner) {
+        this.database = database;
+        this.dao = database.outfitDao();
+        this.executor = executor;
+        this.owner = owner == null ? "" : owner;
+        this.catalog = new OutfitCatalog(dao, this.owner);
+    }
+
+    public LiveData<State> observeState() {
+        return state;
+    }
+
+    /**
+     * 与列表同步刷新的筛选选项计数；内存目录未就绪（SQL 兜底）时为 null。
+     */
+    public LiveData<OutfitFacetCounts> observeFacetCounts() {
+        return facetCounts;
+    }
+
+    /**
+     * 切换筛选条件：目录就绪时直接在内存里重算（有关键词时先查一次 FTS 拿 id 集合）；否则清空页缓存并用 SQL 加载第一页。
+     */
+    public void setFilter(String query, String gender, String style, String season, String scene, String weather) {
+        final boolean needsSearch;
+        final int gen;
+        final Filter f;
+        synchronized (this) {
+            f = new Filter(query, gender, style, season, scene, weather);
+            filter = f;
+            generation++;
+            gen = generation;
+            pages.clear();
+            memoryResult = null;
+            visible = 0;
+            loading = false;
+            endReached = false;
+            reloadPending = false;
+            if (snapshot != null && (f.match.isEmpty() || f.match.equals(searchMatch))) {
+                // 目录已就绪：直接位与出结果，不访问数据库
+                applyInMemory(f, f.match.isEmpty() ? null : searchIds, PAGE_SIZE);
+                needsSearch = false;
+            } else {
+                needsSearch = snapshot != null;
+                if (needsSearch) {
+                    loading = true;
+                    state.postValue(new State(Collections.emptyList(), true, false));
+                }
+            }
+        }
+        ensureObserver();
+        if (needsSearch) {
+            executor.execute(() -> {
+                List<Long> ids = searchSafely(f);
+                synchronized (this) {
+                    if (gen != generation) {
+                        return;
+                    }
+                    searchMatch = f.match;
+                    searchIds = ids;
+                    applyInMemory(f, ids, PAGE_SIZE);
+                }
+            });
+        } else if (memoryResultIsNull()) {
+            loadNextPage();
+        }
+    }
+
+    public void loadNextPage() {
+        final int gen;
+        final Filter f;
+        final OutfitCardRow last;
+        synchronized (this) {
+            if (memoryResult != null) {
+                // 内存模式：分页只是多展示 PAGE_SIZE 条
+                if (visible < memoryResult.size()) {
+                    visible = Math.min(memoryResult.size(), visible + PAGE_SIZE);
+                    endReached = visible >= memoryResult.size();
+                    state.postValue(new State(visibleItems(), false, endReached));
+                }
+                return;
+            }
+            if (filter == null || loading || endReached) {
+                return;
+            }
+            loading = true;
+            gen = generation;
+            f = filter;
+            last = lastLoadedRow();
+            state.postValue(new State(flatten(), true, false));
+        }
+        executor.execute(() -> {
+            List<OutfitCardRow> page = queryPage(f, last);
+            synchronized (this) {
+                if (gen != generation) {
+                    return;
+                }
+                loading = false;
+                if (!page.isEmpty()) {
+                    pages.add(page);
+                }
+                endReached = page.size() < PAGE_SIZE;
+                state.postValue(new State(flatten(), false, endReached));
+            }
+            if (consumeReloadPending()) {
+                reloadLoadedPages();
+            }
+        });
+    }
+
+    public void close() {
+        synchronized (this) {
+            generation++;
+            if (!observerAdded) {
+                return;
+            }
+            observerAdded = false;
+        }
+        executor.execute(() -> database.getInvalidationTracker().removeObserver(invalidationObserver));
+    }
+
+    /**
+     * 排序档位（下标对应 {@link OutfitPageQuery#genderTiers}），用于从最后一条记录推出 keyset 游标。
+     */
+    static int genderRank(String rowGender, int genderCode) {
+        int rowCode = OutfitFacets.genderCode(rowGender);
+        if (genderCode == OutfitFacets.GENDER_ANY || genderCode == rowCode) {
+            return 0;
+        }
+        return rowCode == OutfitFacets.GENDER_UNISEX ? 1 : 2;
+    }
+
+    private void ensureObserver() {
+        synchronized (this) {
+            if (observerAdded) {
+                return;
+            }
+            observerAdded = true;
+        }
+        // addObserver 会同步触发器，放到后台线程做；随后在同一线程上构建内存目录
+        executor.execute(() -> database.getInvalidationTracker().addObserver(invalidationObserver));
+        executor.execute(() -> refreshCatalog(null));
+    }
+
+    /**
+     * 在 IO 线程上（增量）刷新内存目录，并按当前筛选重算结果、保持已展示的条数。
+     * 目录加载失败时保持 SQL 分页兜底。
+     */
+    private void refreshCatalog(Set<String> tables) {
+        OutfitCatalog.Snapshot prev;
+        synchronized (this) {
+            prev = snapshot;
+        }
+        OutfitCatalog.Snapshot next;
+        try {
+            next = catalog.refresh(prev, tables);
+        } catch (Exception e) {
+            next = null;
+        }
+        if (next == null) {
+            synchronized (this) {
+                snapshot = null;
+                if (memoryResult != null) {
+                    // 退回 SQL 分页，从第一页重新加载
+                    memoryResult = null;
+                    visible = 0;
+                    generation++;
+                    pages.clear();
+                    loading = false;
+                    endReached = false;
+                }
+            }
+            facetCounts.postValue(null);
+            reloadLoadedPages();
+            return;
+        }
+        boolean outfitsChanged = tables == null || tables.contains("outfits");
+        final Filter f;
+        final int gen;
+        synchronized (this) {
+            snapshot = next;
+            if (outfitsChanged) {
+                searchMatch = null;
+                searchIds = null;
+            }
+            f = filter;
+            gen = generation;
+            if (f == null) {
+                return;
+            }
+            if (f.match.isEmpty() || f.match.equals(searchMatch)) {
+                applyInMemory(f, f.match.isEmpty() ? null : searchIds, shownCount());
+                return;
+            }
+        }
+        List<Long> ids = searchSafely(f);
+        synchronized (this) {
+            if (gen != generation) {
+                return;
+            }
+            searchMatch = f.match;
+            searchIds = ids;
+            applyInMemory(f, ids, shownCount());
+        }
+    }
+
+    /**
+     * 调用方持有锁。用当前目录快照算出筛选结果并发布前 minVisible 条；同时作废正在进行的 SQL 分页。
+     */
+    private void applyInMemory(Filter f, List<Long> ids, int minVisible) {
+        OutfitCatalog.Query q = f.toQuery(ids);
+        BitSet bits = OutfitCatalog.match(snapshot, q);
+        generation++;
+        memoryResult = OutfitCatalog.order(snapshot, bits, f.genderCode);
+        visible = Math.min(memoryResult.size(), Math.max(PAGE_SIZE, minVisible));
+        pages.clear();
+        loading = false;
+        reloadPending = false;
+        endReached = visible >= memoryResult.size();
+        state.postValue(new State(visibleItems(), false, endReached));
+        facetCounts.postValue(OutfitCatalog.countFacets(snapshot, q));
+    }
+
+    private List<Long> searchSafely(Filter f) {
+        try {
+            return catalog.search(f.match, f.terms);
+        } catch (Exception e) {
+            return Collections.emptyList();
+        }
+    }
+
+    private synchronized boolean memoryResultIsNull() {
+        return memoryResult == null;
+    }
+
+    private int shownCount() {
+        if (memoryResult != null) {
+            return visible;
+        }
+        int count = 0;
+        for (List<OutfitCardRow> page : pages) {
+            count += page.size();
+        }
+        return count;
+    }
+
+    private List<OutfitCardRow> visibleItems() {
+        return Collections.unmodifiableList(new ArrayList<>(memoryResult.subList(0, visible)));
+    }
+
+    private void reloadLoadedPages() {
+        final int gen;
+        final Filter f;
+        final int pageCount;
+        synchronized (this) {
+            if (filter == null || memoryResult != null) {
+                return;
+            }
+            if (loading) {
+                // 正在翻页：等这一页加载完再统一重查
+                reloadPending = true;
+                return;
+            }
+            gen = generation;
+            f = filter;
+            pageCount = Math.max(1, pages.size());
+        }
+        executor.execute(() -> {
+            List<List<OutfitCardRow>> reloaded = new ArrayList<>();
+            OutfitCardRow last = null;
+            boolean end = false;
+            for (int i = 0; i < pageCount; i++) {
+                List<OutfitCardRow> page = queryPage(f, last);
+                if (!page.isEmpty()) {
+                    reloaded.add(page);
+                    last = page.get(page.size() - 1);
+                }
+                if (page.size() < PAGE_SIZE) {
+                    end = true;
+                    break;
+                }
+            }
+            synchronized (this) {
+                if (gen != generation) {
+                    return;
+                }
+                if (loading) {
+                    reloadPending = true;
+                    return;
+                }
+                pages.clear();
+                pages.addAll(reloaded);
+                endReached = end;
+                state.postValue(new State(flatten(), false, endReached));
+            }
+        });
+    }
+
+    private synchronized boolean consumeReloadPending() {
+        boolean pending = reloadPending;
+        reloadPending = false;
+        return pending;
+    }
+
+    /**
+     * 从 after 之后取一页：按性别档位依次查，当前档取不满一页时接着查下一档。
+     */
+    private List<OutfitCardRow> queryPage(Filter f, OutfitCardRow after) {
+        try {
+            int[] tiers = OutfitPageQuery.genderTiers(f.genderCode);
+            int tier = after == null ? 0 : genderRank(after.gender, f.genderCode);
+            long afterCreatedAt = after == null ? 0L : after.createdAt;
+            long afterId = after == null ? -1L : after.id;
+            List<OutfitCardRow> rows = new ArrayList<>(PAGE_SIZE);
+            // 游标行已不属于任何档位（数据在翻页间变化）时，按最后一档接着取
+            if (tier >= tiers.length) {
+                tier = tiers.length - 1;
+            }
+            // 与内存目录的检索一致：全文索引一条都没命中时改用 LIKE 子串匹配
+            List<String> likeTerms = !f.match.isEmpty() && !dao.hasFtsMatch(f.match) ? f.terms : null;
+            for (; tier < tiers.length && rows.size() < PAGE_SIZE; tier++) {
+                List<OutfitCardRow> page = dao.pageOutfits(OutfitPageQuery.page(
+                        owner,
+                        f.match,
+                        likeTerms,
+                        tiers[tier],
+                        f.styleCode,
+                        f.seasonMask,
+                        f.seasonAny,
+                        f.sceneCode,
+                        f.weatherCode,
+                        afterCreatedAt,
+                        afterId,
+                        PAGE_SIZE - rows.size()
+                ));
+                if (page != null) {
+                    rows.addAll(page);
+                }
+                afterId = -1L;
+            }
+            return rows;
+        } catch (Exception e) {
+            return Collections.emptyList();
+        }
+    }
+
+    private OutfitCardRow lastLoadedRow() {
+        if (pages.isEmpty()) {
+            return null;
+        }
+        List<OutfitCardRow> lastPage = pages.get(pages.size() - 1);
+        return lastPage.isEmpty() ? null : lastPage.get(lastPage.size() - 1);
+    }
+
+    private List<OutfitCardRow> flatten() {
+        List<OutfitCardRow> all = new ArrayList<>(pages.size() * PAGE_SIZE);
+        for (List<OutfitCardRow> page : pages) {
+            all.addAll(page);
+        }
+        return Collections.unmodifiableList(all);
+    }
+}
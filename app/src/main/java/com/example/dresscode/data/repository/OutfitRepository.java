@@ -9,7 +9,9 @@ import com.example.dresscode.data.local.OutfitCardRow;
 import com.example.dresscode.data.local.OutfitDetailRow;
 import com.example.dresscode.data.local.OutfitDao;
 import com.example.dresscode.data.local.OutfitEntity;
+import com.example.dresscode.data.local.OutfitFacets;
 import com.example.dresscode.data.local.OutfitTagCandidate;
+import com.example.dresscode.data.local.SeedCovers;
 import com.example.dresscode.data.local.DatabaseProvider;
 import com.example.dresscode.data.remote.AiTagResponse;
 import com.google.gson.JsonElement;
@@ -22,33 +24,35 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class OutfitRepository {
     private final OutfitDao outfitDao;
-    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
-    private final ExecutorService networkExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService ioExecutor;
+    private final OutfitTagScheduler tagScheduler;
     private final String owner;
     private final Context appContext;
     private final AiTagRepository aiTagRepository;
+    private final OutfitSeedImporter seedImporter;
 
-    public OutfitRepository(Context context, String owner) {
+    private static final Object SEED_LOCK = new Object();
+    private static final int AUTO_TAG_BATCH = 50;
+
+    OutfitRepository(Context context, String owner, AppExecutors executors, OutfitTagScheduler tagScheduler) {
         this.appContext = context.getApplicationContext();
+        this.ioExecutor = executors.io();
+        this.tagScheduler = tagScheduler;
         this.outfitDao = DatabaseProvider.get(appContext).outfitDao();
         this.owner = owner == null ? "" : owner;
         this.aiTagRepository = new AiTagRepository(appContext);
+        this.seedImporter = new OutfitSeedImporter(appContext);
         ioExecutor.execute(() -> outfitDao.claimLegacyFavorites(this.owner));
     }
 
-    public LiveData<List<OutfitCardRow>> observeOutfits(
-            String query,
-            String gender,
-            String style,
-            String season,
-            String scene,
-            String weather
-    ) {
-        return outfitDao.observeOutfits(owner, query, gender, style, season, scene, weather);
+    /**
+     * 穿搭页使用的分页数据源；调用方负责在不再使用时 close()。
+     */
+    public OutfitFeed openFeed() {
+        return new OutfitFeed(DatabaseProvider.get(appContext), ioExecutor, owner);
     }
 
     public LiveData<List<OutfitCardRow>> observeFavoriteOutfits() {
@@ -71,151 +75,172 @@ public class OutfitRepository {
 
     public void ensureSeeded() {
         ioExecutor.execute(() -> {
-            // 1) 首次启动：导入种子
-            if (outfitDao.countOutfits() <= 0) {
-                List<OutfitEntity> seed = loadSeedFromAssets();
-                if (seed == null || seed.isEmpty()) {
-                    seed = fallbackSeed();
-                }
-                outfitDao.insertAll(seed);
-            }
-
-            // 2) 后续升级：如果 assets/outfits.json 新增了图片，也自动补齐（避免必须清数据/卸载重装）
-            mergeNewSeedsFromAssets();
-
-            // 3) 修复旧数据中被 AI 写坏的筛选字段（以 seed 为准）
-            repairSeedFiltersFromAssets();
-
+            importSeedsIfChanged();
             autoTagMissingIfNeeded();
         });
     }
 
-    private void mergeNewSeedsFromAssets() {
-        try {
-            List<OutfitEntity> seeds = loadSeedFromAssets();
-            if (seeds == null || seeds.isEmpty()) {
+    /**
+     * 种子导入：asset 指纹没变（热启动）时不做任何解析和写库；变化时一次流式解析，
+     * 在同一个事务里完成首次导入 / 补齐新增图片 / 以 seed 为准修复筛选字段。
+     */
+    private void importSeedsIfChanged() {
+        // 每个账号各有一个仓库实例，用进程级锁避免并发重复导入
+        synchronized (SEED_LOCK) {
+            // countOutfits 会打开数据库；首次安装时 Room 在这里从构建期预置库拷贝出完整的种子数据
+            int count = outfitDao.countOutfits();
+            String prepackaged = DatabaseProvider.consumePrepackagedSeedFingerprint();
+            if (prepackaged != null && count > 0) {
+                seedImporter.markApplied(prepackaged);
                 return;
             }
-            List<Integer> existing = outfitDao.listCoverResIds();
-            Set<Integer> existingSet = new HashSet<>();
-            if (existing != null) {
-                existingSet.addAll(existing);
+            if (seedImporter.isUpToDate() && count > 0) {
+                return;
             }
-            List<OutfitEntity> toInsert = new ArrayList<>();
-            for (OutfitEntity s : seeds) {
-                if (s == null || s.coverResId == 0) {
-                    continue;
-                }
-                if (!existingSet.contains(s.coverResId)) {
-                    // 新增：插入到 DB，createdAt 用当前时间递减，保证排序靠前一点
-                    toInsert.add(new OutfitEntity(
-                            s.title,
-                            s.tags,
-                            s.gender,
-                            s.style,
-                            s.season,
-                            s.scene,
-                            s.weather,
-                            s.colorHex,
-                            s.coverResId,
-                            s.tagSource,
-                            s.tagModel,
-                            s.aiTagsJson,
-                            0L,
-                            System.currentTimeMillis()
-                    ));
-                }
+            OutfitSeedImporter.SeedFile file = seedImporter.read();
+            if (file != null && seedImporter.isApplied(file.fingerprint) && count > 0) {
+                // APK 更新了但种子文件没变
+                seedImporter.markApplied(file.fingerprint);
+                return;
             }
-            if (!toInsert.isEmpty()) {
-                outfitDao.insertAll(toInsert);
+            List<OutfitEntity> seeds = file == null ? null : toSeedEntities(file.seeds);
+            try {
+                DatabaseProvider.get(appContext).runInTransaction(() -> applySeeds(seeds));
+            } catch (Exception ignored) {
+                return;
+            }
+            if (file != null) {
+                seedImporter.markApplied(file.fingerprint);
             }
-        } catch (Exception ignored) {
         }
     }
 
-    private void repairSeedFiltersFromAssets() {
-        try {
-            List<OutfitEntity> seeds = loadSeedFromAssets();
-            if (seeds == null || seeds.isEmpty()) {
-                return;
+    private void applySeeds(List<OutfitEntity> seeds) {
+        // 1) 首次启动：导入种子
+        if (outfitDao.countOutfits() <= 0) {
+            outfitDao.insertAll(seeds == null || seeds.isEmpty() ? fallbackSeed() : seeds);
+            return;
+        }
+        if (seeds == null || seeds.isEmpty()) {
+            return;
+        }
+
+        // 2) 后续升级：如果 assets/outfits.json 新增了图片，也自动补齐（避免必须清数据/卸载重装）
+        List<Integer> existing = outfitDao.listCoverResIds();
+        Set<Integer> existingSet = new HashSet<>();
+        if (existing != null) {
+            existingSet.addAll(existing);
+        }
+        List<OutfitEntity> toInsert = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (OutfitEntity s : seeds) {
+            if (s.coverResId == 0) {
+                continue;
             }
-            for (OutfitEntity s : seeds) {
-                if (s == null || s.coverResId == 0) {
-                    continue;
-                }
-                // 直接覆盖为 seed 的筛选字段，确保“男/女/风格/季节/场景/天气”可用
-                outfitDao.updateFiltersByCoverResId(
-                        s.coverResId,
-                        sanitizeGender(s.gender, "UNISEX"),
-                        sanitizeStyle(s.style, ""),
-                        sanitizeSeason(s.season, ""),
-                        sanitizeScene(s.scene, ""),
-                        sanitizeWeather(s.weather, "")
-                );
+            if (!existingSet.contains(s.coverResId)) {
+                // 新增：createdAt 用当前时间，保证排序靠前一点
+                s.createdAt = now;
+                s.tagUpdatedAt = 0L;
+                toInsert.add(s);
+                continue;
             }
-        } catch (Exception ignored) {
+            // 3) 修复旧数据中被 AI 写坏的筛选字段（以 seed 为准）
+            String gender = sanitizeGender(s.gender, "UNISEX");
+            String style = sanitizeStyle(s.style, "");
+            String season = sanitizeSeason(s.season, "");
+            String scene = sanitizeScene(s.scene, "");
+            String weather = sanitizeWeather(s.weather, "");
+            outfitDao.updateFiltersByCoverResId(
+                    s.coverResId,
+                    gender,
+                    style,
+                    season,
+                    scene,
+                    weather,
+                    OutfitFacets.genderCode(gender),
+                    OutfitFacets.styleCode(style),
+                    OutfitFacets.seasonMask(season),
+                    OutfitFacets.sceneCode(scene),
+                    OutfitFacets.weatherCode(weather)
+            );
+        }
+        if (!toInsert.isEmpty()) {
+            outfitDao.insertAll(toInsert);
         }
     }
 
     private void autoTagMissingIfNeeded() {
-        // 异步为穿搭封面图打标签（写入 aiTagsJson），不阻塞 UI
-        List<OutfitTagCandidate> candidates = outfitDao.listAiTagCandidates(12);
+        // 缺标签的封面交给持久化队列，按并发上限和每分钟请求数慢慢打标签，不阻塞 UI
+        List<OutfitTagCandidate> candidates = outfitDao.listAiTagCandidates(AUTO_TAG_BATCH);
         if (candidates == null || candidates.isEmpty()) {
             return;
         }
+        List<Long> ids = new ArrayList<>();
         for (OutfitTagCandidate c : candidates) {
-            if (c == null || c.id <= 0 || c.coverResId == 0) {
-                continue;
+            if (c != null && c.id > 0 && c.coverResId != 0) {
+                ids.add(c.id);
             }
-            networkExecutor.execute(() -> {
-                try {
-                    byte[] jpeg = materializeCoverToJpeg(c.coverResId);
-                    if (jpeg == null || jpeg.length == 0) {
-                        return;
-                    }
-                    AiTagResponse resp = aiTagRepository.tagJpegBytesSync(jpeg);
-                    if (resp == null || !resp.ok || resp.result == null) {
-                        return;
-                    }
-                    String model = resp.model == null ? "" : resp.model;
-                    String json = resp.result.toString();
-                    AiOutfitFields fields = parseOutfitFieldsFromAi(json);
-                    String tagSource = safe(c.tagSource);
-
-                    // 对 SEED 数据：避免 AI 误判导致“女装筛选为空”等问题，优先保留原有筛选字段
-                    boolean keepSeedFilters = !tagSource.isEmpty() && tagSource.toUpperCase(Locale.US).startsWith("SEED");
-                    String genderValue = keepSeedFilters ? safe(c.gender) : safe(fields.gender);
-                    String styleValue = keepSeedFilters ? safe(c.style) : safe(fields.style);
-                    String seasonValue = keepSeedFilters ? safe(c.season) : safe(fields.season);
-                    String sceneValue = keepSeedFilters ? safe(c.scene) : safe(fields.scene);
-                    String weatherValue = keepSeedFilters ? safe(c.weather) : safe(fields.weather);
-
-                    // 若 AI 输出不在筛选选项内，则回退原值，确保“按风格/季节/场景/天气”能筛出结果
-                    final String gender = sanitizeGender(genderValue, safe(c.gender));
-                    final String style = sanitizeStyle(styleValue, safe(c.style));
-                    final String season = sanitizeSeason(seasonValue, safe(c.season));
-                    final String scene = sanitizeScene(sceneValue, safe(c.scene));
-                    final String weather = sanitizeWeather(weatherValue, safe(c.weather));
-                    final String finalTagSource = tagSource.isEmpty() ? "AI" : tagSource;
-
-                    ioExecutor.execute(() -> outfitDao.updateFromAi(
-                            c.id,
-                            safe(fields.title),
-                            safe(fields.tags),
-                            gender,
-                            style,
-                            season,
-                            scene,
-                            weather,
-                            finalTagSource,
-                            model,
-                            json,
-                            System.currentTimeMillis()
-                    ));
-                } catch (Exception ignored) {
-                }
-            });
         }
+        tagScheduler.enqueue(ids);
+    }
+
+    /**
+     * 为一条穿搭封面同步打标签（在 network 线程上由 {@link OutfitTagScheduler} 调用）。
+     * 返回 false 表示接口暂时失败、需要稍后重试；已打过标签或没有封面时直接返回 true。
+     */
+    boolean tagOutfitSync(long outfitId) throws Exception {
+        OutfitTagCandidate c = outfitDao.getAiTagCandidate(outfitId);
+        if (c == null || c.coverResId == 0) {
+            return true;
+        }
+        byte[] jpeg = materializeCoverToJpeg(c.coverResId);
+        if (jpeg == null || jpeg.length == 0) {
+            return true;
+        }
+        AiTagResponse resp = aiTagRepository.tagJpegBytesSync(jpeg);
+        if (resp == null || !resp.ok || resp.result == null) {
+            return false;
+        }
+        String model = resp.model == null ? "" : resp.model;
+        String json = resp.result.toString();
+        AiOutfitFields fields = parseOutfitFieldsFromAi(json);
+        String tagSource = safe(c.tagSource);
+
+        // 对 SEED 数据：避免 AI 误判导致“女装筛选为空”等问题，优先保留原有筛选字段
+        boolean keepSeedFilters = !tagSource.isEmpty() && tagSource.toUpperCase(Locale.US).startsWith("SEED");
+        String genderValue = keepSeedFilters ? safe(c.gender) : safe(fields.gender);
+        String styleValue = keepSeedFilters ? safe(c.style) : safe(fields.style);
+        String seasonValue = keepSeedFilters ? safe(c.season) : safe(fields.season);
+        String sceneValue = keepSeedFilters ? safe(c.scene) : safe(fields.scene);
+        String weatherValue = keepSeedFilters ? safe(c.weather) : safe(fields.weather);
+
+        // 若 AI 输出不在筛选选项内，则回退原值，确保“按风格/季节/场景/天气”能筛出结果
+        String gender = sanitizeGender(genderValue, safe(c.gender));
+        String style = sanitizeStyle(styleValue, safe(c.style));
+        String season = sanitizeSeason(seasonValue, safe(c.season));
+        String scene = sanitizeScene(sceneValue, safe(c.scene));
+        String weather = sanitizeWeather(weatherValue, safe(c.weather));
+
+        outfitDao.updateFromAi(
+                c.id,
+                safe(fields.title),
+                safe(fields.tags),
+                gender,
+                style,
+                season,
+                scene,
+                weather,
+                OutfitFacets.genderCode(gender),
+                OutfitFacets.styleCode(style),
+                OutfitFacets.seasonMask(season),
+                OutfitFacets.sceneCode(scene),
+                OutfitFacets.weatherCode(weather),
+                tagSource.isEmpty() ? "AI" : tagSource,
+                model,
+                json,
+                System.currentTimeMillis()
+        );
+        return true;
     }
 
     private AiOutfitFields parseOutfitFieldsFromAi(String resultJson) {
@@ -583,48 +608,31 @@ public class OutfitRepository {
         }
     }
 
-    private List<OutfitEntity> loadSeedFromAssets() {
-        try (java.io.InputStream in = appContext.getAssets().open("outfits.json");
-             java.io.InputStreamReader reader = new java.io.InputStreamReader(in, java.nio.charset.StandardCharsets.UTF_8)) {
-            com.google.gson.Gson gson = new com.google.gson.Gson();
-            com.google.gson.reflect.TypeToken<List<OutfitSeed>> type = new com.google.gson.reflect.TypeToken<List<OutfitSeed>>() {};
-            List<OutfitSeed> seeds = gson.fromJson(reader, type.getType());
-            if (seeds == null) {
-                return null;
-            }
-            long now = System.currentTimeMillis();
-            List<OutfitEntity> result = new ArrayList<>();
-            long delta = 0;
-            for (OutfitSeed s : seeds) {
-                if (s == null) {
-                    continue;
-                }
-                int coverResId = 0;
-                if (s.cover != null && !s.cover.trim().isEmpty()) {
-                    coverResId = appContext.getResources().getIdentifier(s.cover.trim(), "drawable", appContext.getPackageName());
-                }
-                result.add(new OutfitEntity(
-                        safe(s.title),
-                        safe(s.tags),
-                        safe(s.gender),
-                        safe(s.style),
-                        safe(s.season),
-                        safe(s.scene),
-                        safe(s.weather),
-                        safe(s.colorHex),
-                        coverResId,
-                        safe(s.tagSource).isEmpty() ? "SEED" : safe(s.tagSource),
-                        safe(s.tagModel),
-                        safe(s.aiTagsJson),
-                        s.tagUpdatedAt <= 0 ? now : s.tagUpdatedAt,
-                        now - delta
-                ));
-                delta += 1000L;
-            }
-            return result;
-        } catch (Exception e) {
-            return null;
-        }
+    private List<OutfitEntity> toSeedEntities(List<OutfitSeedImporter.Seed> seeds) {
+        long now = System.currentTimeMillis();
+        List<OutfitEntity> result = new ArrayList<>();
+        long delta = 0;
+        for (OutfitSeedImporter.Seed s : seeds) {
+            int coverResId = s.cover.isEmpty() ? 0 : SeedCovers.drawable(s.cover);
+            result.add(new OutfitEntity(
+                    s.title,
+                    s.tags,
+                    s.gender,
+                    s.style,
+                    s.season,
+                    s.scene,
+                    s.weather,
+                    s.colorHex,
+                    coverResId,
+                    s.tagSource.isEmpty() ? "SEED" : s.tagSource,
+                    s.tagModel,
+                    s.aiTagsJson,
+                    s.tagUpdatedAt <= 0 ? now : s.tagUpdatedAt,
+                    now - delta
+            ));
+            delta += 1000L;
+        }
+        return result;
     }
 
     private List<OutfitEntity> fallbackSeed() {
@@ -669,22 +677,6 @@ public class OutfitRepository {
         return s == null ? "" : s.trim();
     }
 
-    private static class OutfitSeed {
-        String title;
-        String tags;
-        String gender;
-        String style;
-        String season;
-        String scene;
-        String weather;
-        String colorHex;
-        String cover;
-        String tagSource;
-        String tagModel;
-        String aiTagsJson;
-        long tagUpdatedAt;
-    }
-
     private static class AiOutfitFields {
         String title;
         String tags;
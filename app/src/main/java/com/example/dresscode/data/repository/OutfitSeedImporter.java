@@ -0,0 +1,195 @@
+package com.example.dresscode.data.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageInfo;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读取 assets/outfits.json 的种子数据：一次流式解析（JsonReader）同时算出 SHA-256 指纹。
+ * 已应用的指纹和对应的安装更新时间记在 SharedPreferences 里，APK 没更新时直接跳过，不打开 asset。
+ */
+final class OutfitSeedImporter {
+
+    static final String ASSET_NAME = "outfits.json";
+
+    private static final String PREFS_NAME = "dresscode_prefs";
+    private static final String KEY_FINGERPRINT = "seed_fingerprint";
+    private static final String KEY_APP_UPDATE_TIME = "seed_app_update_time";
+
+    static final class Seed {
+        String title = "";
+        String tags = "";
+        String gender = "";
+        String style = "";
+        String season = "";
+        String scene = "";
+        String weather = "";
+        String colorHex = "";
+        String cover = "";
+        String tagSource = "";
+        String tagModel = "";
+        String aiTagsJson = "";
+        long tagUpdatedAt;
+    }
+
+    static final class SeedFile {
+        final String fingerprint;
+        final List<Seed> seeds;
+
+        SeedFile(String fingerprint, List<Seed> seeds) {
+            this.fingerprint = fingerprint;
+            this.seeds = seeds;
+        }
+    }
+
+    private final Context appContext;
+    private final SharedPreferences prefs;
+
+    OutfitSeedImporter(Context context) {
+        this.appContext = context.getApplicationContext();
+        this.prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * asset 只会随 APK 更新而变化：安装更新时间没变且已经应用过指纹，就不需要再读文件。
+     */
+    boolean isUpToDate() {
+        String applied = prefs.getString(KEY_FINGERPRINT, "");
+        return applied != null && !applied.isEmpty()
+                && prefs.getLong(KEY_APP_UPDATE_TIME, -1L) == appUpdateTime();
+    }
+
+    boolean isApplied(String fingerprint) {
+        return fingerprint != null && fingerprint.equals(prefs.getString(KEY_FINGERPRINT, ""));
+    }
+
+    void markApplied(String fingerprint) {
+        prefs.edit()
+                .putString(KEY_FINGERPRINT, fingerprint == null ? "" : fingerprint)
+                .putLong(KEY_APP_UPDATE_TIME, appUpdateTime())
+                .apply();
+    }
+
+    /**
+     * 流式读取种子文件；解析失败返回 null。
+     */
+    SeedFile read() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream raw = appContext.getAssets().open(ASSET_NAME);
+                 DigestInputStream in = new DigestInputStream(new BufferedInputStream(raw), digest);
+                 JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                List<Seed> seeds = readSeeds(reader);
+                // JsonReader 读到 ']' 就停了，把剩余字节也喂给摘要，保证指纹覆盖整个文件
+                byte[] buffer = new byte[1024];
+                while (in.read(buffer) != -1) {
+                    // drain
+                }
+                return new SeedFile(toHex(digest.digest()), seeds);
+            }
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private List<Seed> readSeeds(JsonReader reader) throws Exception {
+        List<Seed> seeds = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            Seed s = new Seed();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "title":
+                        s.title = nextString(reader);
+                        break;
+                    case "tags":
+                        s.tags = nextString(reader);
+                        break;
+                    case "gender":
+                        s.gender = nextString(reader);
+                        break;
+                    case "style":
+                        s.style = nextString(reader);
+                        break;
+                    case "season":
+                        s.season = nextString(reader);
+                        break;
+                    case "scene":
+                        s.scene = nextString(reader);
+                        break;
+                    case "weather":
+                        s.weather = nextString(reader);
+                        break;
+                    case "colorHex":
+                        s.colorHex = nextString(reader);
+                        break;
+                    case "cover":
+                        s.cover = nextString(reader);
+                        break;
+                    case "tagSource":
+                        s.tagSource = nextString(reader);
+                        break;
+                    case "tagModel":
+                        s.tagModel = nextString(reader);
+                        break;
+                    case "aiTagsJson":
+                        s.aiTagsJson = nextString(reader);
+                        break;
+                    case "tagUpdatedAt":
+                        s.tagUpdatedAt = reader.nextLong();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+            seeds.add(s);
+        }
+        reader.endArray();
+        return seeds;
+    }
+
+    private static String nextString(JsonReader reader) throws Exception {
+        String v = reader.nextString();
+        return v == null ? "" : v.trim();
+    }
+
+    private long appUpdateTime() {
+        try {
+            PackageInfo info = appContext.getPackageManager().getPackageInfo(appContext.getPackageName(), 0);
+            return info.lastUpdateTime;
+        } catch (Exception e) {
+            return 0L;
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.dresscode.data.repository;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.dresscode.data.local.DatabaseProvider;
+import com.example.dresscode.data.local.TagJobDao;
+import com.example.dresscode.data.local.TagJobEntity;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * 穿搭封面 AI 打标签的持久化队列：
+ * <ul>
+ *     <li>任务存在 tag_jobs 表里，同一穿搭重复入队会合并，进程被杀后从表里继续；</li>
+ *     <li>同时最多 {@code maxConcurrent} 个请求，且最近一分钟内最多发起 {@code requestsPerMinute} 个；</li>
+ *     <li>失败按指数退避重试，{@link #MAX_ATTEMPTS} 次后标记为 FAILED，不再占用额度；再次入队（每次启动补标签时）
+ *     会把 FAILED 的任务放回队列；</li>
+ *     <li>连不上网（IOException）不算失败次数，只按连续断网的次数退避，离线一段时间不会把任务耗尽。</li>
+ * </ul>
+ * 调度状态只在 io 线程上读写，请求本身在 network 线程上执行。
+ */
+final class OutfitTagScheduler {
+
+    private static final String TAG = "OutfitTagScheduler";
+
+    interface Worker {
+        /**
+         * 返回 false 或抛异常表示本次失败、需要重试；抛 IOException 视为断网，不计入失败次数。
+         */
+        boolean run(long outfitId) throws Exception;
+    }
+
+    static final int DEFAULT_MAX_CONCURRENT = 2;
+    static final int DEFAULT_REQUESTS_PER_MINUTE = 6;
+    static final int MAX_ATTEMPTS = 5;
+
+    private static final long WINDOW_MS = 60_000L;
+    private static final long BASE_BACKOFF_MS = 30_000L;
+    private static final long MAX_BACKOFF_MS = 30 * 60_000L;
+    private static final long REJECTED_RETRY_MS = 5_000L;
+    private static final long MIN_WAKE_DELAY_MS = 1_000L;
+
+    private final TagJobDao dao;
+    private final Executor io;
+    private final Executor network;
+    private final Worker worker;
+    private final int maxConcurrent;
+    private final int requestsPerMinute;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable wake = this::requestPump;
+
+    // 以下字段只在 io 线程访问
+    private final ArrayDeque<Long> recentStarts = new ArrayDeque<>();
+    private int running;
+    private boolean recovered;
+    /** 连续因断网失败的次数，任何一次非断网的结果都会清零。 */
+    private int offlineStreak;
+
+    OutfitTagScheduler(Context context, AppExecutors executors, Worker worker) {
+        this(context, executors, worker, DEFAULT_MAX_CONCURRENT, DEFAULT_REQUESTS_PER_MINUTE);
+    }
+
+    OutfitTagScheduler(Context context, AppExecutors executors, Worker worker, int maxConcurrent, int requestsPerMinute) {
+        this.dao = DatabaseProvider.get(context.getApplicationContext()).tagJobDao();
+        this.io = executors.io();
+        this.network = executors.network();
+        this.worker = worker;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.requestsPerMinute = Math.max(1, requestsPerMinute);
+    }
+
+    /**
+     * 入队并尝试立即调度；已有任务保持原状态，已失败的放回队列重新计数。
+     */
+    void enqueue(List<Long> outfitIds) {
+        io.execute(() -> {
+            if (outfitIds != null && !outfitIds.isEmpty()) {
+                long now = System.currentTimeMillis();
+                List<TagJobEntity> jobs = new ArrayList<>(outfitIds.size());
+                for (Long id : outfitIds) {
+                    if (id != null && id > 0) {
+                        jobs.add(new TagJobEntity(id, TagJobEntity.STATE_PENDING, 0, now, "", now, now));
+                    }
+                }
+                if (!jobs.isEmpty()) {
+                    dao.insertAll(jobs);
+                    List<Long> ids = new ArrayList<>(jobs.size());
+                    for (TagJobEntity job : jobs) {
+                        ids.add(job.outfitId);
+                    }
+                    dao.reviveFailed(ids, now);
+                }
+            }
+            pump();
+        });
+    }
+
+    private void requestPump() {
+        io.execute(this::pump);
+    }
+
+    private void pump() {
+        if (!recovered) {
+            // 上次进程退出时还在执行的任务放回队列
+            dao.resetRunning();
+            recovered = true;
+        }
+        long now = System.currentTimeMillis();
+        while (!recentStarts.isEmpty() && now - recentStarts.peekFirst() >= WINDOW_MS) {
+            recentStarts.pollFirst();
+        }
+        int slots = Math.min(maxConcurrent - running, requestsPerMinute - recentStarts.size());
+        if (slots > 0) {
+            for (TagJobEntity job : dao.listDue(now, slots)) {
+                if (dao.claim(job.outfitId, now) == 0) {
+                    continue;
+                }
+                running++;
+                recentStarts.addLast(now);
+                network.execute(new Job(job.outfitId, job.attempts));
+            }
+        }
+        scheduleWake(now);
+    }
+
+    /**
+     * 并发满时由任务完成触发下一轮；否则在“窗口腾出额度”和“下一个任务到期”中较晚的时刻唤醒。
+     */
+    private void scheduleWake(long now) {
+        handler.removeCallbacks(wake);
+        if (running >= maxConcurrent) {
+            return;
+        }
+        Long nextRunAt = dao.nextPendingRunAt();
+        if (nextRunAt == null) {
+            return;
+        }
+        long at = nextRunAt;
+        if (recentStarts.size() >= requestsPerMinute) {
+            at = Math.max(at, recentStarts.peekFirst() + WINDOW_MS);
+        }
+        handler.postDelayed(wake, Math.max(MIN_WAKE_DELAY_MS, at - now));
+    }
+
+    private void finish(long outfitId, int attempts, boolean ok, boolean offline, String error) {
+        running--;
+        long now = System.currentTimeMillis();
+        offlineStreak = offline ? offlineStreak + 1 : 0;
+        if (ok) {
+            dao.markDone(outfitId, now);
+        } else if (offline) {
+            // 断网不消耗重试次数
+            dao.markRetry(outfitId, attempts, now + backoff(offlineStreak), error, now);
+        } else {
+            int next = attempts + 1;
+            if (next >= MAX_ATTEMPTS) {
+                Log.w(TAG, "tagging outfit " + outfitId + " failed after " + next + " attempts: " + error);
+                dao.markFailed(outfitId, next, error, now);
+            } else {
+                dao.markRetry(outfitId, next, now + backoff(next), error, now);
+            }
+        }
+        pump();
+    }
+
+    static long backoff(int attempts) {
+        int shift = Math.max(0, Math.min(attempts - 1, 16));
+        return Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << shift);
+    }
+
+    private final class Job implements Runnable, AppExecutors.RejectionAware {
+        private final long outfitId;
+        private final int attempts;
+
+        Job(long outfitId, int attempts) {
+            this.outfitId = outfitId;
+            this.attempts = attempts;
+        }
+
+        @Override
+        public void run() {
+            boolean ok;
+            boolean offline = false;
+            String error = "";
+            try {
+                ok = worker.run(outfitId);
+                if (!ok) {
+                    error = "tag request failed";
+                }
+            } catch (Exception e) {
+                ok = false;
+                offline = e instanceof IOException;
+                error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+            boolean result = ok;
+            boolean noNetwork = offline;
+            String message = error;
+            io.execute(() -> finish(outfitId, attempts, result, noNetwork, message));
+        }
+
+        @Override
+        public void onRejected() {
+            // network 队列已满：不算一次失败，稍后再试
+            io.execute(() -> {
+                running--;
+                long now = System.currentTimeMillis();
+                dao.markRetry(outfitId, attempts, now + REJECTED_RETRY_MS, "network queue full", now);
+                scheduleWake(now);
+            });
+        }
+    }
+}
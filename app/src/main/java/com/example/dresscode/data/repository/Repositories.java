@@ -0,0 +1,158 @@
+package com.example.dresscode.data.repository;
+
+import android.content.Context;
+
+import com.example.dresscode.data.remote.RetrofitProvider;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 进程级的仓库容器：每个账号（owner）每种仓库只有一个实例，共用 {@link AppExecutors} 的线程。
+ * ViewModel 通过 {@code Repositories.get(app).outfits(owner)} 取仓库，构造 ViewModel 不再创建线程。
+ */
+public final class Repositories {
+
+    private static volatile Repositories instance;
+
+    private final Context appContext;
+    private final AppExecutors executors;
+    private final Map<String, OutfitRepository> outfitRepositories = new HashMap<>();
+    private final Map<String, ClosetRepository> closetRepositories = new HashMap<>();
+    private final Map<String, SwapRepository> swapRepositories = new HashMap<>();
+    private final Map<String, ClosetRecommender> recommenders = new HashMap<>();
+    private TryOnRepository tryOnRepository;
+    private TryOnJobRunner tryOnJobRunner;
+    private WeatherRepository weatherRepository;
+    private OutfitTagScheduler tagScheduler;
+    private LocalMediaStore mediaStore;
+    private WeatherRefreshScheduler weatherRefreshScheduler;
+
+    private Repositories(Context context) {
+        this.appContext = context.getApplicationContext();
+        this.executors = AppExecutors.get();
+        RetrofitProvider.install(appContext);
+        // 上次进程退出时还没完成的换装任务，在这里接着提交/轮询
+        tryOnJobs().resumeUnfinished();
+        // 回收上次运行留下的、已经没有引用的图片
+        media().requestGc();
+        // 已保存城市的天气在后台按需刷新，打开页面时不用等网络
+        weatherRefresh().ensureScheduled();
+    }
+
+    public static Repositories get(Context context) {
+        if (instance == null) {
+            synchronized (Repositories.class) {
+                if (instance == null) {
+                    instance = new Repositories(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    public AppExecutors executors() {
+        return executors;
+    }
+
+    public synchronized OutfitRepository outfits(String owner) {
+        String key = key(owner);
+        OutfitRepository repo = outfitRepositories.get(key);
+        if (repo == null) {
+            repo = new OutfitRepository(appContext, key, executors, tagScheduler());
+            outfitRepositories.put(key, repo);
+        }
+        return repo;
+    }
+
+    public synchronized ClosetRepository closet(String owner) {
+        String key = key(owner);
+        ClosetRepository repo = closetRepositories.get(key);
+        if (repo == null) {
+            repo = new ClosetRepository(appContext, key, executors, media());
+            closetRepositories.put(key, repo);
+        }
+        return repo;
+    }
+
+    public synchronized SwapRepository swap(String owner) {
+        String key = key(owner);
+        SwapRepository repo = swapRepositories.get(key);
+        if (repo == null) {
+            repo = new SwapRepository(appContext, key, executors, tryOnJobs(), media());
+            swapRepositories.put(key, repo);
+        }
+        return repo;
+    }
+
+    /**
+     * 首页推荐引擎；衣橱索引跟着账号走，ViewModel 重建后不用从头建索引。
+     */
+    public synchronized ClosetRecommender recommender(String owner) {
+        String key = key(owner);
+        ClosetRecommender engine = recommenders.get(key);
+        if (engine == null) {
+            engine = new ClosetRecommender(executors);
+            recommenders.put(key, engine);
+        }
+        return engine;
+    }
+
+    public synchronized TryOnRepository tryOn() {
+        if (tryOnRepository == null) {
+            tryOnRepository = new TryOnRepository(appContext, media());
+        }
+        return tryOnRepository;
+    }
+
+    public synchronized WeatherRepository weather() {
+        if (weatherRepository == null) {
+            weatherRepository = new WeatherRepository(appContext, executors);
+        }
+        return weatherRepository;
+    }
+
+    /**
+     * 本地图片按内容存放、去重，引用全部消失后由后台 GC 回收；与账号无关，全进程共用一个。
+     */
+    public synchronized LocalMediaStore media() {
+        if (mediaStore == null) {
+            mediaStore = new LocalMediaStore(appContext, executors);
+        }
+        return mediaStore;
+    }
+
+    /**
+     * 天气后台刷新的排期，由 {@link WeatherRefreshJobService} 在每次刷新后调整。
+     */
+    synchronized WeatherRefreshScheduler weatherRefresh() {
+        if (weatherRefreshScheduler == null) {
+            weatherRefreshScheduler = new WeatherRefreshScheduler(appContext);
+        }
+        return weatherRefreshScheduler;
+    }
+
+    /**
+     * 换装任务按行 id 推进、与账号无关，全进程共用一个。
+     */
+    private synchronized TryOnJobRunner tryOnJobs() {
+        if (tryOnJobRunner == null) {
+            tryOnJobRunner = new TryOnJobRunner(appContext, executors, tryOn());
+        }
+        return tryOnJobRunner;
+    }
+
+    /**
+     * 打标签写的是穿搭公共字段，与账号无关，全进程共用一个队列，由默认账号的仓库执行。
+     */
+    private synchronized OutfitTagScheduler tagScheduler() {
+        if (tagScheduler == null) {
+            tagScheduler = new OutfitTagScheduler(appContext, executors, id -> outfits("").tagOutfitSync(id));
+        }
+        return tagScheduler;
+    }
+
+    private static String key(String owner) {
+        return owner == null ? "" : owner;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.dresscode.data.repository;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.dresscode.data.local.DatabaseProvider;
+import com.example.dresscode.data.local.RegeoCacheDao;
+import com.example.dresscode.data.local.RegeoCacheEntity;
+import com.example.dresscode.data.remote.AMapGeoApi;
+import com.example.dresscode.data.remote.AMapRegeoResponse;
+import com.example.dresscode.data.remote.RetrofitProvider;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * 坐标 → 地级市 adcode。按顺序尝试：
+ * <ol>
+ *     <li>regeo_cache 表：坐标量化到 {@link #CELL_DEGREES}°（约 1 公里）一格，同一格 {@link #CACHE_TTL_MS} 内不再解析；</li>
+ *     <li>{@link OfflineAdcodeIndex}：落在某个城市城区内时直接得到 adcode；</li>
+ *     <li>高德逆地理编码，结果写回 regeo_cache。</li>
+ * </ol>
+ * 回调可能在 io 线程或主线程。
+ */
+final class ReverseGeocoder {
+    private static final String TAG = "ReverseGeocoder";
+    static final double CELL_DEGREES = 0.01;
+    /** 行政区划很少调整，缓存放长一些。 */
+    private static final long CACHE_TTL_MS = 90L * 24 * 60 * 60 * 1000;
+
+    interface Callback {
+        void onResolved(@NonNull String adcode, @NonNull String city);
+
+        void onFailed();
+    }
+
+    private final AMapGeoApi geoApi = RetrofitProvider.amap().create(AMapGeoApi.class);
+    private final RegeoCacheDao cacheDao;
+    private final OfflineAdcodeIndex offlineIndex;
+    private final ExecutorService ioExecutor;
+    private final AtomicInteger cacheHits = new AtomicInteger();
+    private final AtomicInteger offlineHits = new AtomicInteger();
+    private final AtomicInteger networkLookups = new AtomicInteger();
+
+    ReverseGeocoder(Context context, AppExecutors executors) {
+        this.cacheDao = DatabaseProvider.get(context).regeoCacheDao();
+        this.offlineIndex = new OfflineAdcodeIndex(context);
+        this.ioExecutor = executors.io();
+    }
+
+    void resolve(double lat, double lon, String amapKey, Callback callback) {
+        String cellKey = cellKey(lat, lon);
+        ioExecutor.execute(() -> {
+            long now = System.currentTimeMillis();
+            RegeoCacheEntity cached = cacheDao.get(cellKey);
+            if (cached != null && now - cached.resolvedAt >= 0 && now - cached.resolvedAt < CACHE_TTL_MS) {
+                cacheHits.incrementAndGet();
+                logStats("cache", cellKey);
+                callback.onResolved(cached.adcode, cached.city);
+                return;
+            }
+            OfflineAdcodeIndex.Match match = offlineIndex.lookup(lat, lon);
+            if (match != null) {
+                offlineHits.incrementAndGet();
+                logStats("offline", cellKey);
+                callback.onResolved(match.adcode, match.city);
+                return;
+            }
+            networkLookups.incrementAndGet();
+            logStats("network", cellKey);
+            requestRegeo(cellKey, lat, lon, amapKey, callback);
+        });
+    }
+
+    private void requestRegeo(String cellKey, double lat, double lon, String amapKey, Callback callback) {
+        String location = lon + "," + lat;
+        geoApi.regeo(amapKey, location, "base", 1000).enqueue(new retrofit2.Callback<AMapRegeoResponse>() {
+            @Override
+            public void onResponse(@NonNull Call<AMapRegeoResponse> call, @NonNull Response<AMapRegeoResponse> response) {
+                AMapRegeoResponse body = response.body();
+                if (!response.isSuccessful() || body == null || !"1".equals(body.status) || body.regeocode == null || body.regeocode.addressComponent == null) {
+                    callback.onFailed();
+                    return;
+                }
+                AMapRegeoResponse.AddressComponent ac = body.regeocode.addressComponent;
+                String city = extractCityName(ac);
+                String adcode = safe(ac.adcode);
+                if (adcode.isEmpty()) {
+                    callback.onFailed();
+                    return;
+                }
+                ioExecutor.execute(() -> {
+                    long now = System.currentTimeMillis();
+                    cacheDao.upsert(new RegeoCacheEntity(cellKey, adcode, city, now));
+                    cacheDao.deleteOlderThan(now - CACHE_TTL_MS);
+                });
+                callback.onResolved(adcode, city);
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<AMapRegeoResponse> call, @NonNull Throwable t) {
+                callback.onFailed();
+            }
+        });
+    }
+
+    /** 纬度、经度各按 {@link #CELL_DEGREES} 四舍五入，如 (30.274, 120.155) → "3027:12016"。 */
+    static String cellKey(double lat, double lon) {
+        return Math.round(lat / CELL_DEGREES) + ":" + Math.round(lon / CELL_DEGREES);
+    }
+
+    private void logStats(String source, String cellKey) {
+        Log.d(TAG, String.format(Locale.US, "%s hit for %s (cache=%d, offline=%d, network=%d)",
+                source, cellKey, cacheHits.get(), offlineHits.get(), networkLookups.get()));
+    }
+
+    private static String extractCityName(AMapRegeoResponse.AddressComponent ac) {
+        String city = "";
+        try {
+            if (ac.city != null) {
+                if (ac.city.isJsonPrimitive()) {
+                    city = safe(ac.city.getAsString());
+                } else if (ac.city.isJsonArray() && ac.city.getAsJsonArray().size() > 0) {
+                    city = safe(ac.city.getAsJsonArray().get(0).getAsString());
+                }
+            }
+        } catch (Exception ignored) {
+        }
+        if (city.isEmpty()) {
+            city = safe(ac.district);
+        }
+        if (city.isEmpty()) {
+            city = safe(ac.province);
+        }
+        if (city.isEmpty()) {
+            city = "当前位置";
+        }
+        return city.replace("市", "").trim();
+    }
+
+    private static String safe(String s) {
+        return s == null ? "" : s.trim();
+    }
+}
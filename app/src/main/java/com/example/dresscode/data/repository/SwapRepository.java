@@ -9,17 +9,49 @@ import com.example.dresscode.data.local.SwapDao;
 import com.example.dresscode.data.local.SwapHistoryRow;
 import com.example.dresscode.data.local.SwapJobEntity;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class SwapRepository {
+
+    public interface JobCallback {
+        void onCreated(long jobId);
+    }
+
+    public interface BatchCallback {
+        void onCreated(List<Long> jobIds);
+    }
+
+    /**
+     * 一件要试穿的衣物/穿搭；imageUri 需要在进程重启后仍可读取（本地文件或 android.resource://）。
+     */
+    public static final class TryOnSource {
+        public final String type;
+        public final long refId;
+        public final String title;
+        public final String imageUri;
+
+        public TryOnSource(String type, long refId, String title, String imageUri) {
+            this.type = type;
+            this.refId = refId;
+            this.title = title;
+            this.imageUri = imageUri;
+        }
+    }
+
     private final SwapDao dao;
-    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService ioExecutor;
+    private final TryOnJobRunner jobRunner;
+    private final LocalMediaStore mediaStore;
     private final String owner;
 
-    public SwapRepository(Context context, String owner) {
+    SwapRepository(Context context, String owner, AppExecutors executors, TryOnJobRunner jobRunner, LocalMediaStore mediaStore) {
         dao = DatabaseProvider.get(context).swapDao();
+        this.ioExecutor = executors.io();
+        this.jobRunner = jobRunner;
+        this.mediaStore = mediaStore;
         this.owner = owner == null ? "" : owner;
         ioExecutor.execute(() -> dao.claimLegacy(this.owner));
     }
@@ -43,7 +75,73 @@ public class SwapRepository {
         )));
     }
 
+    /**
+     * 记一条 PENDING 任务并交给后台提交/轮询；callback 在 io 线程回调新任务的 id。
+     * 结果和进度都写回这一行，用 {@link #observeJob(long)} 观察。
+     */
+    public void submitTryOn(TryOnSource source, String personImageUri, JobCallback callback) {
+        submitTryOnBatch(Collections.singletonList(source), personImageUri, ids -> {
+            if (callback != null && !ids.isEmpty()) {
+                callback.onCreated(ids.get(0));
+            }
+        });
+    }
+
+    /**
+     * 同一张人像试穿多件：一次插入全部 PENDING 行（历史列表立即出现），人像只上传一次，
+     * 各任务按流水线提交，谁先完成谁先写回结果。callback 在 io 线程回调新任务的 id（与 sources 顺序一致）。
+     */
+    public void submitTryOnBatch(List<TryOnSource> sources, String personImageUri, BatchCallback callback) {
+        ioExecutor.execute(() -> {
+            long now = System.currentTimeMillis();
+            List<SwapJobEntity> jobs = new ArrayList<>(sources.size());
+            for (int i = 0; i < sources.size(); i++) {
+                TryOnSource source = sources.get(i);
+                String type = source.type == null || source.type.trim().isEmpty() ? "OUTFIT" : source.type.trim();
+                jobs.add(new SwapJobEntity(
+                        owner,
+                        "OUTFIT".equals(type) ? source.refId : 0L,
+                        type,
+                        source.refId,
+                        source.title == null ? "" : source.title,
+                        source.imageUri == null ? "" : source.imageUri,
+                        personImageUri,
+                        "",
+                        SwapJobEntity.STATUS_PENDING,
+                        // 历史按时间倒序：同一批依次早 1ms，第一件排在最上面
+                        now - i
+                ));
+            }
+            List<Long> ids = jobs.isEmpty() ? Collections.emptyList() : dao.insertAll(jobs);
+            jobRunner.start(ids);
+            if (callback != null) {
+                callback.onCreated(ids);
+            }
+        });
+    }
+
+    public LiveData<SwapJobEntity> observeJob(long id) {
+        return dao.observeJob(id);
+    }
+
+    /**
+     * 当前账号最近一条还没完成的任务（界面重建后接着显示进度），没有时回调 -1。
+     */
+    public void findLatestUnfinished(JobCallback callback) {
+        ioExecutor.execute(() -> {
+            Long id = dao.findLatestUnfinishedId(owner);
+            callback.onCreated(id == null ? -1L : id);
+        });
+    }
+
+    /**
+     * 删除一条记录；结果图可能还被其它记录（如缓存命中的同一张图）引用，交给 GC 按引用数回收。
+     */
     public void deleteJob(long id) {
-        ioExecutor.execute(() -> dao.deleteById(id, owner));
+        ioExecutor.execute(() -> {
+            if (dao.deleteById(id, owner) > 0) {
+                mediaStore.requestGc();
+            }
+        });
     }
 }
@@ -0,0 +1,668 @@
+package com.example.dresscode.data.repository;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.dresscode.data.local.DatabaseProvider;
+import com.example.dresscode.data.local.SwapDao;
+import com.example.dresscode.data.local.SwapJobEntity;
+import com.example.dresscode.data.remote.TryOnJobResponse;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * 驱动 swap_jobs 里未完成的换装任务走完 /api/tryon 的异步流程，多个任务按流水线推进：
+ * <ul>
+ *     <li>结果缓存：先在本地读取并哈希人像和衣物，按（人像, 衣物, 模型版本）查缓存，命中直接完成，
+ *     不需要任何网络请求（离线或后端不可用时也能命中）；</li>
+ *     <li>人像：缓存未命中时才上传，同一张人像只上传一次（/api/tryon/images），之后的任务用 image_id 引用；</li>
+ *     <li>提交：PENDING 且没有 remoteTaskId 的任务排队，最多 {@link #MAX_SUBMITTING} 个同时上传衣物并提交，
+ *     已提交未完成的任务最多 {@link #MAX_IN_FLIGHT} 个，拿到 job_id 后写回并改为 RUNNING；</li>
+ *     <li>轮询：所有 RUNNING 任务合并成一个长轮询请求（每次最多挂起 {@link #POLL_WAIT_SECONDS} 秒，在单独的 longPoll 线程上），
+ *     哪个任务 DONE 就先下载哪个的结果图并写入 resultImageUri，历史列表逐条更新；</li>
+ *     <li>网络错误按指数退避重试，连续 {@link #MAX_ERRORS} 次或不可重试的错误标记为 FAILED。</li>
+ * </ul>
+ * 进度全部落在表里，进程被杀后由 {@link #resumeUnfinished()} 从上次的状态继续；界面通过观察表拿到状态。
+ * 调度状态只在 io 线程上读写，请求在 network 线程上执行。
+ */
+final class TryOnJobRunner {
+
+    private static final String TAG = "TryOnJobRunner";
+
+    static final int POLL_WAIT_SECONDS = 20;
+    static final int MAX_ERRORS = 8;
+    static final int MAX_SUBMITTING = 2;
+    static final int MAX_IN_FLIGHT = 4;
+
+    private static final long BASE_RETRY_MS = 5_000L;
+    private static final long MAX_RETRY_MS = 5 * 60_000L;
+    private static final long REJECTED_RETRY_MS = 5_000L;
+    /** 后端不支持长轮询、立刻返回时，两次查询之间至少间隔这么久。 */
+    private static final long MIN_POLL_INTERVAL_MS = 3_000L;
+    /** 后端和 DashScope 只保留一段时间的任务结果，超过这个时间还没完成的任务直接判失败。 */
+    private static final long MAX_JOB_AGE_MS = 24 * 60 * 60_000L;
+
+    private final SwapDao dao;
+    private final TryOnRepository tryOn;
+    private final Executor io;
+    private final Executor image;
+    private final Executor network;
+    private final Executor longPoll;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable wake = this::requestPump;
+
+    // 以下字段只在 io 线程访问
+    /** 正在推进的任务 id → 连续失败次数。 */
+    private final Map<Long, Integer> active = new HashMap<>();
+    /** 等待提交的任务，先进先出。 */
+    private final ArrayDeque<SwapJobEntity> waiting = new ArrayDeque<>();
+    private final Set<Long> submitting = new HashSet<>();
+    /** 已提交、等待后端结果的任务 id → remoteTaskId。 */
+    private final Map<Long, String> polling = new LinkedHashMap<>();
+    /** 人像 URI → 后端 image_id；进程内有效，后端清理后会按错误码重新上传。 */
+    private final Map<String, String> personImageIds = new HashMap<>();
+    /** 人像 URI → 上传内容的 SHA-256，本地读取人像后记录，用于结果缓存的键。 */
+    private final Map<String, String> personHashes = new HashMap<>();
+    /** 已读取、还没上传的人像；缓存未命中需要上传时直接用，免得再编码一次。 */
+    private final Map<String, TryOnRepository.PreparedImage> preparedPersons = new HashMap<>();
+    /** 已查过结果缓存且未命中的任务。 */
+    private final Set<Long> cacheChecked = new HashSet<>();
+    /** 已提交任务的缓存键与提交时间；进程内有效，重启后继续的任务不再写缓存。 */
+    private final Map<Long, String> cacheKeys = new HashMap<>();
+    private final Map<Long, Long> submittedAt = new HashMap<>();
+    /** 正在读取或上传的人像。 */
+    private final Set<String> uploadingPersons = new HashSet<>();
+    /** 人像上传失败后的重试时间，以及连续失败次数。 */
+    private final Map<String, Long> personRetryAt = new HashMap<>();
+    private final Map<String, Integer> personErrors = new HashMap<>();
+    private boolean pollInFlight;
+    private int pollErrors;
+
+    TryOnJobRunner(Context context, AppExecutors executors, TryOnRepository tryOn) {
+        this.dao = DatabaseProvider.get(context.getApplicationContext()).swapDao();
+        this.tryOn = tryOn;
+        this.io = executors.io();
+        this.image = executors.image();
+        this.network = executors.network();
+        this.longPoll = executors.longPoll();
+    }
+
+    /**
+     * 开始推进刚插入的任务；已经在推进中的任务不会重复提交。
+     */
+    void start(List<Long> jobIds) {
+        io.execute(() -> {
+            for (Long id : jobIds) {
+                SwapJobEntity job = dao.getById(id);
+                if (job != null) {
+                    track(job);
+                }
+            }
+            pump();
+        });
+    }
+
+    /**
+     * 进程启动时调用：接着推进上次没走完的任务。
+     */
+    void resumeUnfinished() {
+        io.execute(() -> {
+            for (SwapJobEntity job : dao.listUnfinished()) {
+                track(job);
+            }
+            pump();
+        });
+    }
+
+    private void track(SwapJobEntity job) {
+        if (active.containsKey(job.id) || !isUnfinished(job.status)) {
+            return;
+        }
+        if (System.currentTimeMillis() - job.createdAt > MAX_JOB_AGE_MS) {
+            dao.markFailed(job.id, "任务已过期", System.currentTimeMillis());
+            return;
+        }
+        if (job.remoteTaskId.isEmpty() && (job.personImageUri.trim().isEmpty() || job.sourceImageUri.trim().isEmpty())) {
+            dao.markFailed(job.id, "缺少图片", System.currentTimeMillis());
+            return;
+        }
+        active.put(job.id, 0);
+        if (job.remoteTaskId.isEmpty()) {
+            waiting.addLast(job);
+        } else {
+            polling.put(job.id, job.remoteTaskId);
+        }
+    }
+
+    private void requestPump() {
+        io.execute(this::pump);
+    }
+
+    /**
+     * 在额度内推进排队的任务（读人像 → 查缓存 → 上传人像 → 提交），并保证有一个合并的轮询请求在进行。
+     */
+    private void pump() {
+        long now = System.currentTimeMillis();
+        long nextPersonRetry = Long.MAX_VALUE;
+        Iterator<SwapJobEntity> it = waiting.iterator();
+        while (it.hasNext() && submitting.size() < MAX_SUBMITTING && submitting.size() + polling.size() < MAX_IN_FLIGHT) {
+            SwapJobEntity job = it.next();
+            if (dao.getById(job.id) == null) {
+                // 排队期间被用户删除
+                it.remove();
+                forget(job.id);
+                continue;
+            }
+            String person = job.personImageUri;
+            String personHash = personHashes.get(person);
+            String imageId = personImageIds.get(person);
+            if (personHash != null && !cacheChecked.contains(job.id)) {
+                // 只靠本地哈希查缓存，不等人像上传
+                it.remove();
+                submitting.add(job.id);
+                image.execute(() -> checkCache(job, personHash));
+                continue;
+            }
+            if (personHash == null || imageId == null) {
+                Long retryAt = personRetryAt.get(person);
+                if (retryAt != null && retryAt > now) {
+                    nextPersonRetry = Math.min(nextPersonRetry, retryAt);
+                } else if (uploadingPersons.add(person)) {
+                    TryOnRepository.PreparedImage prepared = personHash == null ? null : preparedPersons.remove(person);
+                    if (prepared != null) {
+                        network.execute(new UploadPerson(person, prepared));
+                    } else {
+                        image.execute(() -> preparePerson(person));
+                    }
+                }
+                continue;
+            }
+            it.remove();
+            submitting.add(job.id);
+            image.execute(() -> prepareAndSubmit(job, imageId, personHash));
+        }
+        if (!pollInFlight && !polling.isEmpty()) {
+            pollInFlight = true;
+            longPoll.execute(new Poll(new LinkedHashMap<>(polling)));
+        }
+        if (nextPersonRetry != Long.MAX_VALUE) {
+            handler.removeCallbacks(wake);
+            handler.postDelayed(wake, Math.max(0L, nextPersonRetry - now));
+        }
+    }
+
+    private void preparePerson(String personUri) {
+        TryOnRepository.PreparedImage person;
+        try {
+            person = tryOn.prepareImage(Uri.parse(personUri), "image", "person");
+        } catch (Exception e) {
+            io.execute(() -> onPersonError(personUri, new TryOnRepository.JobException("读取图片失败：" + e.getMessage(), false, "")));
+            return;
+        }
+        io.execute(() -> onPersonPrepared(personUri, person));
+    }
+
+    private void onPersonPrepared(String personUri, TryOnRepository.PreparedImage person) {
+        uploadingPersons.remove(personUri);
+        personHashes.put(personUri, person.sha256);
+        TryOnRepository.PreparedImage old = preparedPersons.put(personUri, person);
+        if (old != null) {
+            old.release();
+        }
+        pump();
+    }
+
+    /**
+     * 按（人像, 衣物, 模型版本）查结果缓存，命中就直接完成；未命中且人像已上传时接着提交。
+     */
+    private void checkCache(SwapJobEntity job, String personHash) {
+        TryOnRepository.PreparedImage cloth;
+        try {
+            cloth = tryOn.prepareImage(Uri.parse(job.sourceImageUri), "clothImage", "cloth");
+        } catch (Exception e) {
+            io.execute(() -> onSubmitError(job, new TryOnRepository.JobException("读取图片失败：" + e.getMessage(), false, "")));
+            return;
+        }
+        String cacheKey = TryOnResultCache.key(personHash, cloth.sha256);
+        String cached = cacheKey == null ? null : tryOn.resultCache().restore(cacheKey);
+        if (cached != null) {
+            cloth.release();
+            io.execute(() -> onCacheHit(job, cached));
+            return;
+        }
+        io.execute(() -> onCacheMiss(job, cloth, cacheKey));
+    }
+
+    private void onCacheMiss(SwapJobEntity job, TryOnRepository.PreparedImage cloth, String cacheKey) {
+        submitting.remove(job.id);
+        if (!active.containsKey(job.id)) {
+            cloth.release();
+            pump();
+            return;
+        }
+        cacheChecked.add(job.id);
+        String imageId = personImageIds.get(job.personImageUri);
+        if (imageId != null) {
+            submitting.add(job.id);
+            network.execute(new Submit(job, imageId, cloth, cacheKey));
+        } else {
+            // 人像还没上传：衣物先放掉，排回队首，等人像上传后再编码提交
+            cloth.release();
+            waiting.addFirst(job);
+        }
+        pump();
+    }
+
+    /**
+     * 提交前再查一次缓存：同样的组合可能刚由别的任务生成。
+     */
+    private void prepareAndSubmit(SwapJobEntity job, String personImageId, String personHash) {
+        TryOnRepository.PreparedImage cloth;
+        try {
+            cloth = tryOn.prepareImage(Uri.parse(job.sourceImageUri), "clothImage", "cloth");
+        } catch (Exception e) {
+            io.execute(() -> onSubmitError(job, new TryOnRepository.JobException("读取图片失败：" + e.getMessage(), false, "")));
+            return;
+        }
+        String cacheKey = TryOnResultCache.key(personHash, cloth.sha256);
+        String cached = cacheKey == null ? null : tryOn.resultCache().restore(cacheKey);
+        if (cached != null) {
+            cloth.release();
+            io.execute(() -> onCacheHit(job, cached));
+            return;
+        }
+        network.execute(new Submit(job, personImageId, cloth, cacheKey));
+    }
+
+    private void onCacheHit(SwapJobEntity job, String resultUri) {
+        submitting.remove(job.id);
+        cacheChecked.remove(job.id);
+        onDownloaded(job.id, resultUri);
+        releaseUnusedPerson(job.personImageUri);
+        pump();
+    }
+
+    /**
+     * 这张人像的任务都已命中缓存时，删掉读取好但用不上的人像临时文件。
+     */
+    private void releaseUnusedPerson(String personUri) {
+        for (SwapJobEntity waitingJob : waiting) {
+            if (waitingJob.personImageUri.equals(personUri)) {
+                return;
+            }
+        }
+        TryOnRepository.PreparedImage prepared = preparedPersons.remove(personUri);
+        if (prepared != null) {
+            prepared.release();
+        }
+    }
+
+    private void onPersonUploaded(String personUri, String imageId, String sha256) {
+        uploadingPersons.remove(personUri);
+        personHashes.put(personUri, sha256);
+        personErrors.remove(personUri);
+        personRetryAt.remove(personUri);
+        personImageIds.put(personUri, imageId);
+        pump();
+    }
+
+    /**
+     * 人像读取或上传失败时，等这张人像的任务一起计一次失败；还没查过缓存的任务不受影响，仍可能命中缓存。
+     */
+    private void onPersonError(String personUri, Exception e) {
+        uploadingPersons.remove(personUri);
+        int next = personErrors.containsKey(personUri) ? personErrors.get(personUri) + 1 : 1;
+        if (!isRetryable(e) || next >= MAX_ERRORS) {
+            personErrors.remove(personUri);
+            personRetryAt.remove(personUri);
+            Iterator<SwapJobEntity> it = waiting.iterator();
+            while (it.hasNext()) {
+                SwapJobEntity job = it.next();
+                if (job.personImageUri.equals(personUri)
+                        && (cacheChecked.contains(job.id) || !personHashes.containsKey(personUri))) {
+                    it.remove();
+                    fail(job.id, errorMessage(e));
+                }
+            }
+        } else {
+            personErrors.put(personUri, next);
+            personRetryAt.put(personUri, System.currentTimeMillis() + backoff(next));
+        }
+        pump();
+    }
+
+    private void onSubmitted(SwapJobEntity job, TryOnJobResponse response, String cacheKey, long startedAt) {
+        submitting.remove(job.id);
+        if (cacheKey != null) {
+            cacheKeys.put(job.id, cacheKey);
+            submittedAt.put(job.id, startedAt);
+        }
+        if (active.containsKey(job.id)) {
+            String remoteId = response.jobId == null ? "" : response.jobId.trim();
+            if (remoteId.isEmpty()) {
+                fail(job.id, response.error == null || response.error.trim().isEmpty() ? "提交失败" : response.error.trim());
+            } else if (dao.markSubmitted(job.id, remoteId, System.currentTimeMillis()) == 0) {
+                // 提交期间任务被删除了
+                forget(job.id);
+            } else {
+                // 先记下 job_id：之后不管进程是否存活，都能从这里接着查
+                active.put(job.id, 0);
+                handleStatus(job.id, remoteId, response);
+            }
+        }
+        pump();
+    }
+
+    private void onSubmitError(SwapJobEntity job, Exception e) {
+        submitting.remove(job.id);
+        boolean personMissing = e instanceof TryOnRepository.JobException
+                && TryOnRepository.JobException.CODE_PERSON_IMAGE_MISSING.equals(((TryOnRepository.JobException) e).code);
+        if (personMissing) {
+            // 后端已清理这张人像：忘掉 id，排回队首，下一轮先重新上传
+            personImageIds.remove(job.personImageUri);
+            Integer errors = active.get(job.id);
+            if (errors != null && errors + 1 < MAX_ERRORS) {
+                active.put(job.id, errors + 1);
+                waiting.addFirst(job);
+            } else if (errors != null) {
+                fail(job.id, errorMessage(e));
+            }
+        } else if (countError(job.id, e)) {
+            handler.postDelayed(() -> io.execute(() -> requeue(job.id)), backoff(active.get(job.id)));
+        }
+        pump();
+    }
+
+    private void requeue(long jobId) {
+        SwapJobEntity job = dao.getById(jobId);
+        if (job == null || !isUnfinished(job.status)) {
+            forget(jobId);
+            return;
+        }
+        if (job.remoteTaskId.isEmpty()) {
+            waiting.addFirst(job);
+        } else {
+            polling.put(job.id, job.remoteTaskId);
+        }
+        pump();
+    }
+
+    /**
+     * 处理提交或轮询拿到的任务状态：DONE 下载结果、FAILED 标记失败，其余继续轮询。
+     */
+    private void handleStatus(long jobId, String remoteId, TryOnJobResponse response) {
+        String status = response.status == null ? "" : response.status;
+        if (SwapJobEntity.STATUS_DONE.equals(status)) {
+            polling.remove(jobId);
+            if (response.resultUrl == null || response.resultUrl.trim().isEmpty()) {
+                fail(jobId, "返回结果为空");
+            } else {
+                network.execute(new Download(jobId, response.resultUrl.trim()));
+            }
+        } else if (SwapJobEntity.STATUS_FAILED.equals(status)) {
+            polling.remove(jobId);
+            fail(jobId, response.error == null || response.error.trim().isEmpty() ? "生成失败" : response.error.trim());
+        } else {
+            polling.put(jobId, remoteId);
+        }
+    }
+
+    private void onPolled(Map<Long, String> polled, List<TryOnJobResponse> responses, long elapsedMs) {
+        pollErrors = 0;
+        Map<String, TryOnJobResponse> byRemoteId = new HashMap<>();
+        for (TryOnJobResponse r : responses) {
+            if (r != null && r.jobId != null) {
+                byRemoteId.put(r.jobId, r);
+            }
+        }
+        long now = System.currentTimeMillis();
+        boolean anyFinished = false;
+        for (Map.Entry<Long, String> entry : polled.entrySet()) {
+            long jobId = entry.getKey();
+            TryOnJobResponse r = byRemoteId.get(entry.getValue());
+            if (r == null || !entry.getValue().equals(polling.get(jobId))) {
+                continue;
+            }
+            if (dao.touch(jobId, now) == 0) {
+                polling.remove(jobId);
+                forget(jobId);
+                continue;
+            }
+            active.put(jobId, 0);
+            anyFinished |= !isUnfinished(r.status);
+            handleStatus(jobId, entry.getValue(), r);
+        }
+        if (!anyFinished && elapsedMs < MIN_POLL_INTERVAL_MS) {
+            // 后端没有挂起请求：别空转，过一会儿再查
+            handler.postDelayed(() -> io.execute(this::finishPoll), MIN_POLL_INTERVAL_MS - elapsedMs);
+            return;
+        }
+        finishPoll();
+    }
+
+    private void onPollError(Map<Long, String> polled, Exception e) {
+        pollErrors++;
+        if (!isRetryable(e) || pollErrors >= MAX_ERRORS) {
+            Log.w(TAG, "polling " + polled.size() + " try-on jobs failed after " + pollErrors + " errors: " + e.getMessage());
+            pollErrors = 0;
+            for (Long jobId : polled.keySet()) {
+                if (polling.remove(jobId) != null) {
+                    fail(jobId, errorMessage(e));
+                }
+            }
+            finishPoll();
+            return;
+        }
+        handler.postDelayed(() -> io.execute(this::finishPoll), backoff(pollErrors));
+    }
+
+    private void finishPoll() {
+        pollInFlight = false;
+        pump();
+    }
+
+    private void onDownloaded(long jobId, String resultUri) {
+        active.remove(jobId);
+        String cacheKey = cacheKeys.remove(jobId);
+        Long startedAt = submittedAt.remove(jobId);
+        String path = Uri.parse(resultUri).getPath();
+        if (cacheKey != null && path != null) {
+            long backendMs = startedAt == null ? 0L : SystemClock.elapsedRealtime() - startedAt;
+            // 复制进缓存放在 image 线程，不占 io 线程
+            image.execute(() -> tryOn.resultCache().put(cacheKey, new File(path), backendMs));
+        }
+        if (dao.markDone(jobId, resultUri, System.currentTimeMillis()) == 0) {
+            // 下载期间任务被删除了；结果图按内容存放，可能与其它记录共用，交给 GC 判断
+            tryOn.mediaStore().requestGc();
+        }
+    }
+
+    private void onDownloadError(long jobId, String resultUrl, Exception e) {
+        if (countError(jobId, e)) {
+            handler.postDelayed(() -> network.execute(new Download(jobId, resultUrl)), backoff(active.get(jobId)));
+        }
+    }
+
+    /**
+     * 记一次失败；返回 true 表示还可以重试，false 表示已标记为 FAILED（或任务已不在推进中）。
+     */
+    private boolean countError(long jobId, Exception e) {
+        Integer errors = active.get(jobId);
+        if (errors == null) {
+            return false;
+        }
+        int next = errors + 1;
+        if (!isRetryable(e) || next >= MAX_ERRORS) {
+            Log.w(TAG, "try-on job " + jobId + " failed after " + next + " errors: " + e.getMessage());
+            fail(jobId, errorMessage(e));
+            return false;
+        }
+        active.put(jobId, next);
+        return true;
+    }
+
+    private void fail(long jobId, String message) {
+        forget(jobId);
+        dao.markFailed(jobId, message, System.currentTimeMillis());
+    }
+
+    /**
+     * 任务不再推进（失败、被删除或已结束）时清掉它的调度状态。
+     */
+    private void forget(long jobId) {
+        active.remove(jobId);
+        cacheKeys.remove(jobId);
+        submittedAt.remove(jobId);
+        cacheChecked.remove(jobId);
+    }
+
+    static long backoff(int errors) {
+        int shift = Math.max(0, Math.min(errors - 1, 16));
+        return Math.min(MAX_RETRY_MS, BASE_RETRY_MS << shift);
+    }
+
+    private static boolean isRetryable(Exception e) {
+        return !(e instanceof TryOnRepository.JobException) || ((TryOnRepository.JobException) e).retryable;
+    }
+
+    private static String errorMessage(Exception e) {
+        String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+        return isRetryable(e) ? "网络错误：" + message : message;
+    }
+
+    private static boolean isUnfinished(String status) {
+        return SwapJobEntity.STATUS_PENDING.equals(status) || SwapJobEntity.STATUS_RUNNING.equals(status);
+    }
+
+    private final class UploadPerson implements Runnable, AppExecutors.RejectionAware {
+        private final String personUri;
+        private final TryOnRepository.PreparedImage person;
+
+        UploadPerson(String personUri, TryOnRepository.PreparedImage person) {
+            this.personUri = personUri;
+            this.person = person;
+        }
+
+        @Override
+        public void run() {
+            try {
+                String imageId = tryOn.uploadPersonSync(person);
+                io.execute(() -> onPersonUploaded(personUri, imageId, person.sha256));
+            } catch (Exception e) {
+                io.execute(() -> onPersonError(personUri, e));
+            }
+        }
+
+        @Override
+        public void onRejected() {
+            // network 队列已满：不算一次失败，人像留着稍后再试
+            io.execute(() -> {
+                uploadingPersons.remove(personUri);
+                TryOnRepository.PreparedImage old = preparedPersons.put(personUri, person);
+                if (old != null) {
+                    old.release();
+                }
+                personRetryAt.put(personUri, System.currentTimeMillis() + REJECTED_RETRY_MS);
+                pump();
+            });
+        }
+    }
+
+    private final class Submit implements Runnable, AppExecutors.RejectionAware {
+        private final SwapJobEntity job;
+        private final String personImageId;
+        private final TryOnRepository.PreparedImage cloth;
+        private final String cacheKey;
+
+        Submit(SwapJobEntity job, String personImageId, TryOnRepository.PreparedImage cloth, String cacheKey) {
+            this.job = job;
+            this.personImageId = personImageId;
+            this.cloth = cloth;
+            this.cacheKey = cacheKey;
+        }
+
+        @Override
+        public void run() {
+            long startedAt = SystemClock.elapsedRealtime();
+            try {
+                TryOnJobResponse response = tryOn.submitJobSync(personImageId, cloth);
+                io.execute(() -> onSubmitted(job, response, cacheKey, startedAt));
+            } catch (Exception e) {
+                io.execute(() -> onSubmitError(job, e));
+            }
+        }
+
+        @Override
+        public void onRejected() {
+            cloth.release();
+            io.execute(() -> {
+                submitting.remove(job.id);
+                handler.postDelayed(() -> io.execute(() -> requeue(job.id)), REJECTED_RETRY_MS);
+            });
+        }
+    }
+
+    private final class Poll implements Runnable, AppExecutors.RejectionAware {
+        private final Map<Long, String> jobs;
+
+        Poll(Map<Long, String> jobs) {
+            this.jobs = jobs;
+        }
+
+        @Override
+        public void run() {
+            long startedAt = SystemClock.elapsedRealtime();
+            try {
+                List<TryOnJobResponse> responses = tryOn.pollJobsSync(new ArrayList<>(jobs.values()), POLL_WAIT_SECONDS);
+                long elapsed = SystemClock.elapsedRealtime() - startedAt;
+                io.execute(() -> onPolled(jobs, responses, elapsed));
+            } catch (Exception e) {
+                io.execute(() -> onPollError(jobs, e));
+            }
+        }
+
+        @Override
+        public void onRejected() {
+            handler.postDelayed(() -> io.execute(TryOnJobRunner.this::finishPoll), REJECTED_RETRY_MS);
+        }
+    }
+
+    private final class Download implements Runnable, AppExecutors.RejectionAware {
+        private final long jobId;
+        private final String resultUrl;
+
+        Download(long jobId, String resultUrl) {
+            this.jobId = jobId;
+            this.resultUrl = resultUrl;
+        }
+
+        @Override
+        public void run() {
+            try {
+                String uri = tryOn.downloadResultSync(resultUrl);
+                io.execute(() -> onDownloaded(jobId, uri));
+            } catch (Exception e) {
+                io.execute(() -> onDownloadError(jobId, resultUrl, e));
+            }
+        }
+
+        @Override
+        public void onRejected() {
+            handler.postDelayed(() -> network.execute(this), REJECTED_RETRY_MS);
+        }
+    }
+}
@@ -2,159 +2,228 @@ package com.example.dresscode.data.repository;
 
 import android.content.Context;
 import android.net.Uri;
-
-import androidx.annotation.NonNull;
+import android.text.TextUtils;
 
 import com.example.dresscode.data.remote.RetrofitProvider;
 import com.example.dresscode.data.remote.TryOnApi;
-import com.example.dresscode.data.remote.TryOnResponse;
+import com.example.dresscode.data.remote.TryOnImageResponse;
+import com.example.dresscode.data.remote.TryOnJobListResponse;
+import com.example.dresscode.data.remote.TryOnJobResponse;
 import com.google.gson.Gson;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.InputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
-import okhttp3.MediaType;
 import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
 import retrofit2.Call;
-import retrofit2.Callback;
 import retrofit2.Response;
 
+/**
+ * 换装接口的同步调用（上传人像、提交任务、合并轮询、下载结果图），由 {@link TryOnJobRunner} 在 network 线程上驱动；
+ * 另外持有本地的结果缓存和上传尺寸设置。
+ */
 public class TryOnRepository {
 
-    public interface ResultCallback {
-        void onSuccess(String resultImageUri);
-
-        void onError(String message);
-    }
+    /**
+     * 与后端 _shrink_for_tryon 的默认值一致：超过这个长边的部分上传了也会被服务端缩掉。
+     */
+    public static final int DEFAULT_UPLOAD_MAX_SIDE = 1024;
 
     private final TryOnApi api;
     private final Context appContext;
-    private final Gson gson = new Gson();
+    private final TryOnResultCache resultCache;
+    private final LocalMediaStore mediaStore;
+    private volatile int uploadMaxSide = DEFAULT_UPLOAD_MAX_SIDE;
 
-    public TryOnRepository(Context context) {
+    TryOnRepository(Context context, LocalMediaStore mediaStore) {
         this.appContext = context.getApplicationContext();
         this.api = RetrofitProvider.backend().create(TryOnApi.class);
+        this.mediaStore = mediaStore;
+        this.resultCache = new TryOnResultCache(appContext.getFilesDir(), mediaStore, TryOnResultCache.DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * 结果缓存的命中/未命中次数与估算节省的后端时间。
+     */
+    public TryOnResultCache.Stats cacheStats() {
+        return resultCache.stats();
+    }
+
+    TryOnResultCache resultCache() {
+        return resultCache;
+    }
+
+    LocalMediaStore mediaStore() {
+        return mediaStore;
+    }
+
+    /**
+     * 上传前缩放的最大长边（像素）；小于等于 0 时恢复默认值。
+     */
+    public void setUploadMaxSide(int maxSide) {
+        this.uploadMaxSide = maxSide > 0 ? maxSide : DEFAULT_UPLOAD_MAX_SIDE;
     }
 
-    public void tryOn(Uri personUri, Uri clothUri, ResultCallback callback) {
-        if (personUri == null || clothUri == null) {
-            callback.onError("缺少图片");
-            return;
+    /**
+     * 缩放并写好一张上传用的临时文件，同时算出上传内容的 SHA-256（结果缓存的键）；
+     * 在 image 线程调用，结果交给 network 线程发送。
+     */
+    PreparedImage prepareImage(Uri uri, String partName, String prefix) {
+        File file = UploadImages.encodeForUpload(appContext, uri, uploadMaxSide, prefix);
+        try {
+            String sha256 = file != null
+                    ? TryOnResultCache.sha256(file)
+                    : TryOnResultCache.sha256(appContext.getContentResolver(), uri);
+            return new PreparedImage(MultipartBody.Part.createFormData(partName, prefix + ".jpg", uploadBody(file, uri)), file, sha256);
+        } catch (RuntimeException e) {
+            UploadImages.deleteQuietly(file);
+            throw e;
         }
+    }
+
+    /**
+     * 上传人像，返回后端的 image_id（network 线程同步调用）；无论成功与否都会释放临时文件。
+     */
+    String uploadPersonSync(PreparedImage person) throws IOException {
         try {
-            byte[] personBytes = readAllBytes(personUri);
-            byte[] clothBytes = readAllBytes(clothUri);
-            if (personBytes == null || personBytes.length == 0 || clothBytes == null || clothBytes.length == 0) {
-                callback.onError("图片读取失败");
-                return;
+            TryOnImageResponse response = execute(api.uploadImage(person.part));
+            if (!response.ok || response.imageId == null || response.imageId.trim().isEmpty()) {
+                throw new JobException(response.error == null || response.error.trim().isEmpty() ? "上传人像失败" : response.error, false, "");
             }
+            return response.imageId.trim();
+        } finally {
+            person.release();
+        }
+    }
 
-            MultipartBody.Part personPart = MultipartBody.Part.createFormData(
-                    "personImage",
-                    "person.jpg",
-                    RequestBody.create(personBytes, MediaType.parse("image/jpeg"))
-            );
-            MultipartBody.Part clothPart = MultipartBody.Part.createFormData(
-                    "clothImage",
-                    "cloth.jpg",
-                    RequestBody.create(clothBytes, MediaType.parse("image/jpeg"))
-            );
-
-            api.tryOn(personPart, clothPart).enqueue(new Callback<TryOnResponse>() {
-                @Override
-                public void onResponse(@NonNull Call<TryOnResponse> call, @NonNull Response<TryOnResponse> response) {
-                    TryOnResponse body = response.body();
-                    if (!response.isSuccessful()) {
-                        TryOnResponse err = parseErrorBody(response);
-                        if (err != null && err.error != null && !err.error.trim().isEmpty()) {
-                            callback.onError(err.error.trim());
-                        } else {
-                            callback.onError("请求失败（HTTP " + response.code() + "）");
-                        }
-                        return;
-                    }
-                    if (body == null) {
-                        callback.onError("请求失败（HTTP " + response.code() + "）");
-                        return;
-                    }
-                    if (!body.ok) {
-                        callback.onError(body.error == null ? "生成失败" : body.error);
-                        return;
-                    }
-                    String b64 = body.getResultImageBase64();
-                    if (b64 == null || b64.trim().isEmpty()) {
-                        callback.onError("返回结果为空");
-                        return;
-                    }
-                    String uri = saveBase64Image(b64, body.getContentType());
-                    if (uri == null) {
-                        callback.onError("结果保存失败");
-                        return;
-                    }
-                    callback.onSuccess(uri);
-                }
-
-                @Override
-                public void onFailure(@NonNull Call<TryOnResponse> call, @NonNull Throwable t) {
-                    callback.onError("网络错误：" + (t.getMessage() == null ? "" : t.getMessage()));
-                }
-            });
-        } catch (Exception e) {
-            callback.onError("读取图片失败：" + e.getMessage());
+    /**
+     * 用已上传人像的 id 提交异步任务（network 线程同步调用）；无论成功与否都会释放衣物的临时文件。
+     */
+    TryOnJobResponse submitJobSync(String personImageId, PreparedImage cloth) throws IOException {
+        try {
+            return execute(api.submitJob(MultipartBody.Part.createFormData("personImageId", personImageId), cloth.part));
+        } finally {
+            cloth.release();
         }
     }
 
-    private TryOnResponse parseErrorBody(Response<TryOnResponse> response) {
+    /**
+     * 一次查询多个任务，任一任务状态变化或 waitSeconds 秒后后端才返回（network 线程同步调用）。
+     */
+    List<TryOnJobResponse> pollJobsSync(Collection<String> remoteJobIds, int waitSeconds) throws IOException {
+        TryOnJobListResponse response = execute(api.getJobs(TextUtils.join(",", remoteJobIds), waitSeconds));
+        return response.jobs == null ? Collections.emptyList() : response.jobs;
+    }
+
+    /**
+     * 下载已完成任务的结果图（先写到 swap_results，再按内容收进 {@link LocalMediaStore}），返回本地 file:// URI。
+     */
+    String downloadResultSync(String resultUrl) throws IOException {
+        // 后端给的是 /files/xxx 这样的绝对路径，去掉开头的斜杠按 baseUrl 解析，保留 baseUrl 里的路径前缀
+        String url = resultUrl.startsWith("/") ? resultUrl.substring(1) : resultUrl;
+        Response<ResponseBody> response = api.download(url).execute();
+        ResponseBody body = response.isSuccessful() ? response.body() : response.errorBody();
         try {
-            if (response == null || response.errorBody() == null) {
-                return null;
+            if (!response.isSuccessful() || body == null) {
+                throw new JobException("下载结果失败（HTTP " + response.code() + "）", isRetryable(response.code()), "");
             }
-            String text = response.errorBody().string();
-            if (text == null || text.trim().isEmpty()) {
-                return null;
+            TryOnResultReader.Result result = TryOnResultReader.read(body, appContext.getFilesDir());
+            if (result.imageUri == null) {
+                throw new JobException(result.error.trim().isEmpty() ? "返回结果为空" : result.error, false, "");
+            }
+            return store(result.imageUri);
+        } finally {
+            if (body != null) {
+                body.close();
             }
-            return gson.fromJson(text, TryOnResponse.class);
-        } catch (Exception e) {
-            return null;
         }
     }
 
-    private byte[] readAllBytes(Uri uri) {
-        try (InputStream in = appContext.getContentResolver().openInputStream(uri)) {
-            if (in == null) {
-                return null;
-            }
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            byte[] buf = new byte[8 * 1024];
-            int read;
-            while ((read = in.read(buf)) != -1) {
-                out.write(buf, 0, read);
+    private String store(String fileUri) {
+        String path = Uri.parse(fileUri).getPath();
+        return path == null ? fileUri : Uri.fromFile(mediaStore.adopt(new File(path))).toString();
+    }
+
+    private <T> T execute(Call<T> call) throws IOException {
+        Response<T> response = call.execute();
+        if (response.isSuccessful() && response.body() != null) {
+            return response.body();
+        }
+        String message = "请求失败（HTTP " + response.code() + "）";
+        String code = "";
+        ResponseBody errorBody = response.errorBody();
+        if (errorBody != null) {
+            try {
+                TryOnJobResponse parsed = new Gson().fromJson(errorBody.charStream(), TryOnJobResponse.class);
+                if (parsed != null && parsed.error != null && !parsed.error.trim().isEmpty()) {
+                    message = parsed.error.trim();
+                }
+                if (parsed != null && parsed.code != null) {
+                    code = parsed.code;
+                }
+            } catch (RuntimeException ignored) {
+            } finally {
+                errorBody.close();
             }
-            return out.toByteArray();
-        } catch (Exception e) {
-            return null;
         }
+        throw new JobException(message, isRetryable(response.code()), code);
     }
 
-    private String saveBase64Image(String base64, String contentType) {
-        try {
-            byte[] bytes = android.util.Base64.decode(base64, android.util.Base64.DEFAULT);
-            File dir = new File(appContext.getFilesDir(), "swap_results");
-            if (!dir.exists() && !dir.mkdirs()) {
-                return null;
-            }
-            String ext = (contentType != null && contentType.contains("png")) ? "png" : "jpg";
-            File file = new File(dir, "result_" + System.currentTimeMillis() + "." + ext);
-            try (FileOutputStream fos = new FileOutputStream(file)) {
-                fos.write(bytes);
-                fos.flush();
-            }
-            return Uri.fromFile(file).toString();
-        } catch (Exception e) {
-            return null;
+    /**
+     * 超时、限流和服务端错误可以重试；其余 4xx（任务不存在、参数错误）重试也没有用。
+     */
+    private static boolean isRetryable(int code) {
+        return code >= 500 || code == 408 || code == 429;
+    }
+
+    /**
+     * 优先上传本地缩放后的临时文件；解码失败（如非常规格式）时流式上传原文件，交给后端处理。
+     */
+    private RequestBody uploadBody(File encoded, Uri original) {
+        if (encoded != null) {
+            return RequestBody.create(encoded, UploadImages.JPEG);
+        }
+        return UploadImages.streamUri(appContext, original);
+    }
+
+    /**
+     * 一张待上传的图片（multipart 的一部分）及其临时文件。
+     */
+    static final class PreparedImage {
+        final MultipartBody.Part part;
+        /** 实际上传内容的 SHA-256；读取失败时为空字符串。 */
+        final String sha256;
+        private final File file;
+
+        PreparedImage(MultipartBody.Part part, File file, String sha256) {
+            this.part = part;
+            this.file = file;
+            this.sha256 = sha256;
+        }
+
+        void release() {
+            UploadImages.deleteQuietly(file);
+        }
+    }
+
+    /**
+     * 任务接口的失败；retryable 为 false 表示换个时间重试也不会成功，code 为后端给出的错误码（可能为空）。
+     */
+    static final class JobException extends IOException {
+        static final String CODE_PERSON_IMAGE_MISSING = "PERSON_IMAGE_MISSING";
+
+        final boolean retryable;
+        final String code;
+
+        JobException(String message, boolean retryable, String code) {
+            super(message);
+            this.retryable = retryable;
+            this.code = code == null ? "" : code;
         }
     }
 }
@@ -0,0 +1,268 @@
+package com.example.dresscode.data.repository;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 换装结果的本地缓存，键为 SHA-256(规范化后的人像) + SHA-256(衣物图) + {@link #MODEL_VERSION}：
+ * <ul>
+ *     <li>“规范化”指上传前的缩放/转正/重新编码结果（{@link UploadImages#encodeForUpload}），同一张照片每次得到同样的字节；</li>
+ *     <li>命中时把结果收进 {@link LocalMediaStore}（内容相同只存一份），不再请求后端；</li>
+ *     <li>文件存在 filesDir/tryon_cache，按总字节数做 LRU 淘汰（命中会更新 lastModified，重启后按它恢复顺序）；</li>
+ *     <li>命中/未命中次数和未命中时后端的平均耗时见 {@link #stats()}，用来估算省下的后端时间。</li>
+ * </ul>
+ */
+public final class TryOnResultCache {
+
+    private static final String TAG = "TryOnResultCache";
+
+    static final String DIR_NAME = "tryon_cache";
+    /** 后端换模型或生成参数时改这个值，旧结果自然不再命中。 */
+    static final String MODEL_VERSION = "aitryon-v1";
+    static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    public static final class Stats {
+        public final long hits;
+        public final long misses;
+        public final int entries;
+        public final long bytes;
+        public final long maxBytes;
+        /** 未命中时从提交到结果下载完成的平均耗时。 */
+        public final long avgBackendMs;
+        /** 按平均耗时估算命中省下的后端时间。 */
+        public final long savedMs;
+
+        Stats(long hits, long misses, int entries, long bytes, long maxBytes, long avgBackendMs) {
+            this.hits = hits;
+            this.misses = misses;
+            this.entries = entries;
+            this.bytes = bytes;
+            this.maxBytes = maxBytes;
+            this.avgBackendMs = avgBackendMs;
+            this.savedMs = hits * avgBackendMs;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "TryOnResultCache{hits=" + hits + ", misses=" + misses + ", entries=" + entries
+                    + ", bytes=" + bytes + "/" + maxBytes + ", avgBackendMs=" + avgBackendMs + ", savedMs=" + savedMs + "}";
+        }
+    }
+
+    private final File dir;
+    private final LocalMediaStore mediaStore;
+    private final long maxBytes;
+    // 访问顺序：最久未用的在前
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private boolean loaded;
+    private long hits;
+    private long misses;
+    private long timedMisses;
+    private long backendMsTotal;
+
+    TryOnResultCache(File filesDir, LocalMediaStore mediaStore, long maxBytes) {
+        this.mediaStore = mediaStore;
+        this.dir = new File(filesDir, DIR_NAME);
+        this.maxBytes = Math.max(1L, maxBytes);
+    }
+
+    /**
+     * 缓存键；任一哈希为空（读取失败）时返回 null，表示这次不走缓存。
+     */
+    static String key(String personSha256, String garmentSha256) {
+        if (personSha256 == null || personSha256.isEmpty() || garmentSha256 == null || garmentSha256.isEmpty()) {
+            return null;
+        }
+        return sha256(personSha256 + ":" + garmentSha256 + ":" + MODEL_VERSION);
+    }
+
+    /**
+     * 命中时把结果收进本地图片库并返回其 file:// URI（历史记录不依赖缓存条目是否被淘汰）；未命中返回 null。两种情况都会计数。
+     */
+    String restore(String key) {
+        File cached;
+        synchronized (this) {
+            loadIfNeeded();
+            // get 会把条目挪到最近使用的一端
+            cached = entries.get(key) != null ? new File(dir, key + ".jpg") : null;
+            if (cached != null && !cached.isFile()) {
+                totalBytes -= entries.remove(key);
+                cached = null;
+            }
+            if (cached == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+            //noinspection ResultOfMethodCallIgnored
+            cached.setLastModified(System.currentTimeMillis());
+        }
+        File out = mediaStore.importCopy(cached);
+        if (out == null) {
+            return null;
+        }
+        Log.d(TAG, stats().toString());
+        return Uri.fromFile(out).toString();
+    }
+
+    /**
+     * 后端生成完成后放入缓存；backendMs 为这次未命中花掉的后端时间（未知时传 0）。
+     */
+    void put(String key, File result, long backendMs) {
+        if (key == null || result == null || !result.isFile()) {
+            return;
+        }
+        File tmp = new File(dir, key + ".tmp");
+        try {
+            if (!dir.exists() && !dir.mkdirs()) {
+                return;
+            }
+            copy(result, tmp);
+        } catch (IOException e) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return;
+        }
+        synchronized (this) {
+            loadIfNeeded();
+            File dest = new File(dir, key + ".jpg");
+            Long old = entries.remove(key);
+            if (old != null) {
+                totalBytes -= old;
+            }
+            if (!tmp.renameTo(dest)) {
+                //noinspection ResultOfMethodCallIgnored
+                tmp.delete();
+                return;
+            }
+            entries.put(key, dest.length());
+            totalBytes += dest.length();
+            if (backendMs > 0) {
+                timedMisses++;
+                backendMsTotal += backendMs;
+            }
+            trim();
+        }
+        Log.d(TAG, stats().toString());
+    }
+
+    synchronized Stats stats() {
+        loadIfNeeded();
+        return new Stats(hits, misses, entries.size(), totalBytes, maxBytes, timedMisses == 0 ? 0 : backendMsTotal / timedMisses);
+    }
+
+    private void loadIfNeeded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File f : files) {
+            String name = f.getName();
+            if (!name.endsWith(".jpg")) {
+                // 上次没写完的临时文件
+                //noinspection ResultOfMethodCallIgnored
+                f.delete();
+                continue;
+            }
+            entries.put(name.substring(0, name.length() - 4), f.length());
+            totalBytes += f.length();
+        }
+        trim();
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            //noinspection ResultOfMethodCallIgnored
+            new File(dir, eldest.getKey() + ".jpg").delete();
+            totalBytes -= eldest.getValue();
+            it.remove();
+        }
+    }
+
+    /**
+     * 文件内容的 SHA-256（十六进制）；读取失败返回空字符串。
+     */
+    static String sha256(File file) {
+        if (file == null) {
+            return "";
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            return sha256(in);
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    static String sha256(ContentResolver resolver, Uri uri) {
+        try (InputStream in = resolver.openInputStream(uri)) {
+            return in == null ? "" : sha256(in);
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    private static String sha256(InputStream in) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] buffer = new byte[16 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return hex(digest.digest());
+    }
+
+    private static String sha256(String text) {
+        try {
+            return hex(MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            return Integer.toHexString(text.hashCode());
+        }
+    }
+
+    private static String hex(byte[] hash) {
+        StringBuilder sb = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static void copy(File from, File to) throws IOException {
+        File parent = to.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("cannot create " + parent);
+        }
+        try (InputStream in = new FileInputStream(from); OutputStream out = new FileOutputStream(to)) {
+            byte[] buffer = new byte[16 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+}
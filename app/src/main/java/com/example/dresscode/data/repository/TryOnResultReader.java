@@ -0,0 +1,75 @@
+package com.example.dresscode.data.repository;
+
+import android.net.Uri;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+
+/**
+ * 以流的方式处理换装结果图的下载响应（后端 /files/tryon_*.jpg），图片字节原样拷贝到 swap_results 下的文件里，
+ * 整张图不会以 byte[] 的形式出现在堆上；响应不是 image/* 时按失败处理。
+ */
+final class TryOnResultReader {
+
+    static final String DIR_NAME = "swap_results";
+
+    static final class Result {
+        String error = "";
+        String contentType = "";
+        /** 结果图的 file:// URI；没有结果图时为 null。 */
+        String imageUri;
+    }
+
+    private TryOnResultReader() {
+    }
+
+    static Result read(ResponseBody body, File filesDir) throws IOException {
+        File dir = new File(filesDir, DIR_NAME);
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("cannot create " + dir);
+        }
+        File tmp = new File(dir, "result_" + System.currentTimeMillis() + ".part");
+        Result result = new Result();
+        MediaType type = body.contentType();
+        if (type == null || !"image".equals(type.type())) {
+            result.error = "返回的不是图片（" + type + "）";
+            return result;
+        }
+        result.contentType = type.type() + "/" + type.subtype();
+        try (InputStream in = body.byteStream(); OutputStream out = new FileOutputStream(tmp)) {
+            copy(in, out);
+        } catch (IOException | RuntimeException e) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            throw e;
+        }
+        if (tmp.length() == 0) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return result;
+        }
+        String ext = result.contentType.contains("png") ? "png" : "jpg";
+        File file = new File(dir, tmp.getName().replace(".part", "." + ext));
+        if (!tmp.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            throw new IOException("cannot rename " + tmp);
+        }
+        result.imageUri = Uri.fromFile(file).toString();
+        return result;
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[16 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.dresscode.data.repository;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * 上传前在本地把图片缩到指定长边并重新编码成 JPEG，写进临时文件后由 OkHttp 按文件流式上传，
+ * 整个过程不把原图字节读进堆内存。
+ */
+final class UploadImages {
+
+    static final MediaType JPEG = MediaType.parse("image/jpeg");
+    private static final String DIR_NAME = "upload_tmp";
+    private static final int JPEG_QUALITY = 90;
+
+    private UploadImages() {
+    }
+
+    /**
+     * 采样解码 + EXIF 转正 + 缩放到 maxSide，写入 cacheDir/upload_tmp；失败返回 null。
+     */
+    static File encodeForUpload(Context context, Uri source, int maxSide, String prefix) {
+        File dir = new File(context.getCacheDir(), DIR_NAME);
+        if (!dir.exists() && !dir.mkdirs()) {
+            return null;
+        }
+        Bitmap bitmap = null;
+        File out = new File(dir, prefix + "_" + System.nanoTime() + ".jpg");
+        try {
+            bitmap = ClosetRenditions.decodeOriented(context.getContentResolver(), source, maxSide);
+            if (bitmap == null) {
+                return null;
+            }
+            try (FileOutputStream fos = new FileOutputStream(out)) {
+                if (!bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, fos)) {
+                    throw new IllegalStateException("compress failed");
+                }
+            }
+            return out;
+        } catch (Exception | OutOfMemoryError e) {
+            //noinspection ResultOfMethodCallIgnored
+            out.delete();
+            return null;
+        } finally {
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+        }
+    }
+
+    /**
+     * 无法在本地解码时的兜底：直接从 ContentResolver 流式上传原文件。
+     */
+    static RequestBody streamUri(Context context, Uri source) {
+        Context appContext = context.getApplicationContext();
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return JPEG;
+            }
+
+            @Override
+            public void writeTo(@NonNull BufferedSink sink) throws IOException {
+                try (InputStream in = appContext.getContentResolver().openInputStream(source)) {
+                    if (in == null) {
+                        throw new IOException("cannot open " + source);
+                    }
+                    try (Source src = Okio.source(in)) {
+                        sink.writeAll(src);
+                    }
+                }
+            }
+        };
+    }
+
+    static void deleteQuietly(File file) {
+        if (file != null && file.exists()) {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package com.example.dresscode.data.repository;
+
+import androidx.annotation.NonNull;
+
+import com.example.dresscode.BuildConfig;
+import com.example.dresscode.data.remote.AMapWeatherApi;
+import com.example.dresscode.data.remote.AMapWeatherResponse;
+import com.example.dresscode.data.remote.OpenMeteoAirQualityApi;
+import com.example.dresscode.data.remote.OpenMeteoAirQualityResponse;
+import com.example.dresscode.data.remote.OpenMeteoWeatherApi;
+import com.example.dresscode.data.remote.OpenMeteoWeatherResponse;
+import com.example.dresscode.data.remote.QWeatherAirApi;
+import com.example.dresscode.data.remote.QWeatherAirResponse;
+import com.example.dresscode.data.remote.QWeatherWeatherApi;
+import com.example.dresscode.data.remote.QWeatherWeatherResponse;
+import com.example.dresscode.data.remote.RetrofitProvider;
+
+import java.util.Locale;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * 天气/空气质量数据源。每个数据源只负责发一次请求并把响应转换成统一的 {@link Weather} / {@link Air}，
+ * 选哪个、什么时候对冲由 {@link HedgedWeatherFetcher} 决定。
+ */
+final class WeatherProviders {
+
+    private WeatherProviders() {
+    }
+
+    /**
+     * 一次查询。cityParam 给高德用（adcode 或城市名）；经纬度给和风/Open-Meteo 用，未知时为 NaN，
+     * 可能在查询过程中由地理编码补上（只在主线程读写）。
+     */
+    static final class Query {
+        final String cityParam;
+        final String cityName;
+        final String amapKey;
+        double lat;
+        double lon;
+
+        Query(String cityParam, String cityName, double lat, double lon, String amapKey) {
+            this.cityParam = cityParam == null ? "" : cityParam;
+            this.cityName = cityName == null ? "" : cityName;
+            this.lat = lat;
+            this.lon = lon;
+            this.amapKey = amapKey == null ? "" : amapKey.trim();
+        }
+
+        boolean hasLocation() {
+            return !Double.isNaN(lat) && !Double.isNaN(lon);
+        }
+
+        /** 和风接受的坐标写法：经度在前，最多两位小数。 */
+        String lonLat() {
+            return String.format(Locale.US, "%.2f,%.2f", lon, lat);
+        }
+    }
+
+    /** 实况天气；温度不带单位，缺失的字段为空字符串。 */
+    static final class Weather {
+        final String city;
+        final String temp;
+        final String desc;
+        final String humidity;
+        final String windDir;
+        final String windLevel;
+
+        Weather(String city, String temp, String desc, String humidity, String windDir, String windLevel) {
+            this.city = safe(city);
+            this.temp = safe(temp);
+            this.desc = safe(desc);
+            this.humidity = safe(humidity);
+            this.windDir = safe(windDir);
+            this.windLevel = safe(windLevel);
+        }
+    }
+
+    /** 空气质量，如“良 62”。 */
+    static final class Air {
+        final int aqi;
+        final String category;
+
+        Air(int aqi, String category) {
+            this.aqi = aqi;
+            this.category = safe(category);
+        }
+
+        String label() {
+            return category.isEmpty() ? String.valueOf(aqi) : category + " " + aqi;
+        }
+    }
+
+    interface Listener<T> {
+        void onResult(T result);
+
+        void onError(String message);
+    }
+
+    interface Source<T> {
+        /** 统计和日志里使用的名字。 */
+        String name();
+
+        /** 这次查询的条件（key、坐标）够不够用这个数据源。 */
+        boolean canServe(Query query);
+
+        /** 发起请求；返回的 Call 用于在别的数据源先返回时取消。回调在主线程。 */
+        Call<?> start(Query query, Listener<T> listener);
+    }
+
+    static boolean hasQWeatherKey() {
+        return !safe(BuildConfig.QWEATHER_KEY).isEmpty();
+    }
+
+    /** 高德实况天气，按 adcode/城市名查询。 */
+    static final class AMapWeather implements Source<Weather> {
+        private final AMapWeatherApi api = RetrofitProvider.amap().create(AMapWeatherApi.class);
+
+        @Override
+        public String name() {
+            return "amap";
+        }
+
+        @Override
+        public boolean canServe(Query query) {
+            return !query.amapKey.isEmpty() && !query.cityParam.isEmpty();
+        }
+
+        @Override
+        public Call<?> start(Query query, Listener<Weather> listener) {
+            Call<AMapWeatherResponse> call = api.weatherInfo(query.amapKey, query.cityParam, "base");
+            call.enqueue(new Callback<AMapWeatherResponse>() {
+                @Override
+                public void onResponse(@NonNull Call<AMapWeatherResponse> call, @NonNull Response<AMapWeatherResponse> response) {
+                    AMapWeatherResponse body = response.body();
+                    if (!response.isSuccessful() || body == null) {
+                        listener.onError("天气获取失败（HTTP " + response.code() + "）");
+                        return;
+                    }
+                    if (!"1".equals(body.status)) {
+                        String msg = safe(body.info);
+                        String code = safe(body.infoCode);
+                        listener.onError("天气获取失败" + (msg.isEmpty() ? "" : ("：" + msg)) + (code.isEmpty() ? "" : ("（" + code + "）")));
+                        return;
+                    }
+                    if (body.lives == null || body.lives.isEmpty()) {
+                        String count = safe(body.count);
+                        listener.onError("天气获取失败：无数据（city=" + query.cityParam + (count.isEmpty() ? "" : (", count=" + count)) + "）");
+                        return;
+                    }
+                    AMapWeatherResponse.Live live = body.lives.get(0);
+                    listener.onResult(new Weather(live.city, live.temperature, live.weather, live.humidity, live.windDirection, live.windPower));
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<AMapWeatherResponse> call, @NonNull Throwable t) {
+                    listener.onError("天气获取失败：" + t.getMessage());
+                }
+            });
+            return call;
+        }
+    }
+
+    /** 和风实况天气，按坐标查询。 */
+    static final class QWeatherWeather implements Source<Weather> {
+        private final QWeatherWeatherApi api = RetrofitProvider.qweatherDev().create(QWeatherWeatherApi.class);
+
+        @Override
+        public String name() {
+            return "qweather";
+        }
+
+        @Override
+        public boolean canServe(Query query) {
+            return hasQWeatherKey() && query.hasLocation();
+        }
+
+        @Override
+        public Call<?> start(Query query, Listener<Weather> listener) {
+            Call<QWeatherWeatherResponse> call = api.getWeatherNow(query.lonLat(), BuildConfig.QWEATHER_KEY, "zh", "m");
+            call.enqueue(new Callback<QWeatherWeatherResponse>() {
+                @Override
+                public void onResponse(@NonNull Call<QWeatherWeatherResponse> call, @NonNull Response<QWeatherWeatherResponse> response) {
+                    QWeatherWeatherResponse body = response.body();
+                    if (!response.isSuccessful() || body == null || !"200".equals(body.code) || body.now == null) {
+                        listener.onError("和风天气获取失败（" + (body == null ? "HTTP " + response.code() : safe(body.code)) + "）");
+                        return;
+                    }
+                    QWeatherWeatherResponse.Now now = body.now;
+                    listener.onResult(new Weather(query.cityName, now.temp, now.text, now.humidity, now.windDir, now.windScale));
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<QWeatherWeatherResponse> call, @NonNull Throwable t) {
+                    listener.onError("和风天气获取失败：" + t.getMessage());
+                }
+            });
+            return call;
+        }
+    }
+
+    /** Open-Meteo 实况天气，按坐标查询，不需要 key。 */
+    static final class OpenMeteoWeather implements Source<Weather> {
+        private final OpenMeteoWeatherApi api = RetrofitProvider.openMeteo().create(OpenMeteoWeatherApi.class);
+
+        @Override
+        public String name() {
+            return "open-meteo";
+        }
+
+        @Override
+        public boolean canServe(Query query) {
+            return query.hasLocation();
+        }
+
+        @Override
+        public Call<?> start(Query query, Listener<Weather> listener) {
+            Call<OpenMeteoWeatherResponse> call = api.getWeather(query.lat, query.lon,
+                    "temperature_2m,weather_code,is_day,relative_humidity_2m", "auto");
+            call.enqueue(new Callback<OpenMeteoWeatherResponse>() {
+                @Override
+                public void onResponse(@NonNull Call<OpenMeteoWeatherResponse> call, @NonNull Response<OpenMeteoWeatherResponse> response) {
+                    OpenMeteoWeatherResponse body = response.body();
+                    if (!response.isSuccessful() || body == null || body.current == null || body.current.temperatureC == null) {
+                        listener.onError("Open-Meteo 天气获取失败（HTTP " + response.code() + "）");
+                        return;
+                    }
+                    OpenMeteoWeatherResponse.Current c = body.current;
+                    String temp = String.valueOf(Math.round(c.temperatureC));
+                    String humidity = c.humidity == null ? "" : String.valueOf(c.humidity);
+                    listener.onResult(new Weather(query.cityName, temp, describeWmoCode(c.weatherCode), humidity, "", ""));
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<OpenMeteoWeatherResponse> call, @NonNull Throwable t) {
+                    listener.onError("Open-Meteo 天气获取失败：" + t.getMessage());
+                }
+            });
+            return call;
+        }
+    }
+
+    /** 和风空气质量（国标 AQI）。 */
+    static final class QWeatherAir implements Source<Air> {
+        private final QWeatherAirApi api = RetrofitProvider.qweatherDev().create(QWeatherAirApi.class);
+
+        @Override
+        public String name() {
+            return "qweather-air";
+        }
+
+        @Override
+        public boolean canServe(Query query) {
+            return hasQWeatherKey() && query.hasLocation();
+        }
+
+        @Override
+        public Call<?> start(Query query, Listener<Air> listener) {
+            Call<QWeatherAirResponse> call = api.getAirNow(query.lonLat(), BuildConfig.QWEATHER_KEY, "zh");
+            call.enqueue(new Callback<QWeatherAirResponse>() {
+                @Override
+                public void onResponse(@NonNull Call<QWeatherAirResponse> call, @NonNull Response<QWeatherAirResponse> response) {
+                    QWeatherAirResponse body = response.body();
+                    int aqi = body == null || body.now == null ? -1 : parseInt(body.now.aqi);
+                    if (!response.isSuccessful() || body == null || !"200".equals(body.code) || aqi < 0) {
+                        listener.onError("和风空气质量获取失败（" + (body == null ? "HTTP " + response.code() : safe(body.code)) + "）");
+                        return;
+                    }
+                    listener.onResult(new Air(aqi, body.now.category));
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<QWeatherAirResponse> call, @NonNull Throwable t) {
+                    listener.onError("和风空气质量获取失败：" + t.getMessage());
+                }
+            });
+            return call;
+        }
+    }
+
+    /** Open-Meteo 空气质量（美标 AQI，按美标分级换成中文等级）。 */
+    static final class OpenMeteoAir implements Source<Air> {
+        private final OpenMeteoAirQualityApi api = RetrofitProvider.openMeteoAirQuality().create(OpenMeteoAirQualityApi.class);
+
+        @Override
+        public String name() {
+            return "open-meteo-air";
+        }
+
+        @Override
+        public boolean canServe(Query query) {
+            return query.hasLocation();
+        }
+
+        @Override
+        public Call<?> start(Query query, Listener<Air> listener) {
+            Call<OpenMeteoAirQualityResponse> call = api.getAirQuality(query.lat, query.lon, "us_aqi,pm2_5");
+            call.enqueue(new Callback<OpenMeteoAirQualityResponse>() {
+                @Override
+                public void onResponse(@NonNull Call<OpenMeteoAirQualityResponse> call, @NonNull Response<OpenMeteoAirQualityResponse> response) {
+                    OpenMeteoAirQualityResponse body = response.body();
+                    if (!response.isSuccessful() || body == null || body.current == null || body.current.usAqi == null) {
+                        listener.onError("Open-Meteo 空气质量获取失败（HTTP " + response.code() + "）");
+                        return;
+                    }
+                    int aqi = body.current.usAqi;
+                    listener.onResult(new Air(aqi, usAqiCategory(aqi)));
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<OpenMeteoAirQualityResponse> call, @NonNull Throwable t) {
+                    listener.onError("Open-Meteo 空气质量获取失败：" + t.getMessage());
+                }
+            });
+            return call;
+        }
+    }
+
+    /**
+     * WMO 天气代码（Open-Meteo 的 weather_code）转中文描述。
+     */
+    static String describeWmoCode(Integer code) {
+        if (code == null) {
+            return "";
+        }
+        switch (code) {
+            case 0:
+                return "晴";
+            case 1:
+            case 2:
+                return "多云";
+            case 3:
+                return "阴";
+            case 45:
+            case 48:
+                return "雾";
+            case 51:
+            case 53:
+            case 55:
+            case 56:
+            case 57:
+                return "毛毛雨";
+            case 61:
+                return "小雨";
+            case 63:
+                return "中雨";
+            case 65:
+                return "大雨";
+            case 66:
+            case 67:
+                return "冻雨";
+            case 71:
+                return "小雪";
+            case 73:
+            case 77:
+                return "中雪";
+            case 75:
+                return "大雪";
+            case 80:
+            case 81:
+            case 82:
+                return "阵雨";
+            case 85:
+            case 86:
+                return "阵雪";
+            case 95:
+            case 96:
+            case 99:
+                return "雷阵雨";
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * 美标 AQI 的分级阈值与国标相同，直接套用国标的中文等级名。
+     */
+    static String usAqiCategory(int aqi) {
+        if (aqi <= 50) {
+            return "优";
+        }
+        if (aqi <= 100) {
+            return "良";
+        }
+        if (aqi <= 150) {
+            return "轻度污染";
+        }
+        if (aqi <= 200) {
+            return "中度污染";
+        }
+        if (aqi <= 300) {
+            return "重度污染";
+        }
+        return "严重污染";
+    }
+
+    private static int parseInt(String s) {
+        try {
+            return Integer.parseInt(safe(s));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String safe(String s) {
+        return s == null ? "" : s.trim();
+    }
+}
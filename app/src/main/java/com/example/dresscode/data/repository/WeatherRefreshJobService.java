@@ -0,0 +1,54 @@
+package com.example.dresscode.data.repository;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+
+import com.example.dresscode.BuildConfig;
+import com.example.dresscode.data.prefs.WeatherPreferencesRepository;
+
+/**
+ * 后台刷新已保存城市的天气：结果写进 weather_cache（{@link WeatherRepository#refreshCity}）和首页用的天气快照，
+ * 打开首页/天气页时直接读到新数据。排期见 {@link WeatherRefreshScheduler}。
+ */
+public class WeatherRefreshJobService extends JobService {
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        String key = BuildConfig.AMAP_KEY;
+        if (key == null || key.trim().isEmpty()) {
+            return false;
+        }
+        Repositories repositories = Repositories.get(this);
+        WeatherPreferencesRepository prefs = new WeatherPreferencesRepository(this);
+        WeatherPreferencesRepository.Snapshot previous = prefs.observeSnapshot().getValue();
+        String city = prefs.getCity();
+        String previousTemp = previous == null ? "" : previous.temp;
+        String previousDesc = previous == null ? "" : previous.desc;
+        repositories.weather().refreshCity(city, key, new WeatherRepository.WeatherCallback() {
+            @Override
+            public void onSuccess(WeatherRepository.WeatherInfo info) {
+                // 刷新期间用户换了城市，就不覆盖新城市的快照
+                if (city.equals(prefs.getCity())) {
+                    prefs.setCachedWeather(info.temp, info.desc, info.aqi);
+                }
+                prefs.close();
+                // 先结束本次任务再排下一次：任务运行中用同一 JOB_ID schedule 会让系统停掉它（onStopJob）
+                jobFinished(params, false);
+                repositories.weatherRefresh().onRefreshed(previousTemp, previousDesc, info.temp, info.desc);
+            }
+
+            @Override
+            public void onError(String message) {
+                prefs.close();
+                jobFinished(params, true);
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // 约束不再满足（断网、电量低）：按退避策略重排，进行中的请求照常写缓存
+        return true;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.dresscode.data.repository;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 已保存城市的天气后台刷新（{@link WeatherRefreshJobService}）的排期。用一次性 JobScheduler 任务串起来，
+ * 每次跑完按天气变化快慢算下一次的间隔：
+ * <ul>
+ *     <li>天气描述变了或气温变化 ≥ {@link #FAST_CHANGE_DEGREES}℃：间隔减半，最短 {@link #MIN_INTERVAL_MS}；</li>
+ *     <li>气温变化 ≤ {@link #SLOW_CHANGE_DEGREES}℃ 且描述不变：间隔放大 1.5 倍，最长 {@link #MAX_INTERVAL_MS}；</li>
+ *     <li>充电时间隔再减半（最短 {@link #CHARGING_MIN_INTERVAL_MS}）。</li>
+ * </ul>
+ * 任务要求联网、电量不低（API 26+），Doze 时由系统推迟到维护窗口；失败时按系统退避重试。
+ */
+final class WeatherRefreshScheduler {
+    private static final String TAG = "WeatherRefresh";
+    static final int JOB_ID = 0x57e1;
+    private static final String PREFS_NAME = "weather_refresh";
+    private static final String KEY_INTERVAL = "interval_ms";
+
+    static final long MIN_INTERVAL_MS = 30L * 60 * 1000;
+    static final long DEFAULT_INTERVAL_MS = 60L * 60 * 1000;
+    static final long MAX_INTERVAL_MS = 4L * 60 * 60 * 1000;
+    private static final long CHARGING_MIN_INTERVAL_MS = 20L * 60 * 1000;
+    private static final long RETRY_BACKOFF_MS = 10L * 60 * 1000;
+    private static final int FAST_CHANGE_DEGREES = 3;
+    private static final int SLOW_CHANGE_DEGREES = 1;
+    private static final Pattern TEMP = Pattern.compile("-?\\d+");
+
+    private final Context appContext;
+    private final SharedPreferences prefs;
+
+    WeatherRefreshScheduler(Context context) {
+        this.appContext = context.getApplicationContext();
+        this.prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /** 进程启动时调用：还没有排期（首次安装、被系统清掉）时按当前间隔排一次。 */
+    void ensureScheduled() {
+        JobScheduler scheduler = scheduler();
+        if (scheduler == null) {
+            return;
+        }
+        if (scheduler.getPendingJob(JOB_ID) == null) {
+            schedule(scheduler, currentInterval());
+        }
+    }
+
+    /**
+     * 一次刷新成功、且本次任务已 jobFinished 之后调用：比较刷新前后的气温/描述，调整间隔并排下一次。
+     */
+    void onRefreshed(String previousTemp, String previousDesc, String temp, String desc) {
+        long interval = currentInterval();
+        Integer before = parseTemp(previousTemp);
+        Integer after = parseTemp(temp);
+        boolean descChanged = !previousDesc.isEmpty() && !previousDesc.equals(desc);
+        if (before == null || after == null) {
+            interval = DEFAULT_INTERVAL_MS;
+        } else {
+            int delta = Math.abs(after - before);
+            if (descChanged || delta >= FAST_CHANGE_DEGREES) {
+                interval = Math.max(MIN_INTERVAL_MS, interval / 2);
+            } else if (delta <= SLOW_CHANGE_DEGREES) {
+                interval = Math.min(MAX_INTERVAL_MS, interval * 3 / 2);
+            }
+        }
+        prefs.edit().putLong(KEY_INTERVAL, interval).apply();
+        JobScheduler scheduler = scheduler();
+        if (scheduler != null) {
+            schedule(scheduler, interval);
+        }
+    }
+
+    private void schedule(JobScheduler scheduler, long interval) {
+        long delay = isCharging() ? Math.max(CHARGING_MIN_INTERVAL_MS, interval / 2) : interval;
+        JobInfo.Builder builder = new JobInfo.Builder(JOB_ID, new ComponentName(appContext, WeatherRefreshJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setMinimumLatency(delay)
+                .setBackoffCriteria(RETRY_BACKOFF_MS, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .setPersisted(true);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setRequiresBatteryNotLow(true);
+        }
+        int result = scheduler.schedule(builder.build());
+        Log.d(TAG, "next refresh in " + delay / 60000 + " min" + (result == JobScheduler.RESULT_SUCCESS ? "" : " (schedule failed)"));
+    }
+
+    private long currentInterval() {
+        long interval = prefs.getLong(KEY_INTERVAL, DEFAULT_INTERVAL_MS);
+        return Math.max(MIN_INTERVAL_MS, Math.min(MAX_INTERVAL_MS, interval));
+    }
+
+    private boolean isCharging() {
+        BatteryManager battery = (BatteryManager) appContext.getSystemService(Context.BATTERY_SERVICE);
+        return battery != null && battery.isCharging();
+    }
+
+    private JobScheduler scheduler() {
+        return (JobScheduler) appContext.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+    }
+
+    private static Integer parseTemp(String temp) {
+        if (temp == null) {
+            return null;
+        }
+        Matcher m = TEMP.matcher(temp);
+        return m.find() ? Integer.parseInt(m.group()) : null;
+    }
+}
@@ -1,23 +1,38 @@
 package com.example.dresscode.data.repository;
 
+import android.content.Context;
+
 import androidx.annotation.NonNull;
 
-import com.example.dresscode.data.remote.AMapGeoApi;
-import com.example.dresscode.data.remote.AMapRegeoResponse;
-import com.example.dresscode.data.remote.AMapWeatherApi;
-import com.example.dresscode.data.remote.AMapWeatherResponse;
-import com.example.dresscode.data.remote.RetrofitProvider;
+import com.example.dresscode.data.local.DatabaseProvider;
+import com.example.dresscode.data.local.WeatherCacheDao;
+import com.example.dresscode.data.local.WeatherCacheEntity;
 
 import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
-
+/**
+ * 天气查询。按城市参数（adcode 或城市名）在 weather_cache 表里缓存最近一次结果：
+ * <ul>
+ *     <li>{@link #FRESH_TTL_MS} 内直接返回缓存，不请求网络；</li>
+ *     <li>过期但不超过 {@link #MAX_STALE_MS} 时先返回旧值（{@link WeatherInfo#stale} 为 true），
+ *     同时在后台刷新，拿到新值后再回调一次 onSuccess；</li>
+ *     <li>同一城市同时只有一个网络请求，期间的其它请求挂在它上面等同一个结果；</li>
+ *     <li>网络请求在多个数据源之间对冲，见 {@link HedgedWeatherFetcher}。</li>
+ * </ul>
+ * 回调可能在 io 线程或主线程。
+ */
 public class WeatherRepository {
 
+    static final long FRESH_TTL_MS = 10L * 60 * 1000;
+    static final long MAX_STALE_MS = 24L * 60 * 60 * 1000;
+    /** 超过这个时间没再用到的城市从表里清掉。 */
+    private static final long RETAIN_MS = 7L * 24 * 60 * 60 * 1000;
+
     public static class WeatherInfo {
         @NonNull
         public final String city;
@@ -27,12 +42,35 @@ public class WeatherRepository {
         public final String desc;
         @NonNull
         public final String aqi;
+        /** 数据取自网络的时间；0 表示未知（如来自旧版的快照）。 */
+        public final long fetchedAt;
+        /** 来自过期缓存，后台正在刷新。 */
+        public final boolean stale;
 
         public WeatherInfo(@NonNull String city, @NonNull String temp, @NonNull String desc, @NonNull String aqi) {
+            this(city, temp, desc, aqi, 0L, false);
+        }
+
+        public WeatherInfo(@NonNull String city, @NonNull String temp, @NonNull String desc, @NonNull String aqi, long fetchedAt, boolean stale) {
             this.city = city;
             this.temp = temp;
             this.desc = desc;
             this.aqi = aqi;
+            this.fetchedAt = fetchedAt;
+            this.stale = stale;
+        }
+
+        /**
+         * 过期缓存是否仍在后台刷新任务的周期内（最长 {@link WeatherRefreshScheduler#MAX_INTERVAL_MS}）：
+         * 任务按自己的节奏刷新，这样的数据界面上照常显示，不必转圈等网络。
+         */
+        public boolean isRecent(long now) {
+            return fetchedAt > 0 && now - fetchedAt < WeatherRefreshScheduler.MAX_INTERVAL_MS;
+        }
+
+        /** 同样的天气换一个显示用的城市名（定位时用逆地理编码得到的名字）。 */
+        WeatherInfo withCity(@NonNull String city) {
+            return new WeatherInfo(city, temp, desc, aqi, fetchedAt, stale);
         }
     }
 
@@ -42,65 +80,82 @@ public class WeatherRepository {
         void onError(String message);
     }
 
-    private final AMapGeoApi geoApi = RetrofitProvider.amap().create(AMapGeoApi.class);
-    private final AMapWeatherApi weatherApi = RetrofitProvider.amap().create(AMapWeatherApi.class);
-
-    private static final class CityOption {
-        final String name;
-        final String adcode;
+    private final ReverseGeocoder geocoder;
+    private final CityIndex cityIndex;
+    private final HedgedWeatherFetcher fetcher = new HedgedWeatherFetcher();
+    private final WeatherCacheDao cacheDao;
+    private final ExecutorService ioExecutor;
+    // 内存里的一层，避免每次都查库；与表内容一致
+    private final Map<String, WeatherCacheEntity> memoryCache = new HashMap<>();
+    // 城市参数 → 等待同一个网络请求结果的回调
+    private final Map<String, List<WeatherCallback>> inFlight = new HashMap<>();
 
-        CityOption(String name, String adcode) {
-            this.name = name;
-            this.adcode = adcode;
-        }
+    WeatherRepository(Context context, AppExecutors executors) {
+        this.cacheDao = DatabaseProvider.get(context).weatherCacheDao();
+        this.geocoder = new ReverseGeocoder(context, executors);
+        this.cityIndex = new CityIndex(context);
+        this.ioExecutor = executors.io();
     }
 
-    private static final List<CityOption> CITY_OPTIONS = Arrays.asList(
-            new CityOption("北京", "110000"),
-            new CityOption("上海", "310000"),
-            new CityOption("广州", "440100"),
-            new CityOption("深圳", "440300"),
-            new CityOption("杭州", "330100"),
-            new CityOption("成都", "510100")
-    );
+    /** 输入框为空时下拉框里列出的城市。 */
+    private static final List<String> DEFAULT_CITIES = Arrays.asList("北京", "上海", "广州", "深圳", "杭州", "成都");
 
     public List<String> getCities() {
-        List<String> result = new ArrayList<>(CITY_OPTIONS.size());
-        for (CityOption option : CITY_OPTIONS) {
-            result.add(option.name);
+        return new ArrayList<>(DEFAULT_CITIES);
+    }
+
+    /**
+     * 城市下拉框联想（中文名、全拼、拼音首字母，允许少量输错），返回城市名。第一次调用会加载索引，请在后台线程调用。
+     */
+    public List<String> searchCities(String query, int limit) {
+        List<CityIndex.City> cities = cityIndex.search(query, limit);
+        List<String> result = new ArrayList<>(cities.size());
+        for (CityIndex.City city : cities) {
+            result.add(city.name);
         }
         return result;
     }
 
+    /**
+     * 城市名先在本地索引里解析成 adcode（io 线程），索引里没有的才把名字原样交给数据源。
+     */
     public void fetchWeatherByCity(String city, String key, WeatherCallback callback) {
+        fetchWeatherByCity(city, key, true, callback);
+    }
+
+    /**
+     * 后台刷新用（见 {@link WeatherRefreshJobService}）：缓存新鲜时直接返回，否则请求网络并写回 weather_cache；
+     * 不返回过期值，回调只有一次。
+     */
+    void refreshCity(String city, String key, WeatherCallback callback) {
+        fetchWeatherByCity(city, key, false, callback);
+    }
+
+    private void fetchWeatherByCity(String city, String key, boolean serveStale, WeatherCallback callback) {
         String q = safe(city);
         if (q.isEmpty() || "当前位置".equals(q)) {
             q = "杭州";
         }
-        fetchWeatherByCityParam(toCityParam(q), key, callback);
+        String input = q;
+        ioExecutor.execute(() -> {
+            CityIndex.City match = resolveCity(input);
+            String cityParam = match == null ? normalizeCityName(input) : match.adcode;
+            String name = match == null ? normalizeCityName(input) : match.name;
+            fetchWeatherByCityParam(new WeatherProviders.Query(cityParam, name, Double.NaN, Double.NaN, key), serveStale, callback);
+        });
     }
 
+    /**
+     * 定位天气：坐标先经 {@link ReverseGeocoder} 解析成 adcode（缓存 / 离线索引 / 逆地理编码），再按城市查询。
+     */
     public void fetchWeatherByLocation(String cityNameHint, double lat, double lon, String key, WeatherCallback callback) {
-        String location = lon + "," + lat;
-        geoApi.regeo(key, location, "base", 1000).enqueue(new Callback<AMapRegeoResponse>() {
+        geocoder.resolve(lat, lon, key, new ReverseGeocoder.Callback() {
             @Override
-            public void onResponse(@NonNull Call<AMapRegeoResponse> call, @NonNull Response<AMapRegeoResponse> response) {
-                AMapRegeoResponse body = response.body();
-                if (!response.isSuccessful() || body == null || !"1".equals(body.status) || body.regeocode == null || body.regeocode.addressComponent == null) {
-                    fetchWeatherByCity(cityNameHint, key, callback);
-                    return;
-                }
-                AMapRegeoResponse.AddressComponent ac = body.regeocode.addressComponent;
-                String cityName = extractCityName(ac);
-                String adcode = safe(ac.adcode);
-                if (adcode.isEmpty()) {
-                    fetchWeatherByCity(cityName, key, callback);
-                    return;
-                }
-                fetchWeatherByCityParam(adcode, key, new WeatherCallback() {
+            public void onResolved(@NonNull String adcode, @NonNull String cityName) {
+                fetchWeatherByCityParam(new WeatherProviders.Query(adcode, cityName, lat, lon, key), true, new WeatherCallback() {
                     @Override
                     public void onSuccess(WeatherInfo info) {
-                        callback.onSuccess(new WeatherInfo(cityName, info.temp, info.desc, info.aqi));
+                        callback.onSuccess(info.withCity(cityName));
                     }
 
                     @Override
@@ -111,118 +166,148 @@ public class WeatherRepository {
             }
 
             @Override
-            public void onFailure(@NonNull Call<AMapRegeoResponse> call, @NonNull Throwable t) {
+            public void onFailed() {
                 fetchWeatherByCity(cityNameHint, key, callback);
             }
         });
     }
 
-    private void fetchWeatherByCityParam(String cityParam, String key, WeatherCallback callback) {
-        weatherApi.weatherInfo(key, cityParam, "base").enqueue(new Callback<AMapWeatherResponse>() {
+    /**
+     * 先查缓存（io 线程）：新鲜的直接返回；过期的先返回旧值（serveStale 时）再刷新；没有缓存时等网络结果。
+     */
+    private void fetchWeatherByCityParam(WeatherProviders.Query query, boolean serveStale, WeatherCallback callback) {
+        ioExecutor.execute(() -> {
+            WeatherCacheEntity cached = loadCached(query.cityParam);
+            long age = cached == null ? Long.MAX_VALUE : System.currentTimeMillis() - cached.fetchedAt;
+            if (cached != null && age >= 0 && age < FRESH_TTL_MS) {
+                callback.onSuccess(toInfo(cached, false));
+                return;
+            }
+            if (serveStale && cached != null && age >= 0 && age < MAX_STALE_MS) {
+                callback.onSuccess(toInfo(cached, true));
+            }
+            refresh(query, callback);
+        });
+    }
+
+    /**
+     * 请求网络；同一城市已有请求在路上时只登记回调，不再发请求。
+     */
+    private void refresh(WeatherProviders.Query query, WeatherCallback callback) {
+        String cityParam = query.cityParam;
+        synchronized (inFlight) {
+            List<WeatherCallback> waiting = inFlight.get(cityParam);
+            if (waiting != null) {
+                waiting.add(callback);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(callback);
+            inFlight.put(cityParam, waiting);
+        }
+        requestWeather(query, new WeatherCallback() {
             @Override
-            public void onResponse(@NonNull Call<AMapWeatherResponse> call, @NonNull Response<AMapWeatherResponse> response) {
-                AMapWeatherResponse body = response.body();
-                if (!response.isSuccessful() || body == null) {
-                    callback.onError("天气获取失败（HTTP " + response.code() + "）");
-                    return;
-                }
-                if (!"1".equals(body.status)) {
-                    String msg = safe(body.info);
-                    String code = safe(body.infoCode);
-                    callback.onError("天气获取失败" + (msg.isEmpty() ? "" : ("：" + msg)) + (code.isEmpty() ? "" : ("（" + code + "）")));
-                    return;
-                }
-                if (body.lives == null || body.lives.isEmpty()) {
-                    String count = safe(body.count);
-                    callback.onError("天气获取失败：无数据（city=" + safe(cityParam) + (count.isEmpty() ? "" : (", count=" + count)) + "）");
-                    return;
-                }
-                AMapWeatherResponse.Live live = body.lives.get(0);
-                String cityName = safeCity(live.city);
-                String temp = safe(live.temperature);
-                if (temp.isEmpty()) {
-                    temp = "--";
+            public void onSuccess(WeatherInfo info) {
+                ioExecutor.execute(() -> store(cityParam, info));
+                for (WeatherCallback waiter : takeWaiters(cityParam)) {
+                    waiter.onSuccess(info);
                 }
-                String desc = safe(live.weather);
-                if (desc.isEmpty()) {
-                    desc = "天气";
-                }
-                callback.onSuccess(new WeatherInfo(cityName, temp + "℃", desc, buildExtra(live)));
             }
 
             @Override
-            public void onFailure(@NonNull Call<AMapWeatherResponse> call, @NonNull Throwable t) {
-                callback.onError("天气获取失败：" + t.getMessage());
+            public void onError(String message) {
+                for (WeatherCallback waiter : takeWaiters(cityParam)) {
+                    waiter.onError(message);
+                }
             }
         });
     }
 
-    private String buildExtra(AMapWeatherResponse.Live live) {
-        String humidity = safe(live.humidity);
-        String windDir = safe(live.windDirection);
-        String windPower = safe(live.windPower);
-        StringBuilder sb = new StringBuilder("空气质量 --");
-        if (!humidity.isEmpty()) {
-            sb.append(" · 湿度 ").append(humidity).append("%");
+    private List<WeatherCallback> takeWaiters(String cityParam) {
+        synchronized (inFlight) {
+            List<WeatherCallback> waiting = inFlight.remove(cityParam);
+            return waiting == null ? new ArrayList<>() : waiting;
         }
-        if (!windDir.isEmpty() || !windPower.isEmpty()) {
-            sb.append(" · ");
-            if (!windDir.isEmpty()) {
-                sb.append(windDir);
+    }
+
+    /** io 线程调用。 */
+    private WeatherCacheEntity loadCached(String cityParam) {
+        synchronized (memoryCache) {
+            WeatherCacheEntity entry = memoryCache.get(cityParam);
+            if (entry != null) {
+                return entry;
             }
-            if (!windPower.isEmpty()) {
-                sb.append(" ").append(windPower).append("级");
+        }
+        WeatherCacheEntity entry = cacheDao.get(cityParam);
+        if (entry != null) {
+            synchronized (memoryCache) {
+                memoryCache.put(cityParam, entry);
             }
         }
-        return sb.toString();
+        return entry;
     }
 
-    private String extractCityName(AMapRegeoResponse.AddressComponent ac) {
-        if (ac == null) {
-            return "当前位置";
+    /** io 线程调用。 */
+    private void store(String cityParam, WeatherInfo info) {
+        WeatherCacheEntity entry = new WeatherCacheEntity(cityParam, info.city, info.temp, info.desc, info.aqi, info.fetchedAt);
+        synchronized (memoryCache) {
+            memoryCache.put(cityParam, entry);
         }
-        String city = "";
-        try {
-            if (ac.city != null) {
-                if (ac.city.isJsonPrimitive()) {
-                    city = safe(ac.city.getAsString());
-                } else if (ac.city.isJsonArray() && ac.city.getAsJsonArray().size() > 0) {
-                    city = safe(ac.city.getAsJsonArray().get(0).getAsString());
-                }
+        cacheDao.upsert(entry);
+        cacheDao.deleteOlderThan(info.fetchedAt - RETAIN_MS);
+    }
+
+    private static WeatherInfo toInfo(WeatherCacheEntity entry, boolean stale) {
+        return new WeatherInfo(entry.city, entry.temp, entry.desc, entry.aqi, entry.fetchedAt, stale);
+    }
+
+    /**
+     * 交给 {@link HedgedWeatherFetcher} 在高德/和风/Open-Meteo 之间对冲请求，空气质量取先返回的那个数据源。
+     */
+    private void requestWeather(WeatherProviders.Query query, WeatherCallback callback) {
+        fetcher.fetch(query, new HedgedWeatherFetcher.Callback() {
+            @Override
+            public void onSuccess(WeatherProviders.Weather weather, WeatherProviders.Air air) {
+                String cityName = safeCity(weather.city.isEmpty() ? query.cityName : weather.city);
+                String temp = weather.temp.isEmpty() ? "--" : weather.temp;
+                String desc = weather.desc.isEmpty() ? "天气" : weather.desc;
+                callback.onSuccess(new WeatherInfo(cityName, temp + "℃", desc, buildExtra(weather, air), System.currentTimeMillis(), false));
             }
-        } catch (Exception ignored) {
-        }
-        if (city.isEmpty()) {
-            city = safe(ac.district);
-        }
-        if (city.isEmpty()) {
-            city = safe(ac.province);
+
+            @Override
+            public void onError(String message) {
+                callback.onError(message);
+            }
+        });
+    }
+
+    private String buildExtra(WeatherProviders.Weather weather, WeatherProviders.Air air) {
+        StringBuilder sb = new StringBuilder("空气质量 ").append(air == null ? "--" : air.label());
+        if (!weather.humidity.isEmpty()) {
+            sb.append(" · 湿度 ").append(weather.humidity).append("%");
         }
-        if (city.isEmpty()) {
-            city = "当前位置";
+        if (!weather.windDir.isEmpty() || !weather.windLevel.isEmpty()) {
+            sb.append(" · ");
+            if (!weather.windDir.isEmpty()) {
+                sb.append(weather.windDir);
+            }
+            if (!weather.windLevel.isEmpty()) {
+                sb.append(" ").append(weather.windLevel).append("级");
+            }
         }
-        return city.replace("市", "").trim();
+        return sb.toString();
     }
 
     private String safe(String s) {
         return s == null ? "" : s.trim();
     }
 
-    private String toCityParam(String city) {
+    private CityIndex.City resolveCity(String city) {
         String c = normalizeCityName(city);
         if (c.isEmpty()) {
-            return c;
-        }
-        // adcode is numeric; keep as-is
-        if (c.matches("^\\d+$")) {
-            return c;
-        }
-        for (CityOption option : CITY_OPTIONS) {
-            if (option.name.equals(c)) {
-                return option.adcode;
-            }
+            return null;
         }
-        return c;
+        return c.matches("^\\d+$") ? cityIndex.byAdcode(c) : cityIndex.resolve(c);
     }
 
     private String normalizeCityName(String city) {
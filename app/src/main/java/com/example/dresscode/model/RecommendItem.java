@@ -11,6 +11,11 @@ public class RecommendItem {
     @Nullable
     public final String imageUri;
     public final int imageResId;
+    /**
+     * 点开大图时使用的图片；为空时沿用 imageUri（列表卡片用的是缩略图）。
+     */
+    @Nullable
+    public final String previewUri;
 
     public RecommendItem(@NonNull String title, @NonNull String meta) {
         this(title, meta, null, 0);
@@ -21,9 +26,14 @@ public class RecommendItem {
     }
 
     public RecommendItem(@NonNull String title, @NonNull String meta, @Nullable String imageUri, int imageResId) {
+        this(title, meta, imageUri, imageResId, null);
+    }
+
+    public RecommendItem(@NonNull String title, @NonNull String meta, @Nullable String imageUri, int imageResId, @Nullable String previewUri) {
         this.title = title;
         this.meta = meta;
         this.imageUri = imageUri;
         this.imageResId = imageResId;
+        this.previewUri = previewUri;
     }
 }
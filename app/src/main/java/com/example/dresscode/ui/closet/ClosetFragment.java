@@ -20,17 +20,18 @@ import com.example.dresscode.data.prefs.AuthRepository;
 import com.example.dresscode.R;
 import com.example.dresscode.data.local.ClosetItemEntity;
 import com.example.dresscode.data.repository.AiTagRepository;
+import com.example.dresscode.data.repository.ClosetRenditions;
+import com.example.dresscode.data.repository.Repositories;
 import com.example.dresscode.databinding.DialogAddClothingBinding;
 import com.example.dresscode.databinding.FragmentClosetBinding;
 import com.example.dresscode.ui.closet.adapter.ClosetAdapter;
+import com.example.dresscode.ui.image.ImageLoader;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.InputStream;
 import java.util.Locale;
 
 public class ClosetFragment extends Fragment {
@@ -97,16 +98,20 @@ public class ClosetFragment extends Fragment {
                     if (uri == null) {
                         return;
                     }
-                    File copied = copyToAppStorage(uri);
-                    if (copied == null) {
-                        new MaterialAlertDialogBuilder(requireContext())
-                                .setMessage(R.string.error_image_import_failed)
-                                .setPositiveButton(android.R.string.ok, null)
-                                .show();
-                        return;
-                    }
-                    Uri copiedUri = Uri.fromFile(copied);
-                    showAddItemDialog(copied, copiedUri);
+                    // 按内容存进本地图片库，重复导入同一张图只存一份（复制和算哈希在 image 线程）
+                    Repositories.get(requireContext()).media().importUriAsync(uri, copied -> {
+                        if (!isAdded()) {
+                            return;
+                        }
+                        if (copied == null) {
+                            new MaterialAlertDialogBuilder(requireContext())
+                                    .setMessage(R.string.error_image_import_failed)
+                                    .setPositiveButton(android.R.string.ok, null)
+                                    .show();
+                            return;
+                        }
+                        showAddItemDialog(copied, Uri.fromFile(copied));
+                    });
                 }
         );
 
@@ -159,7 +164,7 @@ public class ClosetFragment extends Fragment {
     private void showAddItemDialog(File imageFile, Uri imageUri) {
         DialogAddClothingBinding dialogBinding = DialogAddClothingBinding.inflate(getLayoutInflater());
         Uri previewUri = imageFile != null ? Uri.fromFile(imageFile) : imageUri;
-        dialogBinding.imagePreview.setImageURI(previewUri);
+        ImageLoader.get(requireContext()).load(dialogBinding.imagePreview, previewUri == null ? null : previewUri.toString());
 
         String[] categories = getResources().getStringArray(R.array.closet_categories);
         dialogBinding.inputCategory.setAdapter(new ArrayAdapter<>(
@@ -173,9 +178,11 @@ public class ClosetFragment extends Fragment {
                 .setTitle(R.string.title_add_clothing)
                 .setView(dialogBinding.getRoot())
                 .setNegativeButton(android.R.string.cancel, (d, w) -> {
-                    safeDeleteFile(imageFile);
                     if (pendingImageFile != null && pendingImageFile.equals(imageFile)) {
                         cleanupPendingImage();
+                    } else {
+                        // 从相册导入的图可能与已有衣物共用同一个文件，不直接删，交给 GC
+                        Repositories.get(requireContext()).media().requestGc();
                     }
                 })
                 .setPositiveButton(R.string.action_save, (d, w) -> {
@@ -215,12 +222,11 @@ public class ClosetFragment extends Fragment {
                         category = getString(R.string.default_category);
                     }
 
-                    String storedUri = imageFile != null ? Uri.fromFile(imageFile).toString() : imageUri.toString();
                     ClosetItemEntity item = new ClosetItemEntity(
                             owner,
                             name,
                             category,
-                            storedUri,
+                            imageUri.toString(),
                             color,
                             season,
                             style,
@@ -228,7 +234,15 @@ public class ClosetFragment extends Fragment {
                             false,
                             System.currentTimeMillis()
                     );
-                    viewModel.add(item);
+                    if (imageFile != null) {
+                        // 拍照的临时文件也按内容收进本地图片库（与已有图片相同时复用已有文件），哈希在 image 线程上算
+                        Repositories.get(requireContext()).media().adoptAsync(imageFile, storedFile -> {
+                            item.imageUri = Uri.fromFile(storedFile).toString();
+                            viewModel.add(item);
+                        });
+                    } else {
+                        viewModel.add(item);
+                    }
                     if (pendingImageFile != null && pendingImageFile.equals(imageFile)) {
                         pendingImageFile = null;
                         pendingImageUri = null;
@@ -554,11 +568,7 @@ public class ClosetFragment extends Fragment {
 
     private void showEditItemDialog(ClosetItemEntity item) {
         DialogAddClothingBinding dialogBinding = DialogAddClothingBinding.inflate(getLayoutInflater());
-        try {
-            dialogBinding.imagePreview.setImageURI(Uri.parse(item.imageUri));
-        } catch (Exception e) {
-            dialogBinding.imagePreview.setImageURI(null);
-        }
+        ImageLoader.get(requireContext()).load(dialogBinding.imagePreview, ClosetRenditions.forPreview(item));
 
         dialogBinding.inputName.setText(item.name);
 
@@ -619,30 +629,6 @@ public class ClosetFragment extends Fragment {
         return new File(dir, filename);
     }
 
-    private File copyToAppStorage(Uri source) {
-        File dest = createImageFile();
-        if (dest == null) {
-            return null;
-        }
-        try (InputStream in = requireContext().getContentResolver().openInputStream(source);
-             FileOutputStream out = new FileOutputStream(dest)) {
-            if (in == null) {
-                safeDeleteFile(dest);
-                return null;
-            }
-            byte[] buffer = new byte[8 * 1024];
-            int read;
-            while ((read = in.read(buffer)) != -1) {
-                out.write(buffer, 0, read);
-            }
-            out.flush();
-            return dest;
-        } catch (Exception e) {
-            safeDeleteFile(dest);
-            return null;
-        }
-    }
-
     private void cleanupPendingImage() {
         if (pendingImageFile != null) {
             safeDeleteFile(pendingImageFile);
@@ -9,6 +9,7 @@ import androidx.lifecycle.LiveData;
 import com.example.dresscode.data.prefs.AuthRepository;
 import com.example.dresscode.data.local.ClosetItemEntity;
 import com.example.dresscode.data.repository.ClosetRepository;
+import com.example.dresscode.data.repository.Repositories;
 
 import java.util.List;
 
@@ -21,7 +22,7 @@ public class ClosetViewModel extends AndroidViewModel {
     public ClosetViewModel(@NonNull Application application) {
         super(application);
         String owner = new AuthRepository(application).getCurrentUsernameOrEmpty();
-        repository = new ClosetRepository(application, owner);
+        repository = Repositories.get(application).closet(owner);
         closetItems = repository.observeAll();
         favoriteClosetItems = repository.observeFavorites();
     }
@@ -1,6 +1,5 @@
 package com.example.dresscode.ui.closet.adapter;
 
-import android.net.Uri;
 import android.view.LayoutInflater;
 import android.view.ViewGroup;
 
@@ -8,7 +7,9 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.dresscode.data.local.ClosetItemEntity;
+import com.example.dresscode.data.repository.ClosetRenditions;
 import com.example.dresscode.databinding.ItemClosetClothingBinding;
+import com.example.dresscode.ui.image.ImageLoader;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -63,13 +64,7 @@ public class ClosetAdapter extends RecyclerView.Adapter<ClosetAdapter.ViewHolder
             }
             return false;
         });
-        try {
-            Uri uri = Uri.parse(item.imageUri);
-            holder.binding.imageClothing.setImageURI(null);
-            holder.binding.imageClothing.setImageURI(uri);
-        } catch (Exception e) {
-            holder.binding.imageClothing.setImageURI(null);
-        }
+        ImageLoader.get(holder.itemView.getContext()).load(holder.binding.imageClothing, ClosetRenditions.forGrid(item));
 
         holder.binding.btnFavorite.setImageResource(
                 item.isFavorite ? android.R.drawable.btn_star_big_on : android.R.drawable.btn_star_big_off
@@ -87,6 +82,12 @@ public class ClosetAdapter extends RecyclerView.Adapter<ClosetAdapter.ViewHolder
         });
     }
 
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        super.onViewRecycled(holder);
+        ImageLoader.get(holder.itemView.getContext()).cancel(holder.binding.imageClothing);
+    }
+
     @Override
     public int getItemCount() {
         return data.size();
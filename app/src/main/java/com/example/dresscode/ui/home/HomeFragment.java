@@ -35,7 +35,7 @@ public class HomeFragment extends Fragment {
                 return;
             }
             com.example.dresscode.ui.preview.ImagePreviewBottomSheet
-                    .newInstance(item.title, item.meta, item.imageResId, item.imageUri)
+                    .newInstance(item.title, item.meta, item.imageResId, item.previewUri != null ? item.previewUri : item.imageUri)
                     .show(getParentFragmentManager(), "image_preview");
         });
         binding.recyclerRecommend.setAdapter(adapter);
@@ -1,6 +1,8 @@
 package com.example.dresscode.ui.home;
 
 import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
@@ -12,12 +14,17 @@ import com.example.dresscode.data.local.ClosetItemEntity;
 import com.example.dresscode.data.prefs.AuthRepository;
 import com.example.dresscode.data.prefs.UserPreferencesRepository;
 import com.example.dresscode.data.prefs.WeatherPreferencesRepository;
+import com.example.dresscode.data.repository.ClosetRecommender;
+import com.example.dresscode.data.repository.OutfitCombiner;
+import com.example.dresscode.data.repository.ClosetRenditions;
 import com.example.dresscode.data.repository.ClosetRepository;
 import com.example.dresscode.data.repository.AiRecommendRepository;
+import com.example.dresscode.data.repository.Repositories;
 import com.example.dresscode.data.remote.AiRecommendResponse;
 import com.example.dresscode.model.RecommendItem;
 
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.List;
 
 public class HomeViewModel extends AndroidViewModel {
@@ -28,6 +35,8 @@ public class HomeViewModel extends AndroidViewModel {
     private final UserPreferencesRepository userPrefs;
     private final WeatherPreferencesRepository weatherPrefs;
     private final AiRecommendRepository aiRecommendRepository;
+    private final ClosetRecommender recommender;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     private List<ClosetItemEntity> closetItems = new ArrayList<>();
     private String gender = "";
@@ -35,18 +44,22 @@ public class HomeViewModel extends AndroidViewModel {
 
     private long lastAiRecommendAt = 0;
     private int aiSeq = 0;
+    // 本地推荐的序号：AI 结果到了之后，晚到的本地结果不再覆盖
+    private int localSeq = 0;
     private String lastAiRequestKey = "";
 
     public HomeViewModel(@NonNull Application application) {
         super(application);
         String owner = new AuthRepository(application).getCurrentUsernameOrEmpty();
-        ClosetRepository repository = new ClosetRepository(application, owner);
+        ClosetRepository repository = Repositories.get(application).closet(owner);
+        recommender = Repositories.get(application).recommender(owner);
         userPrefs = new UserPreferencesRepository(application);
         weatherPrefs = new WeatherPreferencesRepository(application);
         aiRecommendRepository = new AiRecommendRepository(application);
 
         recommendations.addSource(repository.observeAll(), items -> {
             closetItems = items == null ? new ArrayList<>() : items;
+            recommender.submitCloset(closetItems);
             update();
         });
         recommendations.addSource(userPrefs.observeGender(), g -> {
@@ -69,8 +82,19 @@ public class HomeViewModel extends AndroidViewModel {
     }
 
     private void update() {
-        List<RecommendItem> local = buildRecommendations(closetItems, gender, weatherSnapshot);
-        recommendations.setValue(local);
+        // 挑选在 compute 线程上做，结果回来前保留上一次的推荐
+        WeatherPreferencesRepository.Snapshot snapshot = weatherSnapshot;
+        String g = gender;
+        String temp = snapshot.temp == null || snapshot.temp.trim().isEmpty() ? "--℃" : snapshot.temp.trim();
+        String desc = snapshot.desc == null || snapshot.desc.trim().isEmpty() ? "天气" : snapshot.desc.trim();
+        String seasonHint = seasonFromTemp(temp);
+        ClosetRecommender.Conditions conditions = new ClosetRecommender.Conditions(
+                seasonHint, parseTempOrUnknown(temp), desc, Calendar.getInstance());
+        int seq = ++localSeq;
+        recommender.recommend(conditions, picks -> {
+            List<RecommendItem> local = buildRecommendations(picks, g, snapshot);
+            postLocalRecommendations(seq, local);
+        });
         // tips 卡片优先显示“本地可用”的内容，联网成功后再覆盖
         if (tipsText.getValue() == null || tipsText.getValue().trim().isEmpty()) {
             tipsText.setValue(getApplication().getString(R.string.tips_content_sample));
@@ -78,7 +102,16 @@ public class HomeViewModel extends AndroidViewModel {
         requestAiRecommendIfNeeded();
     }
 
-    private List<RecommendItem> buildRecommendations(List<ClosetItemEntity> closetItems, String gender, WeatherPreferencesRepository.Snapshot snapshot) {
+    private void postLocalRecommendations(int seq, List<RecommendItem> items) {
+        // 回到主线程再比较序号，避免与 applyAiResult 交错
+        mainHandler.post(() -> {
+            if (seq == localSeq) {
+                recommendations.setValue(items);
+            }
+        });
+    }
+
+    private List<RecommendItem> buildRecommendations(ClosetRecommender.Picks picks, String gender, WeatherPreferencesRepository.Snapshot snapshot) {
         List<RecommendItem> result = new ArrayList<>();
         String city = snapshot.city == null || snapshot.city.trim().isEmpty() ? "杭州" : snapshot.city.trim();
         String temp = snapshot.temp == null || snapshot.temp.trim().isEmpty() ? "--℃" : snapshot.temp.trim();
@@ -86,7 +119,7 @@ public class HomeViewModel extends AndroidViewModel {
         String genderLabel = genderLabel(gender);
         String weatherMeta = city + " " + temp + " · " + desc + " · " + genderLabel;
 
-        if (closetItems == null || closetItems.isEmpty()) {
+        if (picks.closetSize == 0 || picks.any == null) {
             result.add(new RecommendItem(
                     getApplication().getString(R.string.title_recommend_today),
                     getApplication().getString(R.string.placeholder_recommend_empty),
@@ -100,18 +133,57 @@ public class HomeViewModel extends AndroidViewModel {
         boolean rainy = desc.contains("雨");
         boolean cold = parseTemp(temp) <= 10;
 
-        ClosetItemEntity dress = pickFirstPreferSeason(closetItems, "连衣裙", seasonHint);
-        ClosetItemEntity top = pickFirstPreferSeason(closetItems, "上衣", seasonHint);
-        ClosetItemEntity bottom = pickFirstPreferSeason(closetItems, "下装", seasonHint);
-        ClosetItemEntity outer = pickFirstPreferSeason(closetItems, "外套", seasonHint);
-        ClosetItemEntity shoes = pickFirstPreferSeason(closetItems, "鞋子", seasonHint);
+        ClosetItemEntity dress = picks.dress;
+        ClosetItemEntity top = picks.top;
+        ClosetItemEntity bottom = picks.bottom;
+        ClosetItemEntity outer = picks.outer;
+        ClosetItemEntity shoes = picks.shoes;
+
+        // 整套搭配优先；衣橱凑不出一套（比如只有上衣）时退回单品推荐
+        boolean outerInOutfit = false;
+        for (OutfitCombiner.Outfit outfit : picks.outfits) {
+            if (outfit.items.isEmpty()) {
+                continue;
+            }
+            StringBuilder names = new StringBuilder();
+            for (ClosetItemEntity item : outfit.items) {
+                if (names.length() > 0) {
+                    names.append(" + ");
+                }
+                names.append(item.name);
+                if (result.isEmpty() && outer != null && item.id == outer.id) {
+                    outerInOutfit = true;
+                }
+            }
+            ClosetItemEntity cover = outfit.items.get(0);
+            result.add(new RecommendItem(
+                    "衣橱搭配：" + names,
+                    weatherMeta + " · " + seasonHint + " · 来自你的衣橱",
+                    ClosetRenditions.forGrid(cover),
+                    0,
+                    ClosetRenditions.forPreview(cover)
+            ));
+        }
+        if (!result.isEmpty()) {
+            if (outer != null && !outerInOutfit && (cold || rainy)) {
+                result.add(new RecommendItem(
+                        (rainy ? "雨天外套：" : "叠穿推荐：") + outer.name,
+                        weatherMeta + " · " + seasonHint + " · 出门更稳",
+                        ClosetRenditions.forGrid(outer),
+                        0,
+                        ClosetRenditions.forPreview(outer)
+                ));
+            }
+            return result;
+        }
 
         if (dress != null) {
             result.add(new RecommendItem(
                     "衣橱推荐：" + dress.name,
                     weatherMeta + " · " + seasonHint + " · 来自你的衣橱",
-                    dress.imageUri,
-                    0
+                    ClosetRenditions.forGrid(dress),
+                    0,
+                    ClosetRenditions.forPreview(dress)
             ));
         }
 
@@ -119,8 +191,9 @@ public class HomeViewModel extends AndroidViewModel {
             result.add(new RecommendItem(
                     "衣橱推荐：" + top.name + " + " + bottom.name,
                     weatherMeta + " · " + seasonHint + " · 来自你的衣橱",
-                    top.imageUri,
-                    0
+                    ClosetRenditions.forGrid(top),
+                    0,
+                    ClosetRenditions.forPreview(top)
             ));
         }
 
@@ -128,23 +201,25 @@ public class HomeViewModel extends AndroidViewModel {
             result.add(new RecommendItem(
                     (rainy ? "雨天外套：" : "叠穿推荐：") + outer.name,
                     weatherMeta + " · " + seasonHint + " · 出门更稳",
-                    outer.imageUri,
-                    0
+                    ClosetRenditions.forGrid(outer),
+                    0,
+                    ClosetRenditions.forPreview(outer)
             ));
         }
 
         if (shoes != null && !result.isEmpty()) {
             RecommendItem first = result.get(0);
-            result.set(0, new RecommendItem(first.title, first.meta + " · 搭配 " + shoes.name, first.imageUri, first.imageResId));
+            result.set(0, new RecommendItem(first.title, first.meta + " · 搭配 " + shoes.name, first.imageUri, first.imageResId, first.previewUri));
         }
 
         if (result.isEmpty()) {
-            ClosetItemEntity any = closetItems.get(0);
+            ClosetItemEntity any = picks.any;
             result.add(new RecommendItem(
                     "衣橱推荐：" + any.name,
                     weatherMeta + " · " + seasonHint + " · 来自你的衣橱",
-                    any.imageUri,
-                    0
+                    ClosetRenditions.forGrid(any),
+                    0,
+                    ClosetRenditions.forPreview(any)
             ));
         }
 
@@ -195,9 +270,15 @@ public class HomeViewModel extends AndroidViewModel {
                 }
                 String cat = it.category == null ? "" : it.category.trim();
                 String reason = it.reason == null ? "" : it.reason.trim();
-                String imageUri = findFirstImageUriByCategory(cat);
+                ClosetItemEntity match = findFirstByCategory(cat);
                 String displayTitle = cat.isEmpty() ? "推荐单品" : ("推荐单品：" + cat);
-                items.add(new RecommendItem(displayTitle, reason.isEmpty() ? "来自后端推荐" : reason, imageUri));
+                items.add(new RecommendItem(
+                        displayTitle,
+                        reason.isEmpty() ? "来自后端推荐" : reason,
+                        ClosetRenditions.forGrid(match),
+                        0,
+                        ClosetRenditions.forPreview(match)
+                ));
             }
         }
 
@@ -205,11 +286,12 @@ public class HomeViewModel extends AndroidViewModel {
         if (items.isEmpty()) {
             return;
         }
+        localSeq++;
         recommendations.setValue(items);
         tipsText.setValue(formatTips(result));
     }
 
-    private String findFirstImageUriByCategory(String category) {
+    private ClosetItemEntity findFirstByCategory(String category) {
         if (category == null || category.trim().isEmpty() || closetItems == null) {
             return null;
         }
@@ -219,7 +301,7 @@ public class HomeViewModel extends AndroidViewModel {
                 continue;
             }
             if (c.equals(it.category)) {
-                return it.imageUri;
+                return it;
             }
         }
         return null;
@@ -311,22 +393,6 @@ public class HomeViewModel extends AndroidViewModel {
         return s == null ? "" : s.trim();
     }
 
-    private ClosetItemEntity pickFirstPreferSeason(List<ClosetItemEntity> items, String category, String seasonHint) {
-        ClosetItemEntity fallback = null;
-        for (ClosetItemEntity item : items) {
-            if (!category.equals(item.category)) {
-                continue;
-            }
-            if (fallback == null) {
-                fallback = item;
-            }
-            if (item.season != null && item.season.contains(seasonHint)) {
-                return item;
-            }
-        }
-        return fallback;
-    }
-
     private String genderLabel(String code) {
         if (UserPreferencesRepository.GENDER_MALE.equals(code)) {
             return "男";
@@ -348,6 +414,12 @@ public class HomeViewModel extends AndroidViewModel {
         return "春夏";
     }
 
+    /** 没有气温（“--℃”）时返回 {@link Integer#MIN_VALUE}，交给推荐引擎按“未知”处理。 */
+    private int parseTempOrUnknown(String temp) {
+        String digits = temp == null ? "" : temp.replaceAll("[^0-9-]", "");
+        return digits.isEmpty() || "-".equals(digits) ? Integer.MIN_VALUE : parseTemp(temp);
+    }
+
     private int parseTemp(String temp) {
         if (temp == null) {
             return 16;
@@ -8,6 +8,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.dresscode.model.RecommendItem;
 import com.example.dresscode.databinding.ItemHomeRecommendBinding;
+import com.example.dresscode.ui.image.ImageLoader;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -50,22 +51,22 @@ public class HomeRecommendAdapter extends RecyclerView.Adapter<HomeRecommendAdap
                 listener.onOpen(item);
             }
         });
+        ImageLoader loader = ImageLoader.get(holder.itemView.getContext());
         if (item.imageResId != 0) {
-            holder.binding.imageCover.setImageURI(null);
+            loader.cancel(holder.binding.imageCover);
             holder.binding.imageCover.setImageResource(item.imageResId);
             holder.binding.imageCover.setScaleType(android.widget.ImageView.ScaleType.CENTER_INSIDE);
-        } else if (item.imageUri != null && !item.imageUri.trim().isEmpty()) {
-            try {
-                holder.binding.imageCover.setImageURI(null);
-                holder.binding.imageCover.setImageURI(android.net.Uri.parse(item.imageUri));
-            } catch (Exception e) {
-                holder.binding.imageCover.setImageURI(null);
-            }
         } else {
-            holder.binding.imageCover.setImageURI(null);
+            loader.load(holder.binding.imageCover, item.imageUri);
         }
     }
 
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        super.onViewRecycled(holder);
+        ImageLoader.get(holder.itemView.getContext()).cancel(holder.binding.imageCover);
+    }
+
     @Override
     public int getItemCount() {
         return data.size();
@@ -0,0 +1,323 @@
+package com.example.dresscode.ui.image;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import androidx.annotation.MainThread;
+
+import com.example.dresscode.R;
+import com.example.dresscode.data.repository.AppExecutors;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 列表/预览图片加载：
+ * <ul>
+ *     <li>在 image 线程池解码，按目标 View 尺寸计算 inSampleSize，不把整张相机照片读进内存；</li>
+ *     <li>内存 LRU 按 Bitmap 字节数限制（最大堆的 1/8），磁盘缩略图缓存在 cacheDir/thumbs，键为 URI + 尺寸；</li>
+ *     <li>每个 ImageView 同时只有一个请求，重新绑定或 {@link #cancel(ImageView)} 会取消旧请求。</li>
+ * </ul>
+ * 只处理 content:// / file:// 等 URI；drawable 资源仍然直接 setImageResource。
+ */
+public final class ImageLoader {
+
+    private static final String THUMB_DIR = "thumbs";
+    private static final long DISK_CACHE_BYTES = 50L * 1024 * 1024;
+    private static final int TRIM_EVERY_WRITES = 16;
+    /** 目标尺寸按这个粒度向上取整，同一格子宽度的轻微差异共用缓存。 */
+    private static final int SIZE_STEP = 64;
+
+    private static volatile ImageLoader instance;
+
+    private final ContentResolver resolver;
+    private final File thumbDir;
+    private final ThreadPoolExecutor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<String, Bitmap> memoryCache;
+    private final int fallbackSize;
+    private int writesSinceTrim;
+
+    private ImageLoader(Context context) {
+        Context appContext = context.getApplicationContext();
+        this.resolver = appContext.getContentResolver();
+        this.thumbDir = new File(appContext.getCacheDir(), THUMB_DIR);
+        this.executor = AppExecutors.get().image();
+        int maxBytes = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8);
+        this.memoryCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+        // View 还没测量时，按半个屏幕宽度（两列网格）估算
+        this.fallbackSize = Math.max(SIZE_STEP, appContext.getResources().getDisplayMetrics().widthPixels / 2);
+    }
+
+    public static ImageLoader get(Context context) {
+        if (instance == null) {
+            synchronized (ImageLoader.class) {
+                if (instance == null) {
+                    instance = new ImageLoader(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 按 View 的尺寸加载；uri 为空或解析失败时清空图片。
+     */
+    @MainThread
+    public void load(ImageView view, String uri) {
+        load(view, uri, targetWidth(view), targetHeight(view));
+    }
+
+    @MainThread
+    public void load(ImageView view, String uri, int reqWidth, int reqHeight) {
+        cancel(view);
+        if (uri == null || uri.trim().isEmpty()) {
+            view.setImageDrawable(null);
+            return;
+        }
+        int width = roundUp(reqWidth);
+        int height = roundUp(reqHeight);
+        String key = uri.trim() + "#" + width + "x" + height;
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            view.setImageBitmap(cached);
+            return;
+        }
+        view.setImageDrawable(null);
+        Request request = new Request(view, uri.trim(), key, width, height);
+        view.setTag(R.id.image_loader_request, request);
+        executor.execute(request);
+    }
+
+    /**
+     * 取消 View 上未完成的请求（列表 onViewRecycled 时调用），已经显示的图片保持不变。
+     */
+    @MainThread
+    public void cancel(ImageView view) {
+        Object tag = view.getTag(R.id.image_loader_request);
+        if (tag instanceof Request) {
+            Request request = (Request) tag;
+            request.cancelled = true;
+            executor.remove(request);
+        }
+        view.setTag(R.id.image_loader_request, null);
+    }
+
+    @MainThread
+    public void clear(ImageView view) {
+        cancel(view);
+        view.setImageDrawable(null);
+    }
+
+    private int targetWidth(ImageView view) {
+        if (view.getWidth() > 0) {
+            return view.getWidth();
+        }
+        ViewGroup.LayoutParams lp = view.getLayoutParams();
+        return lp != null && lp.width > 0 ? lp.width : fallbackSize;
+    }
+
+    private int targetHeight(ImageView view) {
+        if (view.getHeight() > 0) {
+            return view.getHeight();
+        }
+        ViewGroup.LayoutParams lp = view.getLayoutParams();
+        return lp != null && lp.height > 0 ? lp.height : fallbackSize;
+    }
+
+    private static int roundUp(int size) {
+        int s = Math.max(1, size);
+        return ((s + SIZE_STEP - 1) / SIZE_STEP) * SIZE_STEP;
+    }
+
+    private Bitmap loadBitmap(Request request) {
+        File thumb = new File(thumbDir, diskKey(request));
+        if (thumb.isFile()) {
+            Bitmap bitmap = BitmapFactory.decodeFile(thumb.getAbsolutePath());
+            if (bitmap != null) {
+                //noinspection ResultOfMethodCallIgnored
+                thumb.setLastModified(System.currentTimeMillis());
+                return bitmap;
+            }
+        }
+        if (request.cancelled) {
+            return null;
+        }
+        Bitmap bitmap = decodeSampled(Uri.parse(request.uri), request.width, request.height);
+        if (bitmap != null && !request.cancelled) {
+            writeThumb(thumb, bitmap);
+        }
+        return bitmap;
+    }
+
+    private Bitmap decodeSampled(Uri uri, int reqWidth, int reqHeight) {
+        try {
+            BitmapFactory.Options bounds = new BitmapFactory.Options();
+            bounds.inJustDecodeBounds = true;
+            try (InputStream in = resolver.openInputStream(uri)) {
+                if (in == null) {
+                    return null;
+                }
+                BitmapFactory.decodeStream(in, null, bounds);
+            }
+            if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+                return null;
+            }
+            BitmapFactory.Options opts = new BitmapFactory.Options();
+            opts.inSampleSize = sampleSize(bounds.outWidth, bounds.outHeight, reqWidth, reqHeight);
+            try (InputStream in = resolver.openInputStream(uri)) {
+                return in == null ? null : BitmapFactory.decodeStream(in, null, opts);
+            }
+        } catch (Exception | OutOfMemoryError e) {
+            return null;
+        }
+    }
+
+    /**
+     * 最大的 2 的幂，使解码后的宽高仍都不小于目标尺寸（与官方 Loading Large Bitmaps 的算法一致）。
+     */
+    static int sampleSize(int width, int height, int reqWidth, int reqHeight) {
+        int sample = 1;
+        if (height > reqHeight || width > reqWidth) {
+            int halfHeight = height / 2;
+            int halfWidth = width / 2;
+            while (halfHeight / sample >= reqHeight && halfWidth / sample >= reqWidth) {
+                sample *= 2;
+            }
+        }
+        return sample;
+    }
+
+    private void writeThumb(File thumb, Bitmap bitmap) {
+        if (!thumbDir.exists() && !thumbDir.mkdirs()) {
+            return;
+        }
+        File tmp = new File(thumbDir, thumb.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            Bitmap.CompressFormat format = bitmap.hasAlpha() ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG;
+            bitmap.compress(format, 85, out);
+        } catch (Exception e) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(thumb)) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return;
+        }
+        boolean trim;
+        synchronized (this) {
+            trim = ++writesSinceTrim >= TRIM_EVERY_WRITES;
+            if (trim) {
+                writesSinceTrim = 0;
+            }
+        }
+        if (trim) {
+            trimDiskCache();
+        }
+    }
+
+    /**
+     * 超过上限时按最近使用时间（命中时会更新 lastModified）从旧到新删除。
+     */
+    private synchronized void trimDiskCache() {
+        File[] files = thumbDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File f : files) {
+            total += f.length();
+        }
+        if (total <= DISK_CACHE_BYTES) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File f : files) {
+            if (total <= DISK_CACHE_BYTES * 3 / 4) {
+                break;
+            }
+            long len = f.length();
+            if (f.delete()) {
+                total -= len;
+            }
+        }
+    }
+
+    /**
+     * 本地文件加上修改时间，原图被覆盖后不会读到旧缩略图。
+     */
+    private static String diskKey(Request request) {
+        String source = request.key;
+        Uri uri = Uri.parse(request.uri);
+        if ("file".equals(uri.getScheme()) && uri.getPath() != null) {
+            source = source + "@" + new File(uri.getPath()).lastModified();
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            return Integer.toHexString(source.hashCode());
+        }
+    }
+
+    private final class Request implements Runnable {
+        private final ImageView view;
+        private final String uri;
+        private final String key;
+        private final int width;
+        private final int height;
+        volatile boolean cancelled;
+
+        Request(ImageView view, String uri, String key, int width, int height) {
+            this.view = view;
+            this.uri = uri;
+            this.key = key;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            Bitmap bitmap = loadBitmap(this);
+            if (bitmap == null) {
+                return;
+            }
+            memoryCache.put(key, bitmap);
+            mainHandler.post(() -> {
+                if (cancelled || view.getTag(R.id.image_loader_request) != this) {
+                    return;
+                }
+                view.setTag(R.id.image_loader_request, null);
+                view.setImageBitmap(bitmap);
+            });
+        }
+    }
+}
@@ -13,7 +13,9 @@ import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.navigation.fragment.NavHostFragment;
 import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.dresscode.data.repository.OutfitFacetCounts;
 import com.example.dresscode.databinding.FragmentOutfitsBinding;
 import com.example.dresscode.ui.outfits.adapter.OutfitAdapter;
 import com.example.dresscode.ui.outfits.detail.OutfitDetailFragment;
@@ -21,9 +23,12 @@ import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 
 public class OutfitsFragment extends Fragment {
 
+    private static final int LOAD_MORE_THRESHOLD = 6;
+
     private FragmentOutfitsBinding binding;
     private OutfitsViewModel viewModel;
     private OutfitAdapter adapter;
+    private OutfitFacetCounts facetCounts;
 
     @Nullable
     @Override
@@ -44,8 +49,24 @@ public class OutfitsFragment extends Fragment {
                         .show(getParentFragmentManager(), "outfit_preview");
             }
         });
-        binding.outfitList.setLayoutManager(new GridLayoutManager(getContext(), 2));
+        GridLayoutManager layoutManager = new GridLayoutManager(getContext(), 2);
+        layoutManager.setSpanSizeLookup(new GridLayoutManager.SpanSizeLookup() {
+            @Override
+            public int getSpanSize(int position) {
+                return adapter.isFooter(position) ? layoutManager.getSpanCount() : 1;
+            }
+        });
+        binding.outfitList.setLayoutManager(layoutManager);
         binding.outfitList.setAdapter(adapter);
+        binding.outfitList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                // 距底部不足 LOAD_MORE_THRESHOLD 个卡片时预取下一页
+                if (dy > 0 && layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - LOAD_MORE_THRESHOLD) {
+                    viewModel.loadMore();
+                }
+            }
+        });
 
         binding.searchInput.addTextChangedListener(new TextWatcher() {
             @Override
@@ -66,34 +87,44 @@ public class OutfitsFragment extends Fragment {
         binding.chipStyle.setOnClickListener(v -> showSingleChoiceDialog(
                 binding.chipStyle.getText().toString(),
                 com.example.dresscode.R.array.filter_style_options,
+                OutfitFacetCounts::forStyle,
                 viewModel::setStyleFilter
         ));
         binding.chipSeason.setOnClickListener(v -> showSingleChoiceDialog(
                 binding.chipSeason.getText().toString(),
                 com.example.dresscode.R.array.filter_season_options,
+                OutfitFacetCounts::forSeason,
                 viewModel::setSeasonFilter
         ));
         binding.chipScene.setOnClickListener(v -> showSingleChoiceDialog(
                 binding.chipScene.getText().toString(),
                 com.example.dresscode.R.array.filter_scene_options,
+                OutfitFacetCounts::forScene,
                 viewModel::setSceneFilter
         ));
         binding.chipWeather.setOnClickListener(v -> showSingleChoiceDialog(
                 binding.chipWeather.getText().toString(),
                 com.example.dresscode.R.array.filter_weather_options,
+                OutfitFacetCounts::forWeather,
                 viewModel::setWeatherFilter
         ));
 
-        viewModel.getOutfits().observe(getViewLifecycleOwner(), items -> {
-            if (binding == null) {
+        viewModel.getFeedState().observe(getViewLifecycleOwner(), state -> {
+            if (binding == null || state == null) {
+                return;
+            }
+            boolean empty = state.items.isEmpty();
+            if (empty && state.loading) {
+                // 第一页还没回来：保持骨架屏
                 return;
             }
             binding.skeletonContainer.getRoot().setVisibility(View.GONE);
-            adapter.submitList(items);
-            boolean empty = items == null || items.isEmpty();
+            adapter.submitList(state.items, state.loading);
             binding.textEmpty.setVisibility(empty ? View.VISIBLE : View.GONE);
             binding.outfitList.setVisibility(empty ? View.GONE : View.VISIBLE);
         });
+        // 计数只在打开筛选弹窗时读取，这里保持订阅让它随列表一起刷新
+        viewModel.getFacetCounts().observe(getViewLifecycleOwner(), counts -> facetCounts = counts);
         viewModel.getChipGenderText().observe(getViewLifecycleOwner(), text -> binding.chipGender.setText(text));
         viewModel.getChipStyleText().observe(getViewLifecycleOwner(), text -> binding.chipStyle.setText(text));
         viewModel.getChipSeasonText().observe(getViewLifecycleOwner(), text -> binding.chipSeason.setText(text));
@@ -104,6 +135,12 @@ public class OutfitsFragment extends Fragment {
 
     private void showGenderDialog() {
         String[] items = getResources().getStringArray(com.example.dresscode.R.array.filter_gender_options);
+        if (facetCounts != null) {
+            // 第 0 项“跟随设置”取决于设置里的性别，不单独计数
+            items[1] = withCount(items[1], facetCounts.forGender(""));
+            items[2] = withCount(items[2], facetCounts.forGender("MALE"));
+            items[3] = withCount(items[3], facetCounts.forGender("FEMALE"));
+        }
         new MaterialAlertDialogBuilder(requireContext())
                 .setTitle(com.example.dresscode.R.string.filter_gender)
                 .setItems(items, (dialog, which) -> {
@@ -124,11 +161,21 @@ public class OutfitsFragment extends Fragment {
         void accept(String value);
     }
 
-    private void showSingleChoiceDialog(String title, int itemsRes, SelectionConsumer consumer) {
+    private interface FacetCounter {
+        int count(OutfitFacetCounts counts, String value);
+    }
+
+    private void showSingleChoiceDialog(String title, int itemsRes, FacetCounter counter, SelectionConsumer consumer) {
         String[] items = getResources().getStringArray(itemsRes);
+        String[] labels = items.clone();
+        if (facetCounts != null) {
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = withCount(items[i], counter.count(facetCounts, i == 0 ? "" : items[i]));
+            }
+        }
         new MaterialAlertDialogBuilder(requireContext())
                 .setTitle(title)
-                .setItems(items, (dialog, which) -> {
+                .setItems(labels, (dialog, which) -> {
                     String selected = items[which];
                     if (which == 0) {
                         consumer.accept("");
@@ -139,6 +186,10 @@ public class OutfitsFragment extends Fragment {
                 .show();
     }
 
+    private String withCount(String label, int count) {
+        return getString(com.example.dresscode.R.string.filter_option_with_count, label, count);
+    }
+
     @Override
     public void onDestroyView() {
         super.onDestroyView();
@@ -7,15 +7,15 @@ import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
-import androidx.lifecycle.Transformations;
+import androidx.lifecycle.Observer;
 
 import com.example.dresscode.R;
-import com.example.dresscode.data.local.OutfitCardRow;
 import com.example.dresscode.data.prefs.AuthRepository;
 import com.example.dresscode.data.prefs.UserPreferencesRepository;
+import com.example.dresscode.data.repository.OutfitFacetCounts;
+import com.example.dresscode.data.repository.OutfitFeed;
 import com.example.dresscode.data.repository.OutfitRepository;
-
-import java.util.List;
+import com.example.dresscode.data.repository.Repositories;
 
 public class OutfitsViewModel extends AndroidViewModel {
 
@@ -31,7 +31,8 @@ public class OutfitsViewModel extends AndroidViewModel {
 
     private final MediatorLiveData<Params> params = new MediatorLiveData<>();
 
-    private final LiveData<List<OutfitCardRow>> outfits;
+    private final OutfitFeed feed;
+    private final Observer<Params> paramsObserver;
 
     private final MutableLiveData<String> chipGenderText = new MutableLiveData<>();
     private final MutableLiveData<String> chipStyleText = new MutableLiveData<>();
@@ -42,10 +43,11 @@ public class OutfitsViewModel extends AndroidViewModel {
     public OutfitsViewModel(@NonNull Application application) {
         super(application);
         String owner = new AuthRepository(application).getCurrentUsernameOrEmpty();
-        repository = new OutfitRepository(application, owner);
+        repository = Repositories.get(application).outfits(owner);
         prefs = new UserPreferencesRepository(application);
 
         repository.ensureSeeded();
+        feed = repository.openFeed();
 
         params.addSource(query, ignored -> updateParams());
         params.addSource(genderOverride, ignored -> updateParams());
@@ -54,21 +56,33 @@ public class OutfitsViewModel extends AndroidViewModel {
         params.addSource(scene, ignored -> updateParams());
         params.addSource(weather, ignored -> updateParams());
         params.addSource(prefs.observeGender(), ignored -> updateParams());
+        // 筛选变化直接驱动分页数据源（重置页缓存并加载第一页）
+        paramsObserver = p -> feed.setFilter(p.query, p.gender, p.style, p.season, p.scene, p.weather);
+        params.observeForever(paramsObserver);
         updateParams();
-
-        outfits = Transformations.switchMap(params, p ->
-                repository.observeOutfits(p.query, p.gender, p.style, p.season, p.scene, p.weather)
-        );
     }
 
     @Override
     protected void onCleared() {
         super.onCleared();
+        params.removeObserver(paramsObserver);
+        feed.close();
         prefs.close();
     }
 
-    public LiveData<List<OutfitCardRow>> getOutfits() {
-        return outfits;
+    public LiveData<OutfitFeed.State> getFeedState() {
+        return feed.observeState();
+    }
+
+    /**
+     * 各筛选选项在当前条件下的结果数，供筛选弹窗展示；与列表同一次刷新产出。
+     */
+    public LiveData<OutfitFacetCounts> getFacetCounts() {
+        return feed.observeFacetCounts();
+    }
+
+    public void loadMore() {
+        feed.loadNextPage();
     }
 
     public void toggleFavorite(long outfitId, boolean shouldFavorite) {
@@ -4,47 +4,81 @@ import android.view.LayoutInflater;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.dresscode.data.local.OutfitCardRow;
 import com.example.dresscode.databinding.ItemOutfitCardBinding;
+import com.example.dresscode.databinding.ItemOutfitLoadingFooterBinding;
 import com.google.android.material.color.MaterialColors;
 
 import java.util.ArrayList;
 import java.util.List;
 
-public class OutfitAdapter extends RecyclerView.Adapter<OutfitAdapter.ViewHolder> {
+public class OutfitAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
     public interface Listener {
         void onToggleFavorite(OutfitCardRow item);
         void onOpenDetail(OutfitCardRow item);
     }
 
+    private static final int TYPE_ITEM = 0;
+    private static final int TYPE_FOOTER = 1;
+
     private final List<OutfitCardRow> data = new ArrayList<>();
     private final Listener listener;
+    private boolean showFooter = false;
 
     public OutfitAdapter(Listener listener) {
         this.listener = listener;
     }
 
-    public void submitList(List<OutfitCardRow> items) {
-        data.clear();
-        if (items != null) {
-            data.addAll(items);
+    /**
+     * 分页追加时只通知新增区间；其余情况用 DiffUtil 计算最小变更。
+     */
+    public void submitList(List<OutfitCardRow> items, boolean loadingMore) {
+        List<OutfitCardRow> next = items == null ? new ArrayList<>() : items;
+        setShowFooter(false);
+        if (isAppendOf(data, next)) {
+            int start = data.size();
+            data.addAll(next.subList(start, next.size()));
+            notifyItemRangeInserted(start, next.size() - start);
+        } else {
+            List<OutfitCardRow> old = new ArrayList<>(data);
+            DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new RowDiff(old, next));
+            data.clear();
+            data.addAll(next);
+            diff.dispatchUpdatesTo(this);
         }
-        notifyDataSetChanged();
+        setShowFooter(loadingMore && !data.isEmpty());
+    }
+
+    public boolean isFooter(int position) {
+        return showFooter && position == data.size();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return isFooter(position) ? TYPE_FOOTER : TYPE_ITEM;
     }
 
     @NonNull
     @Override
-    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        if (viewType == TYPE_FOOTER) {
+            return new FooterViewHolder(ItemOutfitLoadingFooterBinding.inflate(inflater, parent, false));
+        }
         ItemOutfitCardBinding binding = ItemOutfitCardBinding.inflate(inflater, parent, false);
         return new ViewHolder(binding);
     }
 
     @Override
-    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder viewHolder, int position) {
+        if (!(viewHolder instanceof ViewHolder)) {
+            return;
+        }
+        ViewHolder holder = (ViewHolder) viewHolder;
         OutfitCardRow item = data.get(position);
         holder.binding.textTitle.setText(item.title);
         holder.binding.textTags.setText(item.tags);
@@ -82,7 +116,31 @@ public class OutfitAdapter extends RecyclerView.Adapter<OutfitAdapter.ViewHolder
 
     @Override
     public int getItemCount() {
-        return data.size();
+        return data.size() + (showFooter ? 1 : 0);
+    }
+
+    private void setShowFooter(boolean show) {
+        if (showFooter == show) {
+            return;
+        }
+        showFooter = show;
+        if (show) {
+            notifyItemInserted(data.size());
+        } else {
+            notifyItemRemoved(data.size());
+        }
+    }
+
+    private static boolean isAppendOf(List<OutfitCardRow> old, List<OutfitCardRow> next) {
+        if (old.isEmpty() || next.size() <= old.size()) {
+            return false;
+        }
+        for (int i = 0; i < old.size(); i++) {
+            if (old.get(i) != next.get(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     static class ViewHolder extends RecyclerView.ViewHolder {
@@ -94,6 +152,48 @@ public class OutfitAdapter extends RecyclerView.Adapter<OutfitAdapter.ViewHolder
         }
     }
 
+    static class FooterViewHolder extends RecyclerView.ViewHolder {
+        FooterViewHolder(ItemOutfitLoadingFooterBinding binding) {
+            super(binding.getRoot());
+        }
+    }
+
+    private static final class RowDiff extends DiffUtil.Callback {
+        private final List<OutfitCardRow> oldList;
+        private final List<OutfitCardRow> newList;
+
+        RowDiff(List<OutfitCardRow> oldList, List<OutfitCardRow> newList) {
+            this.oldList = oldList;
+            this.newList = newList;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldList.get(oldItemPosition).id == newList.get(newItemPosition).id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            OutfitCardRow a = oldList.get(oldItemPosition);
+            OutfitCardRow b = newList.get(newItemPosition);
+            return a.isFavorite == b.isFavorite
+                    && a.coverResId == b.coverResId
+                    && a.title.equals(b.title)
+                    && a.tags.equals(b.tags)
+                    && a.colorHex.equals(b.colorHex);
+        }
+    }
+
     private static final class ColorUtil {
         static int parseColorSafe(String hex, int fallback) {
             if (hex == null) {
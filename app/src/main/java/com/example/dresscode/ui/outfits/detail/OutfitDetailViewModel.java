@@ -11,6 +11,7 @@ import androidx.lifecycle.Transformations;
 import com.example.dresscode.data.local.OutfitDetailRow;
 import com.example.dresscode.data.prefs.AuthRepository;
 import com.example.dresscode.data.repository.OutfitRepository;
+import com.example.dresscode.data.repository.Repositories;
 
 public class OutfitDetailViewModel extends AndroidViewModel {
 
@@ -21,7 +22,7 @@ public class OutfitDetailViewModel extends AndroidViewModel {
     public OutfitDetailViewModel(@NonNull Application application) {
         super(application);
         String owner = new AuthRepository(application).getCurrentUsernameOrEmpty();
-        repository = new OutfitRepository(application, owner);
+        repository = Repositories.get(application).outfits(owner);
         outfit = Transformations.switchMap(outfitId, id -> repository.observeOutfitDetail(id == null ? -1L : id));
     }
 
@@ -15,12 +15,10 @@ import androidx.fragment.app.Fragment;
 import com.example.dresscode.LoginActivity;
 import com.example.dresscode.data.prefs.AuthRepository;
 import com.example.dresscode.data.prefs.UserPreferencesRepository;
+import com.example.dresscode.data.repository.LocalMediaStore;
+import com.example.dresscode.data.repository.Repositories;
 import com.example.dresscode.databinding.FragmentProfileBinding;
 
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.InputStream;
-
 public class ProfileFragment extends Fragment {
 
     private FragmentProfileBinding binding;
@@ -42,14 +40,20 @@ public class ProfileFragment extends Fragment {
                     if (uri == null) {
                         return;
                     }
-                    File copied = copyToAppStorage(uri);
-                    if (copied == null) {
-                        return;
-                    }
-                    Uri fileUri = Uri.fromFile(copied);
-                    auth.setAvatarUri(fileUri.toString());
-                    binding.imageAvatar.setImageURI(null);
-                    binding.imageAvatar.setImageURI(fileUri);
+                    LocalMediaStore media = Repositories.get(requireContext()).media();
+                    media.importUriAsync(uri, copied -> {
+                        if (copied == null) {
+                            return;
+                        }
+                        Uri fileUri = Uri.fromFile(copied);
+                        auth.setAvatarUri(fileUri.toString());
+                        // 旧头像不再被引用时由 GC 回收
+                        media.requestGc();
+                        if (binding != null) {
+                            binding.imageAvatar.setImageURI(null);
+                            binding.imageAvatar.setImageURI(fileUri);
+                        }
+                    });
                 }
         );
 
@@ -114,48 +118,6 @@ public class ProfileFragment extends Fragment {
         });
     }
 
-    private File copyToAppStorage(Uri source) {
-        File dest = createAvatarFile();
-        if (dest == null) {
-            return null;
-        }
-        try (InputStream in = requireContext().getContentResolver().openInputStream(source);
-             FileOutputStream out = new FileOutputStream(dest)) {
-            if (in == null) {
-                safeDeleteFile(dest);
-                return null;
-            }
-            byte[] buffer = new byte[8 * 1024];
-            int read;
-            while ((read = in.read(buffer)) != -1) {
-                out.write(buffer, 0, read);
-            }
-            out.flush();
-            return dest;
-        } catch (Exception e) {
-            safeDeleteFile(dest);
-            return null;
-        }
-    }
-
-    private File createAvatarFile() {
-        File dir = new File(requireContext().getFilesDir(), "profile_avatars");
-        if (!dir.exists() && !dir.mkdirs()) {
-            return null;
-        }
-        return new File(dir, "avatar_" + System.currentTimeMillis() + ".jpg");
-    }
-
-    private void safeDeleteFile(File file) {
-        try {
-            if (file.exists()) {
-                //noinspection ResultOfMethodCallIgnored
-                file.delete();
-            }
-        } catch (Exception ignored) {
-        }
-    }
-
     @Override
     public void onDestroyView() {
         super.onDestroyView();
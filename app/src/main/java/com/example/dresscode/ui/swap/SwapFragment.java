@@ -15,7 +15,10 @@ import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
+import com.example.dresscode.data.repository.ClosetRenditions;
+import com.example.dresscode.data.repository.Repositories;
 import com.example.dresscode.databinding.FragmentSwapBinding;
+import com.example.dresscode.ui.image.ImageLoader;
 import com.example.dresscode.ui.swap.adapter.SwapClosetFavoriteAdapter;
 import com.example.dresscode.ui.swap.adapter.SwapFavoriteAdapter;
 import com.example.dresscode.ui.swap.adapter.SwapHistoryAdapter;
@@ -101,7 +104,7 @@ public class SwapFragment extends Fragment {
                     return;
                 }
                 com.example.dresscode.ui.preview.ImagePreviewBottomSheet
-                        .newInstance(item.name, buildMeta(item), 0, item.imageUri)
+                        .newInstance(item.name, buildMeta(item), 0, ClosetRenditions.forPreview(item))
                         .show(getParentFragmentManager(), "image_preview");
             }
 
@@ -124,12 +127,22 @@ public class SwapFragment extends Fragment {
         );
         binding.recyclerFavoriteCloset.setAdapter(closetAdapter);
 
-        historyAdapter = new SwapHistoryAdapter(row -> new MaterialAlertDialogBuilder(requireContext())
-                .setTitle(com.example.dresscode.R.string.action_delete)
-                .setMessage(getString(com.example.dresscode.R.string.confirm_delete_history, row.sourceTitle))
-                .setNegativeButton(android.R.string.cancel, null)
-                .setPositiveButton(com.example.dresscode.R.string.action_delete, (d, w) -> viewModel.deleteHistory(row.id))
-                .show());
+        historyAdapter = new SwapHistoryAdapter(new SwapHistoryAdapter.Listener() {
+            @Override
+            public void onLongPress(com.example.dresscode.data.local.SwapHistoryRow row) {
+                new MaterialAlertDialogBuilder(requireContext())
+                        .setTitle(com.example.dresscode.R.string.action_delete)
+                        .setMessage(getString(com.example.dresscode.R.string.confirm_delete_history, row.sourceTitle))
+                        .setNegativeButton(android.R.string.cancel, null)
+                        .setPositiveButton(com.example.dresscode.R.string.action_delete, (d, w) -> viewModel.deleteHistory(row.id))
+                        .show();
+            }
+
+            @Override
+            public void onOpenResult(com.example.dresscode.data.local.SwapHistoryRow row) {
+                showImagePreview(row.sourceTitle, row.resultImageUri);
+            }
+        });
         binding.recyclerHistory.setLayoutManager(new LinearLayoutManager(getContext()));
         binding.recyclerHistory.setAdapter(historyAdapter);
 
@@ -152,7 +165,17 @@ public class SwapFragment extends Fragment {
                     if (uri == null) {
                         return;
                     }
-                    viewModel.setPersonImageUri(uri.toString());
+                    // content:// 的临时读权限进程重启后就失效：先存进本地图片库，排队中的任务重启后仍能读到人像
+                    Repositories.get(requireContext()).media().importUriAsync(uri, file -> {
+                        if (file != null) {
+                            viewModel.setPersonImageUri(Uri.fromFile(file).toString());
+                        } else if (isAdded()) {
+                            new MaterialAlertDialogBuilder(requireContext())
+                                    .setMessage(com.example.dresscode.R.string.error_image_import_failed)
+                                    .setPositiveButton(android.R.string.ok, null)
+                                    .show();
+                        }
+                    });
                 }
         );
 
@@ -172,6 +195,11 @@ public class SwapFragment extends Fragment {
             viewModel.generateSwap();
         });
 
+        binding.btnGenerateBatch.setOnClickListener(v -> {
+            binding.textResultHint.setText("生成中...");
+            viewModel.generateBatch();
+        });
+
         viewModel.getFavoriteOutfits().observe(getViewLifecycleOwner(), items -> {
             adapter.submitList(items, viewModel.getSelectedOutfitId().getValue());
             boolean empty = items == null || items.isEmpty();
@@ -201,11 +229,10 @@ public class SwapFragment extends Fragment {
         viewModel.getPersonImageUri().observe(getViewLifecycleOwner(), uri -> {
             if (uri == null || uri.trim().isEmpty()) {
                 binding.textPersonHint.setVisibility(View.VISIBLE);
-                binding.imagePerson.setImageURI(null);
+                ImageLoader.get(requireContext()).clear(binding.imagePerson);
             } else {
                 binding.textPersonHint.setVisibility(View.GONE);
-                binding.imagePerson.setImageURI(null);
-                binding.imagePerson.setImageURI(Uri.parse(uri));
+                ImageLoader.get(requireContext()).load(binding.imagePerson, uri);
             }
         });
 
@@ -222,10 +249,23 @@ public class SwapFragment extends Fragment {
             binding.btnGenerate.setEnabled(!generating && Boolean.TRUE.equals(can));
         });
 
+        viewModel.getCanGenerateBatch().observe(getViewLifecycleOwner(), can -> {
+            boolean generating = Boolean.TRUE.equals(viewModel.getGenerating().getValue());
+            binding.btnGenerateBatch.setEnabled(!generating && Boolean.TRUE.equals(can));
+        });
+
+        viewModel.getBatchProgress().observe(getViewLifecycleOwner(), text -> {
+            if (text != null && !text.isEmpty()) {
+                binding.textResultHint.setText(text);
+            }
+        });
+
         viewModel.getGenerating().observe(getViewLifecycleOwner(), g -> {
             boolean generating = Boolean.TRUE.equals(g);
             binding.btnGenerate.setEnabled(!generating && Boolean.TRUE.equals(viewModel.getCanGenerate().getValue()));
-            if (generating) {
+            binding.btnGenerateBatch.setEnabled(!generating && Boolean.TRUE.equals(viewModel.getCanGenerateBatch().getValue()));
+            String progress = viewModel.getBatchProgress().getValue();
+            if (generating && (progress == null || progress.isEmpty())) {
                 binding.textResultHint.setText("生成中...");
             }
         });
@@ -247,12 +287,13 @@ public class SwapFragment extends Fragment {
             if (uri == null || uri.trim().isEmpty()) {
                 return;
             }
-            try {
-                binding.imageResult.setImageURI(null);
-                binding.imageResult.setImageURI(Uri.parse(uri));
+            ImageLoader.get(requireContext()).load(binding.imageResult, uri);
+            // 批量试穿时结果区显示最新完成的一张，提示保留进度
+            String progress = viewModel.getBatchProgress().getValue();
+            if (progress != null && !progress.isEmpty()) {
+                binding.textResultHint.setText(progress);
+            } else {
                 binding.textResultHint.setText(com.example.dresscode.R.string.placeholder_swap_result);
-            } catch (Exception e) {
-                binding.imageResult.setImageURI(null);
             }
         });
 
@@ -318,11 +359,9 @@ public class SwapFragment extends Fragment {
         imageView.setScaleType(android.widget.ImageView.ScaleType.FIT_CENTER);
         int pad = Math.round(getResources().getDisplayMetrics().density * 12);
         imageView.setPadding(pad, pad, pad, pad);
-        try {
-            imageView.setImageURI(Uri.parse(uriString));
-        } catch (Exception ignored) {
-            imageView.setImageURI(null);
-        }
+        // 弹窗里的 View 还没测量，按屏幕宽度解码
+        int size = getResources().getDisplayMetrics().widthPixels;
+        ImageLoader.get(requireContext()).load(imageView, uriString, size, size);
         new MaterialAlertDialogBuilder(requireContext())
                 .setTitle(title)
                 .setView(imageView)
@@ -333,6 +372,8 @@ public class SwapFragment extends Fragment {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        ImageLoader.get(requireContext()).cancel(binding.imagePerson);
+        ImageLoader.get(requireContext()).cancel(binding.imageResult);
         binding = null;
     }
 }
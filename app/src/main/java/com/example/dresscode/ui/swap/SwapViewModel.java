@@ -1,34 +1,44 @@
 package com.example.dresscode.ui.swap;
 
 import android.app.Application;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
+import androidx.lifecycle.Transformations;
 
 import com.example.dresscode.data.local.ClosetItemEntity;
 import com.example.dresscode.data.local.OutfitCardRow;
 import com.example.dresscode.data.local.SwapHistoryRow;
+import com.example.dresscode.data.local.SwapJobEntity;
 import com.example.dresscode.data.prefs.AuthRepository;
 import com.example.dresscode.data.repository.ClosetRepository;
+import com.example.dresscode.data.repository.LocalMediaStore;
 import com.example.dresscode.data.repository.OutfitRepository;
+import com.example.dresscode.data.repository.Repositories;
 import com.example.dresscode.data.repository.SwapRepository;
-import com.example.dresscode.data.repository.TryOnRepository;
 
-import java.io.File;
-import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class SwapViewModel extends AndroidViewModel {
 
+    /** 一键试穿最多取这么多件收藏，衣橱衣物优先。 */
+    static final int MAX_BATCH_SIZE = 10;
+
+    private static final String HOLD_PERSON = "swap_person";
+
     private final OutfitRepository repository;
     private final ClosetRepository closetRepository;
     private final SwapRepository swapRepository;
+    private final LocalMediaStore mediaStore;
     private final LiveData<List<OutfitCardRow>> favoriteOutfits;
     private final LiveData<List<ClosetItemEntity>> favoriteClosetItems;
     private final LiveData<List<SwapHistoryRow>> history;
@@ -40,23 +50,48 @@ public class SwapViewModel extends AndroidViewModel {
     private final MutableLiveData<Boolean> generating = new MutableLiveData<>(false);
     private final MutableLiveData<String> generateError = new MutableLiveData<>("");
     private final MutableLiveData<String> resultImageUri = new MutableLiveData<>("");
+    /** 正在展示进度的换装任务（swap_jobs.id），-1 表示没有。 */
+    private final MutableLiveData<Long> activeJobId = new MutableLiveData<>(-1L);
+    private final LiveData<SwapJobEntity> activeJob;
+    private final Observer<SwapJobEntity> activeJobObserver = this::onActiveJobChanged;
+    private String lastJobState = "";
+    /** 当前批量试穿的任务 id；进度从历史列表里这些行的状态统计。 */
+    private final Set<Long> batchJobIds = new HashSet<>();
+    private final Set<Long> shownBatchResults = new HashSet<>();
+    private final MediatorLiveData<String> batchProgress = new MediatorLiveData<>();
+    private final MediatorLiveData<Boolean> canGenerateBatch = new MediatorLiveData<>();
 
     private final MediatorLiveData<OutfitCardRow> selectedOutfit = new MediatorLiveData<>();
     private final MediatorLiveData<ClosetItemEntity> selectedClosetItem = new MediatorLiveData<>();
     private final MediatorLiveData<String> selectedLabel = new MediatorLiveData<>();
-    private final TryOnRepository tryOnRepository;
 
     public SwapViewModel(@NonNull Application application) {
         super(application);
         String owner = new AuthRepository(application).getCurrentUsernameOrEmpty();
-        repository = new OutfitRepository(application, owner);
-        closetRepository = new ClosetRepository(application, owner);
-        swapRepository = new SwapRepository(application, owner);
-        tryOnRepository = new TryOnRepository(application);
+        Repositories repositories = Repositories.get(application);
+        repository = repositories.outfits(owner);
+        closetRepository = repositories.closet(owner);
+        swapRepository = repositories.swap(owner);
+        mediaStore = repositories.media();
         repository.ensureSeeded();
         favoriteOutfits = repository.observeFavoriteOutfits();
         favoriteClosetItems = closetRepository.observeFavorites();
         history = swapRepository.observeHistory();
+        activeJob = Transformations.switchMap(activeJobId, id -> id == null || id <= 0
+                ? new MutableLiveData<>(null)
+                : swapRepository.observeJob(id));
+        activeJob.observeForever(activeJobObserver);
+        // 页面重建或进程重启后，接着显示还在进行中的任务
+        swapRepository.findLatestUnfinished(id -> {
+            if (id > 0) {
+                activeJobId.postValue(id);
+            }
+        });
+
+        batchProgress.addSource(history, this::updateBatchProgress);
+        canGenerateBatch.addSource(personImageUri, ignored -> updateCanGenerateBatch());
+        canGenerateBatch.addSource(favoriteOutfits, ignored -> updateCanGenerateBatch());
+        canGenerateBatch.addSource(favoriteClosetItems, ignored -> updateCanGenerateBatch());
 
         canGenerate.addSource(selectedOutfitId, ignored -> updateCanGenerate());
         canGenerate.addSource(selectedClosetItemId, ignored -> updateCanGenerate());
@@ -75,6 +110,7 @@ public class SwapViewModel extends AndroidViewModel {
         updateSelectedClosetItem();
         updateSelectedLabel();
         updateCanGenerate();
+        updateCanGenerateBatch();
     }
 
     public LiveData<List<OutfitCardRow>> getFavoriteOutfits() {
@@ -127,6 +163,8 @@ public class SwapViewModel extends AndroidViewModel {
 
     public void setPersonImageUri(String uri) {
         personImageUri.setValue(uri == null ? "" : uri);
+        // 选中后到提交任务前，人像还没有任何表引用，别让 GC 收走
+        mediaStore.hold(HOLD_PERSON, uri);
         updateCanGenerate();
     }
 
@@ -146,6 +184,17 @@ public class SwapViewModel extends AndroidViewModel {
         return resultImageUri;
     }
 
+    public LiveData<Boolean> getCanGenerateBatch() {
+        return canGenerateBatch;
+    }
+
+    /**
+     * 批量试穿进度文案；没有批量任务时为空。
+     */
+    public LiveData<String> getBatchProgress() {
+        return batchProgress;
+    }
+
     public void generateSwap() {
         ClosetItemEntity selectedCloset = selectedClosetItem.getValue();
         String person = personImageUri.getValue();
@@ -154,81 +203,142 @@ public class SwapViewModel extends AndroidViewModel {
         }
         generateError.setValue("");
         resultImageUri.setValue("");
+        batchJobIds.clear();
+        batchProgress.setValue("");
 
         // 真实 try-on：优先支持衣橱收藏衣物（有真实衣物图片）
         if (selectedCloset != null && selectedCloset.imageUri != null && !selectedCloset.imageUri.trim().isEmpty()) {
             generating.setValue(true);
-            tryOnRepository.tryOn(
-                    Uri.parse(person),
-                    Uri.parse(selectedCloset.imageUri),
-                    new TryOnRepository.ResultCallback() {
-                        @Override
-                        public void onSuccess(String resultUri) {
-                            generating.postValue(false);
-                            resultImageUri.postValue(resultUri == null ? "" : resultUri);
-                            swapRepository.addJob(
-                                    "CLOSET",
-                                    selectedCloset.id,
-                                    selectedCloset.name,
-                                    selectedCloset.imageUri,
-                                    person,
-                                    resultUri,
-                                    "已生成"
-                            );
-                        }
-
-                        @Override
-                        public void onError(String message) {
-                            generating.postValue(false);
-                            generateError.postValue(message == null ? "生成失败" : message);
-                        }
-                    }
-            );
+            swapRepository.submitTryOn(closetSource(selectedCloset), person, activeJobId::postValue);
             return;
         }
 
         // 真实 try-on：收藏穿搭使用封面资源图当作“服装图”（先跑通链路，后续可替换为更合适的服装素材）
         OutfitCardRow selected = selectedOutfit.getValue();
         if (selected != null) {
-            Uri clothUri = materializeOutfitCover(selected.coverResId, selected.id);
-            if (clothUri == null) {
+            String sourceImageUri = buildAndroidResourceUri(selected.coverResId);
+            if (sourceImageUri.isEmpty()) {
                 resultImageUri.setValue(person);
-                swapRepository.addJob("OUTFIT", selected.id, selected.title, "", person, person, "已生成");
+                swapRepository.addJob("OUTFIT", selected.id, selected.title, "", person, person, SwapJobEntity.STATUS_DONE);
                 return;
             }
             generating.setValue(true);
-            tryOnRepository.tryOn(
-                    Uri.parse(person),
-                    clothUri,
-                    new TryOnRepository.ResultCallback() {
-                        @Override
-                        public void onSuccess(String resultUri) {
-                            generating.postValue(false);
-                            resultImageUri.postValue(resultUri == null ? "" : resultUri);
-                            String sourceImageUri = buildAndroidResourceUri(selected.coverResId);
-                            swapRepository.addJob(
-                                    "OUTFIT",
-                                    selected.id,
-                                    selected.title,
-                                    sourceImageUri,
-                                    person,
-                                    resultUri,
-                                    "已生成"
-                            );
-                        }
-
-                        @Override
-                        public void onError(String message) {
-                            generating.postValue(false);
-                            generateError.postValue(message == null ? "生成失败" : message);
-                        }
-                    }
-            );
+            swapRepository.submitTryOn(outfitSource(selected), person, activeJobId::postValue);
         }
     }
 
+    /**
+     * 用当前人像试穿收藏里的多件衣物/穿搭（最多 {@link #MAX_BATCH_SIZE} 件）：
+     * 任务一次性进入历史列表，完成一件更新一件，结果区显示最新完成的那张。
+     */
+    public void generateBatch() {
+        String person = personImageUri.getValue();
+        List<SwapRepository.TryOnSource> sources = collectBatchSources();
+        if (person == null || person.trim().isEmpty() || sources.isEmpty()) {
+            return;
+        }
+        generateError.setValue("");
+        resultImageUri.setValue("");
+        activeJobId.setValue(-1L);
+        batchJobIds.clear();
+        shownBatchResults.clear();
+        generating.setValue(true);
+        batchProgress.setValue("批量试穿：已提交 " + sources.size() + " 件");
+        swapRepository.submitTryOnBatch(sources, person, ids -> postToMain(() -> {
+            batchJobIds.addAll(ids);
+            updateBatchProgress(history.getValue());
+        }));
+    }
+
     public void deleteHistory(long id) {
         swapRepository.deleteJob(id);
+        if (batchJobIds.remove(id) && batchJobIds.isEmpty()) {
+            generating.setValue(false);
+        }
+    }
+
+    private List<SwapRepository.TryOnSource> collectBatchSources() {
+        List<SwapRepository.TryOnSource> sources = new ArrayList<>();
+        List<ClosetItemEntity> closetItems = favoriteClosetItems.getValue();
+        if (closetItems != null) {
+            for (ClosetItemEntity item : closetItems) {
+                if (sources.size() >= MAX_BATCH_SIZE) {
+                    return sources;
+                }
+                if (item.imageUri != null && !item.imageUri.trim().isEmpty()) {
+                    sources.add(closetSource(item));
+                }
+            }
+        }
+        List<OutfitCardRow> outfits = favoriteOutfits.getValue();
+        if (outfits != null) {
+            for (OutfitCardRow row : outfits) {
+                if (sources.size() >= MAX_BATCH_SIZE) {
+                    return sources;
+                }
+                if (row.coverResId != 0) {
+                    sources.add(outfitSource(row));
+                }
+            }
+        }
+        return sources;
+    }
+
+    private SwapRepository.TryOnSource closetSource(ClosetItemEntity item) {
+        return new SwapRepository.TryOnSource("CLOSET", item.id, item.name, item.imageUri);
+    }
+
+    /**
+     * 封面资源直接以 android.resource:// 交给任务上传，进程重启后也能重新读取。
+     */
+    private SwapRepository.TryOnSource outfitSource(OutfitCardRow row) {
+        return new SwapRepository.TryOnSource("OUTFIT", row.id, row.title, buildAndroidResourceUri(row.coverResId));
+    }
+
+    private void updateBatchProgress(List<SwapHistoryRow> rows) {
+        if (batchJobIds.isEmpty() || rows == null) {
+            return;
+        }
+        int total = 0;
+        int done = 0;
+        int failed = 0;
+        for (SwapHistoryRow row : rows) {
+            if (!batchJobIds.contains(row.id)) {
+                continue;
+            }
+            total++;
+            if (SwapJobEntity.STATUS_DONE.equals(row.status)) {
+                done++;
+                if (shownBatchResults.add(row.id) && !row.resultImageUri.isEmpty()) {
+                    resultImageUri.setValue(row.resultImageUri);
+                }
+            } else if (SwapJobEntity.STATUS_FAILED.equals(row.status)) {
+                failed++;
+            }
+        }
+        if (total == 0) {
+            // 新插入的行还没反映到列表里
+            return;
+        }
+        String text = "批量试穿：已完成 " + done + "/" + total;
+        if (failed > 0) {
+            text += "，失败 " + failed;
+        }
+        batchProgress.setValue(text);
+        if (done + failed >= total) {
+            // 全部结束（被删掉的行不再计入）
+            batchJobIds.clear();
+            generating.setValue(false);
+        }
+    }
+
+    private void updateCanGenerateBatch() {
+        String uri = personImageUri.getValue();
+        canGenerateBatch.setValue(uri != null && !uri.trim().isEmpty() && !collectBatchSources().isEmpty());
+    }
+
+    private void postToMain(Runnable action) {
+        new Handler(Looper.getMainLooper()).post(action);
     }
 
     private void updateCanGenerate() {
@@ -285,28 +395,39 @@ public class SwapViewModel extends AndroidViewModel {
         return null;
     }
 
-    private Uri materializeOutfitCover(int coverResId, long outfitId) {
-        if (coverResId == 0) {
-            return null;
-        }
-        try {
-            Bitmap bmp = BitmapFactory.decodeResource(getApplication().getResources(), coverResId);
-            if (bmp == null) {
-                return null;
-            }
-            File dir = new File(getApplication().getCacheDir(), "swap_outfit_clothes");
-            if (!dir.exists() && !dir.mkdirs()) {
-                return null;
+    /**
+     * 当前任务的行变化时同步到界面状态；同一状态只处理一次，避免历史表其它行变化时重复提示错误。
+     */
+    private void onActiveJobChanged(SwapJobEntity job) {
+        Long id = activeJobId.getValue();
+        if (job == null) {
+            if (id != null && id > 0) {
+                // 任务被删除
+                generating.setValue(false);
             }
-            File out = new File(dir, "outfit_" + outfitId + "_" + coverResId + ".jpg");
-            try (FileOutputStream fos = new FileOutputStream(out)) {
-                bmp.compress(Bitmap.CompressFormat.JPEG, 92, fos);
-                fos.flush();
-            }
-            return Uri.fromFile(out);
-        } catch (Exception e) {
-            return null;
+            return;
         }
+        String state = job.id + "/" + job.status;
+        if (state.equals(lastJobState)) {
+            return;
+        }
+        lastJobState = state;
+        if (SwapJobEntity.STATUS_DONE.equals(job.status)) {
+            generating.setValue(false);
+            resultImageUri.setValue(job.resultImageUri);
+        } else if (SwapJobEntity.STATUS_FAILED.equals(job.status)) {
+            generating.setValue(false);
+            generateError.setValue(job.error.trim().isEmpty() ? "生成失败" : job.error);
+        } else {
+            generating.setValue(true);
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        activeJob.removeObserver(activeJobObserver);
+        mediaStore.hold(HOLD_PERSON, null);
     }
 
     private String buildAndroidResourceUri(int resId) {
@@ -1,6 +1,5 @@
 package com.example.dresscode.ui.swap.adapter;
 
-import android.net.Uri;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -9,7 +8,9 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.dresscode.data.local.ClosetItemEntity;
+import com.example.dresscode.data.repository.ClosetRenditions;
 import com.example.dresscode.databinding.ItemSwapFavoriteClosetBinding;
+import com.example.dresscode.ui.image.ImageLoader;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -52,12 +53,7 @@ public class SwapClosetFavoriteAdapter extends RecyclerView.Adapter<SwapClosetFa
         holder.binding.textTitle.setText(item.name);
         holder.binding.textMeta.setText(buildMeta(item));
 
-        try {
-            holder.binding.imageCover.setImageURI(null);
-            holder.binding.imageCover.setImageURI(Uri.parse(item.imageUri));
-        } catch (Exception e) {
-            holder.binding.imageCover.setImageURI(null);
-        }
+        ImageLoader.get(holder.itemView.getContext()).load(holder.binding.imageCover, ClosetRenditions.forGrid(item));
         holder.binding.imageCover.setOnClickListener(v -> {
             if (listener != null) {
                 listener.onPreview(item);
@@ -74,6 +70,12 @@ public class SwapClosetFavoriteAdapter extends RecyclerView.Adapter<SwapClosetFa
         });
     }
 
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        super.onViewRecycled(holder);
+        ImageLoader.get(holder.itemView.getContext()).cancel(holder.binding.imageCover);
+    }
+
     @Override
     public int getItemCount() {
         return data.size();
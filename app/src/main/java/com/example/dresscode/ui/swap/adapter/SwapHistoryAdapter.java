@@ -7,6 +7,7 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.dresscode.data.local.SwapHistoryRow;
+import com.example.dresscode.data.local.SwapJobEntity;
 import com.example.dresscode.databinding.ItemSwapHistoryBinding;
 
 import java.text.SimpleDateFormat;
@@ -19,6 +20,11 @@ public class SwapHistoryAdapter extends RecyclerView.Adapter<SwapHistoryAdapter.
 
     public interface Listener {
         void onLongPress(SwapHistoryRow row);
+
+        /**
+         * 点击已生成的记录，查看结果图。
+         */
+        void onOpenResult(SwapHistoryRow row);
     }
 
     private final List<SwapHistoryRow> data = new ArrayList<>();
@@ -48,8 +54,13 @@ public class SwapHistoryAdapter extends RecyclerView.Adapter<SwapHistoryAdapter.
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
         SwapHistoryRow row = data.get(position);
-        holder.binding.textTitle.setText(row.sourceTitle + " · " + row.status);
+        holder.binding.textTitle.setText(row.sourceTitle + " · " + statusLabel(row.status));
         holder.binding.textTime.setText(formatter.format(new Date(row.createdAt)));
+        holder.binding.getRoot().setOnClickListener(v -> {
+            if (listener != null && SwapJobEntity.STATUS_DONE.equals(row.status) && !row.resultImageUri.isEmpty()) {
+                listener.onOpenResult(row);
+            }
+        });
         holder.binding.getRoot().setOnLongClickListener(v -> {
             if (listener != null) {
                 listener.onLongPress(row);
@@ -59,6 +70,22 @@ public class SwapHistoryAdapter extends RecyclerView.Adapter<SwapHistoryAdapter.
         });
     }
 
+    private static String statusLabel(String status) {
+        if (SwapJobEntity.STATUS_PENDING.equals(status)) {
+            return "排队中";
+        }
+        if (SwapJobEntity.STATUS_RUNNING.equals(status)) {
+            return "生成中";
+        }
+        if (SwapJobEntity.STATUS_DONE.equals(status)) {
+            return "已生成";
+        }
+        if (SwapJobEntity.STATUS_FAILED.equals(status)) {
+            return "失败";
+        }
+        return status;
+    }
+
     @Override
     public int getItemCount() {
         return data.size();
@@ -7,7 +7,7 @@ import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
+import android.view.inputmethod.EditorInfo;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
@@ -20,6 +20,7 @@ import androidx.lifecycle.ViewModelProvider;
 
 import com.example.dresscode.R;
 import com.example.dresscode.databinding.FragmentWeatherBinding;
+import com.example.dresscode.ui.weather.adapter.CitySuggestionAdapter;
 import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.location.Priority;
 import com.google.android.gms.tasks.CancellationTokenSource;
@@ -55,12 +56,23 @@ public class WeatherFragment extends Fragment {
                 }
         );
 
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(
+        CitySuggestionAdapter adapter = new CitySuggestionAdapter(
                 requireContext(),
-                android.R.layout.simple_list_item_1,
-                viewModel.getCities()
+                viewModel.getCities(),
+                viewModel::searchCities
         );
         binding.inputCity.setAdapter(adapter);
+        binding.inputCity.setOnEditorActionListener((v, actionId, event) -> {
+            if (actionId != EditorInfo.IME_ACTION_SEARCH) {
+                return false;
+            }
+            CharSequence text = binding.inputCity.getText();
+            if (text != null && text.toString().trim().length() > 0) {
+                viewModel.setCity(text.toString().trim());
+                binding.inputCity.dismissDropDown();
+            }
+            return true;
+        });
 
         binding.inputCity.setOnItemClickListener((parent, view, position, id) -> {
             Object item = parent.getItemAtPosition(position);
@@ -9,13 +9,16 @@ import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.Observer;
 
 import com.example.dresscode.data.prefs.WeatherPreferencesRepository;
+import com.example.dresscode.data.repository.Repositories;
 import com.example.dresscode.data.repository.WeatherRepository;
 
 import java.util.List;
 
 public class WeatherViewModel extends AndroidViewModel {
 
-    private final WeatherRepository repository = new WeatherRepository();
+    private static final int CITY_SUGGESTION_LIMIT = 8;
+
+    private final WeatherRepository repository;
     private final WeatherPreferencesRepository prefs;
     private final MutableLiveData<WeatherRepository.WeatherInfo> weatherInfo = new MutableLiveData<>();
     private final MutableLiveData<Boolean> loading = new MutableLiveData<>(false);
@@ -26,6 +29,7 @@ public class WeatherViewModel extends AndroidViewModel {
 
     public WeatherViewModel(@NonNull Application application) {
         super(application);
+        repository = Repositories.get(application).weather();
         prefs = new WeatherPreferencesRepository(application);
         cityObserver = this::refreshByCity;
         prefs.observeCity().observeForever(cityObserver);
@@ -46,6 +50,11 @@ public class WeatherViewModel extends AndroidViewModel {
         return repository.getCities();
     }
 
+    /** 下拉框联想，在后台线程调用。 */
+    public List<String> searchCities(String query) {
+        return repository.searchCities(query, CITY_SUGGESTION_LIMIT);
+    }
+
     public LiveData<WeatherRepository.WeatherInfo> getWeatherInfo() {
         return weatherInfo;
     }
@@ -83,10 +92,13 @@ public class WeatherViewModel extends AndroidViewModel {
                 if (seq != requestSeq) {
                     return;
                 }
-                loading.postValue(false);
+                // 过期缓存先显示，后台刷新完会再回调一次；刷新任务周期内的旧值不显示加载中
+                loading.postValue(showLoading(info));
                 error.postValue("");
                 weatherInfo.postValue(info);
-                prefs.setCachedWeather(info.temp, info.desc, info.aqi);
+                if (!info.stale) {
+                    prefs.setCachedWeather(info.temp, info.desc, info.aqi);
+                }
             }
 
             @Override
@@ -116,12 +128,17 @@ public class WeatherViewModel extends AndroidViewModel {
                 if (seq != requestSeq) {
                     return;
                 }
-                loading.postValue(false);
+                loading.postValue(showLoading(info));
                 error.postValue("");
                 weatherInfo.postValue(info);
-                suppressNextCityRefresh = true;
-                prefs.setCity(info.city);
-                prefs.setCachedWeather(info.temp, info.desc, info.aqi);
+                // 过期缓存和刷新结果会各回调一次，城市没变时不写，否则下一次切换城市会被误吞
+                if (!info.city.equals(prefs.getCity())) {
+                    suppressNextCityRefresh = true;
+                    prefs.setCity(info.city);
+                }
+                if (!info.stale) {
+                    prefs.setCachedWeather(info.temp, info.desc, info.aqi);
+                }
             }
 
             @Override
@@ -135,6 +152,10 @@ public class WeatherViewModel extends AndroidViewModel {
         });
     }
 
+    private static boolean showLoading(WeatherRepository.WeatherInfo info) {
+        return info.stale && !info.isRecent(System.currentTimeMillis());
+    }
+
     @Override
     protected void onCleared() {
         super.onCleared();
@@ -0,0 +1,62 @@
+package com.example.dresscode.ui.weather.adapter;
+
+import android.content.Context;
+import android.widget.ArrayAdapter;
+import android.widget.Filter;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 城市输入框的下拉联想：输入为空时列出默认城市，否则交给 {@link Source}（本地城市索引）查询。
+ * {@link Source#search} 在 Filter 的后台线程上调用。
+ */
+public class CitySuggestionAdapter extends ArrayAdapter<String> {
+
+    public interface Source {
+        List<String> search(String query);
+    }
+
+    private final List<String> defaults;
+    private final Source source;
+    private final Filter filter = new Filter() {
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            String query = constraint == null ? "" : constraint.toString().trim();
+            List<String> values = query.isEmpty() ? defaults : source.search(query);
+            FilterResults results = new FilterResults();
+            results.values = values;
+            results.count = values.size();
+            return results;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            setNotifyOnChange(false);
+            clear();
+            if (results != null && results.values != null) {
+                addAll((List<String>) results.values);
+            }
+            if (getCount() > 0) {
+                notifyDataSetChanged();
+            } else {
+                notifyDataSetInvalidated();
+            }
+        }
+    };
+
+    public CitySuggestionAdapter(@NonNull Context context, @NonNull List<String> defaults, @NonNull Source source) {
+        super(context, android.R.layout.simple_list_item_1, new ArrayList<>(defaults));
+        this.defaults = new ArrayList<>(defaults);
+        this.source = source;
+    }
+
+    @NonNull
+    @Override
+    public Filter getFilter() {
+        return filter;
+    }
+}
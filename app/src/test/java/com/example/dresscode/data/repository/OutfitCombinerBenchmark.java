@@ -0,0 +1,57 @@
+package com.example.dresscode.data.repository;
+
+import com.example.dresscode.data.local.ClosetItemEntity;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * OutfitCombiner 在 100 / 1,000 / 5,000 件的合成衣橱上的耗时（每种天气预热后取中位数）。
+ * 计时受机器负载影响，不做断言、默认不跑：{@code ./gradlew testDebugUnitTest -Pbenchmark}，
+ * 结果写到 build/reports/benchmarks/OutfitCombiner.txt，便于对比改动前后。
+ */
+public class OutfitCombinerBenchmark {
+
+    private static final int K = 10;
+    private static final int WARMUP_RUNS = 5;
+    private static final int MEASURED_RUNS = 15;
+    private static final int[] SIZES = {100, 1000, 5000};
+
+    @Test
+    public void combineSyntheticClosets() throws IOException {
+        StringBuilder report = new StringBuilder();
+        OutfitCombiner combiner = new OutfitCombiner();
+        for (int size : SIZES) {
+            List<ClosetItemEntity> closet = OutfitCombinerTest.syntheticCloset(size, new Random(size));
+            for (ClosetRecommender.Conditions conditions : OutfitCombinerTest.conditions()) {
+                for (int i = 0; i < WARMUP_RUNS; i++) {
+                    combiner.topK(closet, conditions, K);
+                }
+                long[] nanos = new long[MEASURED_RUNS];
+                for (int i = 0; i < MEASURED_RUNS; i++) {
+                    long start = System.nanoTime();
+                    combiner.topK(closet, conditions, K);
+                    nanos[i] = System.nanoTime() - start;
+                }
+                Arrays.sort(nanos);
+                report.append("size=").append(size)
+                        .append(" band=").append(conditions.band)
+                        .append(" rainy=").append(conditions.rainy)
+                        .append(" median=").append(nanos[MEASURED_RUNS / 2] / 1000).append("us")
+                        .append(" max=").append(nanos[MEASURED_RUNS - 1] / 1000).append("us\n");
+            }
+        }
+        File dir = new File(System.getProperty("dresscode.benchmarkReportDir", "build/reports/benchmarks"));
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        Files.write(new File(dir, "OutfitCombiner.txt").toPath(), report.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
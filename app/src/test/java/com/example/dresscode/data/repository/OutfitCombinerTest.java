@@ -0,0 +1,108 @@
+package com.example.dresscode.data.repository;
+
+import com.example.dresscode.data.local.ClosetItemEntity;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * OutfitCombiner 的行为：结果条数、分数有序，以及按单品分截取候选后仍与不截取时的前 K 名一致。
+ * 计时见 {@link OutfitCombinerBenchmark}（默认不跑）。
+ */
+public class OutfitCombinerTest {
+
+    private static final String[] CATEGORIES = {"上衣", "上衣", "上衣", "下装", "下装", "外套", "外套", "连衣裙", "鞋子", "鞋子", "配饰"};
+    private static final String[] SEASONS = {"", "春", "夏", "秋", "冬", "春夏", "春秋", "秋冬"};
+    private static final String[] STYLES = {"", "通勤", "休闲", "运动", "约会", "街头", "机能"};
+    private static final String[] SCENES = {"", "通勤", "校园", "约会", "运动", "出街"};
+    private static final String[] NAMES = {"衬衫", "短袖T恤", "毛衣", "羽绒服", "风衣", "牛仔裤", "短裤", "半身裙", "运动鞋", "靴子", "凉鞋", "卫衣"};
+
+    @Test
+    public void returnsKOutfitsSortedByScore() {
+        List<ClosetItemEntity> closet = syntheticCloset(300, new Random(7));
+        for (ClosetRecommender.Conditions conditions : conditions()) {
+            List<OutfitCombiner.Outfit> result = new OutfitCombiner().topK(closet, conditions, 10);
+            assertEquals(10, result.size());
+            for (int i = 1; i < result.size(); i++) {
+                assertTrue(result.get(i - 1).score >= result.get(i).score);
+            }
+            for (OutfitCombiner.Outfit outfit : result) {
+                assertTrue(outfit.items.size() >= 2);
+            }
+        }
+    }
+
+    @Test
+    public void slotCutoffKeepsTheExactTopK() {
+        for (int seed = 1; seed <= 20; seed++) {
+            List<ClosetItemEntity> closet = syntheticCloset(80, new Random(seed));
+            for (ClosetRecommender.Conditions conditions : conditions()) {
+                List<Integer> narrow = scores(new OutfitCombiner(2).topK(closet, conditions, 5));
+                List<Integer> full = scores(new OutfitCombiner(Integer.MAX_VALUE).topK(closet, conditions, 5));
+                assertEquals("seed " + seed, full, narrow);
+            }
+        }
+    }
+
+    @Test
+    public void emptyClosetHasNoOutfits() {
+        for (ClosetRecommender.Conditions conditions : conditions()) {
+            assertTrue(new OutfitCombiner().topK(Collections.<ClosetItemEntity>emptyList(), conditions, 3).isEmpty());
+        }
+    }
+
+    private static List<Integer> scores(List<OutfitCombiner.Outfit> outfits) {
+        List<Integer> scores = new ArrayList<>(outfits.size());
+        for (OutfitCombiner.Outfit outfit : outfits) {
+            scores.add(outfit.score);
+        }
+        return scores;
+    }
+
+    /** 冷雨工作日、温和周末、炎热工作日。 */
+    static List<ClosetRecommender.Conditions> conditions() {
+        Calendar weekday = Calendar.getInstance();
+        weekday.set(Calendar.DAY_OF_WEEK, Calendar.WEDNESDAY);
+        Calendar weekend = Calendar.getInstance();
+        weekend.set(Calendar.DAY_OF_WEEK, Calendar.SATURDAY);
+        return Arrays.asList(
+                new ClosetRecommender.Conditions("秋冬", 3, "小雨", weekday),
+                new ClosetRecommender.Conditions("春秋", 16, "多云", weekend),
+                new ClosetRecommender.Conditions("春夏", 31, "晴", weekday)
+        );
+    }
+
+    static List<ClosetItemEntity> syntheticCloset(int size, Random random) {
+        List<ClosetItemEntity> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ClosetItemEntity item = new ClosetItemEntity(
+                    "test",
+                    pick(NAMES, random) + i,
+                    pick(CATEGORIES, random),
+                    "",
+                    "",
+                    pick(SEASONS, random),
+                    pick(STYLES, random),
+                    pick(SCENES, random),
+                    random.nextInt(8) == 0,
+                    1_700_000_000_000L + i * 1000L
+            );
+            item.id = i + 1;
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+}
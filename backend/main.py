@@ -1,6 +1,7 @@
 from __future__ import annotations
 
 import base64
+import hashlib
 import io
 import json
 import os
@@ -399,6 +400,19 @@ def _save_upload_bytes(content: bytes, suffix: str) -> str:
     return name
 
 
+def _write_upload_atomic(name: str, content: bytes) -> None:
+    """
+    先写到 UPLOAD_DIR 里的临时文件再改名：结果文件/人像是否存在本身就是“已完成”的信号，
+    并发的轮询不能看到写了一半的文件。
+    """
+    tmp = UPLOAD_DIR / f".{name}.{uuid.uuid4().hex}.tmp"
+    try:
+        tmp.write_bytes(content)
+        os.replace(tmp, UPLOAD_DIR / name)
+    finally:
+        tmp.unlink(missing_ok=True)
+
+
 def _dashscope_submit_tryon(person_url: str, garment_url: str) -> str:
     if not DASHSCOPE_API_KEY:
         raise RuntimeError("未配置 DASHSCOPE_API_KEY")
@@ -449,56 +463,73 @@ def _dashscope_submit_tryon(person_url: str, garment_url: str) -> str:
     return str(task_id)
 
 
-def _dashscope_poll_result(task_id: str) -> str:
+def _dashscope_task_status(task_id: str) -> tuple[str, str, str]:
+    """
+    查询一次 DashScope 任务状态，返回 (status, result_url, raw_text)。
+    status 统一为 PENDING / RUNNING / DONE / FAILED；网络错误时按 RUNNING 处理，由调用方继续轮询。
+    """
     if not DASHSCOPE_API_KEY:
         raise RuntimeError("未配置 DASHSCOPE_API_KEY")
     endpoint = f"https://dashscope.aliyuncs.com/api/v1/tasks/{task_id}"
     headers = {"Authorization": f"Bearer {DASHSCOPE_API_KEY}"}
+    try:
+        resp = requests.get(
+            endpoint,
+            headers=headers,
+            timeout=(DASHSCOPE_CONNECT_TIMEOUT_SECONDS, DASHSCOPE_READ_TIMEOUT_SECONDS),
+        )
+    except (requests.Timeout, requests.ConnectionError):
+        return "RUNNING", "", ""
+    text = resp.text
+    if resp.status_code >= 300:
+        return "RUNNING", "", text
+    data = resp.json()
+    output = data.get("output") or {}
+    status = (output.get("task_status") or output.get("taskStatus") or "").upper()
+    if status in ("SUCCEEDED", "SUCCESS", "DONE"):
+        results = output.get("results") or output.get("result") or []
+        if isinstance(results, dict):
+            results = [results]
+        if isinstance(results, list) and results:
+            url = results[0].get("url") or results[0].get("image_url") or results[0].get("imageUrl")
+            if url:
+                return "DONE", str(url), text
+        # 有些返回在 output.url 之类，兜底找一找
+        for key in ("url", "image_url", "imageUrl"):
+            if key in output:
+                return "DONE", str(output[key]), text
+        raise RuntimeError(f"DashScope 成功但未返回图片 URL：{text}")
+    if status in ("FAILED", "FAIL", "CANCELED", "UNKNOWN"):
+        return "FAILED", "", text
+    if status == "PENDING":
+        return "PENDING", "", text
+    return "RUNNING", "", text
+
 
+def _dashscope_poll_result(task_id: str) -> str:
     deadline = time.time() + TRYON_MAX_WAIT_SECONDS
     last_text = ""
     while time.time() < deadline:
-        try:
-            resp = requests.get(
-                endpoint,
-                headers=headers,
-                timeout=(DASHSCOPE_CONNECT_TIMEOUT_SECONDS, DASHSCOPE_READ_TIMEOUT_SECONDS),
-            )
-        except (requests.Timeout, requests.ConnectionError):
-            time.sleep(1.2)
-            continue
-        last_text = resp.text
-        if resp.status_code >= 300:
-            time.sleep(1.2)
-            continue
-        data = resp.json()
-        output = data.get("output") or {}
-        status = (output.get("task_status") or output.get("taskStatus") or "").upper()
-        if status in ("SUCCEEDED", "SUCCESS", "DONE"):
-            results = output.get("results") or output.get("result") or []
-            if isinstance(results, dict):
-                results = [results]
-            if isinstance(results, list) and results:
-                url = results[0].get("url") or results[0].get("image_url") or results[0].get("imageUrl")
-                if url:
-                    return str(url)
-            # 有些返回在 output.url 之类，兜底找一找
-            for key in ("url", "image_url", "imageUrl"):
-                if key in output:
-                    return str(output[key])
-            raise RuntimeError(f"DashScope 成功但未返回图片 URL：{last_text}")
-        if status in ("FAILED", "FAIL"):
+        status, url, text = _dashscope_task_status(task_id)
+        last_text = text or last_text
+        if status == "DONE":
+            return url
+        if status == "FAILED":
             raise RuntimeError(f"DashScope 生成失败：{last_text}")
         time.sleep(1.2)
     raise RuntimeError(f"DashScope 生成超时（{TRYON_MAX_WAIT_SECONDS}s）：{last_text}")
 
 
-def _dashscope_tryon(person_bytes: bytes, cloth_bytes: bytes) -> bytes:
+def _require_public_base_url():
     if not _is_public_base_url(PUBLIC_BASE_URL):
         raise RuntimeError(
             "DashScope aItryon 需要公网可访问的图片 URL。请把后端部署到公网，并设置 PUBLIC_BASE_URL 为公网地址。"
         )
 
+
+def _dashscope_upload_inputs(person_bytes: bytes, cloth_bytes: bytes) -> tuple[str, str]:
+    _require_public_base_url()
+
     # 先压缩/缩放，提高 DashScope 拉取成功率
     person_bytes = _shrink_for_tryon(person_bytes)
     cloth_bytes = _shrink_for_tryon(cloth_bytes)
@@ -507,9 +538,10 @@ def _dashscope_tryon(person_bytes: bytes, cloth_bytes: bytes) -> bytes:
     cloth_name = _save_upload_bytes(cloth_bytes, ".jpg")
     person_url = PUBLIC_BASE_URL.rstrip("/") + f"/files/{person_name}"
     cloth_url = PUBLIC_BASE_URL.rstrip("/") + f"/files/{cloth_name}"
+    return person_url, cloth_url
 
-    task_id = _dashscope_submit_tryon(person_url, cloth_url)
-    result_url = _dashscope_poll_result(task_id)
+
+def _download_result(result_url: str) -> bytes:
     img_resp = requests.get(
         result_url, timeout=(DASHSCOPE_CONNECT_TIMEOUT_SECONDS, DASHSCOPE_READ_TIMEOUT_SECONDS)
     )
@@ -518,6 +550,13 @@ def _dashscope_tryon(person_bytes: bytes, cloth_bytes: bytes) -> bytes:
     return img_resp.content
 
 
+def _dashscope_tryon(person_bytes: bytes, cloth_bytes: bytes) -> bytes:
+    person_url, cloth_url = _dashscope_upload_inputs(person_bytes, cloth_bytes)
+    task_id = _dashscope_submit_tryon(person_url, cloth_url)
+    result_url = _dashscope_poll_result(task_id)
+    return _download_result(result_url)
+
+
 def _dashscope_chat_completions(payload: Dict[str, Any]) -> Dict[str, Any]:
     if not DASHSCOPE_API_KEY:
         raise RuntimeError("未配置 DASHSCOPE_API_KEY")
@@ -633,3 +672,145 @@ async def tryon(
         elapsed = int((time.time() - start) * 1000)
         result = TryOnResult(ok=False, error=str(e), elapsed_ms=elapsed)
         return JSONResponse(status_code=500, content=result.__dict__)
+
+
+# ---- 异步换装任务：提交后立即返回 job_id，客户端轮询（支持 wait 长轮询）状态，完成后从 result_url 下载 ----
+# job_id 自带来源："ds-<DashScope task_id>" 直接查询 DashScope，后端重启也能继续；
+# "local-<name>" 为 mock 模式同步生成的结果文件。
+
+TRYON_JOB_MAX_WAIT_SECONDS = 25
+
+
+def _job_result_name(job_id: str) -> str:
+    safe = "".join(ch for ch in job_id if ch.isalnum() or ch in "-_")
+    return f"tryon_{safe}.jpg"
+
+
+def _person_image_name(image_id: str) -> Optional[str]:
+    image_id = (image_id or "").strip().lower()
+    if len(image_id) != 32 or any(ch not in "0123456789abcdef" for ch in image_id):
+        return None
+    return f"person_{image_id}.jpg"
+
+
+@app.post("/api/tryon/images")
+async def tryon_upload_image(image: UploadFile = File(...)):
+    """
+    批量换装时人像只上传一次：按换装尺寸缩放后以内容哈希命名保存，返回 image_id，
+    之后提交任务时用 personImageId 引用。同一张图重复上传得到同一个 id。
+    """
+    try:
+        content = _read_upload(image)
+        if not content:
+            return JSONResponse(status_code=400, content={"ok": False, "error": "缺少图片内容"})
+        shrunk = _shrink_for_tryon(content)
+        image_id = hashlib.sha256(shrunk).hexdigest()[:32]
+        path = UPLOAD_DIR / _person_image_name(image_id)
+        if not path.exists():
+            _write_upload_atomic(path.name, shrunk)
+        return {"ok": True, "image_id": image_id}
+    except Exception as e:
+        return JSONResponse(status_code=500, content={"ok": False, "error": str(e)})
+
+
+@app.post("/api/tryon/jobs")
+async def tryon_submit_job(
+    clothImage: UploadFile = File(...),
+    personImage: Optional[UploadFile] = File(None),
+    personImageId: Optional[str] = Form(None),
+):
+    try:
+        cloth_bytes = _read_upload(clothImage)
+        person_name = None
+        if personImageId:
+            person_name = _person_image_name(personImageId)
+            if not person_name or not (UPLOAD_DIR / person_name).exists():
+                # 客户端看到这个 code 后重新上传人像再提交
+                return JSONResponse(
+                    status_code=404,
+                    content={"ok": False, "code": "PERSON_IMAGE_MISSING", "error": "人像图片已失效，请重新上传"},
+                )
+            person_bytes = (UPLOAD_DIR / person_name).read_bytes()
+        else:
+            person_bytes = _read_upload(personImage) if personImage is not None else b""
+        if not person_bytes or not cloth_bytes:
+            return JSONResponse(status_code=400, content={"ok": False, "error": "缺少图片内容"})
+
+        if TRYON_PROVIDER == "dashscope":
+            if person_name:
+                # 已上传的人像在保存时已经缩放过，直接给出公网 URL
+                _require_public_base_url()
+                person_url = _public_file_url(person_name)
+                cloth_url = _public_file_url(_save_upload_bytes(_shrink_for_tryon(cloth_bytes), ".jpg"))
+            else:
+                person_url, cloth_url = _dashscope_upload_inputs(person_bytes, cloth_bytes)
+            job_id = "ds-" + _dashscope_submit_tryon(person_url, cloth_url)
+            return {"ok": True, "job_id": job_id, "status": "PENDING"}
+
+        job_id = "local-" + uuid.uuid4().hex
+        _write_upload_atomic(_job_result_name(job_id), _mock_tryon(person_bytes, cloth_bytes))
+        return {"ok": True, "job_id": job_id, "status": "DONE", "result_url": f"/files/{_job_result_name(job_id)}"}
+    except Exception as e:
+        return JSONResponse(status_code=500, content={"ok": False, "error": str(e)})
+
+
+def _tryon_job_snapshot(job_id: str) -> Dict[str, Any]:
+    """
+    查询一次任务状态；DashScope 完成时把结果下载到本地（只下载一次）。
+    """
+    name = _job_result_name(job_id)
+    if (UPLOAD_DIR / name).exists():
+        return {"job_id": job_id, "status": "DONE", "result_url": f"/files/{name}"}
+    if not job_id.startswith("ds-"):
+        return {"job_id": job_id, "status": "FAILED", "error": "任务不存在", "missing": True}
+    status, url, text = _dashscope_task_status(job_id[3:])
+    if status == "DONE":
+        _write_upload_atomic(name, _download_result(url))
+        return {"job_id": job_id, "status": "DONE", "result_url": f"/files/{name}"}
+    if status == "FAILED":
+        return {"job_id": job_id, "status": "FAILED", "error": f"DashScope 生成失败：{text}"}
+    return {"job_id": job_id, "status": status}
+
+
+@app.get("/api/tryon/jobs/{job_id}")
+def tryon_job_status(job_id: str, wait: int = 0):
+    deadline = time.time() + max(0, min(wait, TRYON_JOB_MAX_WAIT_SECONDS))
+    try:
+        while True:
+            snap = _tryon_job_snapshot(job_id)
+            if snap.pop("missing", False):
+                return JSONResponse(status_code=404, content={"ok": False, **snap})
+            if snap["status"] in ("DONE", "FAILED") or time.time() >= deadline:
+                return {"ok": True, **snap}
+            time.sleep(1.2)
+    except Exception as e:
+        return JSONResponse(status_code=500, content={"ok": False, "job_id": job_id, "error": str(e)})
+
+
+@app.get("/api/tryon/jobs")
+def tryon_jobs_status(ids: str, wait: int = 0):
+    """
+    一次查询多个任务（批量换装时客户端只挂一个长轮询）：任一任务状态变化或到达 wait 秒时返回全部任务的当前状态。
+    """
+    job_ids = [x.strip() for x in (ids or "").split(",") if x.strip()][:20]
+    deadline = time.time() + max(0, min(wait, TRYON_JOB_MAX_WAIT_SECONDS))
+    try:
+        current: Dict[str, Dict[str, Any]] = {}
+        initial: Dict[str, str] = {}
+        while True:
+            for job_id in job_ids:
+                if job_id in current and current[job_id]["status"] in ("DONE", "FAILED"):
+                    continue
+                snap = _tryon_job_snapshot(job_id)
+                snap.pop("missing", None)
+                current[job_id] = snap
+            if not initial:
+                initial = {k: v["status"] for k, v in current.items()}
+            changed = any(
+                v["status"] in ("DONE", "FAILED") or v["status"] != initial.get(k) for k, v in current.items()
+            )
+            if changed or time.time() >= deadline:
+                return {"ok": True, "jobs": [current[j] for j in job_ids if j in current]}
+            time.sleep(1.2)
+    except Exception as e:
+        return JSONResponse(status_code=500, content={"ok": False, "error": str(e)})
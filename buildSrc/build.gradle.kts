@@ -0,0 +1,15 @@
+// 构建期工具：把 assets/outfits.json 预编译成 Room 预置数据库（见 SeedDatabaseTask）
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    implementation(gradleApi())
+    implementation(libs.sqlite.jdbc)
+    implementation(libs.gson)
+}
@@ -0,0 +1,143 @@
+package com.example.dresscode.build;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 把城市源数据（CSV：adcode,name,pinyin）编译成 assets/geo/cities.bin，运行时由 CityIndex 直接 mmap：
+ * <pre>
+ * int   magic 'CIDX'
+ * int   version
+ * int   count
+ * count × { int adcode, int nameOffset, int pinyinOffset, int initialsOffset }   // 按 adcode 升序
+ * 字符串区：每个字符串 = u8 字节数 + UTF-8
+ * </pre>
+ * 全部大端序；偏移量相对文件开头。拼音去掉空格，首字母取每个音节的第一个字母。
+ */
+@CacheableTask
+public abstract class CityIndexTask extends DefaultTask {
+
+    public static final int MAGIC = 0x43494458;
+    public static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    private static final int RECORD_BYTES = 16;
+
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getSourceCsv();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getAssetsDir();
+
+    private static final class Row {
+        final int adcode;
+        final String name;
+        final String pinyin;
+        final String initials;
+
+        Row(int adcode, String name, String pinyin, String initials) {
+            this.adcode = adcode;
+            this.name = name;
+            this.pinyin = pinyin;
+            this.initials = initials;
+        }
+    }
+
+    @TaskAction
+    public void generate() throws IOException {
+        File csv = getSourceCsv().get().getAsFile();
+        List<Row> rows = parse(Files.readAllLines(csv.toPath(), StandardCharsets.UTF_8));
+        rows.sort((a, b) -> Integer.compare(a.adcode, b.adcode));
+
+        ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        int poolBase = HEADER_BYTES + rows.size() * RECORD_BYTES;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(poolBase + rows.size() * 24);
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(rows.size());
+        for (Row row : rows) {
+            data.writeInt(row.adcode);
+            data.writeInt(poolBase + append(pool, row.name));
+            data.writeInt(poolBase + append(pool, row.pinyin));
+            data.writeInt(poolBase + append(pool, row.initials));
+        }
+        pool.writeTo(data);
+        data.flush();
+
+        File dir = getAssetsDir().get().dir("geo").getAsFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        Files.write(new File(dir, "cities.bin").toPath(), out.toByteArray());
+        getLogger().info("cities.bin: {} cities, {} bytes", rows.size(), out.size());
+    }
+
+    private static List<Row> parse(List<String> lines) {
+        List<Row> rows = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        for (String raw : lines) {
+            String line = raw.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split(",");
+            if (parts.length < 3) {
+                throw new GradleException("cities.csv: bad line '" + line + "'");
+            }
+            int adcode;
+            try {
+                adcode = Integer.parseInt(parts[0].trim());
+            } catch (NumberFormatException e) {
+                throw new GradleException("cities.csv: bad adcode in '" + line + "'");
+            }
+            if (!seen.add(adcode)) {
+                throw new GradleException("cities.csv: duplicate adcode " + adcode);
+            }
+            String[] syllables = parts[2].trim().toLowerCase(Locale.ROOT).split("\\s+");
+            StringBuilder pinyin = new StringBuilder();
+            StringBuilder initials = new StringBuilder();
+            for (String s : syllables) {
+                if (s.isEmpty()) {
+                    continue;
+                }
+                pinyin.append(s);
+                initials.append(s.charAt(0));
+            }
+            rows.add(new Row(adcode, parts[1].trim(), pinyin.toString(), initials.toString()));
+        }
+        return rows;
+    }
+
+    /** 写入一个字符串，返回它在字符串区里的偏移。 */
+    private static int append(ByteArrayOutputStream pool, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 255) {
+            throw new GradleException("cities.csv: value too long '" + s + "'");
+        }
+        int offset = pool.size();
+        pool.write(bytes.length);
+        pool.write(bytes, 0, bytes.length);
+        return offset;
+    }
+}
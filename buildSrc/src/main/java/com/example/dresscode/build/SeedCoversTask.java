@@ -0,0 +1,85 @@
+package com.example.dresscode.build;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * 根据 assets/outfits.json 生成 SeedCovers.java，把封面 drawable 名在构建期解析成 R.drawable 引用：
+ * 预置库的封面占位值（见 SeedDatabaseTask）和运行时导入器都用它，不再调用 getIdentifier。
+ * 与 SeedDatabaseTask 分开，是因为后者读取 Room 在编译期导出的 schema，必须排在 javac 之后。
+ */
+@CacheableTask
+public abstract class SeedCoversTask extends DefaultTask {
+
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getSeedJson();
+
+    /** 用于确认 drawable 存在；找不到的封面不生成引用，对应 coverResId = 0。 */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getResDirs();
+
+    @Input
+    public abstract Property<String> getPackageName();
+
+    @Input
+    public abstract Property<String> getRPackageName();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getJavaDir();
+
+    @TaskAction
+    public void generate() throws Exception {
+        SeedSource source = SeedSource.read(getSeedJson().get().getAsFile(), getResDirs().getFiles(), getLogger());
+        String pkg = getPackageName().get();
+        StringBuilder sb = new StringBuilder();
+        sb.append("package ").append(pkg).append(";\n\n");
+        sb.append("import ").append(getRPackageName().get()).append(".R;\n\n");
+        sb.append("/**\n * 由 SeedCoversTask 根据 assets/outfits.json 生成，勿手动修改。\n */\n");
+        sb.append("public final class SeedCovers {\n\n");
+        sb.append("    /** 预置库里 coverResId = -(下标 + 1) 对应的 drawable。 */\n");
+        sb.append("    static final int[] DRAWABLES = {\n");
+        for (String cover : source.coverIndex.keySet()) {
+            sb.append("            R.drawable.").append(cover).append(",\n");
+        }
+        sb.append("    };\n\n");
+        sb.append("    /** 与 DRAWABLES 同下标的 drawable 名。 */\n");
+        sb.append("    private static final String[] NAMES = {\n");
+        for (String cover : source.coverIndex.keySet()) {
+            sb.append("            \"").append(cover).append("\",\n");
+        }
+        sb.append("    };\n\n");
+        sb.append("    /** 生成预置库所用 outfits.json 的 SHA-256，与运行时导入器的指纹算法一致。 */\n");
+        sb.append("    static final String FINGERPRINT = \"").append(source.fingerprint).append("\";\n\n");
+        sb.append("    private SeedCovers() {\n    }\n\n");
+        sb.append("    /**\n     * outfits.json 里的封面名对应的 R.drawable；构建时不存在的返回 0。\n     */\n");
+        sb.append("    public static int drawable(String name) {\n");
+        sb.append("        for (int i = 0; i < NAMES.length; i++) {\n");
+        sb.append("            if (NAMES[i].equals(name)) {\n");
+        sb.append("                return DRAWABLES[i];\n");
+        sb.append("            }\n");
+        sb.append("        }\n");
+        sb.append("        return 0;\n");
+        sb.append("    }\n}\n");
+
+        File dir = new File(getJavaDir().get().getAsFile(), pkg.replace('.', File.separatorChar));
+        SeedSource.mkdirs(dir);
+        Files.write(new File(dir, "SeedCovers.java").toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
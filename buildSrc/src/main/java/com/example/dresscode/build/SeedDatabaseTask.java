@@ -0,0 +1,203 @@
+package com.example.dresscode.build;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 把 assets/outfits.json 编译成 Room 预置数据库（createFromAsset）：
+ * <ul>
+ *     <li>表结构取自 Room 编译期导出的 schema（room.schemaLocation 下版本号最大的 JSON），
+ *     建表、索引语句和 user_version 都与 AppDatabase 完全一致，实体变化后无需手动同步；</li>
+ *     <li>封面 drawable 名解析成 SeedCovers.DRAWABLES 的下标（见 SeedCoversTask），库里 coverResId 存占位值 -(下标 + 1)，
+ *     首次拷贝时由 DatabaseProvider 换成真实的 R.drawable 值；</li>
+ *     <li>FTS 表、筛选编码列依赖设备上的 SQLite（ICU 分词）和 OutfitFacets，也在拷贝回调里补齐；
+ *     room_master_table 不写，由 Room 打开时逐表校验后自己写入。</li>
+ * </ul>
+ */
+@CacheableTask
+public abstract class SeedDatabaseTask extends DefaultTask {
+
+    /** RoomOpenHelper 构造参数里的 identityHash 与 legacyHash。 */
+    private static final Pattern IDENTITY_HASHES = Pattern.compile("\"([0-9a-f]{32})\",\\s*\"([0-9a-f]{32})\"");
+
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getSeedJson();
+
+    /** 与 SeedCoversTask 相同的资源目录，保证封面下标一致。 */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getResDirs();
+
+    /** Room 导出 AppDatabase schema 的目录（schemas/&lt;数据库类全名&gt;），由 javac 写入。 */
+    @InputDirectory
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract DirectoryProperty getSchemaDir();
+
+    /**
+     * Room 生成的 AppDatabase_Impl.java：其中的 identityHash 必须与最新 schema JSON 一致。
+     * Room 在表结构相同时不会重写已提交的 JSON，这里防止 JSON 里的哈希与实际代码不符。
+     */
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getDatabaseImpl();
+
+    @Input
+    public abstract Property<String> getDatabaseFileName();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getAssetsDir();
+
+    @TaskAction
+    public void generate() throws Exception {
+        SeedSource source = SeedSource.read(getSeedJson().get().getAsFile(), getResDirs().getFiles(), getLogger());
+        JsonObject database = readLatestSchema(getSchemaDir().get().getAsFile());
+        checkIdentityHash(database, getDatabaseImpl().get().getAsFile());
+
+        File dbDir = getAssetsDir().get().dir("databases").getAsFile();
+        SeedSource.mkdirs(dbDir);
+        File db = new File(dbDir, getDatabaseFileName().get());
+        Files.deleteIfExists(db.toPath());
+        writeDatabase(db, database, source);
+    }
+
+    private static JsonObject readLatestSchema(File dir) throws Exception {
+        File latest = null;
+        int latestVersion = -1;
+        File[] files = dir.listFiles((d, n) -> n.endsWith(".json"));
+        if (files != null) {
+            for (File f : files) {
+                String name = f.getName();
+                try {
+                    int version = Integer.parseInt(name.substring(0, name.length() - ".json".length()));
+                    if (version > latestVersion) {
+                        latestVersion = version;
+                        latest = f;
+                    }
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        if (latest == null) {
+            throw new GradleException("No Room schema found in " + dir + "; check room.schemaLocation and exportSchema");
+        }
+        String text = new String(Files.readAllBytes(latest.toPath()), StandardCharsets.UTF_8);
+        return JsonParser.parseString(text).getAsJsonObject().getAsJsonObject("database");
+    }
+
+    private static void checkIdentityHash(JsonObject database, File impl) throws Exception {
+        String source = new String(Files.readAllBytes(impl.toPath()), StandardCharsets.UTF_8);
+        Matcher m = IDENTITY_HASHES.matcher(source);
+        if (!m.find()) {
+            throw new GradleException("Cannot find the identity hash in " + impl);
+        }
+        String expected = m.group(1);
+        String exported = database.get("identityHash").getAsString();
+        if (!expected.equals(exported)) {
+            throw new GradleException("Room schema v" + database.get("version").getAsInt() + " has identityHash " + exported +
+                    " but AppDatabase_Impl uses " + expected + "; delete that JSON and rebuild so Room exports it again");
+        }
+    }
+
+    private static void createSchema(Statement st, JsonObject database) throws Exception {
+        for (JsonElement e : array(database, "entities")) {
+            JsonObject entity = e.getAsJsonObject();
+            if (entity.has("ftsVersion")) {
+                // FTS 表要用设备上的 ICU 分词器，拷贝回调里创建
+                continue;
+            }
+            String table = entity.get("tableName").getAsString();
+            st.execute(entity.get("createSql").getAsString().replace("${TABLE_NAME}", table));
+            for (JsonElement i : array(entity, "indices")) {
+                JsonObject index = i.getAsJsonObject();
+                st.execute(index.get("createSql").getAsString()
+                        .replace("${INDEX_NAME}", index.get("name").getAsString())
+                        .replace("${TABLE_NAME}", table));
+            }
+        }
+        for (JsonElement e : array(database, "views")) {
+            JsonObject view = e.getAsJsonObject();
+            st.execute(view.get("createSql").getAsString().replace("${VIEW_NAME}", view.get("viewName").getAsString()));
+        }
+    }
+
+    private static JsonArray array(JsonObject o, String key) {
+        JsonElement v = o.get(key);
+        return v == null || !v.isJsonArray() ? new JsonArray() : v.getAsJsonArray();
+    }
+
+    private static void writeDatabase(File db, JsonObject database, SeedSource source) throws Exception {
+        Class.forName("org.sqlite.JDBC");
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + db.getAbsolutePath())) {
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                createSchema(st, database);
+            }
+            // 筛选编码列先写 0，拷贝回调按 OutfitFacets 回填；实体新增非空列而这里没写时，构建直接失败
+            String insert = "INSERT INTO `outfits` (`title`, `tags`, `gender`, `style`, `season`, `scene`, `weather`, `colorHex`, " +
+                    "`coverResId`, `tagSource`, `tagModel`, `aiTagsJson`, `tagUpdatedAt`, `createdAt`, " +
+                    "`genderCode`, `styleCode`, `seasonMask`, `sceneCode`, `weatherCode`) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, 0, 0, 0, 0)";
+            try (PreparedStatement ps = conn.prepareStatement(insert)) {
+                long delta = 0;
+                for (JsonElement e : source.seeds) {
+                    if (!e.isJsonObject()) {
+                        continue;
+                    }
+                    Integer index = source.coverIndex.get(SeedSource.str(e, "cover"));
+                    String tagSource = SeedSource.str(e, "tagSource");
+                    ps.setString(1, SeedSource.str(e, "title"));
+                    ps.setString(2, SeedSource.str(e, "tags"));
+                    ps.setString(3, SeedSource.str(e, "gender"));
+                    ps.setString(4, SeedSource.str(e, "style"));
+                    ps.setString(5, SeedSource.str(e, "season"));
+                    ps.setString(6, SeedSource.str(e, "scene"));
+                    ps.setString(7, SeedSource.str(e, "weather"));
+                    ps.setString(8, SeedSource.str(e, "colorHex"));
+                    ps.setInt(9, index == null ? 0 : -(index + 1));
+                    ps.setString(10, tagSource.isEmpty() ? "SEED" : tagSource);
+                    ps.setString(11, SeedSource.str(e, "tagModel"));
+                    ps.setString(12, SeedSource.str(e, "aiTagsJson"));
+                    ps.setLong(13, SeedSource.num(e, "tagUpdatedAt"));
+                    // 相对时间：拷贝回调里加上安装时刻，保持与 JSON 相同的先后顺序
+                    ps.setLong(14, -delta);
+                    ps.addBatch();
+                    delta += 1000L;
+                }
+                ps.executeBatch();
+            }
+            try (Statement st = conn.createStatement()) {
+                st.execute("PRAGMA user_version = " + database.get("version").getAsInt());
+            }
+            conn.commit();
+        }
+    }
+}
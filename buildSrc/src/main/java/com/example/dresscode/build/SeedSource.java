@@ -0,0 +1,101 @@
+package com.example.dresscode.build;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.gradle.api.logging.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SeedDatabaseTask 与 SeedCoversTask 共用的 outfits.json 解析：两边必须得到同样的封面下标，
+ * 预置库里的占位值 -(下标 + 1) 才能对上 SeedCovers.DRAWABLES。
+ */
+final class SeedSource {
+
+    final JsonArray seeds;
+    /** 封面 drawable 名 → 下标，按在 JSON 里首次出现的顺序；找不到 drawable 的不编号。 */
+    final Map<String, Integer> coverIndex;
+    /** outfits.json 的 SHA-256，与运行时导入器的指纹算法一致。 */
+    final String fingerprint;
+
+    private SeedSource(JsonArray seeds, Map<String, Integer> coverIndex, String fingerprint) {
+        this.seeds = seeds;
+        this.coverIndex = coverIndex;
+        this.fingerprint = fingerprint;
+    }
+
+    static SeedSource read(File json, Set<File> resDirs, Logger logger) throws Exception {
+        byte[] bytes = Files.readAllBytes(json.toPath());
+        JsonArray seeds = JsonParser.parseString(new String(bytes, StandardCharsets.UTF_8)).getAsJsonArray();
+        Map<String, Integer> coverIndex = new LinkedHashMap<>();
+        for (JsonElement e : seeds) {
+            String cover = str(e, "cover");
+            if (!cover.isEmpty() && !coverIndex.containsKey(cover)) {
+                if (drawableExists(resDirs, cover)) {
+                    coverIndex.put(cover, coverIndex.size());
+                } else {
+                    logger.warn("outfits.json: drawable '{}' not found, coverResId will be 0", cover);
+                }
+            }
+        }
+        return new SeedSource(seeds, coverIndex, sha256Hex(bytes));
+    }
+
+    static void mkdirs(File dir) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+    }
+
+    static String str(JsonElement e, String key) {
+        if (!e.isJsonObject()) {
+            return "";
+        }
+        JsonObject o = e.getAsJsonObject();
+        JsonElement v = o.get(key);
+        return v == null || v.isJsonNull() ? "" : v.getAsString().trim();
+    }
+
+    static long num(JsonElement e, String key) {
+        JsonElement v = e.getAsJsonObject().get(key);
+        return v == null || v.isJsonNull() ? 0L : v.getAsLong();
+    }
+
+    private static boolean drawableExists(Set<File> resDirs, String name) {
+        for (File resDir : resDirs) {
+            File[] children = resDir.listFiles();
+            if (children == null) {
+                continue;
+            }
+            for (File child : children) {
+                if (!child.isDirectory() || !child.getName().startsWith("drawable")) {
+                    continue;
+                }
+                File[] files = child.listFiles((d, n) -> n.startsWith(name + "."));
+                if (files != null && files.length > 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String sha256Hex(byte[] bytes) throws Exception {
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(bytes);
+        StringBuilder sb = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}